@@ -0,0 +1,64 @@
+package com.example.benchmark;
+
+import com.example.Main;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Starts the application for benchmarks and seeds it with phones.
+ */
+final class BenchmarkSupport {
+
+    static final String MODEL = "Benchmark Phone";
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Starts the application against the in-memory H2 database without RabbitMQ. The test profile leaves out the
+     * broker beans, so outbox events are written as usual but never relayed. Admission control is off, the benchmark
+     * threads would otherwise be rate limited as a single user.
+     *
+     * @param arguments Additional command line arguments, e.g. {@code --spring.threads.virtual.enabled=true}.
+     * @return The running application.
+     */
+    static ConfigurableApplicationContext startApplication(String... arguments) {
+        List<String> args = new ArrayList<>(List.of(
+            "--server.port=0",
+            "--spring.jpa.show-sql=false",
+            "--logging.level.root=warn",
+            "--logging.level.com.example=warn",
+            "--mobile-phone-reservation.availability-index.enabled=true",
+            "--mobile-phone-reservation.admission.enabled=false"));
+        args.addAll(List.of(arguments));
+        return new SpringApplicationBuilder(Main.class)
+            .profiles("test")
+            .run(args.toArray(new String[0]));
+    }
+
+    /**
+     * Inserts available phones whose IMEI is the prefix followed by a zero padded number.
+     *
+     * @return The IMEIs of the inserted phones.
+     */
+    static List<String> insertPhones(ConfigurableApplicationContext context, String prefix, int count) {
+        List<String> imeis = IntStream.range(0, count)
+            .mapToObj(i -> prefix + String.format("%09d", i))
+            .toList();
+        context.getBean(JdbcTemplate.class).batchUpdate(
+            "INSERT INTO mobile_phone (model, imei, is_available) VALUES (?, ?, TRUE)",
+            imeis.stream().map(imei -> new Object[]{MODEL, imei}).toList());
+        return imeis;
+    }
+
+    /**
+     * Removes the outbox events written so far, nothing relays them while benchmarking.
+     */
+    static void clearOutbox(ConfigurableApplicationContext context) {
+        context.getBean(JdbcTemplate.class).update("DELETE FROM outbox_event");
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.benchmark;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.example.config.RetryConfig;
+import com.example.controller.MobilePhoneController;
+import com.example.controller.RestExceptionHandler;
+import com.example.metrics.ReservationMetrics;
+import com.example.model.exception.MobilePhoneNotAvailableException;
+import com.example.model.exception.MobilePhoneNotBookedException;
+import com.example.service.ConcurrencyRetry;
+import com.example.service.ReservationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+/**
+ * Conflicts answered through Spring MVC dispatch, {@link MobilePhoneController} and {@link RestExceptionHandler},
+ * with the service throwing straight away. Unlike {@link ErrorPathBenchmark} this includes resolving the handler and
+ * the advice and writing the response, but not the security filters or the database, see
+ * {@code bookAlreadyBooked} of {@link MobilePhoneControllerBenchmark} for those. {@code sharedConflict} throws the
+ * shared exception that is answered with a prebuilt response, {@code describedConflict} an exception with its own
+ * message as the slot and waitlist conflicts still do. Run with {@code -prof gc} to compare allocation per conflict.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConflictResponseBenchmark {
+
+    private static final String IMEI = "911111111111111";
+
+    private MockMvc mockMvc;
+
+    @Setup
+    public void setup() {
+        // Without the application's logging configuration Logback logs at debug level
+        ((Logger) LoggerFactory.getLogger("com.example")).setLevel(Level.INFO);
+        ReservationService reservationService = mock(ReservationService.class);
+        doThrow(MobilePhoneNotAvailableException.IN_USE).when(reservationService).bookPhone(any(), any(), any());
+        doThrow(new MobilePhoneNotBookedException(IMEI + " is not booked")).when(reservationService).returnPhone(any());
+        ConcurrencyRetry concurrencyRetry =
+            new ConcurrencyRetry(new RetryConfig(), new ReservationMetrics(new SimpleMeterRegistry()));
+        MobilePhoneController mobilePhoneController =
+            new MobilePhoneController(reservationService, null, concurrencyRetry, null, null);
+        mockMvc = MockMvcBuilders.standaloneSetup(mobilePhoneController)
+            .setControllerAdvice(new RestExceptionHandler())
+            .build();
+        // The benchmark threads are not the setup thread, so they share one security context
+        SecurityContextHolder.setStrategyName(SecurityContextHolder.MODE_GLOBAL);
+        SecurityContextHolder.getContext()
+            .setAuthentication(new TestingAuthenticationToken("user", "password", "ROLE_USER"));
+    }
+
+    @Benchmark
+    public int sharedConflict() throws Exception {
+        return mockMvc.perform(post("/api/mobile/" + IMEI + "/book")).andReturn().getResponse().getStatus();
+    }
+
+    @Benchmark
+    public int describedConflict() throws Exception {
+        return mockMvc.perform(post("/api/mobile/" + IMEI + "/return")).andReturn().getResponse().getStatus();
+    }
+}
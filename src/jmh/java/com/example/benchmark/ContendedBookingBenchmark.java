@@ -0,0 +1,78 @@
+package com.example.benchmark;
+
+import com.example.model.exception.MobilePhoneNotAvailableException;
+import com.example.service.ReservationService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Every thread tries to book the same phone and returns it straight away when it wins. The thread count can be
+ * changed with JMH's {@code -t} option.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class ContendedBookingBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private ReservationService reservationService;
+    private String hotImei;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = BenchmarkSupport.startApplication();
+        reservationService = context.getBean(ReservationService.class);
+        hotImei = BenchmarkSupport.insertPhones(context, "9200", 1).get(0);
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearOutbox() {
+        BenchmarkSupport.clearOutbox(context);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    /**
+     * Booking outcomes reported next to the throughput.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+
+        public long booked;
+        public long conflicts;
+    }
+
+    @Benchmark
+    public void bookSamePhone(Outcomes outcomes) {
+        try {
+            reservationService.bookPhone(hotImei, Thread.currentThread().getName());
+        } catch (MobilePhoneNotAvailableException e) {
+            outcomes.conflicts++;
+            return;
+        }
+        outcomes.booked++;
+        reservationService.returnPhone(hotImei);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.example.controller.RestExceptionHandler;
+import com.example.model.exception.MobilePhoneNotAvailableException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * The cost of turning a conflict into a response, with an exception that records its stack trace as every conflict
+ * used to, and with the stackless domain exceptions and {@link RestExceptionHandler}. The exception is thrown
+ * {@code depth} frames below the handler, a request reaches the service through well over a hundred frames of
+ * filters and proxies. Run with {@code -prof gc} to compare allocation per conflict.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ErrorPathBenchmark {
+
+    private static final String IMEI = "911111111111111";
+
+    @Param({"16", "128"})
+    int depth;
+
+    private final RestExceptionHandler restExceptionHandler = new RestExceptionHandler();
+
+    /**
+     * How conflicts were raised before: a plain exception that fills in its stack trace.
+     */
+    static final class StackTraceException extends RuntimeException {
+
+        StackTraceException(String message) {
+            super(message);
+        }
+    }
+
+    @Setup
+    public void quietLogging() {
+        // Without the application's logging configuration Logback logs at debug level
+        ((Logger) LoggerFactory.getLogger(RestExceptionHandler.class)).setLevel(Level.INFO);
+    }
+
+    @Benchmark
+    public ResponseEntity<String> conflictWithStackTrace() {
+        try {
+            throwAt(depth, true);
+        } catch (StackTraceException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+        throw new IllegalStateException("Nothing was thrown");
+    }
+
+    @Benchmark
+    public ResponseEntity<String> conflictStackless() {
+        try {
+            throwAt(depth, false);
+        } catch (MobilePhoneNotAvailableException e) {
+            return restExceptionHandler.handleConflict(e);
+        }
+        throw new IllegalStateException("Nothing was thrown");
+    }
+
+    private static void throwAt(int depth, boolean stackTrace) {
+        if (depth > 0) {
+            throwAt(depth - 1, stackTrace);
+            return;
+        }
+        String message = IMEI + " is being used by someone";
+        throw stackTrace ? new StackTraceException(message) : new MobilePhoneNotAvailableException(message);
+    }
+}
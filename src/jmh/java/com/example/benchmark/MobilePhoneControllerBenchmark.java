@@ -0,0 +1,109 @@
+package com.example.benchmark;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * The full request path through MockMvc, including the security filter chain and HTTP basic authentication.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MobilePhoneControllerBenchmark {
+
+    private static final int PHONES = 256;
+    private static final String REPLAYED_KEY = "benchmark-booking";
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private List<String> imeis;
+    private String bookedImei;
+    private final AtomicInteger nextPhone = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void startApplication() throws Exception {
+        context = BenchmarkSupport.startApplication();
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+            .apply(springSecurity())
+            .build();
+        imeis = BenchmarkSupport.insertPhones(context, "9300", PHONES);
+        bookedImei = BenchmarkSupport.insertPhones(context, "9301", 1).get(0);
+        expectStatus(post("/api/mobile/" + bookedImei + "/book").header("Idempotency-Key", REPLAYED_KEY), 200);
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearOutbox() {
+        BenchmarkSupport.clearOutbox(context);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    /**
+     * Gives every benchmark thread a phone of its own so that threads do not contend.
+     */
+    @State(Scope.Thread)
+    public static class OwnPhone {
+
+        String imei;
+
+        @Setup(Level.Trial)
+        public void pickPhone(MobilePhoneControllerBenchmark benchmark) {
+            imei = benchmark.imeis.get(benchmark.nextPhone.getAndIncrement() % PHONES);
+        }
+    }
+
+    @Benchmark
+    public void bookAndReturn(OwnPhone phone) throws Exception {
+        expectStatus(post("/api/mobile/" + phone.imei + "/book"), 200);
+        expectStatus(post("/api/mobile/" + phone.imei + "/return"), 200);
+    }
+
+    @Benchmark
+    public void bookAlreadyBooked() throws Exception {
+        expectStatus(post("/api/mobile/" + bookedImei + "/book"), 409);
+    }
+
+    /**
+     * A client retrying the booking that made the phone unavailable, answered from the cached outcome.
+     */
+    @Benchmark
+    public void bookReplayed() throws Exception {
+        expectStatus(post("/api/mobile/" + bookedImei + "/book").header("Idempotency-Key", REPLAYED_KEY), 200);
+    }
+
+    private void expectStatus(MockHttpServletRequestBuilder request, int status) throws Exception {
+        int actual = mockMvc.perform(request.with(httpBasic("user", "password")))
+            .andReturn().getResponse().getStatus();
+        if (actual != status) {
+            throw new IllegalStateException("Expected status " + status + " but was " + actual);
+        }
+    }
+}
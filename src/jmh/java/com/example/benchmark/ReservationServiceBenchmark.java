@@ -0,0 +1,91 @@
+package com.example.benchmark;
+
+import com.example.model.exception.MobilePhoneNotAvailableException;
+import com.example.service.ReservationService;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * {@link ReservationService} against H2, without HTTP, security or a broker.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReservationServiceBenchmark {
+
+    private static final int PHONES = 256;
+
+    private ConfigurableApplicationContext context;
+    private ReservationService reservationService;
+    private List<String> imeis;
+    private String bookedImei;
+    private final AtomicInteger nextPhone = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = BenchmarkSupport.startApplication();
+        reservationService = context.getBean(ReservationService.class);
+        imeis = BenchmarkSupport.insertPhones(context, "9100", PHONES);
+        bookedImei = BenchmarkSupport.insertPhones(context, "9101", 1).get(0);
+        reservationService.bookPhone(bookedImei, "owner");
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearOutbox() {
+        BenchmarkSupport.clearOutbox(context);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    /**
+     * Gives every benchmark thread a phone of its own so that threads do not contend.
+     */
+    @State(Scope.Thread)
+    public static class OwnPhone {
+
+        String imei;
+        String user;
+
+        @Setup(Level.Trial)
+        public void pickPhone(ReservationServiceBenchmark benchmark) {
+            imei = benchmark.imeis.get(benchmark.nextPhone.getAndIncrement() % PHONES);
+            user = "user-" + imei;
+        }
+    }
+
+    @Benchmark
+    public void bookAndReturn(OwnPhone phone) {
+        reservationService.bookPhone(phone.imei, phone.user);
+        reservationService.returnPhone(phone.imei);
+    }
+
+    @Benchmark
+    public Object bookAlreadyBooked() {
+        try {
+            reservationService.bookPhone(bookedImei, "someone-else");
+            throw new IllegalStateException(bookedImei + " should be booked");
+        } catch (MobilePhoneNotAvailableException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Compares platform and virtual request threads over real HTTP. Each invocation books {@value #CONCURRENCY}
+ * different phones at once and then returns them at once, so far more requests are in flight than Tomcat has
+ * platform threads. Pinned virtual threads are reported on the console by {@code jdk.tracePinnedThreads}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djdk.tracePinnedThreads=short")
+public class ThreadingModeBenchmark {
+
+    private static final int CONCURRENCY = 1000;
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    /**
+     * Only limits the platform thread mode, Tomcat does not pool virtual threads.
+     */
+    @Param("200")
+    public int tomcatThreads;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private List<HttpRequest> bookRequests;
+    private List<HttpRequest> returnRequests;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = BenchmarkSupport.startApplication(
+            "--spring.threads.virtual.enabled=" + virtualThreads,
+            "--server.tomcat.threads.max=" + tomcatThreads,
+            "--server.tomcat.max-connections=" + 2 * CONCURRENCY);
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        String authorization = "Basic "
+            + Base64.getEncoder().encodeToString("user:password".getBytes(StandardCharsets.UTF_8));
+        List<String> imeis = BenchmarkSupport.insertPhones(context, "9400", CONCURRENCY);
+        bookRequests = imeis.stream()
+            .map(imei -> request(port, authorization, imei, "book"))
+            .toList();
+        returnRequests = imeis.stream()
+            .map(imei -> request(port, authorization, imei, "return"))
+            .toList();
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearOutbox() {
+        BenchmarkSupport.clearOutbox(context);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2 * CONCURRENCY)
+    public void bookAndReturnBurst() {
+        sendAll(bookRequests);
+        sendAll(returnRequests);
+    }
+
+    private void sendAll(List<HttpRequest> requests) {
+        CompletableFuture<?>[] responses = requests.stream()
+            .map(request -> httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .thenAccept(response -> {
+                    if (response.statusCode() != 200) {
+                        throw new IllegalStateException(request.uri() + " answered " + response.statusCode());
+                    }
+                }))
+            .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(responses).join();
+    }
+
+    private static HttpRequest request(int port, String authorization, String imei, String action) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/mobile/" + imei + "/" + action))
+            .header("Authorization", authorization)
+            .POST(HttpRequest.BodyPublishers.noBody())
+            .build();
+    }
+}
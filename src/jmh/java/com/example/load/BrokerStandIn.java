@@ -0,0 +1,56 @@
+package com.example.load;
+
+import com.example.model.entity.OutboxEventEntity;
+import com.example.rabbitmq.QueueMessageSender;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process replacement for RabbitMQ. It records what would have been published and sleeps for a configurable
+ * latency per round trip, with up to 50% jitter.
+ */
+class BrokerStandIn extends QueueMessageSender {
+
+    private final long latencyMillis;
+    private final AtomicLong messages = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    BrokerStandIn(long latencyMillis) {
+        super(null, null);
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public void send(String exchangeName, String routing, Object message) {
+        roundTrip();
+        messages.incrementAndGet();
+    }
+
+    @Override
+    public void sendAll(List<OutboxEventEntity> events, long timeout) {
+        roundTrip();
+        batches.incrementAndGet();
+        messages.addAndGet(events.size());
+    }
+
+    long getMessages() {
+        return messages.get();
+    }
+
+    long getBatches() {
+        return batches.get();
+    }
+
+    private void roundTrip() {
+        if (latencyMillis <= 0) {
+            return;
+        }
+        long jitter = ThreadLocalRandom.current().nextLong(latencyMillis / 2 + 1);
+        try {
+            Thread.sleep(latencyMillis + jitter);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
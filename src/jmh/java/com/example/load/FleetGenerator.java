@@ -0,0 +1,43 @@
+package com.example.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Generates a synthetic fleet of available phones directly in the mobile_phone table.
+ */
+@Slf4j
+final class FleetGenerator {
+
+    private static final int CHUNK_SIZE = 10_000;
+    private static final List<String> MODELS = List.of("Samsung Galaxy S9", "Samsung Galaxy S8", "Motorola Nexus 6",
+        "Oneplus 9", "Apple iPhone 13", "Apple iPhone 12", "Apple iPhone 11", "iPhone X", "Nokia 3310");
+
+    private FleetGenerator() {
+    }
+
+    /**
+     * Inserts the phones in chunked JDBC batches.
+     *
+     * @return The IMEIs of the generated phones, in insertion order.
+     */
+    static List<String> generate(JdbcTemplate jdbcTemplate, int fleetSize) {
+        long start = System.nanoTime();
+        List<String> imeis = new ArrayList<>(fleetSize);
+        List<Object[]> chunk = new ArrayList<>(CHUNK_SIZE);
+        for (int i = 0; i < fleetSize; i++) {
+            String imei = "35" + String.format("%013d", i);
+            imeis.add(imei);
+            chunk.add(new Object[]{MODELS.get(i % MODELS.size()), imei});
+            if (chunk.size() == CHUNK_SIZE || i == fleetSize - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO mobile_phone (model, imei, is_available) VALUES (?, ?, TRUE)",
+                    chunk);
+                chunk.clear();
+            }
+        }
+        log.info("Generated {} phones in {} ms", fleetSize, (System.nanoTime() - start) / 1_000_000);
+        return imeis;
+    }
+}
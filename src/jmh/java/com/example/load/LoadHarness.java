@@ -0,0 +1,184 @@
+package com.example.load;
+
+import com.example.Main;
+import com.example.model.exception.MobilePhoneNotAvailableException;
+import com.example.service.AvailabilityIndex;
+import com.example.service.ReservationService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Offline capacity-planning harness. It starts the application against in-memory H2 with the {@link BrokerStandIn}
+ * instead of RabbitMQ, generates a synthetic fleet, then drives book/return traffic for one scenario per configured
+ * hot-key share and prints throughput, latency percentiles and conflict rate.
+ * <p>
+ * Run with {@code mvn -Pbenchmark -DskipTests test-compile exec:java@load-test -Dload.fleet-size=1000000}, see
+ * {@link LoadSettings} for the other {@code load.*} properties. Spring properties can be overridden the same way,
+ * e.g. {@code -Dspring.datasource.hikari.maximum-pool-size=32}.
+ */
+public final class LoadHarness {
+
+    private LoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadSettings settings = LoadSettings.fromSystemProperties();
+        List<String> arguments = new ArrayList<>(List.of(
+            "--server.port=0",
+            "--spring.jpa.show-sql=false",
+            "--logging.level.root=warn",
+            "--logging.level.com.example=warn",
+            "--logging.level.com.example.load=info",
+            "--mobile-phone-reservation.availability-index.enabled=true"));
+        arguments.addAll(Arrays.asList(args));
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Main.class)
+            .profiles("test", "load-test")
+            .run(arguments.toArray(new String[0]))) {
+            List<String> fleet = FleetGenerator.generate(context.getBean(JdbcTemplate.class), settings.fleetSize());
+            // the index was loaded before the fleet existed
+            context.getBean(AvailabilityIndex.class).load();
+
+            ReservationService reservationService = context.getBean(ReservationService.class);
+            BrokerStandIn broker = context.getBean(BrokerStandIn.class);
+            System.out.printf("%-12s %6s %12s %10s %10s %10s %10s %10s%n", "scenario", "users", "ops/s",
+                "p50 us", "p99 us", "p999 us", "conflicts", "published");
+            for (double hotShare : settings.hotShares()) {
+                long publishedBefore = broker.getMessages();
+                ScenarioResult result = runScenario(reservationService, fleet, settings, hotShare);
+                System.out.printf("%-12s %6d %12.1f %10d %10d %10d %9.2f%% %10d%n", "hot=" + hotShare,
+                    settings.users(), result.throughput(), result.percentileMicros(0.50),
+                    result.percentileMicros(0.99), result.percentileMicros(0.999), result.conflictRate() * 100,
+                    broker.getMessages() - publishedBefore);
+            }
+        }
+    }
+
+    private static ScenarioResult runScenario(ReservationService reservationService, List<String> fleet,
+        LoadSettings settings, double hotShare) throws Exception {
+        ExecutorService users = Executors.newFixedThreadPool(settings.users());
+        try {
+            long deadline = System.nanoTime() + settings.durationMillis() * 1_000_000;
+            List<Future<UserStats>> futures = new ArrayList<>();
+            for (int user = 0; user < settings.users(); user++) {
+                String userName = "load-user-" + user;
+                futures.add(users.submit(() -> runUser(reservationService, fleet, settings, hotShare, userName,
+                    deadline)));
+            }
+            ScenarioResult result = new ScenarioResult(settings.durationMillis());
+            for (Future<UserStats> future : futures) {
+                result.add(future.get());
+            }
+            result.sort();
+            return result;
+        } finally {
+            users.shutdownNow();
+        }
+    }
+
+    private static UserStats runUser(ReservationService reservationService, List<String> fleet,
+        LoadSettings settings, double hotShare, String userName, long deadline) throws InterruptedException {
+        UserStats stats = new UserStats();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int hotKeys = Math.min(settings.hotKeys(), fleet.size());
+        while (System.nanoTime() < deadline) {
+            String imei = random.nextDouble() < hotShare
+                ? fleet.get(random.nextInt(hotKeys))
+                : fleet.get(random.nextInt(fleet.size()));
+
+            long start = System.nanoTime();
+            boolean booked;
+            try {
+                reservationService.bookPhone(imei, userName);
+                booked = true;
+            } catch (MobilePhoneNotAvailableException e) {
+                booked = false;
+            }
+            stats.record(System.nanoTime() - start, !booked);
+            if (!booked) {
+                continue;
+            }
+
+            if (settings.thinkTimeMillis() > 0) {
+                Thread.sleep(settings.thinkTimeMillis());
+            }
+            start = System.nanoTime();
+            reservationService.returnPhone(imei);
+            stats.record(System.nanoTime() - start, false);
+        }
+        return stats;
+    }
+
+    /**
+     * Latencies and conflicts recorded by a single user thread.
+     */
+    private static final class UserStats {
+
+        private long[] latencies = new long[1024];
+        private int count;
+        private long conflicts;
+
+        void record(long latencyNanos, boolean conflict) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+            if (conflict) {
+                conflicts++;
+            }
+        }
+    }
+
+    /**
+     * Merged statistics of all users of a scenario.
+     */
+    private static final class ScenarioResult {
+
+        private final long durationMillis;
+        private long[] latencies = new long[0];
+        private long bookAttempts;
+        private long conflicts;
+
+        ScenarioResult(long durationMillis) {
+            this.durationMillis = durationMillis;
+        }
+
+        void add(UserStats stats) {
+            int offset = latencies.length;
+            latencies = Arrays.copyOf(latencies, offset + stats.count);
+            System.arraycopy(stats.latencies, 0, latencies, offset, stats.count);
+            // every successful booking is followed by a return, which is recorded as well
+            long booked = (stats.count - stats.conflicts) / 2;
+            bookAttempts += booked + stats.conflicts;
+            conflicts += stats.conflicts;
+        }
+
+        void sort() {
+            Arrays.sort(latencies);
+        }
+
+        double throughput() {
+            return latencies.length * 1000.0 / durationMillis;
+        }
+
+        long percentileMicros(double percentile) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.min(latencies.length - 1, Math.ceil(percentile * latencies.length) - 1);
+            return latencies[Math.max(index, 0)] / 1000;
+        }
+
+        double conflictRate() {
+            return bookAttempts == 0 ? 0 : (double) conflicts / bookAttempts;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.load;
+
+import com.example.config.OutboxConfig;
+import com.example.config.OutboxJournalConfig;
+import com.example.model.dao.OutboxEventDao;
+import com.example.rabbitmq.OutboxRelay;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Puts the broker stand-in behind the real outbox relay. Used together with the test profile, which leaves out the
+ * RabbitMQ beans.
+ */
+@Configuration
+@Profile("load-test")
+public class LoadHarnessConfiguration {
+
+    @Bean
+    BrokerStandIn brokerStandIn() {
+        return new BrokerStandIn(Long.getLong("load.broker-latency-ms", 5L));
+    }
+
+    @Bean
+    OutboxRelay outboxRelay(OutboxEventDao outboxEventDao, BrokerStandIn brokerStandIn, OutboxConfig outboxConfig,
+        TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        // The stand-in never fails, so there is no outage to spill to the journal
+        OutboxJournalConfig outboxJournalConfig = new OutboxJournalConfig();
+        outboxJournalConfig.setEnabled(false);
+        return new OutboxRelay(outboxEventDao, brokerStandIn, outboxConfig, outboxJournalConfig, transactionTemplate,
+            meterRegistry);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.load;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Load harness settings, read from {@code load.*} system properties.
+ *
+ * @param fleetSize      Number of phones generated before the scenarios run.
+ * @param users          Number of concurrent users driving traffic.
+ * @param durationMillis How long each scenario runs.
+ * @param thinkTimeMillis How long a user keeps a phone before returning it.
+ * @param hotKeys        Number of phones that make up the hot set.
+ * @param hotShares      Share of bookings aimed at the hot set, one scenario per value.
+ * @param brokerLatencyMillis Latency injected into every batch published by the broker stand-in.
+ */
+record LoadSettings(int fleetSize, int users, long durationMillis, long thinkTimeMillis, int hotKeys,
+                    List<Double> hotShares, long brokerLatencyMillis) {
+
+    static LoadSettings fromSystemProperties() {
+        return new LoadSettings(
+            Integer.getInteger("load.fleet-size", 100_000),
+            Integer.getInteger("load.users", 32),
+            Long.getLong("load.duration-seconds", 30L) * 1000,
+            Long.getLong("load.think-time-ms", 0L),
+            Integer.getInteger("load.hot-keys", 10),
+            Arrays.stream(System.getProperty("load.hot-shares", "0,0.5,0.9").split(","))
+                .map(String::trim)
+                .map(Double::valueOf)
+                .toList(),
+            Long.getLong("load.broker-latency-ms", 5L));
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits how many requests are processed at once, and adapts the limit to the latency of the requests it lets in.
+ * Latency grows once more requests are in flight than the database connections can serve, because they queue for a
+ * connection or a row lock. The lowest average latency seen is taken as the latency without queueing; whenever the
+ * average of a window exceeds it by more than the tolerance the limit is cut by a tenth, otherwise it grows by one if
+ * the window used it fully. The lowest latency drifts slowly towards recent averages so that a lasting change, e.g. a
+ * bigger database, is eventually accepted.
+ * <p>
+ * Acquiring and releasing is lock free. Latency is summed in adders and the limit is recalculated once per window, by
+ * whichever request completes first after the window ended.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final int BASELINE_DRIFT = 64;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final long windowNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final LongAdder latencySum = new LongAdder();
+    private final LongAdder samples = new LongAdder();
+    private final AtomicLong windowStart;
+    private final ReentrantLock adjustLock = new ReentrantLock();
+    private volatile int limit;
+    private long baselineNanos = Long.MAX_VALUE;
+
+    /**
+     * @param initialLimit Requests processed at once until the first window ends.
+     * @param minLimit     Lowest limit.
+     * @param maxLimit     Highest limit.
+     * @param tolerance    How many times the lowest latency the average may reach before the limit is cut.
+     * @param windowNanos  How often the limit is recalculated.
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, long windowNanos) {
+        this(initialLimit, minLimit, maxLimit, tolerance, windowNanos, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, long windowNanos,
+        LongSupplier nanoClock) {
+        if (minLimit < 1 || minLimit > maxLimit || tolerance < 1) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= max and tolerance must be at least 1");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.windowNanos = windowNanos;
+        this.nanoClock = nanoClock;
+        this.limit = Math.min(maxLimit, Math.max(minLimit, initialLimit));
+        this.windowStart = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    /**
+     * @return true if the request may go ahead, in which case {@link #release(long)} must be called once it is done.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                peakInFlight.accumulateAndGet(current + 1, Math::max);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Ends a request that was let in.
+     *
+     * @param latencyNanos How long the request took.
+     */
+    public void release(long latencyNanos) {
+        inFlight.decrementAndGet();
+        latencySum.add(latencyNanos);
+        samples.increment();
+        long now = nanoClock.getAsLong();
+        long start = windowStart.get();
+        if (now - start >= windowNanos && windowStart.compareAndSet(start, now)) {
+            adjust();
+        }
+    }
+
+    /**
+     * Ends a request that was let in without taking its latency into account, for requests whose duration depends on
+     * their size rather than on the load.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    // Only one request wins the window, the lock just orders the updates of the baseline
+    private void adjust() {
+        adjustLock.lock();
+        try {
+            long count = samples.sumThenReset();
+            long sum = latencySum.sumThenReset();
+            int peak = peakInFlight.getAndSet(inFlight.get());
+            if (count == 0) {
+                return;
+            }
+            long average = sum / count;
+            if (average < baselineNanos) {
+                baselineNanos = average;
+            } else {
+                baselineNanos += (average - baselineNanos) / BASELINE_DRIFT;
+            }
+            int current = limit;
+            if (average > baselineNanos * tolerance) {
+                limit = Math.max(minLimit, (int) (current * BACKOFF_RATIO));
+            } else if (peak >= current) {
+                limit = Math.min(maxLimit, current + 1);
+            }
+        } finally {
+            adjustLock.unlock();
+        }
+    }
+}
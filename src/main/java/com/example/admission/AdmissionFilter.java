@@ -0,0 +1,129 @@
+package com.example.admission;
+
+import com.example.config.AdmissionConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Decides whether an authenticated API request is processed at all, before it reaches a controller or holds a
+ * database connection. A user who exceeds their rate limit is answered with 429, and any request arriving while the
+ * application already processes as many requests as its {@link AdaptiveConcurrencyLimit} allows is answered with 503.
+ * Both carry a Retry-After header and are written straight to the response, so a rejection costs next to nothing.
+ * <p>
+ * A request counts against the concurrency limit while it holds a request thread. Only requests that completed on it
+ * feed the limit with their latency, for a request that went asynchronous it only says how long the hand-off took.
+ * Rejections are counted as {@code admission.rejected}, tagged by reason. The availability stream is not limited, its
+ * requests stay open for as long as the client listens and it caps its subscribers itself.
+ */
+@Slf4j
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private static final String API_PATH = "/api/";
+    private static final String STREAM_PATH = "/api/mobile/stream";
+    // Takes as long as the upload does, its latency says nothing about how loaded the application is
+    private static final String IMPORT_PATH = "/api/mobile/import";
+    private static final String RATE_LIMITED = "Too many requests, please slow down";
+    private static final String OVERLOADED = "The service is overloaded, please try again later";
+
+    private final TokenBucketRateLimiter rateLimiter;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final long overloadRetryAfterSeconds;
+    private final Counter rateLimited;
+    private final Counter overloaded;
+
+    public AdmissionFilter(AdmissionConfig admissionConfig, MeterRegistry meterRegistry) {
+        this(new TokenBucketRateLimiter(admissionConfig.getRate(), admissionConfig.getBurst(),
+                admissionConfig.getStripes(), admissionConfig.getMaxUsers()),
+            new AdaptiveConcurrencyLimit(admissionConfig.getInitialLimit(), admissionConfig.getMinLimit(),
+                admissionConfig.getMaxLimit(), admissionConfig.getLatencyTolerance(),
+                admissionConfig.getWindow().toNanos()),
+            admissionConfig, meterRegistry);
+    }
+
+    AdmissionFilter(TokenBucketRateLimiter rateLimiter, AdaptiveConcurrencyLimit concurrencyLimit,
+        AdmissionConfig admissionConfig, MeterRegistry meterRegistry) {
+        this.rateLimiter = rateLimiter;
+        this.concurrencyLimit = concurrencyLimit;
+        this.overloadRetryAfterSeconds = Math.max(1, admissionConfig.getOverloadRetryAfter().toSeconds());
+        this.rateLimited = rejections(meterRegistry, "rate-limit");
+        this.overloaded = rejections(meterRegistry, "overload");
+        Gauge.builder("admission.concurrency.limit", concurrencyLimit, AdaptiveConcurrencyLimit::getLimit)
+            .description("Requests the application currently processes at once at most")
+            .register(meterRegistry);
+        Gauge.builder("admission.concurrency.in-flight", concurrencyLimit, AdaptiveConcurrencyLimit::getInFlight)
+            .description("Requests being processed")
+            .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = path(request);
+        return !path.startsWith(API_PATH) || path.equals(STREAM_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+        throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String user = authentication != null ? authentication.getName() : request.getRemoteAddr();
+        long waitNanos = rateLimiter.tryAcquire(user);
+        if (waitNanos > 0) {
+            rateLimited.increment();
+            log.debug("Rate limited {} {} of user: {}", request.getMethod(), request.getRequestURI(), user);
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, TimeUnit.NANOSECONDS.toSeconds(waitNanos - 1) + 1,
+                RATE_LIMITED);
+            return;
+        }
+        if (!concurrencyLimit.tryAcquire()) {
+            overloaded.increment();
+            log.debug("Shed {} {} of user: {} at {} requests in flight", request.getMethod(), request.getRequestURI(),
+                user, concurrencyLimit.getInFlight());
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, overloadRetryAfterSeconds, OVERLOADED);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            // A long poll or an asynchronous booking goes on without this thread, its own pool limits it instead
+            if (request.isAsyncStarted() || path(request).equals(IMPORT_PATH)) {
+                concurrencyLimit.release();
+            } else {
+                concurrencyLimit.release(System.nanoTime() - start);
+            }
+        }
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds,
+        String message) throws IOException {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.getWriter().write(message);
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("admission.rejected")
+            .description("API requests rejected before being processed")
+            .tag("reason", reason)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.admission;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limits per key with a token bucket each: a bucket holds up to {@code burst} tokens, refills at {@code rate}
+ * tokens per second and every request takes one. Buckets are refilled lazily when they are used, so idle keys cost
+ * nothing but memory.
+ * <p>
+ * The buckets are spread over independently locked stripes by the hash of the key, so requests of different users
+ * rarely wait for each other. Each stripe keeps its most recently used buckets only; a forgotten bucket starts full
+ * again, which is what it would have refilled to unless its user was busy.
+ */
+public class TokenBucketRateLimiter {
+
+    private final double tokensPerNano;
+    private final double burst;
+    private final Stripe[] stripes;
+    private final LongSupplier nanoClock;
+
+    private static final class Bucket {
+
+        private double tokens;
+        private long refilledAt;
+
+        private Bucket(double tokens, long refilledAt) {
+            this.tokens = tokens;
+            this.refilledAt = refilledAt;
+        }
+    }
+
+    private static final class Stripe extends LinkedHashMap<String, Bucket> {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int maxSize;
+
+        private Stripe(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+            return size() > maxSize;
+        }
+    }
+
+    /**
+     * @param rate    Tokens added to a bucket per second.
+     * @param burst   Capacity of a bucket.
+     * @param stripes Number of stripes, rounded up to a power of two.
+     * @param maxKeys Number of buckets kept over all stripes.
+     */
+    public TokenBucketRateLimiter(double rate, int burst, int stripes, int maxKeys) {
+        this(rate, burst, stripes, maxKeys, System::nanoTime);
+    }
+
+    TokenBucketRateLimiter(double rate, int burst, int stripes, int maxKeys, LongSupplier nanoClock) {
+        if (rate <= 0 || burst < 1) {
+            throw new IllegalArgumentException("rate must be positive and burst at least 1");
+        }
+        this.tokensPerNano = rate / 1_000_000_000d;
+        this.burst = burst;
+        int count = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new Stripe(Math.max(1, (maxKeys + count - 1) / count));
+        }
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Takes a token from the bucket of the key if there is one.
+     *
+     * @param key The key, e.g. the username.
+     * @return 0 if the request may go ahead, otherwise how many nanoseconds until the bucket holds a token again.
+     */
+    public long tryAcquire(String key) {
+        int hash = key.hashCode();
+        Stripe stripe = stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+        long now = nanoClock.getAsLong();
+        stripe.lock.lock();
+        try {
+            Bucket bucket = stripe.get(key);
+            if (bucket == null) {
+                bucket = new Bucket(burst, now);
+                stripe.put(key, bucket);
+            } else {
+                bucket.tokens = Math.min(burst, bucket.tokens + (now - bucket.refilledAt) * tokensPerNano);
+                bucket.refilledAt = now;
+            }
+            if (bucket.tokens >= 1) {
+                bucket.tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - bucket.tokens) / tokensPerNano);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.async;
+
+import com.example.config.AsyncConfig;
+import com.example.metrics.ReservationMetrics.Operation;
+import com.example.model.exception.ReservationQueueFullException;
+import com.example.model.exception.ReservationTimeoutException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+/**
+ * Processes bookings and returns on a bounded pool of its own, for requests that asked not to hold an HTTP thread
+ * while they wait for the database. The HTTP thread is handed back as soon as the work is queued, so the number of
+ * bookings in flight is capped by this pool and its queue rather than by the servlet container. Events are written to
+ * the outbox as before and published by the {@link com.example.rabbitmq.OutboxRelay} after the commit, so neither
+ * thread waits for the broker.
+ * <p>
+ * A full queue is answered with 503 straight away. A request that has not completed within the timeout is answered
+ * with 503 as well; if it was still queued it is dropped, if it was already running it completes, and a retry with
+ * the same Idempotency-Key learns its outcome.
+ * <ul>
+ *     <li>{@code reservation.async} - from queueing to completion, tagged by operation and by whether the request
+ *     completed or timed out.</li>
+ *     <li>{@code reservation.async.wait} - time spent queued, tagged by operation.</li>
+ *     <li>{@code reservation.async.queue} and {@code reservation.async.active} - requests queued and running.</li>
+ *     <li>{@code reservation.async.rejected} - requests rejected because the queue was full.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class ReservationExecutor {
+
+    private static final String COMPLETED = "completed";
+    private static final String TIMED_OUT = "timeout";
+
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    private final Map<Operation, Timer> completedTimers = new EnumMap<>(Operation.class);
+    private final Map<Operation, Timer> timedOutTimers = new EnumMap<>(Operation.class);
+    private final Map<Operation, Timer> waitTimers = new EnumMap<>(Operation.class);
+    private final Counter rejected;
+
+    public ReservationExecutor(AsyncConfig asyncConfig, MeterRegistry meterRegistry) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(asyncConfig.getThreads(), asyncConfig.getThreads(), 0,
+            TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(asyncConfig.getQueueCapacity()), runnable -> {
+                Thread thread = new Thread(runnable, "reservation-async-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.timeoutMillis = asyncConfig.getTimeout().toMillis();
+        for (Operation operation : Operation.values()) {
+            completedTimers.put(operation, requestTimer(meterRegistry, operation, COMPLETED));
+            timedOutTimers.put(operation, requestTimer(meterRegistry, operation, TIMED_OUT));
+            waitTimers.put(operation, Timer.builder("reservation.async.wait")
+                .description("Time asynchronous reservation requests spent waiting for a thread")
+                .tag("operation", tagOf(operation))
+                .register(meterRegistry));
+        }
+        this.rejected = Counter.builder("reservation.async.rejected")
+            .description("Asynchronous reservation requests rejected because the queue was full")
+            .register(meterRegistry);
+        Gauge.builder("reservation.async.queue", executor, pool -> pool.getQueue().size())
+            .description("Asynchronous reservation requests waiting for a thread")
+            .register(meterRegistry);
+        Gauge.builder("reservation.async.active", executor, ThreadPoolExecutor::getActiveCount)
+            .description("Asynchronous reservation requests being processed")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Queues the task and returns straight away.
+     *
+     * @param operation The operation, for the metrics.
+     * @param task      The work, its result or exception becomes the response.
+     * @return The result, set once the task completes or the timeout passes.
+     * @throws ReservationQueueFullException If too many tasks are queued already.
+     */
+    public <T> DeferredResult<T> submit(Operation operation, Supplier<T> task) {
+        DeferredResult<T> result = new DeferredResult<>(timeoutMillis);
+        long queuedAt = System.nanoTime();
+        FutureTask<Void> work = new FutureTask<>(() -> {
+            waitTimers.get(operation).record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+            boolean set;
+            try {
+                set = result.setResult(task.get());
+            } catch (RuntimeException e) {
+                set = result.setErrorResult(e);
+            }
+            // Otherwise the request already timed out and was counted as such
+            if (set) {
+                completedTimers.get(operation).record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+            }
+        }, null);
+        result.onTimeout(() -> {
+            boolean dropped = work.cancel(false);
+            timedOutTimers.get(operation).record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+            log.debug("Asynchronous {} timed out {}", operation, dropped ? "while queued" : "while running");
+            result.setErrorResult(new ReservationTimeoutException(dropped
+                ? "The request was not processed in time, please try again"
+                : "The request is taking too long, retry with the same Idempotency-Key to learn its outcome"));
+        });
+        try {
+            executor.execute(work);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ReservationQueueFullException("Too many requests are waiting to be processed, please try again "
+                + "later");
+        }
+        return result;
+    }
+
+    /**
+     * Lets queued and running requests complete, for at most the timeout.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+            log.warn("{} asynchronous reservation requests did not complete before shutdown",
+                executor.shutdownNow().size() + executor.getActiveCount());
+        }
+    }
+
+    private static Timer requestTimer(MeterRegistry meterRegistry, Operation operation, String outcome) {
+        return Timer.builder("reservation.async")
+            .description("Asynchronous reservation requests from queueing to completion")
+            .tag("operation", tagOf(operation))
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    private static String tagOf(Operation operation) {
+        return operation.name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiPredicate;
+import java.util.function.LongSupplier;
+
+/**
+ * A bounded, thread-safe cache whose entries expire a fixed time after they were written. Entries are kept in the
+ * order they were written, which is also the order they expire in, so expired entries are purged from the head on
+ * every write and a full cache drops its oldest entry, both in constant time. Expired entries are otherwise dropped
+ * when they are read.
+ *
+ * @param <K> The key type.
+ * @param <V> The value type.
+ */
+public class ExpiringCache<K, V> {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+
+    private record Entry<V>(V value, long expiresAt) {
+
+    }
+
+    public ExpiringCache(int maxSize, long ttlNanos) {
+        this(maxSize, ttlNanos, System::nanoTime);
+    }
+
+    ExpiringCache(int maxSize, long ttlNanos, LongSupplier nanoClock) {
+        this.entries = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+        this.ttlNanos = ttlNanos;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * @param key The key.
+     * @return The cached value, or null if there is none or it has expired.
+     */
+    public V get(K key) {
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (isExpired(entry, nanoClock.getAsLong())) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.value();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(K key, V value) {
+        long now = nanoClock.getAsLong();
+        lock.lock();
+        try {
+            purgeExpired(now);
+            // Removed first so that the rewritten entry moves to the tail, behind entries that expire earlier
+            entries.remove(key);
+            entries.put(key, new Entry<>(value, now + ttlNanos));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void remove(K key) {
+        lock.lock();
+        try {
+            entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes every entry matching the predicate.
+     */
+    public void removeIf(BiPredicate<K, V> predicate) {
+        lock.lock();
+        try {
+            entries.entrySet().removeIf(entry -> predicate.test(entry.getKey(), entry.getValue().value()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops expired entries from the head, stopping at the first one that is still live.
+     */
+    private void purgeExpired(long now) {
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (iterator.hasNext() && isExpired(iterator.next(), now)) {
+            iterator.remove();
+        }
+    }
+
+    private static boolean isExpired(Entry<?> entry, long now) {
+        return entry.expiresAt() - now <= 0;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties("mobile-phone-reservation.admission")
+@Data
+public class AdmissionConfig {
+
+    /**
+     * Whether API requests are rate limited per user and shed when the application is overloaded.
+     */
+    private boolean enabled = true;
+    /**
+     * Requests per second a single user may send on average.
+     */
+    private double rate = 50;
+    /**
+     * Requests a single user may send at once after being idle, on top of the rate.
+     */
+    private int burst = 100;
+    /**
+     * Number of independently locked stripes the rate limits of the users are spread over, rounded up to a power of
+     * two.
+     */
+    private int stripes = 16;
+    /**
+     * Maximum number of users whose rate limit is tracked, the least recently seen are forgotten first.
+     */
+    private int maxUsers = 10_000;
+    /**
+     * Requests processed at once when the application starts, before any latency has been observed.
+     */
+    private int initialLimit = 16;
+    /**
+     * The concurrency limit never drops below this.
+     */
+    private int minLimit = 4;
+    /**
+     * The concurrency limit never grows above this.
+     */
+    private int maxLimit = 100;
+    /**
+     * How many times the lowest latency seen the average latency may grow before the concurrency limit is lowered.
+     */
+    private double latencyTolerance = 2.0;
+    /**
+     * How often the concurrency limit is adjusted to the latency observed since the last adjustment.
+     */
+    private Duration window = Duration.ofMillis(100);
+    /**
+     * Retry-After sent with requests shed because the application is overloaded.
+     */
+    private Duration overloadRetryAfter = Duration.ofSeconds(1);
+}
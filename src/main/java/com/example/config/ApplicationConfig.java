@@ -9,6 +9,13 @@ import org.springframework.context.annotation.Configuration;
 @Data
 public class ApplicationConfig {
 
-    private String bookPhoneExchange;
-    private String returnPhoneExchange;
+    /**
+     * Topic exchange booking events are published to. Its name differs from the direct exchange older versions
+     * published to, because RabbitMQ refuses to redeclare an exchange with a different type.
+     */
+    private String bookPhoneTopicExchange;
+    /**
+     * Topic exchange return events are published to.
+     */
+    private String returnPhoneTopicExchange;
 }
@@ -0,0 +1,27 @@
+package com.example.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties("mobile-phone-reservation.async")
+@Data
+public class AsyncConfig {
+
+    /**
+     * Threads processing asynchronous bookings and returns. Each holds a database connection while it works, so
+     * there is little point in more threads than connections.
+     */
+    private int threads = 16;
+    /**
+     * Asynchronous bookings and returns waiting for a thread, further requests are rejected with 503.
+     */
+    private int queueCapacity = 1000;
+    /**
+     * How long an asynchronous booking or return may take, including the wait for a thread, before it is answered
+     * with 503.
+     */
+    private Duration timeout = Duration.ofSeconds(10);
+}
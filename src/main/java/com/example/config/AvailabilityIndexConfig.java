@@ -0,0 +1,17 @@
+package com.example.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties("mobile-phone-reservation.availability-index")
+@Data
+public class AvailabilityIndexConfig {
+
+    /**
+     * Whether booking and return requests are checked against the in-memory index before the database. Only enable
+     * this when all changes to mobile_phone go through this application instance.
+     */
+    private boolean enabled = true;
+}
@@ -0,0 +1,16 @@
+package com.example.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties("mobile-phone-reservation.bulk")
+@Data
+public class BulkReservationConfig {
+
+    /**
+     * Maximum number of IMEIs accepted by a single bulk book or return request.
+     */
+    private int maxSize = 100;
+}
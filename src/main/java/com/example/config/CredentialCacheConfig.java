@@ -0,0 +1,25 @@
+package com.example.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties("mobile-phone-reservation.security.credential-cache")
+@Data
+public class CredentialCacheConfig {
+
+    /**
+     * Whether successfully verified credentials are cached so that repeat requests skip BCrypt.
+     */
+    private boolean enabled = true;
+    /**
+     * Maximum number of cached credentials.
+     */
+    private int maxSize = 10_000;
+    /**
+     * How long verified credentials are trusted before BCrypt is run again.
+     */
+    private Duration ttl = Duration.ofMinutes(5);
+}
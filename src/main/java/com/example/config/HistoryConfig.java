@@ -0,0 +1,32 @@
+package com.example.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties("mobile-phone-reservation.history")
+@Data
+public class HistoryConfig {
+
+    /**
+     * Whether bookings and returns are recorded in the reservation history.
+     */
+    private boolean enabled = true;
+    /**
+     * Number of changes that can wait to be written, further changes are dropped and counted.
+     */
+    private int queueCapacity = 100000;
+    /**
+     * Maximum number of changes written per transaction.
+     */
+    private int batchSize = 500;
+    /**
+     * Delay in milliseconds between two writer runs.
+     */
+    private long flushInterval = 1000;
+    /**
+     * Number of rows the database driver is asked to fetch per round trip when exporting the history.
+     */
+    private int fetchSize = 1000;
+}
@@ -0,0 +1,25 @@
+package com.example.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties("mobile-phone-reservation.idempotency")
+@Data
+public class IdempotencyConfig {
+
+    /**
+     * How long the outcome of a request with an Idempotency-Key is replayed to duplicates.
+     */
+    private Duration ttl = Duration.ofHours(24);
+    /**
+     * Maximum number of outcomes kept in memory, older ones are read from the database.
+     */
+    private int maxSize = 10_000;
+    /**
+     * Delay in milliseconds between runs deleting the outcomes that have outlived the TTL.
+     */
+    private long purgeInterval = 3_600_000;
+}
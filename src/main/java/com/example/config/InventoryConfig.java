@@ -0,0 +1,28 @@
+package com.example.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties("mobile-phone-reservation.inventory")
+@Data
+public class InventoryConfig {
+
+    /**
+     * Page size used when the request does not ask for one.
+     */
+    private int defaultPageSize = 50;
+    /**
+     * Largest page size a request may ask for.
+     */
+    private int maxPageSize = 500;
+    /**
+     * Number of phones written per JDBC batch and transaction when importing.
+     */
+    private int importChunkSize = 1000;
+    /**
+     * Number of rows the database driver is asked to fetch per round trip when exporting the inventory.
+     */
+    private int exportFetchSize = 1000;
+}
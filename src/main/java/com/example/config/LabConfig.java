@@ -0,0 +1,27 @@
+package com.example.config;
+
+import com.example.model.entity.MobilePhoneEntity;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties("mobile-phone-reservation.lab")
+@Data
+public class LabConfig {
+
+    /**
+     * The labs phones can belong to. Each lab gets its own event exchanges, except the default lab which publishes to
+     * the configured exchanges themselves.
+     */
+    private List<String> names = new ArrayList<>(List.of(MobilePhoneEntity.DEFAULT_LAB));
+
+    /**
+     * @return true if phones may belong to the lab.
+     */
+    public boolean isKnown(String lab) {
+        return names.contains(lab);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties("mobile-phone-reservation.lease")
+@Data
+public class LeaseConfig {
+
+    /**
+     * Whether phones are returned automatically when their lease lapses.
+     */
+    private boolean enabled = true;
+    /**
+     * Resolution of lease expiry in milliseconds, a lease is returned up to one tick after it lapses.
+     */
+    private long tick = 1000;
+    /**
+     * Number of buckets per level of the timing wheel, a power of two.
+     */
+    private int wheelSize = 256;
+    /**
+     * Longest lease a booking may ask for.
+     */
+    private Duration maxLease = Duration.ofDays(30);
+    /**
+     * Delay in milliseconds between two searches of the database for lapsed leases that no timing wheel returned,
+     * e.g. those booked through an instance that has stopped since.
+     */
+    private long sweepInterval = 60000;
+    /**
+     * How long to wait before trying again when returning a lapsed lease fails.
+     */
+    private Duration retryInterval = Duration.ofSeconds(30);
+}
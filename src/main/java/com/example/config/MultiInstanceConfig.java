@@ -0,0 +1,17 @@
+package com.example.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties("mobile-phone-reservation.multi-instance")
+@Data
+public class MultiInstanceConfig {
+
+    /**
+     * Whether several instances share the database. The application then refuses to start while a feature that keeps
+     * its state in the memory of one instance is enabled, see {@link MultiInstanceGuard}.
+     */
+    private boolean enabled = false;
+}
@@ -0,0 +1,60 @@
+package com.example.config;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stops an instance that shares its database with others from starting while a feature is enabled whose state only
+ * lives in the memory of one instance, and which would therefore let another instance decide on stale state:
+ * <ul>
+ *     <li>the availability index, which would turn away bookings of phones returned through another instance,</li>
+ *     <li>time slots, which are only checked against the slot index of the instance they were reserved through,</li>
+ *     <li>the availability stream, which only sees the changes made through its own instance,</li>
+ *     <li>waitlist long-polls, which are only woken by handovers made through their own instance,</li>
+ *     <li>the credential cache, which only forgets a changed password on the instance it was changed through.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MultiInstanceGuard {
+
+    private final MultiInstanceConfig multiInstanceConfig;
+    private final AvailabilityIndexConfig availabilityIndexConfig;
+    private final SlotConfig slotConfig;
+    private final StreamConfig streamConfig;
+    private final WaitlistConfig waitlistConfig;
+    private final CredentialCacheConfig credentialCacheConfig;
+
+    @PostConstruct
+    public void check() {
+        if (!multiInstanceConfig.isEnabled()) {
+            return;
+        }
+        List<String> enabled = new ArrayList<>();
+        if (availabilityIndexConfig.isEnabled()) {
+            enabled.add("mobile-phone-reservation.availability-index.enabled");
+        }
+        if (slotConfig.isEnabled()) {
+            enabled.add("mobile-phone-reservation.slot.enabled");
+        }
+        if (streamConfig.isEnabled()) {
+            enabled.add("mobile-phone-reservation.stream.enabled");
+        }
+        if (waitlistConfig.isLongPollEnabled()) {
+            enabled.add("mobile-phone-reservation.waitlist.long-poll-enabled");
+        }
+        if (credentialCacheConfig.isEnabled()) {
+            enabled.add("mobile-phone-reservation.security.credential-cache.enabled");
+        }
+        if (!enabled.isEmpty()) {
+            throw new IllegalStateException("Several instances cannot share the database while features that keep "
+                + "their state in memory are enabled, set to false: " + String.join(", ", enabled));
+        }
+        log.info("Running as one of several instances sharing the database");
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties("mobile-phone-reservation.outbox")
+@Data
+public class OutboxConfig {
+
+    /**
+     * Maximum number of outbox events published per broker round trip.
+     */
+    private int batchSize = 100;
+    /**
+     * Delay in milliseconds between two relay runs.
+     */
+    private long flushInterval = 200;
+    /**
+     * How long in milliseconds the relay waits for the broker to confirm a batch.
+     */
+    private long confirmTimeout = 5000;
+    /**
+     * Number of IMEI to model mappings kept in memory to fill in the model of outgoing events.
+     */
+    private int modelCacheSize = 10000;
+    /**
+     * How long a cached model is used before it is read from the database again.
+     */
+    private Duration modelCacheTtl = Duration.ofHours(1);
+}
@@ -0,0 +1,60 @@
+package com.example.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+@Configuration
+@ConfigurationProperties("mobile-phone-reservation.outbox-journal")
+@Data
+public class OutboxJournalConfig {
+
+    public enum FsyncPolicy {
+        /**
+         * Force every append and replay checkpoint to disk before the outbox rows are deleted. No event is lost if
+         * the machine fails.
+         */
+        ALWAYS,
+        /**
+         * Force at most once per fsync interval. Events spilled since the last force may be lost if the machine
+         * fails, though not if only the application does.
+         */
+        INTERVAL,
+        /**
+         * Leave writing back to the operating system.
+         */
+        NEVER
+    }
+
+    /**
+     * Whether outbox events are moved to the local journal while the broker is unavailable.
+     */
+    private boolean enabled = true;
+    /**
+     * Directory of the journal segments, created when the first event is spilled.
+     */
+    private Path directory = Path.of("data", "outbox-journal");
+    /**
+     * Size of each memory-mapped segment file. A segment is deleted once every event in it has been replayed.
+     */
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+    /**
+     * When the journal is forced to disk.
+     */
+    private FsyncPolicy fsync = FsyncPolicy.ALWAYS;
+    /**
+     * How often the journal is forced to disk with the interval policy.
+     */
+    private Duration fsyncInterval = Duration.ofSeconds(1);
+    /**
+     * How long the broker must have been failing before the outbox is spilled, shorter failures are only retried.
+     */
+    private Duration spillAfter = Duration.ofSeconds(10);
+    /**
+     * Maximum number of journal events published per broker round trip while replaying.
+     */
+    private int replayBatchSize = 1000;
+}
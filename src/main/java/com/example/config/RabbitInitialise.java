@@ -1,20 +1,36 @@
 package com.example.config;
 
 import com.example.rabbitmq.DeclerationUtils;
-import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
 import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.Exchange;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 
 @Configuration
 @RequiredArgsConstructor
+@Profile("!test")
 public class RabbitInitialise {
 
-    private final DeclerationUtils declarationUtils;
-    private  final ApplicationConfig applicationConfig;
+    private final ApplicationConfig applicationConfig;
+    private final LabConfig labConfig;
 
-    @PostConstruct
-    public void init() {
-        declarationUtils.initExchange(applicationConfig.getBookPhoneExchange());
-        declarationUtils.initExchange(applicationConfig.getReturnPhoneExchange());
+    /**
+     * The event exchanges of every lab. The RabbitAdmin declares them whenever it opens a connection to the broker,
+     * not while the application starts, so startup does not wait for the broker.
+     */
+    @Bean
+    public Declarables eventExchanges() {
+        List<Exchange> exchanges = new ArrayList<>();
+        for (String lab : labConfig.getNames()) {
+            exchanges.add(DeclerationUtils.topicExchange(
+                DeclerationUtils.labExchangeName(applicationConfig.getBookPhoneTopicExchange(), lab)));
+            exchanges.add(DeclerationUtils.topicExchange(
+                DeclerationUtils.labExchangeName(applicationConfig.getReturnPhoneTopicExchange(), lab)));
+        }
+        return new Declarables(exchanges);
     }
 }
@@ -10,12 +10,6 @@ import org.springframework.context.annotation.Configuration;
 @RequiredArgsConstructor
 public class RabbitMQConfig {
 
-
-    public RabbitMQConfig(RabbitTemplate rabbitTemplate) {
-        // make rabbit template to support transactions
-        rabbitTemplate.setChannelTransacted(true);
-    }
-
     @Bean
     RabbitAdmin rabbitAdmin(RabbitTemplate rabbitTemplate) {
         return new RabbitAdmin(rabbitTemplate);
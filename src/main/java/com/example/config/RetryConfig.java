@@ -0,0 +1,27 @@
+package com.example.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties("mobile-phone-reservation.retry")
+@Data
+public class RetryConfig {
+
+    /**
+     * How many times a reservation request is attempted when it fails on a concurrent change of the same phones,
+     * 1 to never retry.
+     */
+    private int maxAttempts = 3;
+    /**
+     * Longest wait before the first retry. The limit doubles with every retry and the actual wait is drawn at random
+     * below it, so that requests that collided do not collide again.
+     */
+    private Duration initialBackoff = Duration.ofMillis(10);
+    /**
+     * Longest wait before any retry.
+     */
+    private Duration maxBackoff = Duration.ofMillis(200);
+}
@@ -0,0 +1,30 @@
+package com.example.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties("mobile-phone-reservation.slot")
+@Data
+public class SlotConfig {
+
+    /**
+     * Whether users can reserve slots. While disabled the slot endpoints answer 404 and slots reserved before no longer
+     * limit bookings.
+     */
+    private boolean enabled = true;
+    /**
+     * Longest window a single slot may cover.
+     */
+    private Duration maxDuration = Duration.ofDays(7);
+    /**
+     * How far ahead a slot may start.
+     */
+    private Duration maxAdvance = Duration.ofDays(90);
+    /**
+     * How often slots that have ended are dropped from memory, in milliseconds.
+     */
+    private long purgeInterval = 60000;
+}
@@ -0,0 +1,42 @@
+package com.example.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties("mobile-phone-reservation.stream")
+@Data
+public class StreamConfig {
+
+    /**
+     * Whether dashboards can subscribe to availability changes, the endpoint answers 404 while disabled.
+     */
+    private boolean enabled = true;
+    /**
+     * Number of recent changes kept for subscribers that resume with Last-Event-ID or fall behind.
+     */
+    private int bufferSize = 4096;
+    /**
+     * Maximum number of concurrent subscribers.
+     */
+    private int maxSubscribers = 10_000;
+    /**
+     * How often a comment is sent to idle subscribers, so dead connections are noticed and proxies keep them open.
+     */
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+    /**
+     * Number of threads sending events to subscribers. A client that stops reading blocks one of them until the
+     * server gives up writing to the connection.
+     */
+    private int sendThreads = 16;
+    /**
+     * How long a single send to a subscriber may take before the subscriber is dropped.
+     */
+    private Duration sendTimeout = Duration.ofSeconds(10);
+    /**
+     * How long a subscription stays open before the client has to reconnect.
+     */
+    private Duration timeout = Duration.ofMinutes(30);
+}
@@ -0,0 +1,29 @@
+package com.example.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties("mobile-phone-reservation.waitlist")
+@Data
+public class WaitlistConfig {
+
+    /**
+     * Whether a poll for a waiting entry is held open until it changes. Otherwise it is answered straight away.
+     */
+    private boolean longPollEnabled = true;
+    /**
+     * How long a long-poll for a waitlist entry is held open when nothing changes.
+     */
+    private Duration pollTimeout = Duration.ofSeconds(30);
+    /**
+     * Longest poll a client may ask for.
+     */
+    private Duration maxPollTimeout = Duration.ofMinutes(2);
+    /**
+     * Delay in milliseconds between two runs of the sweep that serves waiters of phones freed without a handover.
+     */
+    private long sweepInterval = 5000;
+}
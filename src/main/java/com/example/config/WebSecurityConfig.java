@@ -1,8 +1,14 @@
 package com.example.config;
 
-
+import com.example.admission.AdmissionFilter;
+import com.example.security.CacheEvictingUserDetailsManager;
+import com.example.security.CachingAuthenticationProvider;
+import com.example.security.VerifiedCredentialCache;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -12,8 +18,8 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
-import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
 import org.springframework.security.web.servlet.util.matcher.MvcRequestMatcher;
 import org.springframework.web.servlet.handler.HandlerMappingIntrospector;
 
@@ -27,19 +33,31 @@ public class WebSecurityConfig {
     }
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http, HandlerMappingIntrospector introspector)
-        throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, HandlerMappingIntrospector introspector,
+        UserDetailsService users, VerifiedCredentialCache verifiedCredentialCache, AdmissionConfig admissionConfig,
+        MeterRegistry meterRegistry) throws Exception {
+        DaoAuthenticationProvider daoAuthenticationProvider = new DaoAuthenticationProvider();
+        daoAuthenticationProvider.setUserDetailsService(users);
+        daoAuthenticationProvider.setPasswordEncoder(passwordEncoder());
+        // BCrypt is deliberately slow; only run it the first time a set of credentials is seen within the TTL.
+        http.authenticationManager(
+            new ProviderManager(new CachingAuthenticationProvider(daoAuthenticationProvider, verifiedCredentialCache)));
         MvcRequestMatcher.Builder mvcMatcherBuilder = new MvcRequestMatcher.Builder(introspector);
         http.csrf(httpSecurityCsrfConfigurer -> httpSecurityCsrfConfigurer.disable())
             .authorizeHttpRequests((requests) -> requests
                 .requestMatchers(mvcMatcherBuilder.pattern("/actuator")).permitAll()
+                .requestMatchers(mvcMatcherBuilder.pattern("/actuator/health")).permitAll()
                 .anyRequest().authenticated())
             .csrf(AbstractHttpConfigurer::disable).httpBasic(Customizer.withDefaults());
+        if (admissionConfig.isEnabled()) {
+            // Not a bean, so it only runs here, once the user is known and denied requests are already answered
+            http.addFilterAfter(new AdmissionFilter(admissionConfig, meterRegistry), AuthorizationFilter.class);
+        }
         return http.build();
     }
 
     @Bean
-    public UserDetailsService users() {
+    public UserDetailsService users(VerifiedCredentialCache verifiedCredentialCache) {
         UserDetails user =
             User.builder()
                 .username("user")
@@ -53,6 +71,6 @@ public class WebSecurityConfig {
                 .roles("USER")
                 .build();
 
-        return new InMemoryUserDetailsManager(user,user2);
+        return new CacheEvictingUserDetailsManager(verifiedCredentialCache, user, user2);
     }
 }
\ No newline at end of file
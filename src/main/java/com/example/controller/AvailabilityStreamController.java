@@ -0,0 +1,35 @@
+package com.example.controller;
+
+import com.example.stream.AvailabilityStream;
+import java.io.IOException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RequestMapping("/api/mobile")
+@RestController
+@RequiredArgsConstructor
+public class AvailabilityStreamController {
+
+    private final AvailabilityStream availabilityStream;
+
+    /**
+     * Streams availability changes as server-sent events: a {@code snapshot} event with every phone, then a
+     * {@code change} event per booking or return.
+     *
+     * @param lastEventId The id of the last event received, sent by the browser when it reconnects.
+     * @return Response entity with the event stream, 404 if the stream is disabled, 503 if there are too many
+     * subscribers.
+     * @throws IOException If the snapshot cannot be sent, answered with a 500 by {@link RestExceptionHandler}.
+     */
+    @GetMapping("/stream")
+    @Secured("hasRole('USER')")
+    public ResponseEntity<?> streamAvailability(
+        @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) throws IOException {
+        return ResponseEntity.ok(availabilityStream.subscribe(lastEventId));
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.controller;
+
+import com.example.model.dto.InventoryFormat;
+import com.example.model.dto.InventoryImportResult;
+import com.example.service.InventoryTransferService;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RequestMapping("/api/mobile")
+@RestController
+@RequiredArgsConstructor
+public class InventoryTransferController {
+
+    private final InventoryTransferService inventoryTransferService;
+
+    /**
+     * Imports phones from the request body as it arrives: new phones are added as available, existing phones get
+     * their model updated.
+     *
+     * @param contentType {@code application/x-ndjson} or {@code text/csv}.
+     * @param request     The request whose body holds one phone per line.
+     * @return Response entity with how many phones were imported, and how fast.
+     */
+    @PostMapping("/import")
+    @Secured("hasRole('USER')")
+    public ResponseEntity<InventoryImportResult> importPhones(
+        @RequestHeader(name = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+        HttpServletRequest request
+    ) throws IOException {
+        InventoryFormat format = InventoryFormat.fromContentType(contentType);
+        return ResponseEntity.ok(inventoryTransferService.importPhones(request.getInputStream(), format));
+    }
+
+    /**
+     * Streams every phone, ordered by id.
+     *
+     * @param format {@code ndjson} (default) or {@code csv}.
+     * @return Response entity with one phone per line.
+     */
+    @GetMapping("/export")
+    @Secured("hasRole('USER')")
+    public ResponseEntity<StreamingResponseBody> exportPhones(@RequestParam(defaultValue = "ndjson") String format) {
+        InventoryFormat inventoryFormat = InventoryFormat.fromName(format);
+        StreamingResponseBody body = outputStream ->
+            inventoryTransferService.exportPhones(outputStream, inventoryFormat);
+        return ResponseEntity.ok().contentType(inventoryFormat.getMediaType()).body(body);
+    }
+}
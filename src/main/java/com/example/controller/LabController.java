@@ -0,0 +1,77 @@
+package com.example.controller;
+
+import com.example.model.dto.InventoryPage;
+import com.example.service.AvailabilityIndex;
+import com.example.service.InventoryService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RequestMapping("/api/labs/{lab}")
+@RestController
+@RequiredArgsConstructor
+@Slf4j
+public class LabController {
+
+    private final InventoryService inventoryService;
+    private final AvailabilityIndex availabilityIndex;
+
+    /**
+     * Lists the phones of a lab, optionally filtered, one page at a time.
+     *
+     * @param lab       The lab.
+     * @param available Only phones with this availability.
+     * @param model     Only phones of this model.
+     * @param bookedBy  Only phones booked by this user.
+     * @param after     The cursor returned with the previous page, omitted for the first page.
+     * @param size      The page size.
+     * @return Response entity with the page of phones and the cursor of the next page.
+     */
+    @GetMapping("/mobile")
+    @Secured("hasRole('USER')")
+    public ResponseEntity<InventoryPage> listPhones(
+        @PathVariable String lab,
+        @RequestParam(required = false) Boolean available,
+        @RequestParam(required = false) String model,
+        @RequestParam(required = false) String bookedBy,
+        @RequestParam(required = false) Long after,
+        @RequestParam(required = false) Integer size
+    ) {
+        return ResponseEntity.ok(inventoryService.findPhones(lab, available, model, bookedBy, after, size));
+    }
+
+    /**
+     * Loads the phones of a lab into the availability index, e.g. after it was evicted.
+     *
+     * @param lab The lab.
+     * @return Response entity with how many phones were read.
+     */
+    @PostMapping("/index")
+    @Secured("hasRole('USER')")
+    public ResponseEntity<String> loadIndex(@PathVariable String lab) {
+        log.debug("Loading lab: {} into the availability index", lab);
+        return ResponseEntity.ok("Loaded " + availabilityIndex.load(lab) + " phones of " + lab);
+    }
+
+    /**
+     * Drops the phones of a lab from the availability index, its bookings are checked against the database until it
+     * is loaded again.
+     *
+     * @param lab The lab.
+     * @return Response entity with how many phones were dropped.
+     */
+    @DeleteMapping("/index")
+    @Secured("hasRole('USER')")
+    public ResponseEntity<String> evictIndex(@PathVariable String lab) {
+        log.debug("Evicting lab: {} from the availability index", lab);
+        return ResponseEntity.ok("Evicted " + availabilityIndex.evict(lab) + " phones of " + lab);
+    }
+}
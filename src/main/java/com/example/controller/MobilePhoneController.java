@@ -1,11 +1,19 @@
 package com.example.controller;
 
-import com.example.model.exception.MobilePhoneNotAvailableException;
-import com.example.model.exception.MobilePhoneNotBookedException;
-import com.example.model.exception.MobilePhoneNotFoundException;
+import com.example.async.ReservationExecutor;
+import com.example.metrics.ReservationMetrics.Operation;
+import com.example.model.dto.BulkMode;
+import com.example.model.dto.BulkReservationRequest;
+import com.example.model.dto.InventoryPage;
+import com.example.model.dto.ReservationResult;
+import com.example.service.ConcurrencyRetry;
+import com.example.service.IdempotencyService;
+import com.example.service.InventoryService;
 import com.example.service.ReservationService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
+import java.time.Duration;
+import java.util.List;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -14,10 +22,15 @@ import org.springframework.security.access.annotation.Secured;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
 @RequestMapping("/api/mobile")
 @RestController
@@ -26,64 +39,183 @@ import org.springframework.web.bind.annotation.RestController;
 @Slf4j
 public class MobilePhoneController {
 
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
+    // Responses are immutable, so the bodies of the hot paths are built once
+    private static final ResponseEntity<String> BOOKED = ResponseEntity.ok("Phone booked successfully");
+    private static final ResponseEntity<String> RETURNED = ResponseEntity.ok("Phone returned successfully");
+    private static final ResponseEntity<String> BOOKED_REPLAYED =
+        ResponseEntity.ok().header(IDEMPOTENT_REPLAYED, "true").body(BOOKED.getBody());
+    private static final ResponseEntity<String> RETURNED_REPLAYED =
+        ResponseEntity.ok().header(IDEMPOTENT_REPLAYED, "true").body(RETURNED.getBody());
+
     private final ReservationService reservationService;
+    private final InventoryService inventoryService;
+    private final ConcurrencyRetry concurrencyRetry;
+    private final IdempotencyService idempotencyService;
+    private final ReservationExecutor reservationExecutor;
+
 
+    /**
+     * Lists the phones in the fleet, optionally filtered, one page at a time.
+     *
+     * @param available Only phones with this availability.
+     * @param model     Only phones of this model.
+     * @param bookedBy  Only phones booked by this user.
+     * @param after     The cursor returned with the previous page, omitted for the first page.
+     * @param size      The page size.
+     * @return Response entity with the page of phones and the cursor of the next page.
+     */
+    @GetMapping
+    @Secured("hasRole('USER')")
+    public ResponseEntity<?> listPhones(
+        @RequestParam(required = false) Boolean available,
+        @RequestParam(required = false) String model,
+        @RequestParam(required = false) String bookedBy,
+        @RequestParam(required = false) Long after,
+        @RequestParam(required = false) Integer size
+    ) {
+        InventoryPage page = inventoryService.findPhones(null, available, model, bookedBy, after, size);
+        return ResponseEntity.ok(page);
+    }
 
     /**
      * Books a mobile phone with the specified IMEI.
      *
-     * @param imei The IMEI of the mobile phone to be booked.
-     * @return Response entity indicating the booking status.
+     * @param imei           The IMEI of the mobile phone to be booked.
+     * @param lease          How long to book the phone for as an ISO-8601 duration, e.g. PT2H, until it is returned
+     *                       if omitted.
+     * @param idempotencyKey Optional key chosen by the client, a retry with the same key is answered with the
+     *                       outcome of the first booking instead of booking again.
+     * @return Response entity indicating the booking status, with an Idempotent-Replayed header if it was replayed.
      */
     @PostMapping("/{imei}/book")
     @Secured("hasRole('USER')")
     public ResponseEntity<String> bookPhone(
-        @Valid @NotBlank(message = "IMEI is required") @PathVariable String imei
+        @Valid @NotBlank(message = "IMEI is required") @PathVariable String imei,
+        @RequestParam(required = false) Duration lease,
+        @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey
     ) {
-        try {
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            String userName = authentication.getName();
-            log.debug("Booking phone with IMEI: {} for user: {}", imei, userName);
-            reservationService.bookPhone(imei, userName);
-            return ResponseEntity.ok("Phone booked successfully");
-        } catch (MobilePhoneNotFoundException e) {
-            log.debug(e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
-        } catch (MobilePhoneNotAvailableException e) {
-            log.debug(e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
-        } catch (Exception e) {
-            log.error("Exception occurred during bookPhone as {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An error occurred");
-        }
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String userName = authentication.getName();
+        log.debug("Booking phone with IMEI: {} for user: {}", imei, userName);
+        return book(imei, userName, lease, idempotencyKey);
+    }
+
+    /**
+     * Books a mobile phone like {@link #bookPhone} on the reservation executor, without holding an HTTP thread while
+     * the booking waits for the database.
+     *
+     * @return The booking status once the booking completed, 503 if it is rejected or times out.
+     */
+    @PostMapping(value = "/{imei}/book", params = "async=true")
+    @Secured("hasRole('USER')")
+    public DeferredResult<ResponseEntity<String>> bookPhoneAsync(
+        @Valid @NotBlank(message = "IMEI is required") @PathVariable String imei,
+        @RequestParam(required = false) Duration lease,
+        @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey
+    ) {
+        String userName = SecurityContextHolder.getContext().getAuthentication().getName();
+        log.debug("Queueing booking of phone with IMEI: {} for user: {}", imei, userName);
+        return reservationExecutor.submit(Operation.BOOK, () -> book(imei, userName, lease, idempotencyKey));
     }
 
     /**
      * Returns a mobile phone with the specified IMEI.
      *
-     * @param imei The IMEI of the mobile phone to be returned.
-     * @return Response entity indicating the return status.
+     * @param imei           The IMEI of the mobile phone to be returned.
+     * @param idempotencyKey Optional key chosen by the client, a retry with the same key is answered with the
+     *                       outcome of the first return instead of failing because the phone is no longer booked.
+     * @return Response entity indicating the return status, with an Idempotent-Replayed header if it was replayed.
      */
     @PostMapping("/{imei}/return")
     @Secured("hasRole('USER')")
     public ResponseEntity<String> returnPhone(
-        @Valid @NotBlank(message = "IMEI is required") @PathVariable String imei) {
-        try {
-            log.debug("Returning phone with IMEI: {}", imei);
-            reservationService.returnPhone(imei);
-            return ResponseEntity.ok("Phone returned successfully");
-        } catch (MobilePhoneNotFoundException e) {
-            log.debug(e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
-        } catch (MobilePhoneNotBookedException e) {
-            log.debug(e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
-        } catch (Exception e) {
-            log.debug("Exception occurred during returnPhone as {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An error occurred");
-        }
+        @Valid @NotBlank(message = "IMEI is required") @PathVariable String imei,
+        @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey
+    ) {
+        log.debug("Returning phone with IMEI: {}", imei);
+        String userName =
+            idempotencyKey != null ? SecurityContextHolder.getContext().getAuthentication().getName() : null;
+        return giveBack(imei, userName, idempotencyKey);
     }
-}
 
+    /**
+     * Returns a mobile phone like {@link #returnPhone} on the reservation executor, without holding an HTTP thread
+     * while the return waits for the database.
+     *
+     * @return The return status once the return completed, 503 if it is rejected or times out.
+     */
+    @PostMapping(value = "/{imei}/return", params = "async=true")
+    @Secured("hasRole('USER')")
+    public DeferredResult<ResponseEntity<String>> returnPhoneAsync(
+        @Valid @NotBlank(message = "IMEI is required") @PathVariable String imei,
+        @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey
+    ) {
+        log.debug("Queueing return of phone with IMEI: {}", imei);
+        String userName =
+            idempotencyKey != null ? SecurityContextHolder.getContext().getAuthentication().getName() : null;
+        return reservationExecutor.submit(Operation.RETURN, () -> giveBack(imei, userName, idempotencyKey));
+    }
+
+    /**
+     * Books several mobile phones in a single request.
+     *
+     * @param request The IMEIs of the mobile phones to be booked and how failures are handled.
+     * @return Response entity with the outcome for each IMEI, 409 if an all-or-nothing request was rolled back.
+     */
+    @PostMapping("/book")
+    @Secured("hasRole('USER')")
+    public ResponseEntity<?> bookPhones(@Valid @RequestBody BulkReservationRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String userName = authentication.getName();
+        log.debug("Booking {} phones for user: {}", request.imeis().size(), userName);
+        List<ReservationResult> results = concurrencyRetry.run(Operation.BULK_BOOK,
+            () -> reservationService.bookPhones(request.imeis(), userName, request.modeOrDefault(), request.lease()));
+        return bulkResponse(request.modeOrDefault(), results);
+    }
+
+    /**
+     * Returns several mobile phones in a single request.
+     *
+     * @param request The IMEIs of the mobile phones to be returned and how failures are handled.
+     * @return Response entity with the outcome for each IMEI, 409 if an all-or-nothing request was rolled back.
+     */
+    @PostMapping("/return")
+    @Secured("hasRole('USER')")
+    public ResponseEntity<?> returnPhones(@Valid @RequestBody BulkReservationRequest request) {
+        log.debug("Returning {} phones", request.imeis().size());
+        List<ReservationResult> results = concurrencyRetry.run(Operation.BULK_RETURN,
+            () -> reservationService.returnPhones(request.imeis(), request.modeOrDefault()));
+        return bulkResponse(request.modeOrDefault(), results);
+    }
 
+    // The security context is bound to the request thread, so the user is resolved before these may move off it
+    private ResponseEntity<String> book(String imei, String userName, Duration lease, String idempotencyKey) {
+        Runnable booking = () -> reservationService.bookPhone(imei, userName, lease);
+        if (idempotencyKey != null) {
+            return idempotencyService.runOnce(userName, idempotencyKey, Operation.BOOK, imei, booking)
+                ? BOOKED : BOOKED_REPLAYED;
+        }
+        concurrencyRetry.run(Operation.BOOK, booking);
+        return BOOKED;
+    }
 
+    private ResponseEntity<String> giveBack(String imei, String userName, String idempotencyKey) {
+        Runnable giveBack = () -> reservationService.returnPhone(imei);
+        if (idempotencyKey != null) {
+            return idempotencyService.runOnce(userName, idempotencyKey, Operation.RETURN, imei, giveBack)
+                ? RETURNED : RETURNED_REPLAYED;
+        }
+        concurrencyRetry.run(Operation.RETURN, giveBack);
+        return RETURNED;
+    }
+
+    private static ResponseEntity<List<ReservationResult>> bulkResponse(BulkMode mode,
+        List<ReservationResult> results) {
+        boolean failed = results.stream().anyMatch(result -> !result.outcome().isSuccess());
+        HttpStatus status = mode == BulkMode.ALL_OR_NOTHING && failed ? HttpStatus.CONFLICT : HttpStatus.OK;
+        return ResponseEntity.status(status).body(results);
+    }
+}
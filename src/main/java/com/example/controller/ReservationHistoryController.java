@@ -0,0 +1,48 @@
+package com.example.controller;
+
+import com.example.service.ReservationHistoryService;
+import java.time.Instant;
+import java.util.Date;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RequestMapping("/api/mobile")
+@RestController
+@RequiredArgsConstructor
+public class ReservationHistoryController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final ReservationHistoryService reservationHistoryService;
+
+    /**
+     * Streams the bookings that overlap a time window as newline-delimited JSON.
+     *
+     * @param from Start of the window, an ISO-8601 instant.
+     * @param to   End of the window, an ISO-8601 instant, now if omitted.
+     * @param imei Only bookings of this phone.
+     * @return Response entity with one booking per line, oldest first.
+     */
+    @GetMapping("/history")
+    @Secured("hasRole('USER')")
+    public ResponseEntity<?> exportHistory(
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+        @RequestParam(required = false) String imei
+    ) {
+        Date start = Date.from(from);
+        Date end = to == null ? new Date() : Date.from(to);
+        reservationHistoryService.checkWindow(start, end);
+        StreamingResponseBody body = outputStream ->
+            reservationHistoryService.export(start, end, imei, outputStream);
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.controller;
+
+import com.example.model.exception.BadRequestException;
+import com.example.model.exception.DomainException;
+import com.example.model.exception.FeatureDisabledException;
+import com.example.model.exception.LabNotFoundException;
+import com.example.model.exception.MobilePhoneBookedException;
+import com.example.model.exception.MobilePhoneNotAvailableException;
+import com.example.model.exception.MobilePhoneNotBookedException;
+import com.example.model.exception.MobilePhoneNotFoundException;
+import com.example.model.exception.ReservationQueueFullException;
+import com.example.model.exception.ReservationTimeoutException;
+import com.example.model.exception.SlotConflictException;
+import com.example.model.exception.SlotNotFoundException;
+import com.example.model.exception.StreamCapacityExceededException;
+import com.example.model.exception.WaitlistEntryNotFoundException;
+import com.example.model.exception.WaitlistEntryNotWaitingException;
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.web.ErrorResponse;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Turns the exceptions thrown by the controllers into responses, in one place instead of a try/catch per endpoint.
+ * Domain exceptions are expected outcomes: their message is the response body and they are logged at debug level
+ * without a stack trace. Anything else is logged as an error and answered with a fixed body.
+ * <p>
+ * The conflicts every busy phone causes are thrown as shared instances with a fixed message, such as
+ * {@link MobilePhoneNotAvailableException#IN_USE}, and answered with a response built once, so turning them away
+ * allocates nothing here.
+ */
+@Slf4j
+@RestControllerAdvice
+public class RestExceptionHandler {
+
+    private static final ResponseEntity<String> INTERNAL_SERVER_ERROR =
+        new ResponseEntity<>("An error occurred", HttpStatus.INTERNAL_SERVER_ERROR);
+    private static final ResponseEntity<String> CONCURRENT_CHANGE =
+        new ResponseEntity<>("The phone was changed concurrently, please try again", HttpStatus.CONFLICT);
+    /**
+     * The responses to the shared exceptions, looked up by identity. Only read after the class is initialized.
+     */
+    private static final Map<DomainException, ResponseEntity<String>> FIXED_RESPONSES = new IdentityHashMap<>();
+
+    static {
+        fixResponse(MobilePhoneNotAvailableException.IN_USE, HttpStatus.CONFLICT);
+        fixResponse(MobilePhoneNotBookedException.NOT_BOOKED, HttpStatus.CONFLICT);
+        fixResponse(MobilePhoneNotFoundException.UNKNOWN_IMEI, HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(BadRequestException.class)
+    public ResponseEntity<String> handleBadRequest(BadRequestException e) {
+        return respond(HttpStatus.BAD_REQUEST, e);
+    }
+
+    @ExceptionHandler({MobilePhoneNotFoundException.class, WaitlistEntryNotFoundException.class,
+        SlotNotFoundException.class, LabNotFoundException.class, FeatureDisabledException.class})
+    public ResponseEntity<String> handleNotFound(DomainException e) {
+        return respond(HttpStatus.NOT_FOUND, e);
+    }
+
+    @ExceptionHandler({MobilePhoneNotAvailableException.class, MobilePhoneNotBookedException.class,
+        MobilePhoneBookedException.class, WaitlistEntryNotWaitingException.class, SlotConflictException.class})
+    public ResponseEntity<String> handleConflict(DomainException e) {
+        return respond(HttpStatus.CONFLICT, e);
+    }
+
+    @ExceptionHandler({StreamCapacityExceededException.class, ReservationQueueFullException.class,
+        ReservationTimeoutException.class})
+    public ResponseEntity<String> handleCapacityExceeded(DomainException e) {
+        return respond(HttpStatus.SERVICE_UNAVAILABLE, e);
+    }
+
+    /**
+     * Answers a request that still failed on a concurrent change of the same phones once its retries ran out.
+     */
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public ResponseEntity<String> handleConcurrencyFailure(ConcurrencyFailureException e, HttpServletRequest request) {
+        log.warn("Giving up on {} {} after concurrent changes: {}", request.getMethod(), request.getRequestURI(),
+            e.getMessage());
+        return CONCURRENT_CHANGE;
+    }
+
+    /**
+     * Answers unexpected exceptions with a 500. Exceptions that Spring MVC or Spring Security already turn into a
+     * response, e.g. validation errors or denied access, are rethrown so they keep their status.
+     */
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<String> handleUnexpected(Exception e, HttpServletRequest request) throws Exception {
+        if (e instanceof ErrorResponse || e instanceof AccessDeniedException || e instanceof AuthenticationException) {
+            throw e;
+        }
+        log.error("Exception occurred during {} {} as {}", request.getMethod(), request.getRequestURI(),
+            e.getMessage(), e);
+        return INTERNAL_SERVER_ERROR;
+    }
+
+    private static ResponseEntity<String> respond(HttpStatus status, DomainException e) {
+        log.debug("Responding {}: {}", status, e.getMessage());
+        ResponseEntity<String> fixed = FIXED_RESPONSES.get(e);
+        return fixed != null ? fixed : new ResponseEntity<>(e.getMessage(), status);
+    }
+
+    private static void fixResponse(DomainException e, HttpStatus status) {
+        FIXED_RESPONSES.put(e, new ResponseEntity<>(e.getMessage(), status));
+    }
+}
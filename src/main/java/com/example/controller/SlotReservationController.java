@@ -0,0 +1,97 @@
+package com.example.controller;
+
+import com.example.model.dto.SlotRequest;
+import com.example.model.dto.SlotView;
+import com.example.service.SlotReservationService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import java.net.URI;
+import java.time.Instant;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Reserves phones for future windows of time, alongside the immediate bookings of {@link MobilePhoneController}.
+ */
+@RequestMapping("/api/mobile")
+@RestController
+@RequiredArgsConstructor
+@Validated
+@Slf4j
+public class SlotReservationController {
+
+    private final SlotReservationService slotReservationService;
+
+    /**
+     * Reserves a phone for a window of time.
+     *
+     * @param imei    The IMEI of the mobile phone.
+     * @param request The window.
+     * @return 201 with the reserved slot.
+     */
+    @PostMapping("/{imei}/slots")
+    @Secured("hasRole('USER')")
+    public ResponseEntity<?> reserve(
+        @Valid @NotBlank(message = "IMEI is required") @PathVariable String imei,
+        @Valid @RequestBody SlotRequest request) {
+        String userName = SecurityContextHolder.getContext().getAuthentication().getName();
+        log.debug("User: {} is reserving IMEI: {} from {} to {}", userName, imei, request.start(), request.end());
+        SlotView slot = slotReservationService.reserve(imei, userName, request.start(), request.end());
+        return ResponseEntity.created(URI.create("/api/mobile/slots/" + slot.id())).body(slot);
+    }
+
+    /**
+     * @param imei The IMEI of the mobile phone.
+     * @return Response entity with the slots of the phone that have not ended yet.
+     */
+    @GetMapping("/{imei}/slots")
+    @Secured("hasRole('USER')")
+    public ResponseEntity<?> findSlots(@Valid @NotBlank(message = "IMEI is required") @PathVariable String imei) {
+        return ResponseEntity.ok(slotReservationService.findSlots(imei));
+    }
+
+    /**
+     * Cancels a slot of the user.
+     *
+     * @param id The id of the slot.
+     * @return Response entity with the cancelled slot.
+     */
+    @DeleteMapping("/slots/{id}")
+    @Secured("hasRole('USER')")
+    public ResponseEntity<?> cancel(@PathVariable Long id) {
+        String userName = SecurityContextHolder.getContext().getAuthentication().getName();
+        return ResponseEntity.ok(slotReservationService.cancel(id, userName));
+    }
+
+    /**
+     * Finds a phone of a model that is free for a window of time.
+     *
+     * @param model The model.
+     * @param start Start of the window, an ISO-8601 instant.
+     * @param end   End of the window, an ISO-8601 instant.
+     * @return Response entity with the IMEI of a free phone, 409 if none is free.
+     */
+    @GetMapping("/models/{model}/free")
+    @Secured("hasRole('USER')")
+    public ResponseEntity<?> findFreePhone(
+        @Valid @NotBlank(message = "Model is required") @PathVariable String model,
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant start,
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant end
+    ) {
+        String userName = SecurityContextHolder.getContext().getAuthentication().getName();
+        return ResponseEntity.ok(slotReservationService.findFreePhone(model, userName, start, end));
+    }
+}
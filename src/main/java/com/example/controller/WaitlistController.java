@@ -0,0 +1,125 @@
+package com.example.controller;
+
+import com.example.config.WaitlistConfig;
+import com.example.model.dto.WaitlistEntryView;
+import com.example.model.entity.WaitlistStatus;
+import com.example.service.WaitlistService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import java.net.URI;
+import java.util.function.Consumer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+/**
+ * Lets a user queue for a phone instead of retrying a booking that conflicted, and wait for the handover with a
+ * long-poll.
+ */
+@RequestMapping("/api/mobile")
+@RestController
+@RequiredArgsConstructor
+@Validated
+@Slf4j
+public class WaitlistController {
+
+    private final WaitlistService waitlistService;
+    private final WaitlistConfig waitlistConfig;
+
+    /**
+     * Books the phone if it is available, otherwise queues the user for it.
+     *
+     * @param imei The IMEI of the mobile phone.
+     * @return 200 with the entry if the phone was booked, 202 with the entry if the user is waiting.
+     */
+    @PostMapping("/{imei}/waitlist")
+    @Secured("hasRole('USER')")
+    public ResponseEntity<?> joinForPhone(
+        @Valid @NotBlank(message = "IMEI is required") @PathVariable String imei) {
+        String userName = SecurityContextHolder.getContext().getAuthentication().getName();
+        log.debug("User: {} is joining the waitlist of IMEI: {}", userName, imei);
+        return joinResponse(waitlistService.joinForPhone(imei, userName));
+    }
+
+    /**
+     * Books any available phone of the model, otherwise queues the user for the next one.
+     *
+     * @param model The model.
+     * @return 200 with the entry if a phone was booked, 202 with the entry if the user is waiting.
+     */
+    @PostMapping("/models/{model}/waitlist")
+    @Secured("hasRole('USER')")
+    public ResponseEntity<?> joinForModel(
+        @Valid @NotBlank(message = "Model is required") @PathVariable String model) {
+        String userName = SecurityContextHolder.getContext().getAuthentication().getName();
+        log.debug("User: {} is joining the waitlist of model: {}", userName, model);
+        return joinResponse(waitlistService.joinForModel(model, userName));
+    }
+
+    /**
+     * Long-polls a waitlist entry. The request is held open until the entry is assigned or cancelled, or the
+     * timeout passes. With long-polls disabled the entry is returned straight away.
+     *
+     * @param id      The id of the entry.
+     * @param timeout How long to wait in milliseconds, the configured poll timeout if omitted.
+     * @return 200 with the entry once it changed, 202 with the entry if it is still waiting.
+     */
+    @GetMapping("/waitlist/{id}")
+    @Secured("hasRole('USER')")
+    public DeferredResult<ResponseEntity<?>> awaitEntry(@PathVariable Long id,
+        @RequestParam(required = false) Long timeout) {
+        long timeoutMillis = Math.min(timeout != null ? timeout : waitlistConfig.getPollTimeout().toMillis(),
+            waitlistConfig.getMaxPollTimeout().toMillis());
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(timeoutMillis);
+        String userName = SecurityContextHolder.getContext().getAuthentication().getName();
+        if (!waitlistConfig.isLongPollEnabled()) {
+            WaitlistEntryView entry = waitlistService.findEntry(id, userName);
+            result.setResult(entry.status() != WaitlistStatus.WAITING ? ResponseEntity.ok(entry)
+                : ResponseEntity.status(HttpStatus.ACCEPTED).body(entry));
+            return result;
+        }
+        Consumer<WaitlistEntryView> listener = changed -> result.setResult(ResponseEntity.ok(changed));
+        WaitlistEntryView entry = waitlistService.awaitChange(id, userName, listener);
+        if (entry.status() != WaitlistStatus.WAITING) {
+            result.setResult(ResponseEntity.ok(entry));
+            return result;
+        }
+        result.onTimeout(() -> result.setResult(ResponseEntity.status(HttpStatus.ACCEPTED).body(entry)));
+        result.onCompletion(() -> waitlistService.stopAwaiting(id, listener));
+        return result;
+    }
+
+    /**
+     * Takes the user off the waitlist.
+     *
+     * @param id The id of the entry.
+     * @return Response entity with the cancelled entry.
+     */
+    @DeleteMapping("/waitlist/{id}")
+    @Secured("hasRole('USER')")
+    public ResponseEntity<?> cancel(@PathVariable Long id) {
+        String userName = SecurityContextHolder.getContext().getAuthentication().getName();
+        return ResponseEntity.ok(waitlistService.cancel(id, userName));
+    }
+
+    private static ResponseEntity<WaitlistEntryView> joinResponse(WaitlistEntryView entry) {
+        if (entry.status() == WaitlistStatus.ASSIGNED) {
+            return ResponseEntity.ok(entry);
+        }
+        return ResponseEntity.accepted()
+            .location(URI.create("/api/mobile/waitlist/" + entry.id()))
+            .body(entry);
+    }
+}
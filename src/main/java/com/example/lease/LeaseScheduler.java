@@ -0,0 +1,198 @@
+package com.example.lease;
+
+import com.example.config.LeaseConfig;
+import com.example.model.dao.MobilePhoneDao;
+import com.example.model.dto.PhoneLease;
+import com.example.service.PhoneAvailabilityChangedEvent;
+import com.example.service.ReservationService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Returns phones automatically when their lease lapses. Leases are tracked in a {@link TimingWheel} that a dedicated
+ * thread advances once per tick, so the cost of tracking does not grow with the number of active leases.
+ * <p>
+ * The wheel is filled from the database at startup and kept up to date from committed bookings and returns. A lapsed
+ * lease is returned with a conditional update, so a lease that no longer applies, or one also tracked by another
+ * instance, is left alone. Each instance only hears of the bookings made through it, so the database is also searched
+ * periodically for leases that lapsed without being returned, e.g. because the instance tracking them stopped.
+ */
+@Slf4j
+@Component
+public class LeaseScheduler {
+
+    // Enough levels to cover any lease with ticks of a millisecond or more
+    private static final int LEVELS = 4;
+
+    private final MobilePhoneDao mobilePhoneDao;
+    private final ReservationService reservationService;
+    private final LeaseConfig leaseConfig;
+    private final TimingWheel<String> wheel;
+    // Guards the wheel and the leases
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, TimingWheel.Timeout<String>> leases = new HashMap<>();
+    private final Counter expiredCounter;
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "lease-expiry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public LeaseScheduler(MobilePhoneDao mobilePhoneDao, ReservationService reservationService,
+        LeaseConfig leaseConfig, MeterRegistry meterRegistry) {
+        this.mobilePhoneDao = mobilePhoneDao;
+        this.reservationService = reservationService;
+        this.leaseConfig = leaseConfig;
+        this.wheel = new TimingWheel<>(leaseConfig.getWheelSize(), LEVELS, currentTick());
+        this.expiredCounter = Counter.builder("lease.expired")
+            .description("Phones returned because their lease lapsed")
+            .register(meterRegistry);
+        Gauge.builder("lease.active", this, LeaseScheduler::activeLeases)
+            .description("Bookings with a lease that has not lapsed yet")
+            .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!leaseConfig.isEnabled()) {
+            return;
+        }
+        List<PhoneLease> active = mobilePhoneDao.findActiveLeases();
+        lock.lock();
+        try {
+            for (PhoneLease lease : active) {
+                track(lease.imei(), lease.leaseExpiresAt());
+            }
+        } finally {
+            lock.unlock();
+        }
+        log.info("Tracking {} leases", active.size());
+        ticker.scheduleAtFixedRate(this::tick, leaseConfig.getTick(), leaseConfig.getTick(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        ticker.shutdownNow();
+    }
+
+    @TransactionalEventListener
+    public void onAvailabilityChanged(PhoneAvailabilityChangedEvent event) {
+        if (!leaseConfig.isEnabled()) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (event.available() || event.leaseExpiresAt() == null) {
+                untrack(event.imei());
+            } else {
+                track(event.imei(), event.leaseExpiresAt());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the phones whose lease lapsed more than a tick ago, which the wheel of this instance would have returned
+     * already if it had tracked them.
+     */
+    @Scheduled(fixedDelayString = "${mobile-phone-reservation.lease.sweep-interval:60000}")
+    public void sweep() {
+        if (!leaseConfig.isEnabled()) {
+            return;
+        }
+        List<String> lapsed =
+            mobilePhoneDao.findLapsedLeases(new Date(System.currentTimeMillis() - leaseConfig.getTick()));
+        for (String imei : lapsed) {
+            try {
+                if (reservationService.expireLease(imei)) {
+                    expiredCounter.increment();
+                }
+            } catch (RuntimeException e) {
+                log.warn("Returning phone with IMEI: {} after its lease lapsed failed, will retry", imei, e);
+            }
+        }
+        if (!lapsed.isEmpty()) {
+            log.debug("Found {} lapsed leases in the database", lapsed.size());
+        }
+    }
+
+    /**
+     * Returns the phones whose lease lapsed since the last tick. A phone that cannot be returned is tried again
+     * after the retry interval.
+     */
+    void tick() {
+        List<String> lapsed = new ArrayList<>();
+        lock.lock();
+        try {
+            wheel.advanceTo(currentTick(), imei -> {
+                leases.remove(imei);
+                lapsed.add(imei);
+            });
+        } finally {
+            lock.unlock();
+        }
+        for (String imei : lapsed) {
+            try {
+                if (reservationService.expireLease(imei)) {
+                    expiredCounter.increment();
+                }
+            } catch (RuntimeException e) {
+                log.warn("Returning phone with IMEI: {} after its lease lapsed failed, will retry", imei, e);
+                lock.lock();
+                try {
+                    // Unless a newer booking replaced the lease in the meantime
+                    if (!leases.containsKey(imei)) {
+                        track(imei, new Date(System.currentTimeMillis() + leaseConfig.getRetryInterval().toMillis()));
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    private void track(String imei, Date leaseExpiresAt) {
+        untrack(imei);
+        // Round up, so the lease has lapsed by the time its tick is processed
+        long deadline = Math.ceilDiv(leaseExpiresAt.getTime(), leaseConfig.getTick());
+        leases.put(imei, wheel.schedule(imei, deadline));
+    }
+
+    private void untrack(String imei) {
+        TimingWheel.Timeout<String> timeout = leases.remove(imei);
+        if (timeout != null) {
+            wheel.cancel(timeout);
+        }
+    }
+
+    private long currentTick() {
+        return System.currentTimeMillis() / leaseConfig.getTick();
+    }
+
+    private int activeLeases() {
+        lock.lock();
+        try {
+            return wheel.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
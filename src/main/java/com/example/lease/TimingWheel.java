@@ -0,0 +1,182 @@
+package com.example.lease;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel. Scheduling and cancelling take constant time however many timeouts are pending, and
+ * advancing the clock by one tick only touches the timeouts due in that tick, plus an occasional cascade of one
+ * bucket of a coarser wheel into the finer ones.
+ * <p>
+ * Level {@code n} has {@code wheelSize} buckets of {@code wheelSize^n} ticks each. A timeout is kept on the finest
+ * level whose span covers its delay, and moved down a level each time the clock reaches the start of its bucket.
+ * Deadlines are absolute tick numbers. Not thread-safe.
+ *
+ * @param <T> The type of the items whose timeouts are tracked.
+ */
+final class TimingWheel<T> {
+
+    /**
+     * A pending timeout, used to cancel it. Buckets are circular doubly linked lists with a sentinel, so a timeout
+     * unlinks itself without searching.
+     */
+    static final class Timeout<T> {
+
+        private final T item;
+        private final long deadline;
+        private Timeout<T> previous;
+        private Timeout<T> next;
+
+        private Timeout(T item, long deadline) {
+            this.item = item;
+            this.deadline = deadline;
+        }
+
+        boolean isPending() {
+            return next != null;
+        }
+    }
+
+    private final int bits;
+    private final long mask;
+    private final int levels;
+    private final Timeout<T>[][] buckets;
+    private long nextTick;
+    private int size;
+
+    /**
+     * @param wheelSize Number of buckets per level, a power of two.
+     * @param levels    Number of levels, together they span {@code wheelSize^levels} ticks.
+     * @param startTick The first tick to be processed.
+     */
+    @SuppressWarnings("unchecked")
+    TimingWheel(int wheelSize, int levels, long startTick) {
+        if (wheelSize < 2 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheelSize must be a power of two");
+        }
+        this.bits = Integer.numberOfTrailingZeros(wheelSize);
+        if (levels < 1 || bits * levels > 62) {
+            throw new IllegalArgumentException("levels must be between 1 and " + 62 / bits);
+        }
+        this.mask = wheelSize - 1;
+        this.levels = levels;
+        this.buckets = new Timeout[levels][wheelSize];
+        for (Timeout<T>[] level : buckets) {
+            for (int index = 0; index < wheelSize; index++) {
+                Timeout<T> sentinel = new Timeout<>(null, 0);
+                sentinel.previous = sentinel;
+                sentinel.next = sentinel;
+                level[index] = sentinel;
+            }
+        }
+        this.nextTick = startTick;
+    }
+
+    /**
+     * @param item     The item to hand back when the timeout is due.
+     * @param deadline The tick at which the timeout is due, timeouts already due are handed back on the next tick.
+     * @return The timeout, to cancel it.
+     */
+    Timeout<T> schedule(T item, long deadline) {
+        Timeout<T> timeout = new Timeout<>(item, deadline);
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Cancels a timeout, does nothing if it is already due or cancelled.
+     */
+    void cancel(Timeout<T> timeout) {
+        if (timeout.isPending()) {
+            unlink(timeout);
+            size--;
+        }
+    }
+
+    /**
+     * Processes every tick up to and including the given one, handing back the items whose timeout is due.
+     *
+     * @param tick    The current tick.
+     * @param expired Called with each item that is due, must not schedule or cancel timeouts.
+     */
+    void advanceTo(long tick, Consumer<T> expired) {
+        while (nextTick <= tick) {
+            int index = (int) (nextTick & mask);
+            if (index == 0) {
+                // The finest level wrapped, bring down the timeouts of the next bucket of each coarser level
+                for (int level = 1; level < levels; level++) {
+                    int coarseIndex = (int) ((nextTick >>> (bits * level)) & mask);
+                    cascade(buckets[level][coarseIndex]);
+                    if (coarseIndex != 0) {
+                        break;
+                    }
+                }
+            }
+            Timeout<T> sentinel = buckets[0][index];
+            while (sentinel.next != sentinel) {
+                Timeout<T> timeout = sentinel.next;
+                unlink(timeout);
+                if (timeout.deadline > nextTick) {
+                    // Parked beyond the span of the wheel
+                    place(timeout);
+                    continue;
+                }
+                size--;
+                expired.accept(timeout.item);
+            }
+            nextTick++;
+        }
+    }
+
+    /**
+     * @return The number of pending timeouts.
+     */
+    int size() {
+        return size;
+    }
+
+    private void place(Timeout<T> timeout) {
+        long delta = timeout.deadline - nextTick;
+        if (delta < 0) {
+            link(buckets[0][(int) (nextTick & mask)], timeout);
+            return;
+        }
+        for (int level = 0; level < levels; level++) {
+            if (delta < 1L << (bits * (level + 1))) {
+                link(buckets[level][(int) ((timeout.deadline >>> (bits * level)) & mask)], timeout);
+                return;
+            }
+        }
+        // Beyond the span of the wheel, park it in the top level bucket processed last and place it again from there
+        int top = levels - 1;
+        long parked = nextTick + (1L << (bits * levels)) - 1;
+        link(buckets[top][(int) ((parked >>> (bits * top)) & mask)], timeout);
+    }
+
+    private void cascade(Timeout<T> sentinel) {
+        Timeout<T> timeout = sentinel.next;
+        sentinel.next = sentinel;
+        sentinel.previous = sentinel;
+        while (timeout != sentinel) {
+            Timeout<T> following = timeout.next;
+            timeout.previous = null;
+            timeout.next = null;
+            place(timeout);
+            timeout = following;
+        }
+    }
+
+    private static <T> void link(Timeout<T> sentinel, Timeout<T> timeout) {
+        timeout.previous = sentinel.previous;
+        timeout.next = sentinel;
+        sentinel.previous.next = timeout;
+        sentinel.previous = timeout;
+    }
+
+    private static <T> void unlink(Timeout<T> timeout) {
+        timeout.previous.next = timeout.next;
+        timeout.next.previous = timeout.previous;
+        timeout.previous = null;
+        timeout.next = null;
+    }
+}
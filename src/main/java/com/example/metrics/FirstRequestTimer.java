@@ -0,0 +1,56 @@
+package com.example.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Measures the time to first request: from the start of the JVM until the first HTTP request, of any kind, has been
+ * answered. Unlike the startup time Spring Boot logs, it includes loading the JVM and everything that runs once the
+ * context is ready. It is logged once and published as {@code application.first-request.time}, to compare startup
+ * with and without AOT processing and class data sharing.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class FirstRequestTimer extends OncePerRequestFilter {
+
+    private static final long NOT_SERVED = -1;
+
+    private final AtomicLong firstRequestMillis = new AtomicLong(NOT_SERVED);
+
+    public FirstRequestTimer(MeterRegistry meterRegistry) {
+        TimeGauge.builder("application.first-request.time", firstRequestMillis, TimeUnit.MILLISECONDS,
+                millis -> millis.get() == NOT_SERVED ? Double.NaN : millis.get())
+            .description("Time from the start of the JVM until the first request was answered")
+            .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+        throws ServletException, IOException {
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            // A single read once the first request has been timed
+            if (firstRequestMillis.get() == NOT_SERVED) {
+                long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+                if (firstRequestMillis.compareAndSet(NOT_SERVED, uptime)) {
+                    log.info("First request answered {} ms after the JVM started", uptime);
+                }
+            }
+        }
+    }
+}
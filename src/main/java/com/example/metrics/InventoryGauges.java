@@ -0,0 +1,45 @@
+package com.example.metrics;
+
+import com.example.model.dao.MobilePhoneDao;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes how many phones are booked and available. The counts are refreshed on a schedule rather than on every
+ * scrape, so scraping never waits on the database.
+ */
+@Slf4j
+@Component
+public class InventoryGauges {
+
+    private final MobilePhoneDao mobilePhoneDao;
+    private final AtomicLong booked = new AtomicLong();
+    private final AtomicLong available = new AtomicLong();
+
+    public InventoryGauges(MobilePhoneDao mobilePhoneDao, MeterRegistry meterRegistry) {
+        this.mobilePhoneDao = mobilePhoneDao;
+        Gauge.builder("reservation.phones", booked, AtomicLong::get)
+            .description("Number of phones by availability")
+            .tag("state", "booked")
+            .register(meterRegistry);
+        Gauge.builder("reservation.phones", available, AtomicLong::get)
+            .description("Number of phones by availability")
+            .tag("state", "available")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${mobile-phone-reservation.metrics.inventory-refresh-interval:15000}")
+    public void refresh() {
+        try {
+            booked.set(mobilePhoneDao.countByAvailability(false));
+            available.set(mobilePhoneDao.countByAvailability(true));
+        } catch (DataAccessException e) {
+            log.warn("Refreshing phone counts failed: {}", e.getMessage());
+        }
+    }
+}
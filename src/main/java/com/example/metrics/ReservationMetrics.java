@@ -0,0 +1,208 @@
+package com.example.metrics;
+
+import com.example.model.dto.ReservationOutcome;
+import com.example.model.dto.ReservationResult;
+import com.example.model.exception.BadRequestException;
+import com.example.model.exception.MobilePhoneNotAvailableException;
+import com.example.model.exception.MobilePhoneNotBookedException;
+import com.example.model.exception.MobilePhoneNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Timers for reservation requests, tagged by outcome, and for the phases each request goes through. All meters are
+ * registered up front so recording does not look anything up in the registry.
+ * <ul>
+ *     <li>{@code reservation.requests} - whole request including the commit, tagged by operation and outcome.</li>
+ *     <li>{@code reservation.phase} - lookup, update, publish and commit, tagged by operation and phase.</li>
+ *     <li>{@code reservation.items} - per-phone outcomes of bulk requests.</li>
+ *     <li>{@code reservation.concurrency.conflicts} - attempts that failed on a concurrent change of the same phones,
+ *     tagged by operation and by whether the request was retried or gave up.</li>
+ * </ul>
+ */
+@Component
+public class ReservationMetrics {
+
+    public enum Operation {
+        BOOK, RETURN, BULK_BOOK, BULK_RETURN, EXPIRE
+    }
+
+    public enum Phase {
+        /**
+         * Reading the database to find out why an update changed nothing.
+         */
+        LOOKUP,
+        /**
+         * The conditional update of the phone.
+         */
+        UPDATE,
+        /**
+         * Writing the event to the outbox.
+         */
+        PUBLISH,
+        /**
+         * Flushing and committing the transaction.
+         */
+        COMMIT
+    }
+
+    public enum Outcome {
+        BOOKED(true), RETURNED(true), CONFLICT(false), NOT_FOUND(false), BAD_REQUEST(false), ERROR(false);
+
+        private final boolean success;
+
+        Outcome(boolean success) {
+            this.success = success;
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Operation, Map<Outcome, Timer>> requestTimers = new EnumMap<>(Operation.class);
+    private final Map<Operation, Map<Phase, Timer>> phaseTimers = new EnumMap<>(Operation.class);
+    private final Map<Operation, Map<ReservationOutcome, Counter>> itemCounters = new EnumMap<>(Operation.class);
+    private final Map<Operation, Counter> retriedConflicts = new EnumMap<>(Operation.class);
+    private final Map<Operation, Counter> finalConflicts = new EnumMap<>(Operation.class);
+
+    public ReservationMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (Operation operation : Operation.values()) {
+            Map<Outcome, Timer> outcomes = new EnumMap<>(Outcome.class);
+            for (Outcome outcome : Outcome.values()) {
+                outcomes.put(outcome, Timer.builder("reservation.requests")
+                    .description("Reservation requests, including the commit")
+                    .tag("operation", tag(operation))
+                    .tag("outcome", tag(outcome))
+                    .register(meterRegistry));
+            }
+            requestTimers.put(operation, outcomes);
+
+            Map<Phase, Timer> phases = new EnumMap<>(Phase.class);
+            for (Phase phase : Phase.values()) {
+                phases.put(phase, Timer.builder("reservation.phase")
+                    .description("Time spent in each phase of a reservation request")
+                    .tag("operation", tag(operation))
+                    .tag("phase", tag(phase))
+                    .register(meterRegistry));
+            }
+            phaseTimers.put(operation, phases);
+
+            Map<ReservationOutcome, Counter> items = new EnumMap<>(ReservationOutcome.class);
+            for (ReservationOutcome outcome : ReservationOutcome.values()) {
+                items.put(outcome, Counter.builder("reservation.items")
+                    .description("Phones processed by bulk reservation requests")
+                    .tag("operation", tag(operation))
+                    .tag("outcome", tag(outcome))
+                    .register(meterRegistry));
+            }
+            itemCounters.put(operation, items);
+
+            retriedConflicts.put(operation, conflictCounter(operation, "retried"));
+            finalConflicts.put(operation, conflictCounter(operation, "gave-up"));
+        }
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    public <T> T time(Operation operation, Phase phase, Supplier<T> body) {
+        return phaseTimers.get(operation).get(phase).record(body);
+    }
+
+    public void time(Operation operation, Phase phase, Runnable body) {
+        phaseTimers.get(operation).get(phase).record(body);
+    }
+
+    /**
+     * Records a request that failed before reaching the commit.
+     */
+    public void recordFailure(Operation operation, Timer.Sample sample, RuntimeException exception) {
+        sample.stop(requestTimers.get(operation).get(outcomeOf(exception)));
+    }
+
+    /**
+     * Records the request once its transaction completes, along with the time the commit took. A successful outcome
+     * is recorded as an error if the transaction does not commit.
+     */
+    public void recordOnCompletion(Operation operation, Outcome outcome, Timer.Sample sample) {
+        Map<Outcome, Timer> timers = requestTimers.get(operation);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            sample.stop(timers.get(outcome));
+            return;
+        }
+        Timer commitTimer = phaseTimers.get(operation).get(Phase.COMMIT);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private Timer.Sample commitSample;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                commitSample = Timer.start(meterRegistry);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (commitSample != null) {
+                    commitSample.stop(commitTimer);
+                }
+                boolean failed = status != STATUS_COMMITTED && outcome.success;
+                sample.stop(timers.get(failed ? Outcome.ERROR : outcome));
+            }
+        });
+    }
+
+    /**
+     * Counts the per-phone outcomes of a bulk request.
+     */
+    public void countItems(Operation operation, Collection<ReservationResult> results) {
+        Map<ReservationOutcome, Counter> counters = itemCounters.get(operation);
+        for (ReservationResult result : results) {
+            counters.get(result.outcome()).increment();
+        }
+    }
+
+    /**
+     * Counts an attempt that failed on a concurrent change of the same phones.
+     *
+     * @param retried Whether the request is attempted again, false if it gave up.
+     */
+    public void countConcurrencyConflict(Operation operation, boolean retried) {
+        (retried ? retriedConflicts : finalConflicts).get(operation).increment();
+    }
+
+    private Counter conflictCounter(Operation operation, String resolution) {
+        return Counter.builder("reservation.concurrency.conflicts")
+            .description("Attempts that failed on a concurrent change of the same phones")
+            .tag("operation", tag(operation))
+            .tag("resolution", resolution)
+            .register(meterRegistry);
+    }
+
+    private static Outcome outcomeOf(RuntimeException exception) {
+        if (exception instanceof MobilePhoneNotAvailableException
+            || exception instanceof MobilePhoneNotBookedException
+            || exception instanceof ConcurrencyFailureException) {
+            return Outcome.CONFLICT;
+        }
+        if (exception instanceof MobilePhoneNotFoundException) {
+            return Outcome.NOT_FOUND;
+        }
+        if (exception instanceof BadRequestException) {
+            return Outcome.BAD_REQUEST;
+        }
+        return Outcome.ERROR;
+    }
+
+    private static String tag(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+}
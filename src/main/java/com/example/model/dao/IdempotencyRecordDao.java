@@ -0,0 +1,23 @@
+package com.example.model.dao;
+
+import com.example.model.entity.IdempotencyRecordEntity;
+import java.util.Date;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface IdempotencyRecordDao extends JpaRepository<IdempotencyRecordEntity, Long> {
+
+    Optional<IdempotencyRecordEntity> findByUsernameAndIdempotencyKey(String username, String idempotencyKey);
+
+    /**
+     * Deletes the records written before the given time in a single statement.
+     *
+     * @return The number of deleted records.
+     */
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecordEntity r WHERE r.createdDate < :before")
+    int deleteCreatedBefore(@Param("before") Date before);
+}
@@ -0,0 +1,29 @@
+package com.example.model.dao;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Conditional book and return statements sent to the database as a single JDBC batch.
+ */
+public interface MobilePhoneBatchDao {
+
+    /**
+     * Books every available phone in the list.
+     *
+     * @param imeis          The IMEIs of the mobile phones to be booked.
+     * @param bookedBy       The username of the user booking the phones.
+     * @param bookedDate     The time of the booking.
+     * @param leaseExpiresAt When the phones are returned automatically, null to keep them until they are returned.
+     * @return The number of rows updated for each IMEI, in order: 1 if booked, 0 if unknown or already booked.
+     */
+    int[] bookAllByImei(List<String> imeis, String bookedBy, Date bookedDate, Date leaseExpiresAt);
+
+    /**
+     * Returns every booked phone in the list.
+     *
+     * @param imeis The IMEIs of the mobile phones to be returned.
+     * @return The number of rows updated for each IMEI, in order: 1 if returned, 0 if unknown or not booked.
+     */
+    int[] returnAllByImei(List<String> imeis);
+}
@@ -0,0 +1,37 @@
+package com.example.model.dao;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * JDBC implementation of {@link MobilePhoneBatchDao}. The statements join the surrounding JPA transaction.
+ */
+@RequiredArgsConstructor
+public class MobilePhoneBatchDaoImpl implements MobilePhoneBatchDao {
+
+    private static final String BOOK_SQL = "UPDATE mobile_phone SET is_available = FALSE, booked_by = ?, "
+        + "booked_date = ?, lease_expires_at = ?, version = version + 1 WHERE imei = ? AND is_available = TRUE";
+    private static final String RETURN_SQL = "UPDATE mobile_phone SET is_available = TRUE, booked_by = NULL, "
+        + "booked_date = NULL, lease_expires_at = NULL, version = version + 1 WHERE imei = ? AND is_available = FALSE";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int[] bookAllByImei(List<String> imeis, String bookedBy, Date bookedDate, Date leaseExpiresAt) {
+        Timestamp timestamp = new Timestamp(bookedDate.getTime());
+        Timestamp leaseTimestamp = leaseExpiresAt == null ? null : new Timestamp(leaseExpiresAt.getTime());
+        return jdbcTemplate.batchUpdate(BOOK_SQL, imeis.stream()
+            .map(imei -> new Object[]{bookedBy, timestamp, leaseTimestamp, imei})
+            .toList());
+    }
+
+    @Override
+    public int[] returnAllByImei(List<String> imeis) {
+        return jdbcTemplate.batchUpdate(RETURN_SQL, imeis.stream()
+            .map(imei -> new Object[]{imei})
+            .toList());
+    }
+}
@@ -1,11 +1,109 @@
 package com.example.model.dao;
 
+import com.example.model.dto.PhoneAvailability;
+import com.example.model.dto.PhoneBooking;
+import com.example.model.dto.PhoneLease;
+import com.example.model.dto.PhoneRouting;
 import com.example.model.entity.MobilePhoneEntity;
+import jakarta.persistence.LockModeType;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface MobilePhoneDao extends JpaRepository<MobilePhoneEntity, Long> {
+public interface MobilePhoneDao extends JpaRepository<MobilePhoneEntity, Long>, MobilePhoneBatchDao,
+    MobilePhoneQueryDao, MobilePhoneTransferDao {
 
     Optional<MobilePhoneEntity> findByImei(String imei);
 
+    List<MobilePhoneEntity> findAllByImeiIn(Collection<String> imeis);
+
+    @Query("SELECT new com.example.model.dto.PhoneAvailability(m.imei, m.isAvailable, m.bookedBy) "
+        + "FROM MobilePhoneEntity m")
+    List<PhoneAvailability> findAllAvailability();
+
+    @Query("SELECT new com.example.model.dto.PhoneAvailability(m.imei, m.isAvailable, m.bookedBy) "
+        + "FROM MobilePhoneEntity m WHERE m.lab = :lab")
+    List<PhoneAvailability> findAvailabilityByLab(@Param("lab") String lab);
+
+    @Query("SELECT COUNT(m) FROM MobilePhoneEntity m WHERE m.isAvailable = :available")
+    long countByAvailability(@Param("available") boolean available);
+
+    @Query("SELECT new com.example.model.dto.PhoneRouting(m.imei, m.model, m.lab) FROM MobilePhoneEntity m "
+        + "WHERE m.imei IN :imeis")
+    List<PhoneRouting> findRoutingByImeiIn(@Param("imeis") Collection<String> imeis);
+
+    boolean existsByModel(String model);
+
+    @Query("SELECT m.imei FROM MobilePhoneEntity m WHERE m.model = :model AND m.isAvailable = true ORDER BY m.id")
+    List<String> findAvailableImeisByModel(@Param("model") String model, Pageable pageable);
+
+    @Query("SELECT new com.example.model.dto.PhoneLease(m.imei, m.leaseExpiresAt) FROM MobilePhoneEntity m "
+        + "WHERE m.leaseExpiresAt IS NOT NULL")
+    List<PhoneLease> findActiveLeases();
+
+    @Query("SELECT m.imei FROM MobilePhoneEntity m WHERE m.leaseExpiresAt <= :lapsedBy")
+    List<String> findLapsedLeases(@Param("lapsedBy") Date lapsedBy);
+
+    @Query("SELECT new com.example.model.dto.PhoneBooking(m.imei, m.isAvailable, m.bookedBy, m.leaseExpiresAt) "
+        + "FROM MobilePhoneEntity m WHERE m.model = :model ORDER BY m.id")
+    List<PhoneBooking> findBookingsByModel(@Param("model") String model);
+
+    /**
+     * Reads the phone and locks its row until the transaction completes, so bookings of the phone wait for it.
+     *
+     * @param imei The IMEI of the mobile phone.
+     * @return The phone, empty if it does not exist.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT m FROM MobilePhoneEntity m WHERE m.imei = :imei")
+    Optional<MobilePhoneEntity> findForUpdateByImei(@Param("imei") String imei);
+
+    /**
+     * Books the phone with the given IMEI in a single statement, provided it is currently available. Like every
+     * update of a phone it increments the version, so entities read before it can no longer be saved over it.
+     *
+     * @param imei           The IMEI of the mobile phone to be booked.
+     * @param bookedBy       The username of the user booking the phone.
+     * @param bookedDate     The time of the booking.
+     * @param leaseExpiresAt When the phone is returned automatically, null to keep it until it is returned.
+     * @return 1 if the phone was booked, 0 if it does not exist or is already booked.
+     */
+    @Modifying
+    @Query("UPDATE MobilePhoneEntity m SET m.isAvailable = false, m.bookedBy = :bookedBy, m.bookedDate = :bookedDate, "
+        + "m.leaseExpiresAt = :leaseExpiresAt, m.version = m.version + 1 WHERE m.imei = :imei AND m.isAvailable = true")
+    int bookByImei(@Param("imei") String imei, @Param("bookedBy") String bookedBy,
+        @Param("bookedDate") Date bookedDate, @Param("leaseExpiresAt") Date leaseExpiresAt);
+
+    /**
+     * Returns the phone with the given IMEI in a single statement, provided it is currently booked.
+     *
+     * @param imei The IMEI of the mobile phone to be returned.
+     * @return 1 if the phone was returned, 0 if it does not exist or is not booked.
+     */
+    @Modifying
+    @Query("UPDATE MobilePhoneEntity m SET m.isAvailable = true, m.bookedBy = null, m.bookedDate = null, "
+        + "m.leaseExpiresAt = null, m.version = m.version + 1 WHERE m.imei = :imei AND m.isAvailable = false")
+    int returnByImei(@Param("imei") String imei);
+
+    /**
+     * Returns the phone with the given IMEI in a single statement, provided its lease has lapsed. A phone that was
+     * returned, or booked again, since the lease was scheduled is left alone.
+     *
+     * @param imei The IMEI of the mobile phone whose lease lapsed.
+     * @param now  The current time.
+     * @return 1 if the phone was returned, 0 otherwise.
+     */
+    @Modifying
+    @Query("UPDATE MobilePhoneEntity m SET m.isAvailable = true, m.bookedBy = null, m.bookedDate = null, "
+        + "m.leaseExpiresAt = null, m.version = m.version + 1 "
+        + "WHERE m.imei = :imei AND m.isAvailable = false AND m.leaseExpiresAt <= :now")
+    int returnIfLeaseExpired(@Param("imei") String imei, @Param("now") Date now);
+
 }
@@ -0,0 +1,25 @@
+package com.example.model.dao;
+
+import com.example.model.dto.MobilePhoneView;
+import java.util.List;
+
+/**
+ * Inventory queries that only add the filters that were actually requested, so each query can use the matching
+ * index.
+ */
+public interface MobilePhoneQueryDao {
+
+    /**
+     * Finds phones ordered by id, starting after the given id.
+     *
+     * @param lab       Only phones of this lab, any if null.
+     * @param available Only phones with this availability, any if null.
+     * @param model     Only phones of this model, any if null.
+     * @param bookedBy  Only phones booked by this user, any if null.
+     * @param afterId   Only phones with a greater id, from the start if null.
+     * @param limit     The maximum number of phones returned.
+     * @return The matching phones as projections, without loading the entities.
+     */
+    List<MobilePhoneView> findInventory(String lab, Boolean available, String model, String bookedBy, Long afterId,
+        int limit);
+}
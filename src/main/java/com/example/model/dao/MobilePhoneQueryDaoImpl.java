@@ -0,0 +1,53 @@
+package com.example.model.dao;
+
+import com.example.model.dto.MobilePhoneView;
+import com.example.model.entity.MobilePhoneEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Criteria implementation of {@link MobilePhoneQueryDao}.
+ */
+public class MobilePhoneQueryDaoImpl implements MobilePhoneQueryDao {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<MobilePhoneView> findInventory(String lab, Boolean available, String model, String bookedBy,
+        Long afterId, int limit) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<MobilePhoneView> query = criteriaBuilder.createQuery(MobilePhoneView.class);
+        Root<MobilePhoneEntity> phone = query.from(MobilePhoneEntity.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (afterId != null) {
+            predicates.add(criteriaBuilder.greaterThan(phone.<Long>get("id"), afterId));
+        }
+        if (lab != null) {
+            predicates.add(criteriaBuilder.equal(phone.get("lab"), lab));
+        }
+        if (available != null) {
+            predicates.add(criteriaBuilder.equal(phone.get("isAvailable"), available));
+        }
+        if (model != null) {
+            predicates.add(criteriaBuilder.equal(phone.get("model"), model));
+        }
+        if (bookedBy != null) {
+            predicates.add(criteriaBuilder.equal(phone.get("bookedBy"), bookedBy));
+        }
+
+        query.select(criteriaBuilder.construct(MobilePhoneView.class, phone.get("id"), phone.get("imei"),
+                phone.get("model"), phone.get("lab"), phone.get("isAvailable"), phone.get("bookedBy"),
+                phone.get("bookedDate")))
+            .where(predicates.toArray(new Predicate[0]))
+            .orderBy(criteriaBuilder.asc(phone.get("id")));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.model.dao;
+
+import com.example.model.dto.MobilePhoneView;
+import com.example.model.dto.PhoneImport;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Bulk import and export of the inventory, done with plain JDBC.
+ */
+public interface MobilePhoneTransferDao {
+
+    /**
+     * Inserts the phones that do not exist yet as available, in their lab or the default one, and updates the model of
+     * those that do, as a single JDBC batch. Bookings and labs of existing phones are left alone.
+     *
+     * @param phones The phones, identified by IMEI.
+     * @return The number of rows changed for each phone, in order: 1 if inserted or its model changed, 0 otherwise.
+     */
+    int[] upsertAll(List<PhoneImport> phones);
+
+    /**
+     * Reads every phone ordered by id, one row at a time rather than into a list.
+     *
+     * @param consumer Called with each phone as it is read.
+     */
+    void forEachPhone(Consumer<MobilePhoneView> consumer);
+}
@@ -0,0 +1,53 @@
+package com.example.model.dao;
+
+import com.example.config.InventoryConfig;
+import com.example.model.dto.MobilePhoneView;
+import com.example.model.dto.PhoneImport;
+import com.example.model.entity.MobilePhoneEntity;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.function.Consumer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+/**
+ * JDBC implementation of {@link MobilePhoneTransferDao}. The statements join the surrounding transaction.
+ */
+@RequiredArgsConstructor
+public class MobilePhoneTransferDaoImpl implements MobilePhoneTransferDao {
+
+    // An unchanged phone matches neither branch, so its version is only bumped when its model actually changes.
+    // The lab of an existing phone is never changed, moving a phone to another lab is not an import.
+    private static final String UPSERT_SQL = "MERGE INTO mobile_phone p "
+        + "USING (SELECT CAST(? AS VARCHAR(255)) AS imei, CAST(? AS VARCHAR(255)) AS model, "
+        + "CAST(? AS VARCHAR(64)) AS lab) s ON p.imei = s.imei "
+        + "WHEN MATCHED AND (p.model IS NULL OR p.model <> s.model) THEN "
+        + "UPDATE SET model = s.model, version = p.version + 1 "
+        + "WHEN NOT MATCHED THEN INSERT (imei, model, lab, is_available, version) "
+        + "VALUES (s.imei, s.model, s.lab, TRUE, 0)";
+    private static final String EXPORT_SQL = "SELECT id, imei, model, lab, is_available, booked_by, booked_date "
+        + "FROM mobile_phone ORDER BY id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final InventoryConfig inventoryConfig;
+
+    @Override
+    public int[] upsertAll(List<PhoneImport> phones) {
+        return jdbcTemplate.batchUpdate(UPSERT_SQL, phones.stream()
+            .map(phone -> new Object[]{phone.imei(), phone.model(),
+                phone.lab() == null ? MobilePhoneEntity.DEFAULT_LAB : phone.lab()})
+            .toList());
+    }
+
+    @Override
+    public void forEachPhone(Consumer<MobilePhoneView> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(EXPORT_SQL);
+            statement.setFetchSize(inventoryConfig.getExportFetchSize());
+            return statement;
+        }, (RowCallbackHandler) resultSet -> consumer.accept(new MobilePhoneView(resultSet.getLong(1),
+            resultSet.getString(2), resultSet.getString(3), resultSet.getString(4), resultSet.getBoolean(5),
+            resultSet.getString(6), resultSet.getTimestamp(7))));
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.model.dao;
+
+import com.example.model.entity.OutboxEventEntity;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface OutboxEventDao extends JpaRepository<OutboxEventEntity, Long> {
+
+    List<OutboxEventEntity> findAllByOrderByIdAsc(Pageable pageable);
+
+}
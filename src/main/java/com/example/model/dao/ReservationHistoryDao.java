@@ -0,0 +1,9 @@
+package com.example.model.dao;
+
+import com.example.model.entity.ReservationHistoryEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ReservationHistoryDao extends JpaRepository<ReservationHistoryEntity, Long>,
+    ReservationHistoryJdbcDao {
+
+}
@@ -0,0 +1,37 @@
+package com.example.model.dao;
+
+import com.example.model.dto.ReservationHistoryView;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Batched writes and streaming reads of the reservation history, done with plain JDBC.
+ */
+public interface ReservationHistoryJdbcDao {
+
+    /**
+     * Closes the open booking of each phone, if it has one.
+     *
+     * @param returnedDates When each phone was returned, by IMEI.
+     */
+    void closeAll(Map<String, Date> returnedDates);
+
+    /**
+     * Appends bookings to the history.
+     *
+     * @param bookings The bookings, open ones have no returned date.
+     */
+    void insertAll(List<ReservationHistoryView> bookings);
+
+    /**
+     * Reads the bookings that overlap a time window, oldest first, one row at a time rather than into a list.
+     *
+     * @param from     Start of the window, inclusive.
+     * @param to       End of the window, exclusive.
+     * @param imei     Only bookings of this phone, any if null.
+     * @param consumer Called with each booking as it is read.
+     */
+    void forEachOverlapping(Date from, Date to, String imei, Consumer<ReservationHistoryView> consumer);
+}
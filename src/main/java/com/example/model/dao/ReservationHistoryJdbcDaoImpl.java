@@ -0,0 +1,66 @@
+package com.example.model.dao;
+
+import com.example.config.HistoryConfig;
+import com.example.model.dto.ReservationHistoryView;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+/**
+ * JDBC implementation of {@link ReservationHistoryJdbcDao}.
+ */
+@RequiredArgsConstructor
+public class ReservationHistoryJdbcDaoImpl implements ReservationHistoryJdbcDao {
+
+    private static final String CLOSE_SQL = "UPDATE reservation_history SET returned_date = ? "
+        + "WHERE imei = ? AND returned_date IS NULL";
+    private static final String INSERT_SQL = "INSERT INTO reservation_history (imei, username, booked_date, "
+        + "returned_date) VALUES (?, ?, ?, ?)";
+    // Bookings that started before the end of the window and had not ended by its start
+    private static final String OVERLAPPING_SQL = "SELECT imei, username, booked_date, returned_date "
+        + "FROM reservation_history WHERE booked_date < ? AND (returned_date IS NULL OR returned_date >= ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final HistoryConfig historyConfig;
+
+    @Override
+    public void closeAll(Map<String, Date> returnedDates) {
+        jdbcTemplate.batchUpdate(CLOSE_SQL, returnedDates.entrySet().stream()
+            .map(entry -> new Object[]{new Timestamp(entry.getValue().getTime()), entry.getKey()})
+            .toList());
+    }
+
+    @Override
+    public void insertAll(List<ReservationHistoryView> bookings) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, bookings.stream()
+            .map(booking -> new Object[]{booking.imei(), booking.bookedBy(), timestamp(booking.bookedDate()),
+                timestamp(booking.returnedDate())})
+            .toList());
+    }
+
+    @Override
+    public void forEachOverlapping(Date from, Date to, String imei, Consumer<ReservationHistoryView> consumer) {
+        String sql = OVERLAPPING_SQL + (imei == null ? "" : " AND imei = ?") + " ORDER BY booked_date, id";
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(historyConfig.getFetchSize());
+            statement.setTimestamp(1, timestamp(to));
+            statement.setTimestamp(2, timestamp(from));
+            if (imei != null) {
+                statement.setString(3, imei);
+            }
+            return statement;
+        }, (RowCallbackHandler) resultSet -> consumer.accept(new ReservationHistoryView(resultSet.getString(1),
+            resultSet.getString(2), resultSet.getTimestamp(3), resultSet.getTimestamp(4))));
+    }
+
+    private static Timestamp timestamp(Date date) {
+        return date == null ? null : new Timestamp(date.getTime());
+    }
+}
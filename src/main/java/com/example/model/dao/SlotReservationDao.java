@@ -0,0 +1,15 @@
+package com.example.model.dao;
+
+import com.example.model.entity.SlotReservationEntity;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface SlotReservationDao extends JpaRepository<SlotReservationEntity, Long> {
+
+    Optional<SlotReservationEntity> findByIdAndUsername(Long id, String username);
+
+    List<SlotReservationEntity> findAllByEndTimeAfter(Date time);
+
+}
@@ -0,0 +1,70 @@
+package com.example.model.dao;
+
+import com.example.model.entity.WaitlistEntryEntity;
+import com.example.model.entity.WaitlistStatus;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface WaitlistEntryDao extends JpaRepository<WaitlistEntryEntity, Long> {
+
+    Optional<WaitlistEntryEntity> findByIdAndUsername(Long id, String username);
+
+    boolean existsByStatus(WaitlistStatus status);
+
+    /**
+     * Finds the waiting entries that any of the given phones could serve, oldest first.
+     *
+     * @param imeis The IMEIs of the phones.
+     * @return Entries waiting for one of the phones or for the model of one of the phones.
+     */
+    @Query("SELECT e FROM WaitlistEntryEntity e WHERE e.status = com.example.model.entity.WaitlistStatus.WAITING "
+        + "AND (e.imei IN :imeis OR e.model IN "
+        + "(SELECT m.model FROM MobilePhoneEntity m WHERE m.imei IN :imeis)) ORDER BY e.id")
+    List<WaitlistEntryEntity> findWaitingFor(@Param("imeis") Collection<String> imeis, Pageable pageable);
+
+    /**
+     * Finds available phones that somebody is waiting for.
+     */
+    @Query("SELECT m.imei FROM MobilePhoneEntity m WHERE m.isAvailable = true AND EXISTS "
+        + "(SELECT e FROM WaitlistEntryEntity e WHERE e.status = com.example.model.entity.WaitlistStatus.WAITING "
+        + "AND (e.imei = m.imei OR e.model = m.model)) ORDER BY m.id")
+    List<String> findAvailableImeisWithWaiters(Pageable pageable);
+
+    /**
+     * Assigns a phone to the entry, provided it is still waiting.
+     *
+     * @return 1 if the entry was assigned, 0 if it is no longer waiting.
+     */
+    @Modifying
+    @Query("UPDATE WaitlistEntryEntity e SET e.status = com.example.model.entity.WaitlistStatus.ASSIGNED, "
+        + "e.assignedImei = :imei, e.assignedDate = :assignedDate "
+        + "WHERE e.id = :id AND e.status = com.example.model.entity.WaitlistStatus.WAITING")
+    int assign(@Param("id") Long id, @Param("imei") String imei, @Param("assignedDate") Date assignedDate);
+
+    /**
+     * Puts an entry whose phone could not be booked back in the queue, in its original place.
+     */
+    @Modifying
+    @Query("UPDATE WaitlistEntryEntity e SET e.status = com.example.model.entity.WaitlistStatus.WAITING, "
+        + "e.assignedImei = null, e.assignedDate = null "
+        + "WHERE e.id = :id AND e.status = com.example.model.entity.WaitlistStatus.ASSIGNED")
+    int unassign(@Param("id") Long id);
+
+    /**
+     * Cancels the user's entry, provided it is still waiting.
+     *
+     * @return 1 if the entry was cancelled, 0 if it does not exist, belongs to someone else or is no longer waiting.
+     */
+    @Modifying
+    @Query("UPDATE WaitlistEntryEntity e SET e.status = com.example.model.entity.WaitlistStatus.CANCELLED "
+        + "WHERE e.id = :id AND e.username = :username "
+        + "AND e.status = com.example.model.entity.WaitlistStatus.WAITING")
+    int cancel(@Param("id") Long id, @Param("username") String username);
+}
@@ -0,0 +1,15 @@
+package com.example.model.dto;
+
+/**
+ * How a bulk book or return request handles IMEIs that cannot be processed.
+ */
+public enum BulkMode {
+    /**
+     * Either every IMEI in the request succeeds or none of them are changed.
+     */
+    ALL_OR_NOTHING,
+    /**
+     * Every IMEI that can be processed is, the others are reported as failed.
+     */
+    BEST_EFFORT
+}
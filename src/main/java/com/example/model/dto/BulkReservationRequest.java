@@ -0,0 +1,24 @@
+package com.example.model.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Request body of the bulk book and return endpoints.
+ *
+ * @param imeis The IMEIs of the mobile phones to book or return.
+ * @param mode  How failures are handled, defaults to {@link BulkMode#ALL_OR_NOTHING}.
+ * @param lease How long booked phones are kept before they are returned automatically, ignored for returns.
+ */
+public record BulkReservationRequest(
+    @NotEmpty(message = "IMEIs are required") List<@NotBlank(message = "IMEI is required") String> imeis,
+    BulkMode mode,
+    Duration lease
+) {
+
+    public BulkMode modeOrDefault() {
+        return mode == null ? BulkMode.ALL_OR_NOTHING : mode;
+    }
+}
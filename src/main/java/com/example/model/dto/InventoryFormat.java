@@ -0,0 +1,59 @@
+package com.example.model.dto;
+
+import com.example.model.exception.BadRequestException;
+import java.util.Locale;
+import org.springframework.http.MediaType;
+
+/**
+ * The formats the inventory can be imported and exported in.
+ */
+public enum InventoryFormat {
+
+    /**
+     * One JSON object per line.
+     */
+    NDJSON(MediaType.parseMediaType("application/x-ndjson")),
+    /**
+     * Comma separated values with a header line.
+     */
+    CSV(MediaType.parseMediaType("text/csv"));
+
+    private final MediaType mediaType;
+
+    InventoryFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @param name The name of the format in any case, e.g. {@code csv}.
+     * @throws BadRequestException If there is no such format.
+     */
+    public static InventoryFormat fromName(String name) {
+        for (InventoryFormat format : values()) {
+            if (format.name().equals(name.toUpperCase(Locale.ROOT))) {
+                return format;
+            }
+        }
+        throw new BadRequestException("format must be ndjson or csv");
+    }
+
+    /**
+     * @param contentType The content type of a request, parameters such as the charset are ignored.
+     * @throws BadRequestException If it is not one of the formats.
+     */
+    public static InventoryFormat fromContentType(String contentType) {
+        if (contentType != null) {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            for (InventoryFormat format : values()) {
+                if (format.mediaType.equalsTypeAndSubtype(mediaType)) {
+                    return format;
+                }
+            }
+        }
+        throw new BadRequestException("Content-Type must be application/x-ndjson or text/csv");
+    }
+}
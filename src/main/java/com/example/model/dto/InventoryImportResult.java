@@ -0,0 +1,14 @@
+package com.example.model.dto;
+
+/**
+ * Summary of an inventory import.
+ *
+ * @param imported      Phones read from the request.
+ * @param changed       Phones inserted, or whose model changed.
+ * @param chunks        Transactions the phones were written in.
+ * @param millis        How long the import took.
+ * @param rowsPerSecond Phones imported per second.
+ */
+public record InventoryImportResult(long imported, long changed, long chunks, long millis, long rowsPerSecond) {
+
+}
@@ -0,0 +1,13 @@
+package com.example.model.dto;
+
+import java.util.List;
+
+/**
+ * A page of the inventory query.
+ *
+ * @param items      The phones on this page, ordered by id.
+ * @param nextCursor The value to pass as {@code after} to fetch the next page, null on the last page.
+ */
+public record InventoryPage(List<MobilePhoneView> items, Long nextCursor) {
+
+}
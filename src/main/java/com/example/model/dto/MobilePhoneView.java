@@ -0,0 +1,11 @@
+package com.example.model.dto;
+
+import java.util.Date;
+
+/**
+ * Read-only projection of a mobile phone returned by the inventory query.
+ */
+public record MobilePhoneView(Long id, String imei, String model, String lab, boolean available,
+                              String bookedBy, Date bookedDate) {
+
+}
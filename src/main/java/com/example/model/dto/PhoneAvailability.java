@@ -0,0 +1,8 @@
+package com.example.model.dto;
+
+/**
+ * The booking state of a single phone, as loaded into the {@link com.example.service.AvailabilityIndex}.
+ */
+public record PhoneAvailability(String imei, boolean available, String bookedBy) {
+
+}
@@ -0,0 +1,10 @@
+package com.example.model.dto;
+
+import java.util.Date;
+
+/**
+ * The current booking of a single phone, used to check it against a requested slot.
+ */
+public record PhoneBooking(String imei, boolean available, String bookedBy, Date leaseExpiresAt) {
+
+}
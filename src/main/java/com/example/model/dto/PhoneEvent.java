@@ -0,0 +1,21 @@
+package com.example.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * The message published to RabbitMQ when a phone is booked or returned.
+ *
+ * @param version   The schema version, incremented on incompatible changes.
+ * @param type      {@code phone.booked} or {@code phone.returned}.
+ * @param imei      The IMEI of the mobile phone.
+ * @param model     The model of the mobile phone.
+ * @param user      Who booked the phone, omitted for returns.
+ * @param timestamp When the change was made, in milliseconds since the epoch.
+ * @param sequence  Increases with every event, so consumers can order events and drop redeliveries.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PhoneEvent(int version, String type, String imei, String model, String user, long timestamp,
+                         long sequence) {
+
+    public static final int VERSION = 1;
+}
@@ -0,0 +1,8 @@
+package com.example.model.dto;
+
+/**
+ * A phone read from an inventory import. The lab is only used when the phone is added, null for the default lab.
+ */
+public record PhoneImport(String imei, String model, String lab) {
+
+}
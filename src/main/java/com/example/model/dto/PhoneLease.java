@@ -0,0 +1,7 @@
+package com.example.model.dto;
+
+import java.util.Date;
+
+public record PhoneLease(String imei, Date leaseExpiresAt) {
+
+}
@@ -0,0 +1,5 @@
+package com.example.model.dto;
+
+public record PhoneModel(String imei, String model) {
+
+}
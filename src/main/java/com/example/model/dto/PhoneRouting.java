@@ -0,0 +1,8 @@
+package com.example.model.dto;
+
+/**
+ * What is needed to publish an event of a phone: its model for the routing key and its lab for the exchange.
+ */
+public record PhoneRouting(String imei, String model, String lab) {
+
+}
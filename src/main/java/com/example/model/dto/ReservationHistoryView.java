@@ -0,0 +1,10 @@
+package com.example.model.dto;
+
+import java.util.Date;
+
+/**
+ * One booking of a phone, {@code returnedDate} is null while the phone is still booked.
+ */
+public record ReservationHistoryView(String imei, String bookedBy, Date bookedDate, Date returnedDate) {
+
+}
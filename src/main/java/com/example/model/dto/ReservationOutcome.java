@@ -0,0 +1,17 @@
+package com.example.model.dto;
+
+public enum ReservationOutcome {
+    BOOKED,
+    RETURNED,
+    NOT_FOUND,
+    NOT_AVAILABLE,
+    NOT_BOOKED,
+    /**
+     * The IMEI could have been processed but was not, because another IMEI in an all-or-nothing request failed.
+     */
+    ROLLED_BACK;
+
+    public boolean isSuccess() {
+        return this == BOOKED || this == RETURNED;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.model.dto;
+
+/**
+ * The outcome of booking or returning a single phone as part of a bulk request.
+ */
+public record ReservationResult(String imei, ReservationOutcome outcome, String message) {
+
+}
@@ -0,0 +1,17 @@
+package com.example.model.dto;
+
+import jakarta.validation.constraints.NotNull;
+import java.time.Instant;
+
+/**
+ * Request body of the slot reservation endpoint.
+ *
+ * @param start When the slot starts.
+ * @param end   When the slot ends, exclusive.
+ */
+public record SlotRequest(
+    @NotNull(message = "start is required") Instant start,
+    @NotNull(message = "end is required") Instant end
+) {
+
+}
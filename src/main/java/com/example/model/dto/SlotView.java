@@ -0,0 +1,7 @@
+package com.example.model.dto;
+
+import java.util.Date;
+
+public record SlotView(Long id, String imei, String username, Date start, Date end) {
+
+}
@@ -0,0 +1,9 @@
+package com.example.model.dto;
+
+import com.example.model.entity.WaitlistStatus;
+import java.util.Date;
+
+public record WaitlistEntryView(Long id, String imei, String model, WaitlistStatus status, String assignedImei,
+                                Date createdDate, Date assignedDate) {
+
+}
@@ -0,0 +1,42 @@
+package com.example.model.entity;
+
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.util.Date;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The outcome of a booking or return sent with an {@code Idempotency-Key}, written in the transaction that changed
+ * the phone. Keys are scoped to the user who sent them.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "idempotency_record", indexes = {
+    @Index(name = "ux_idempotency_record_key", columnList = "username, idempotency_key", unique = true),
+    @Index(name = "ix_idempotency_record_created", columnList = "created_date")
+})
+public class IdempotencyRecordEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private String username;
+    @Column(name = "idempotency_key", length = 64)
+    private String idempotencyKey;
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", length = 16)
+    private PhoneEventType eventType;
+    private String imei;
+    @Column(name = "created_date")
+    private Date createdDate;
+}
@@ -1,11 +1,14 @@
 package com.example.model.entity;
 
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import java.util.Date;
 import lombok.Getter;
 import lombok.Setter;
@@ -13,15 +16,48 @@ import lombok.Setter;
 @Entity
 @Getter
 @Setter
-@Table(name = "mobile_phone")
+@Table(name = "mobile_phone", indexes = {
+    @Index(name = "ux_mobile_phone_imei", columnList = "imei", unique = true),
+    @Index(name = "ix_mobile_phone_available_model", columnList = "is_available, model, id"),
+    @Index(name = "ix_mobile_phone_model", columnList = "model, id"),
+    @Index(name = "ix_mobile_phone_booked_by", columnList = "booked_by, id"),
+    @Index(name = "ix_mobile_phone_lease", columnList = "lease_expires_at"),
+    @Index(name = "ix_mobile_phone_lab", columnList = "lab, id"),
+    @Index(name = "ix_mobile_phone_lab_available_model", columnList = "lab, is_available, model, id")
+})
 public class MobilePhoneEntity {
 
+    /**
+     * The lab of phones added without one.
+     */
+    public static final String DEFAULT_LAB = "default";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     private String imei;
+    @Column(name = "is_available")
     private boolean isAvailable;
+    @Column(name = "booked_date")
     private Date bookedDate;
     private String model;
+    @Column(name = "booked_by")
     private String bookedBy;
+    /**
+     * The site the phone is kept at. It is set when the phone is added and never changes.
+     */
+    @Column(nullable = false, length = 64, columnDefinition = "varchar(64) default '" + DEFAULT_LAB + "'")
+    private String lab = DEFAULT_LAB;
+    /**
+     * When the phone is returned automatically, null if the booking has no lease.
+     */
+    @Column(name = "lease_expires_at")
+    private Date leaseExpiresAt;
+    /**
+     * Incremented by every change of the phone, so that a change based on a stale read fails instead of overwriting
+     * a change made by another instance. Rows inserted without it start at 0.
+     */
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
 }
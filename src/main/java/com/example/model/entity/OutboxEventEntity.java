@@ -0,0 +1,41 @@
+package com.example.model.entity;
+
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import java.util.Date;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * An event waiting to be published to RabbitMQ. Rows are written in the same transaction as the
+ * {@link MobilePhoneEntity} change they describe and deleted by the relay once the broker has confirmed them. The id
+ * doubles as the sequence number of the published event.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "outbox_event")
+public class OutboxEventEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_event_seq")
+    @SequenceGenerator(name = "outbox_event_seq", sequenceName = "outbox_event_seq", allocationSize = 50)
+    private Long id;
+    private String exchangeName;
+    private String routingKey;
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", length = 16)
+    private PhoneEventType eventType;
+    private String imei;
+    private String model;
+    private String username;
+    private Date createdDate;
+}
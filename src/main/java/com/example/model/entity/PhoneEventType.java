@@ -0,0 +1,39 @@
+package com.example.model.entity;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+public enum PhoneEventType {
+    BOOKED("phone.booked"),
+    RETURNED("phone.returned");
+
+    private static final Pattern NOT_ALPHANUMERIC = Pattern.compile("[^a-z0-9]+");
+
+    private final String name;
+
+    PhoneEventType(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return The event type as it appears in messages, e.g. {@code phone.booked}.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Builds the topic routing key of an event about a phone of the given model, e.g.
+     * {@code phone.booked.samsung-galaxy-s9}, so consumers can bind to the models they care about.
+     *
+     * @param model The model of the phone.
+     * @return The routing key.
+     */
+    public String routingKey(String model) {
+        if (model == null || model.isBlank()) {
+            return name + ".unknown";
+        }
+        String word = NOT_ALPHANUMERIC.matcher(model.toLowerCase(Locale.ROOT)).replaceAll("-");
+        return name + "." + word.replaceAll("^-|-$", "");
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.model.entity;
+
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.util.Date;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * One booking of a phone, from when it was booked until it was returned. Rows are only ever inserted, and updated
+ * once to fill in {@code returnedDate}. {@code returnedDate} is null while the phone is still booked.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "reservation_history", indexes = {
+    @Index(name = "ix_reservation_history_booked", columnList = "booked_date"),
+    @Index(name = "ix_reservation_history_returned", columnList = "returned_date"),
+    @Index(name = "ix_reservation_history_imei", columnList = "imei, returned_date")
+})
+public class ReservationHistoryEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private String imei;
+    private String username;
+    @Column(name = "booked_date")
+    private Date bookedDate;
+    @Column(name = "returned_date")
+    private Date returnedDate;
+}
@@ -0,0 +1,38 @@
+package com.example.model.entity;
+
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.util.Date;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A phone reserved for a user for a future window of time, from {@code startTime} inclusive to {@code endTime}
+ * exclusive. Slots of the same phone never overlap.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "slot_reservation", indexes = {
+    @Index(name = "ix_slot_reservation_imei", columnList = "imei, start_time"),
+    @Index(name = "ix_slot_reservation_end", columnList = "end_time"),
+    @Index(name = "ix_slot_reservation_username", columnList = "username, id")
+})
+public class SlotReservationEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private String imei;
+    private String username;
+    @Column(name = "start_time")
+    private Date startTime;
+    @Column(name = "end_time")
+    private Date endTime;
+}
@@ -0,0 +1,46 @@
+package com.example.model.entity;
+
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.util.Date;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A user waiting for a specific phone, when {@code imei} is set, or for any phone of a model, when {@code model} is
+ * set. Entries are served in id order.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "waitlist_entry", indexes = {
+    @Index(name = "ix_waitlist_entry_imei", columnList = "status, imei, id"),
+    @Index(name = "ix_waitlist_entry_model", columnList = "status, model, id"),
+    @Index(name = "ix_waitlist_entry_username", columnList = "username, status")
+})
+public class WaitlistEntryEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private String imei;
+    private String model;
+    private String username;
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private WaitlistStatus status;
+    @Column(name = "created_date")
+    private Date createdDate;
+    @Column(name = "assigned_imei")
+    private String assignedImei;
+    @Column(name = "assigned_date")
+    private Date assignedDate;
+}
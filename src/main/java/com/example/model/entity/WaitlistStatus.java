@@ -0,0 +1,7 @@
+package com.example.model.entity;
+
+public enum WaitlistStatus {
+    WAITING,
+    ASSIGNED,
+    CANCELLED
+}
@@ -1,6 +1,6 @@
 package com.example.model.exception;
 
-public class BadRequestException extends RuntimeException {
+public class BadRequestException extends DomainException {
 
     public BadRequestException(String errorMessage) {
         super(errorMessage);
@@ -0,0 +1,13 @@
+package com.example.model.exception;
+
+/**
+ * An expected outcome of a request, such as a conflict or an unknown IMEI, rather than a failure. These are thrown
+ * on every conflicting request, so they skip filling in the stack trace, which is by far the most expensive part of
+ * creating an exception and would never be looked at.
+ */
+public abstract class DomainException extends RuntimeException {
+
+    protected DomainException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.model.exception;
+
+public class FeatureDisabledException extends DomainException {
+
+    public FeatureDisabledException(String message) {
+        super(message);
+    }
+
+}
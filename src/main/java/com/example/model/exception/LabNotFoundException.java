@@ -0,0 +1,9 @@
+package com.example.model.exception;
+
+public class LabNotFoundException extends DomainException {
+
+    public LabNotFoundException(String message) {
+        super(message);
+    }
+
+}
@@ -1,6 +1,6 @@
 package com.example.model.exception;
 
-public class MobilePhoneBookedException extends RuntimeException {
+public class MobilePhoneBookedException extends DomainException {
 
     public MobilePhoneBookedException(String message) {
         super(message);
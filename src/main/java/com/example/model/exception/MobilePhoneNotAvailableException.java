@@ -1,6 +1,13 @@
 package com.example.model.exception;
 
-public class MobilePhoneNotAvailableException extends RuntimeException {
+public class MobilePhoneNotAvailableException extends DomainException {
+
+    /**
+     * Thrown for every phone that is booked by someone else. The exception is stackless and immutable, so one
+     * instance serves every conflict and the response to it can be built once.
+     */
+    public static final MobilePhoneNotAvailableException IN_USE =
+        new MobilePhoneNotAvailableException("The phone is being used by someone else");
 
     public MobilePhoneNotAvailableException(String message) {
         super(message);
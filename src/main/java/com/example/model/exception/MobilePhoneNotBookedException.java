@@ -1,6 +1,13 @@
 package com.example.model.exception;
 
-public class MobilePhoneNotBookedException extends RuntimeException {
+public class MobilePhoneNotBookedException extends DomainException {
+
+    /**
+     * Thrown for every return of a phone that is not booked, shared like
+     * {@link MobilePhoneNotAvailableException#IN_USE}.
+     */
+    public static final MobilePhoneNotBookedException NOT_BOOKED =
+        new MobilePhoneNotBookedException("The phone is not booked");
 
     public MobilePhoneNotBookedException(String message) {
         super(message);
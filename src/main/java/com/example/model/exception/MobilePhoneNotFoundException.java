@@ -1,6 +1,13 @@
 package com.example.model.exception;
 
-public class MobilePhoneNotFoundException extends RuntimeException {
+public class MobilePhoneNotFoundException extends DomainException {
+
+    /**
+     * Thrown for every booking or return of an IMEI that is not in the fleet, shared like
+     * {@link MobilePhoneNotAvailableException#IN_USE}.
+     */
+    public static final MobilePhoneNotFoundException UNKNOWN_IMEI =
+        new MobilePhoneNotFoundException("No phone has this IMEI");
 
     public MobilePhoneNotFoundException(String message) {
         super(message);
@@ -0,0 +1,9 @@
+package com.example.model.exception;
+
+public class ReservationQueueFullException extends DomainException {
+
+    public ReservationQueueFullException(String message) {
+        super(message);
+    }
+
+}
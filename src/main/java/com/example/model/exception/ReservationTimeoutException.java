@@ -0,0 +1,9 @@
+package com.example.model.exception;
+
+public class ReservationTimeoutException extends DomainException {
+
+    public ReservationTimeoutException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,9 @@
+package com.example.model.exception;
+
+public class SlotConflictException extends DomainException {
+
+    public SlotConflictException(String message) {
+        super(message);
+    }
+
+}
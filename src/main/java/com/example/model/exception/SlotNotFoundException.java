@@ -0,0 +1,9 @@
+package com.example.model.exception;
+
+public class SlotNotFoundException extends DomainException {
+
+    public SlotNotFoundException(String message) {
+        super(message);
+    }
+
+}
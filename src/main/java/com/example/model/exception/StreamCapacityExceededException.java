@@ -0,0 +1,9 @@
+package com.example.model.exception;
+
+public class StreamCapacityExceededException extends DomainException {
+
+    public StreamCapacityExceededException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,9 @@
+package com.example.model.exception;
+
+public class WaitlistEntryNotFoundException extends DomainException {
+
+    public WaitlistEntryNotFoundException(String message) {
+        super(message);
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,9 @@
+package com.example.model.exception;
+
+public class WaitlistEntryNotWaitingException extends DomainException {
+
+    public WaitlistEntryNotWaitingException(String message) {
+        super(message);
+    }
+
+}
\ No newline at end of file
@@ -1,32 +1,26 @@
 package com.example.rabbitmq;
 
-import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
+import com.example.model.entity.MobilePhoneEntity;
 import org.springframework.amqp.core.Exchange;
 import org.springframework.amqp.core.ExchangeBuilder;
-import org.springframework.amqp.rabbit.annotation.EnableRabbit;
-import org.springframework.amqp.rabbit.core.RabbitAdmin;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
-import org.springframework.stereotype.Component;
 
-@Slf4j
-@Component
-@RequiredArgsConstructor
-@ConditionalOnClass(EnableRabbit.class)
-public class DeclerationUtils {
+public final class DeclerationUtils {
 
+    private DeclerationUtils() {
+    }
 
-    private final RabbitAdmin rabbitAdmin;
-
-    public void initExchange(String exchangeName) {
-
-        final Exchange exchange = generateExchange(exchangeName);
+    /**
+     * A durable topic exchange, events are routed by {@code phone.<event>.<model>} keys.
+     */
+    public static Exchange topicExchange(String exchangeName) {
+        return ExchangeBuilder.topicExchange(exchangeName).durable(true).build();
     }
 
-    private Exchange generateExchange(String exchangeName) {
-        Exchange exchange = ExchangeBuilder.directExchange(exchangeName).build();
-        rabbitAdmin.declareExchange(exchange);
-        log.debug("Declared Exchange : [{}]", exchangeName);
-        return exchange;
+    /**
+     * The exchange events of a lab are published to, {@code <exchange>.<lab>}. The default lab publishes to the
+     * exchange itself, so consumers bound before labs were introduced keep receiving its events.
+     */
+    public static String labExchangeName(String exchangeName, String lab) {
+        return lab == null || MobilePhoneEntity.DEFAULT_LAB.equals(lab) ? exchangeName : exchangeName + "." + lab;
     }
-}
\ No newline at end of file
+}
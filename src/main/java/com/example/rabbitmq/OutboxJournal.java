@@ -0,0 +1,414 @@
+package com.example.rabbitmq;
+
+import com.example.config.OutboxJournalConfig.FsyncPolicy;
+import com.example.model.entity.OutboxEventEntity;
+import com.example.model.entity.PhoneEventType;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only journal of outbox events in memory-mapped segment files on local disk. The {@link OutboxRelay} moves
+ * events here while the broker is unavailable, so the outbox table stays small however long the outage lasts, and
+ * replays them in order once the broker is back.
+ * <p>
+ * A record is its length, a CRC32 of its body and the body, so a record torn by a crash is recognised and the journal
+ * ends before it. The position of the next record to replay is kept in a checkpoint file, which is only moved once
+ * the broker has confirmed the records before it; a crash in between replays them again, and consumers already drop
+ * redeliveries by message id. A segment is deleted once every record in it has been replayed.
+ * <p>
+ * Not thread-safe, only the relay uses it. The counters read by the metrics are volatile.
+ */
+@Slf4j
+public class OutboxJournal implements Closeable {
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String CHECKPOINT_TEMP_FILE = "checkpoint.tmp";
+    private static final int RECORD_HEADER = 2 * Integer.BYTES;
+    // The id and the creation time lead the body
+    private static final int CREATED_OFFSET = RECORD_HEADER + Long.BYTES;
+    private static final byte[] ZEROS = new byte[4096];
+
+    private final Path directory;
+    private final int segmentSize;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    private final TreeMap<Long, MappedByteBuffer> segments = new TreeMap<>();
+    private long writeSegment;
+    private int writeOffset;
+    private long readSegment;
+    private int readOffset;
+    // Where the records returned by the last peek end, and how many there were
+    private long peekSegment;
+    private int peekOffset;
+    private int peekedEvents;
+    private long peekedBytes;
+    private boolean dirty;
+    private long forcedAt = System.nanoTime();
+    private volatile long pendingEvents;
+    private volatile long pendingBytes;
+    private volatile long oldestCreatedMillis;
+
+    private OutboxJournal(Path directory, int segmentSize, FsyncPolicy fsyncPolicy, Duration fsyncInterval) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = fsyncInterval.toNanos();
+    }
+
+    /**
+     * Opens the journal in the directory, creating it if needed, and finds the records left to replay.
+     *
+     * @param directory     Directory of the segment files.
+     * @param segmentSize   Size of new segment files in bytes.
+     * @param fsyncPolicy   When appends and checkpoints are forced to disk.
+     * @param fsyncInterval How often they are forced with {@link FsyncPolicy#INTERVAL}.
+     * @return The journal.
+     * @throws IOException If the directory or a segment cannot be read.
+     */
+    public static OutboxJournal open(Path directory, int segmentSize, FsyncPolicy fsyncPolicy, Duration fsyncInterval)
+        throws IOException {
+        OutboxJournal journal = new OutboxJournal(directory, segmentSize, fsyncPolicy, fsyncInterval);
+        Files.createDirectories(directory);
+        journal.recover();
+        return journal;
+    }
+
+    /**
+     * Appends the events in order.
+     *
+     * @param events The events.
+     * @throws IOException If a new segment cannot be created.
+     */
+    public void append(List<OutboxEventEntity> events) throws IOException {
+        CRC32 crc = new CRC32();
+        for (OutboxEventEntity event : events) {
+            byte[] body = encode(event);
+            int size = RECORD_HEADER + body.length;
+            if (size > segmentSize) {
+                throw new IOException("Event " + event.getId() + " does not fit into a segment");
+            }
+            if (segments.isEmpty() || writeOffset + size > segments.get(writeSegment).capacity()) {
+                roll();
+            }
+            MappedByteBuffer buffer = segments.get(writeSegment);
+            crc.reset();
+            crc.update(body);
+            buffer.put(writeOffset + RECORD_HEADER, body);
+            buffer.putInt(writeOffset + Integer.BYTES, (int) crc.getValue());
+            buffer.putInt(writeOffset, body.length);
+            writeOffset += size;
+            if (pendingEvents == 0) {
+                oldestCreatedMillis = event.getCreatedDate().getTime();
+            }
+            pendingEvents++;
+            pendingBytes += size;
+        }
+        dirty = true;
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            force();
+        } else {
+            forceIfDue();
+        }
+    }
+
+    /**
+     * Reads the oldest events without consuming them, they are returned again until {@link #commit()} is called.
+     *
+     * @param max The maximum number of events returned.
+     * @return The events in order, empty if the journal is.
+     */
+    public List<OutboxEventEntity> peek(int max) {
+        List<OutboxEventEntity> events = new ArrayList<>((int) Math.min(max, pendingEvents));
+        long segment = readSegment;
+        int offset = readOffset;
+        long bytes = 0;
+        while (events.size() < max) {
+            MappedByteBuffer buffer = segments.get(segment);
+            int length = buffer == null ? -1 : recordLength(buffer, offset);
+            if (length < 0) {
+                Long next = segments.higherKey(segment);
+                if (next == null) {
+                    break;
+                }
+                segment = next;
+                offset = 0;
+                continue;
+            }
+            events.add(decode(buffer.slice(offset + RECORD_HEADER, length)));
+            offset += RECORD_HEADER + length;
+            bytes += RECORD_HEADER + length;
+        }
+        peekSegment = segment;
+        peekOffset = offset;
+        peekedEvents = events.size();
+        peekedBytes = bytes;
+        return events;
+    }
+
+    /**
+     * Consumes the events returned by the last {@link #peek(int)} and deletes the segments left behind.
+     *
+     * @throws IOException If the checkpoint cannot be written.
+     */
+    public void commit() throws IOException {
+        if (peekedEvents == 0) {
+            return;
+        }
+        readSegment = peekSegment;
+        readOffset = peekOffset;
+        pendingEvents -= peekedEvents;
+        pendingBytes -= peekedBytes;
+        peekedEvents = 0;
+        writeCheckpoint();
+        while (segments.firstKey() < readSegment) {
+            Files.deleteIfExists(segmentPath(segments.pollFirstEntry().getKey()));
+        }
+        oldestCreatedMillis = pendingEvents == 0 ? 0 : peekCreatedMillis();
+    }
+
+    /**
+     * Forces appended events to disk if the fsync interval has passed since they were last forced.
+     */
+    public void forceIfDue() {
+        if (dirty && fsyncPolicy == FsyncPolicy.INTERVAL && System.nanoTime() - forcedAt >= fsyncIntervalNanos) {
+            force();
+        }
+    }
+
+    public boolean isEmpty() {
+        return pendingEvents == 0;
+    }
+
+    /**
+     * @return The number of events left to replay.
+     */
+    public long getPendingEvents() {
+        return pendingEvents;
+    }
+
+    /**
+     * @return The size of the records left to replay, in bytes.
+     */
+    public long getPendingBytes() {
+        return pendingBytes;
+    }
+
+    /**
+     * @return When the oldest event left to replay was created, 0 if there is none.
+     */
+    public long getOldestCreatedMillis() {
+        return oldestCreatedMillis;
+    }
+
+    @Override
+    public void close() {
+        if (dirty && fsyncPolicy != FsyncPolicy.NEVER) {
+            force();
+        }
+        segments.clear();
+    }
+
+    private void recover() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(SEGMENT_SUFFIX)) {
+                    segments.put(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())),
+                        map(file, 0));
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            return;
+        }
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        if (Files.exists(checkpoint)) {
+            ByteBuffer position = ByteBuffer.wrap(Files.readAllBytes(checkpoint));
+            readSegment = position.getLong();
+            readOffset = position.getInt();
+        }
+        if (!segments.containsKey(readSegment)) {
+            readSegment = segments.firstKey();
+            readOffset = 0;
+        }
+        while (segments.firstKey() < readSegment) {
+            Files.deleteIfExists(segmentPath(segments.pollFirstEntry().getKey()));
+        }
+
+        for (Map.Entry<Long, MappedByteBuffer> entry : segments.entrySet()) {
+            MappedByteBuffer buffer = entry.getValue();
+            int offset = entry.getKey() == readSegment ? readOffset : 0;
+            int length;
+            while ((length = recordLength(buffer, offset)) >= 0) {
+                if (pendingEvents == 0) {
+                    oldestCreatedMillis = buffer.getLong(offset + CREATED_OFFSET);
+                }
+                pendingEvents++;
+                pendingBytes += RECORD_HEADER + length;
+                offset += RECORD_HEADER + length;
+            }
+            boolean torn = offset + Integer.BYTES <= buffer.capacity() && buffer.getInt(offset) != 0;
+            if (entry.getKey() == segments.lastKey()) {
+                writeSegment = entry.getKey();
+                writeOffset = offset;
+                if (torn) {
+                    log.warn("Dropping a torn record at the end of outbox journal segment {}", entry.getKey());
+                    for (int zeroed = offset; zeroed < buffer.capacity(); zeroed += ZEROS.length) {
+                        buffer.put(zeroed, ZEROS, 0, Math.min(ZEROS.length, buffer.capacity() - zeroed));
+                    }
+                    buffer.force();
+                }
+            } else if (torn) {
+                log.warn("Skipping a corrupt record and the rest of outbox journal segment {}", entry.getKey());
+            }
+        }
+        log.info("Opened outbox journal with {} events to replay", pendingEvents);
+    }
+
+    private void roll() throws IOException {
+        if (!segments.isEmpty() && fsyncPolicy != FsyncPolicy.NEVER) {
+            segments.get(writeSegment).force();
+        }
+        long next = segments.isEmpty() ? writeSegment + 1 : segments.lastKey() + 1;
+        segments.put(next, map(segmentPath(next), segmentSize));
+        if (segments.size() == 1) {
+            readSegment = next;
+            readOffset = 0;
+        }
+        writeSegment = next;
+        writeOffset = 0;
+    }
+
+    private void force() {
+        segments.get(writeSegment).force();
+        dirty = false;
+        forcedAt = System.nanoTime();
+    }
+
+    private long peekCreatedMillis() {
+        long segment = readSegment;
+        int offset = readOffset;
+        while (true) {
+            MappedByteBuffer buffer = segments.get(segment);
+            if (buffer != null && recordLength(buffer, offset) >= 0) {
+                return buffer.getLong(offset + CREATED_OFFSET);
+            }
+            Long next = segments.higherKey(segment);
+            if (next == null) {
+                return 0;
+            }
+            segment = next;
+            offset = 0;
+        }
+    }
+
+    private void writeCheckpoint() throws IOException {
+        Path temp = directory.resolve(CHECKPOINT_TEMP_FILE);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.allocate(Long.BYTES + Integer.BYTES).putLong(readSegment).putInt(readOffset)
+                .flip());
+            if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                channel.force(false);
+            }
+        }
+        Files.move(temp, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%020d%s", segment, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Maps a segment file, creating it with the given size if it does not exist yet.
+     */
+    private static MappedByteBuffer map(Path file, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, channel.size()));
+        }
+    }
+
+    /**
+     * @return The length of the body of the record at the offset, -1 if there is no intact record.
+     */
+    private static int recordLength(MappedByteBuffer buffer, int offset) {
+        if (offset + RECORD_HEADER > buffer.capacity()) {
+            return -1;
+        }
+        int length = buffer.getInt(offset);
+        if (length <= 0 || length > buffer.capacity() - offset - RECORD_HEADER) {
+            return -1;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset + RECORD_HEADER, length));
+        return (int) crc.getValue() == buffer.getInt(offset + Integer.BYTES) ? length : -1;
+    }
+
+    private static byte[] encode(OutboxEventEntity event) {
+        byte[][] strings = {utf8(event.getExchangeName()), utf8(event.getRoutingKey()),
+            utf8(event.getEventType().name()), utf8(event.getImei()), utf8(event.getModel()),
+            utf8(event.getUsername())};
+        int size = 2 * Long.BYTES;
+        for (byte[] string : strings) {
+            size += Integer.BYTES + (string == null ? 0 : string.length);
+        }
+        ByteBuffer body = ByteBuffer.allocate(size)
+            .putLong(event.getId())
+            .putLong(event.getCreatedDate().getTime());
+        for (byte[] string : strings) {
+            if (string == null) {
+                body.putInt(-1);
+            } else {
+                body.putInt(string.length).put(string);
+            }
+        }
+        return body.array();
+    }
+
+    private static OutboxEventEntity decode(ByteBuffer body) {
+        OutboxEventEntity event = new OutboxEventEntity();
+        event.setId(body.getLong());
+        event.setCreatedDate(new Date(body.getLong()));
+        event.setExchangeName(string(body));
+        event.setRoutingKey(string(body));
+        event.setEventType(PhoneEventType.valueOf(string(body)));
+        event.setImei(string(body));
+        event.setModel(string(body));
+        event.setUsername(string(body));
+        return event;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(ByteBuffer body) {
+        int length = body.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        body.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
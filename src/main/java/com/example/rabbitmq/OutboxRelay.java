@@ -0,0 +1,227 @@
+package com.example.rabbitmq;
+
+import com.example.config.OutboxConfig;
+import com.example.config.OutboxJournalConfig;
+import com.example.model.dao.OutboxEventDao;
+import com.example.model.entity.OutboxEventEntity;
+import com.example.model.exception.MessageSendingException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Drains the outbox table in batches and publishes the events to RabbitMQ using publisher confirms. Events are only
+ * removed from the outbox once the broker has confirmed the whole batch, so delivery is at least once.
+ * <p>
+ * Once the broker has been failing for longer than the configured grace period, the events are moved from the outbox
+ * to the {@link OutboxJournal} on local disk instead of piling up in the database next to the bookings. While the
+ * journal holds events it is replayed before the outbox is read, so events are still published in the order they were
+ * created. The journal is recorded as {@code outbox.journal.events}, {@code outbox.journal.size} and
+ * {@code outbox.journal.lag}, the age of its oldest event.
+ */
+@Slf4j
+@Component
+@Profile("!test")
+public class OutboxRelay {
+
+    private final OutboxEventDao outboxEventDao;
+    private final QueueMessageSender queueMessageSender;
+    private final OutboxConfig outboxConfig;
+    private final OutboxJournalConfig outboxJournalConfig;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final Counter publishedCounter;
+    private final Counter spilledCounter;
+    private final Counter replayedCounter;
+    private final Timer publishTimer;
+    // Opened when the first event is spilled, or on the first run if a previous run left events behind
+    private volatile OutboxJournal journal;
+    private long failingSinceMillis;
+
+    public OutboxRelay(OutboxEventDao outboxEventDao, QueueMessageSender queueMessageSender,
+        OutboxConfig outboxConfig, OutboxJournalConfig outboxJournalConfig, TransactionTemplate transactionTemplate,
+        MeterRegistry meterRegistry) {
+        this.outboxEventDao = outboxEventDao;
+        this.queueMessageSender = queueMessageSender;
+        this.outboxConfig = outboxConfig;
+        this.outboxJournalConfig = outboxJournalConfig;
+        this.transactionTemplate = transactionTemplate;
+        this.publishedCounter = Counter.builder("outbox.published")
+            .description("Outbox events confirmed by the broker")
+            .register(meterRegistry);
+        this.publishTimer = Timer.builder("outbox.publish")
+            .description("Time to send a batch of outbox events and receive the broker's confirms")
+            .register(meterRegistry);
+        TimeGauge.builder("outbox.lag", lagMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+            .description("Age of the oldest outbox event not yet confirmed by the broker")
+            .register(meterRegistry);
+        this.spilledCounter = Counter.builder("outbox.journal.spilled")
+            .description("Outbox events moved to the local journal because the broker was unavailable")
+            .register(meterRegistry);
+        this.replayedCounter = Counter.builder("outbox.journal.replayed")
+            .description("Journal events confirmed by the broker")
+            .register(meterRegistry);
+        Gauge.builder("outbox.journal.events", this,
+                relay -> relay.journal == null ? 0 : relay.journal.getPendingEvents())
+            .description("Events in the local journal waiting to be replayed")
+            .register(meterRegistry);
+        Gauge.builder("outbox.journal.size", this,
+                relay -> relay.journal == null ? 0 : relay.journal.getPendingBytes())
+            .description("Size of the events in the local journal waiting to be replayed")
+            .baseUnit(BaseUnits.BYTES)
+            .register(meterRegistry);
+        TimeGauge.builder("outbox.journal.lag", this, TimeUnit.MILLISECONDS, OutboxRelay::journalLagMillis)
+            .description("Age of the oldest event in the local journal waiting to be replayed")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Replays the journal, then publishes everything currently in the outbox, one batch per transaction, until the
+     * outbox is empty or the broker fails. Once the broker has been failing for long enough the outbox is spilled to
+     * the journal.
+     */
+    @Scheduled(fixedDelayString = "${mobile-phone-reservation.outbox.flush-interval:200}")
+    public void flush() {
+        try {
+            replayJournal();
+            int published;
+            do {
+                published = flushBatch();
+            } while (published == outboxConfig.getBatchSize());
+            failingSinceMillis = 0;
+        } catch (MessageSendingException e) {
+            log.warn("Publishing outbox events failed, will retry: {}", e.getMessage());
+            long now = System.currentTimeMillis();
+            if (failingSinceMillis == 0) {
+                failingSinceMillis = now;
+            }
+            if (outboxJournalConfig.isEnabled()
+                && now - failingSinceMillis >= outboxJournalConfig.getSpillAfter().toMillis()) {
+                spill();
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Outbox journal failed, events stay in the outbox", e);
+        }
+    }
+
+    @PreDestroy
+    public void closeJournal() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Publishes the journal in order, a batch per broker round trip, until it is empty or the broker fails.
+     */
+    private void replayJournal() throws IOException {
+        OutboxJournal journal = existingJournal();
+        if (journal == null) {
+            return;
+        }
+        journal.forceIfDue();
+        while (!journal.isEmpty()) {
+            List<OutboxEventEntity> batch = journal.peek(outboxJournalConfig.getReplayBatchSize());
+            if (batch.isEmpty()) {
+                break;
+            }
+            publishTimer.record(() -> queueMessageSender.sendAll(batch, outboxConfig.getConfirmTimeout()));
+            journal.commit();
+            publishedCounter.increment(batch.size());
+            replayedCounter.increment(batch.size());
+            log.debug("Replayed {} journal events, {} left", batch.size(), journal.getPendingEvents());
+        }
+    }
+
+    /**
+     * Moves everything currently in the outbox to the journal, one batch per transaction. An event is deleted from the
+     * outbox only after it was appended, a failure in between leaves it in both and it is published twice.
+     */
+    private void spill() {
+        try {
+            OutboxJournal journal = journal();
+            int spilled;
+            do {
+                spilled = transactionTemplate.execute(status -> {
+                    List<OutboxEventEntity> batch = outboxEventDao.findAllByOrderByIdAsc(
+                        PageRequest.of(0, outboxJournalConfig.getReplayBatchSize()));
+                    if (batch.isEmpty()) {
+                        return 0;
+                    }
+                    try {
+                        journal.append(batch);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    outboxEventDao.deleteAllByIdInBatch(batch.stream().map(OutboxEventEntity::getId).toList());
+                    return batch.size();
+                });
+                spilledCounter.increment(spilled);
+            } while (spilled == outboxJournalConfig.getReplayBatchSize());
+            lagMillis.set(0);
+            log.warn("Broker unavailable for {}s, {} events are waiting in the outbox journal",
+                (System.currentTimeMillis() - failingSinceMillis) / 1000, journal.getPendingEvents());
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Spilling the outbox to the journal failed, events stay in the outbox", e);
+        }
+    }
+
+    private OutboxJournal journal() throws IOException {
+        if (journal == null) {
+            journal = OutboxJournal.open(outboxJournalConfig.getDirectory(),
+                (int) outboxJournalConfig.getSegmentSize().toBytes(), outboxJournalConfig.getFsync(),
+                outboxJournalConfig.getFsyncInterval());
+        }
+        return journal;
+    }
+
+    /**
+     * @return The journal, null if nothing was ever spilled to it.
+     */
+    private OutboxJournal existingJournal() throws IOException {
+        if (journal == null && !Files.isDirectory(outboxJournalConfig.getDirectory())) {
+            return null;
+        }
+        return journal();
+    }
+
+    private double journalLagMillis() {
+        OutboxJournal current = journal;
+        long oldest = current == null ? 0 : current.getOldestCreatedMillis();
+        return oldest == 0 ? 0 : System.currentTimeMillis() - oldest;
+    }
+
+    private int flushBatch() {
+        Integer published = transactionTemplate.execute(status -> {
+            List<OutboxEventEntity> batch =
+                outboxEventDao.findAllByOrderByIdAsc(PageRequest.of(0, outboxConfig.getBatchSize()));
+            if (batch.isEmpty()) {
+                lagMillis.set(0);
+                return 0;
+            }
+            lagMillis.set(System.currentTimeMillis() - batch.get(0).getCreatedDate().getTime());
+            publishTimer.record(() -> queueMessageSender.sendAll(batch, outboxConfig.getConfirmTimeout()));
+            outboxEventDao.deleteAllByIdInBatch(batch.stream().map(OutboxEventEntity::getId).toList());
+            log.debug("Published {} outbox events", batch.size());
+            return batch.size();
+        });
+        publishedCounter.increment(published);
+        return published;
+    }
+}
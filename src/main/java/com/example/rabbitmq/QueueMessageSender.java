@@ -1,11 +1,18 @@
 package com.example.rabbitmq;
 
+import com.example.model.dto.PhoneEvent;
+import com.example.model.entity.OutboxEventEntity;
 import com.example.model.exception.MessageSendingException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.transaction.Transactional;
+import java.util.List;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.helpers.MessageFormatter;
 import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
@@ -16,7 +23,10 @@ import org.springframework.stereotype.Component;
 @Profile("!test")
 public class QueueMessageSender {
 
+    static final String SCHEMA_VERSION_HEADER = "schema-version";
+
     private final RabbitTemplate rabbitTemplate;
+    private final ObjectMapper objectMapper;
 
     /**
      * Sends a message to the specified exchange.
@@ -37,4 +47,52 @@ public class QueueMessageSender {
             throw new MessageSendingException(exceptionMessage, exception);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Sends a batch of outbox events on a single channel and waits once for the broker to confirm all of them.
+     *
+     * @param events  The outbox events to send, in order.
+     * @param timeout How long to wait for the publisher confirms, in milliseconds.
+     * @throws MessageSendingException if sending fails or the broker does not confirm every message in time.
+     */
+    public void sendAll(List<OutboxEventEntity> events, long timeout) {
+        try {
+            log.debug("Sending {} messages", events.size());
+            rabbitTemplate.invoke(operations -> {
+                for (OutboxEventEntity event : events) {
+                    operations.send(event.getExchangeName(), event.getRoutingKey(), toMessage(event));
+                }
+                operations.waitForConfirmsOrDie(timeout);
+                return null;
+            });
+        } catch (AmqpException exception) {
+            String exceptionMessage = MessageFormatter.format("Sending {} messages failed, {}", events.size(),
+                exception.getMessage()).getMessage();
+            throw new MessageSendingException(exceptionMessage, exception);
+        }
+    }
+
+    /**
+     * Serializes an outbox event as a compact JSON {@link PhoneEvent}. The type, sequence and timestamp are copied into
+     * the message properties so consumers can filter and deduplicate without parsing the body.
+     */
+    Message toMessage(OutboxEventEntity event) {
+        PhoneEvent phoneEvent = new PhoneEvent(PhoneEvent.VERSION, event.getEventType().getName(), event.getImei(),
+            event.getModel(), event.getUsername(), event.getCreatedDate().getTime(), event.getId());
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(phoneEvent);
+        } catch (JsonProcessingException exception) {
+            throw new MessageSendingException("Serializing event " + event.getId() + " failed", exception);
+        }
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setContentEncoding("UTF-8");
+        properties.setContentLength(body.length);
+        properties.setType(phoneEvent.type());
+        properties.setMessageId(String.valueOf(phoneEvent.sequence()));
+        properties.setTimestamp(event.getCreatedDate());
+        properties.setHeader(SCHEMA_VERSION_HEADER, PhoneEvent.VERSION);
+        return new Message(body, properties);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.security;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+
+/**
+ * In-memory user store that drops a user's cached credentials whenever that user is changed or removed.
+ */
+public class CacheEvictingUserDetailsManager extends InMemoryUserDetailsManager {
+
+    private final VerifiedCredentialCache verifiedCredentialCache;
+
+    public CacheEvictingUserDetailsManager(VerifiedCredentialCache verifiedCredentialCache, UserDetails... users) {
+        super(users);
+        this.verifiedCredentialCache = verifiedCredentialCache;
+    }
+
+    @Override
+    public void updateUser(UserDetails user) {
+        super.updateUser(user);
+        verifiedCredentialCache.evictUser(user.getUsername());
+    }
+
+    @Override
+    public void deleteUser(String username) {
+        super.deleteUser(username);
+        verifiedCredentialCache.evictUser(username);
+    }
+
+    @Override
+    public void changePassword(String oldPassword, String newPassword) {
+        super.changePassword(oldPassword, newPassword);
+        Authentication currentUser = SecurityContextHolder.getContext().getAuthentication();
+        if (currentUser != null) {
+            verifiedCredentialCache.evictUser(currentUser.getName());
+        }
+    }
+
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        UserDetails updated = super.updatePassword(user, newPassword);
+        verifiedCredentialCache.evictUser(user.getUsername());
+        return updated;
+    }
+}
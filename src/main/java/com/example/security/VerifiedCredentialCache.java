@@ -0,0 +1,110 @@
+package com.example.security;
+
+import com.example.cache.ExpiringCache;
+import com.example.config.CredentialCacheConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+/**
+ * Remembers credentials that have already passed the password check. Entries are keyed by a SHA-256 digest of the
+ * username and password, salted with a random value generated at startup, so neither the password nor a reusable
+ * hash of it is kept in memory.
+ */
+@Slf4j
+@Component
+public class VerifiedCredentialCache {
+
+    private final CredentialCacheConfig credentialCacheConfig;
+    private final ExpiringCache<String, CachedAuthentication> cache;
+    private final byte[] salt = new byte[32];
+    private final Counter hits;
+    private final Counter misses;
+
+    private record CachedAuthentication(String username, Authentication authentication) {
+
+    }
+
+    public VerifiedCredentialCache(CredentialCacheConfig credentialCacheConfig, MeterRegistry meterRegistry) {
+        this.credentialCacheConfig = credentialCacheConfig;
+        this.cache = new ExpiringCache<>(credentialCacheConfig.getMaxSize(),
+            credentialCacheConfig.getTtl().toNanos());
+        new SecureRandom().nextBytes(salt);
+        this.hits = Counter.builder("auth.credential.cache")
+            .tag("result", "hit")
+            .description("Authentications answered from the verified-credential cache")
+            .register(meterRegistry);
+        this.misses = Counter.builder("auth.credential.cache")
+            .tag("result", "miss")
+            .description("Authentications that needed a password check")
+            .register(meterRegistry);
+        Gauge.builder("auth.credential.cache.hit.ratio", this, VerifiedCredentialCache::hitRatio)
+            .description("Share of authentications answered from the verified-credential cache")
+            .register(meterRegistry);
+        Gauge.builder("auth.credential.cache.size", cache, ExpiringCache::size)
+            .register(meterRegistry);
+    }
+
+    /**
+     * @param username The username presented by the client.
+     * @param password The password presented by the client.
+     * @return The authentication that resulted from verifying these credentials before, or null.
+     */
+    public Authentication get(String username, String password) {
+        if (!credentialCacheConfig.isEnabled()) {
+            return null;
+        }
+        CachedAuthentication cached = cache.get(key(username, password));
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return cached.authentication();
+    }
+
+    /**
+     * Records credentials that have just passed the password check.
+     */
+    public void put(String username, String password, Authentication authentication) {
+        if (credentialCacheConfig.isEnabled()) {
+            cache.put(key(username, password), new CachedAuthentication(username, authentication));
+        }
+    }
+
+    /**
+     * Forgets every cached credential of the user, called whenever the user is changed or removed.
+     *
+     * @param username The username.
+     */
+    public void evictUser(String username) {
+        cache.removeIf((key, cached) -> cached.username().equals(username));
+        log.debug("Evicted cached credentials of user: {}", username);
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private String key(String username, String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(salt);
+            digest.update(username.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(password.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.service;
+
+import com.example.config.AvailabilityIndexConfig;
+import com.example.config.LabConfig;
+import com.example.model.dao.MobilePhoneDao;
+import com.example.model.dto.PhoneAvailability;
+import com.example.model.exception.LabNotFoundException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Lock-free in-memory view of which phones are available and who holds the booked ones. It lets
+ * {@link ReservationService} turn away requests for phones that are already taken without touching the database.
+ * <p>
+ * The database stays the source of truth: phones missing from the index are always checked against it, and a state
+ * is only written to the index once the transaction that changed the database has completed. Changes are made with
+ * compare-and-set against the exact {@link PhoneState} instance that was read, so a stale writer can never overwrite
+ * a newer state.
+ * <p>
+ * The index is partitioned by lab: each lab has its own map, so a busy lab does not contend with quiet ones, and a lab
+ * can be loaded or evicted on its own. Callers pass the lab of the phone, which never changes, and the phone is
+ * looked up in that partition only. The lab is resolved with {@link #labOf}, from the phones read when their lab was
+ * loaded, so requests never query the database for it. A phone of a lab that is not loaded, or added to its lab
+ * after it was loaded, is not indexed and always checked against the database.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AvailabilityIndex {
+
+    private final MobilePhoneDao mobilePhoneDao;
+    private final AvailabilityIndexConfig availabilityIndexConfig;
+    private final LabConfig labConfig;
+    /**
+     * The states of the phones of each loaded lab, by lab and then IMEI.
+     */
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, PhoneState>> partitions =
+        new ConcurrentHashMap<>();
+    /**
+     * The lab of each phone of the loaded labs, by IMEI. Kept apart from the states, which are dropped from their
+     * partition whenever a request cannot tell what was committed, so the phone can be indexed again afterwards.
+     */
+    private final ConcurrentHashMap<String, String> labs = new ConcurrentHashMap<>();
+
+    public enum Status {
+        AVAILABLE,
+        BOOKED,
+        /**
+         * Claimed by a booking whose transaction has not completed yet.
+         */
+        BOOKING,
+        /**
+         * Claimed by a return whose transaction has not completed yet.
+         */
+        RETURNING
+    }
+
+    /**
+     * The state of a single phone. Instances deliberately keep identity equality so that compare-and-set only
+     * succeeds against the state that was actually read.
+     */
+    public static final class PhoneState {
+
+        private final Status status;
+        private final String holder;
+
+        private PhoneState(Status status, String holder) {
+            this.status = status;
+            this.holder = holder;
+        }
+
+        public static PhoneState available() {
+            return new PhoneState(Status.AVAILABLE, null);
+        }
+
+        public static PhoneState booked(String holder) {
+            return new PhoneState(Status.BOOKED, holder);
+        }
+
+        public static PhoneState booking(String holder) {
+            return new PhoneState(Status.BOOKING, holder);
+        }
+
+        public static PhoneState returning(String holder) {
+            return new PhoneState(Status.RETURNING, holder);
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public String getHolder() {
+            return holder;
+        }
+    }
+
+    /**
+     * Loads the state of the phones of every lab once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!availabilityIndexConfig.isEnabled()) {
+            log.debug("Availability index is disabled");
+            return;
+        }
+        labConfig.getNames().forEach(this::load);
+    }
+
+    /**
+     * Loads the state of the phones of a lab. Phones already written by requests served in the meantime are left
+     * untouched, so loading a lab that is already loaded changes nothing.
+     *
+     * @param lab The lab.
+     * @return The number of phones read, 0 if the index is disabled.
+     * @throws LabNotFoundException If the lab is unknown.
+     */
+    public int load(String lab) {
+        checkLab(lab);
+        if (!availabilityIndexConfig.isEnabled()) {
+            return 0;
+        }
+        ConcurrentHashMap<String, PhoneState> partition = partitions.computeIfAbsent(lab,
+            key -> new ConcurrentHashMap<>());
+        int loaded = 0;
+        for (PhoneAvailability phone : mobilePhoneDao.findAvailabilityByLab(lab)) {
+            labs.put(phone.imei(), lab);
+            partition.putIfAbsent(phone.imei(),
+                phone.available() ? PhoneState.available() : PhoneState.booked(phone.bookedBy()));
+            loaded++;
+        }
+        log.debug("Loaded {} phones of lab: {} into the availability index", loaded, lab);
+        return loaded;
+    }
+
+    /**
+     * Drops the states of the phones of a lab, its phones are checked against the database until it is loaded again.
+     * Requests still holding the dropped partition may write to it, which no longer affects anyone.
+     *
+     * @param lab The lab.
+     * @return The number of phones dropped.
+     * @throws LabNotFoundException If the lab is unknown.
+     */
+    public int evict(String lab) {
+        checkLab(lab);
+        ConcurrentHashMap<String, PhoneState> partition = partitions.remove(lab);
+        if (partition == null) {
+            return 0;
+        }
+        labs.values().removeIf(lab::equals);
+        int evicted = partition.size();
+        log.debug("Evicted {} phones of lab: {} from the availability index", evicted, lab);
+        return evicted;
+    }
+
+    /**
+     * @param lab The lab.
+     * @return true if the phones of the lab are indexed.
+     */
+    public boolean isLoaded(String lab) {
+        return partitions.containsKey(lab);
+    }
+
+    /**
+     * @param imei The IMEI of the mobile phone.
+     * @return The lab of the phone, or null if it is not a phone of a loaded lab or the index is disabled.
+     */
+    public String labOf(String imei) {
+        return availabilityIndexConfig.isEnabled() ? labs.get(imei) : null;
+    }
+
+    /**
+     * @param lab  The lab of the mobile phone, null if the phone does not exist.
+     * @param imei The IMEI of the mobile phone.
+     * @return The indexed state of the phone, or null if the phone is unknown, its lab is not loaded or the index is
+     * disabled.
+     */
+    public PhoneState get(String lab, String imei) {
+        Map<String, PhoneState> partition = partitionOf(lab);
+        return partition == null ? null : partition.get(imei);
+    }
+
+    /**
+     * Atomically replaces the state of a phone if it is still exactly the expected instance.
+     *
+     * @param lab      The lab of the mobile phone, null if the phone does not exist.
+     * @param imei     The IMEI of the mobile phone.
+     * @param expected The state that was read, null if the phone was not in the index.
+     * @param update   The new state, null to remove the phone from the index.
+     * @return true if the state was replaced.
+     */
+    public boolean compareAndSet(String lab, String imei, PhoneState expected, PhoneState update) {
+        Map<String, PhoneState> partition = partitionOf(lab);
+        if (partition == null) {
+            return false;
+        }
+        if (expected == null) {
+            return update == null || partition.putIfAbsent(imei, update) == null;
+        }
+        if (update == null) {
+            return partition.remove(imei, expected);
+        }
+        return partition.replace(imei, expected, update);
+    }
+
+    /**
+     * Records the state a transaction committed, if the index still holds the state the transaction expected.
+     * Otherwise another request changed the phone in the meantime and may have committed after this transaction, so
+     * the phone is dropped from the index and checked against the database until it is written again.
+     *
+     * @param lab       The lab of the mobile phone, null if the phone does not exist.
+     * @param imei      The IMEI of the mobile phone.
+     * @param expected  The claim of the transaction, or the state it read if it did not claim the phone.
+     * @param committed The state the transaction committed.
+     */
+    public void settle(String lab, String imei, PhoneState expected, PhoneState committed) {
+        if (compareAndSet(lab, imei, expected, committed)) {
+            return;
+        }
+        Map<String, PhoneState> partition = partitionOf(lab);
+        if (partition != null) {
+            partition.remove(imei);
+        }
+    }
+
+    /**
+     * Runs the callback once the current transaction has completed, passing true if it committed. Outside of a
+     * transaction the callback runs straight away as committed.
+     *
+     * @param callback The callback to run.
+     */
+    public void afterCompletion(Consumer<Boolean> callback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            callback.accept(true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                callback.accept(status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    /**
+     * @return The partition of the lab, null if the lab is not loaded or the index is disabled.
+     */
+    private Map<String, PhoneState> partitionOf(String lab) {
+        if (lab == null || !availabilityIndexConfig.isEnabled()) {
+            return null;
+        }
+        return partitions.get(lab);
+    }
+
+    private void checkLab(String lab) {
+        if (!labConfig.isKnown(lab)) {
+            throw new LabNotFoundException(lab + " is not a lab");
+        }
+    }
+}
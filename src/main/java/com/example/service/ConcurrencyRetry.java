@@ -0,0 +1,76 @@
+package com.example.service;
+
+import com.example.config.RetryConfig;
+import com.example.metrics.ReservationMetrics;
+import com.example.metrics.ReservationMetrics.Operation;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Attempts a reservation request again when it fails because another transaction, typically on another instance,
+ * changed or locked the same phones at the same time: a stale version, a lock timeout or a deadlock. Every attempt
+ * has to run in a transaction of its own, so this wraps the call to the transactional service rather than being
+ * called from inside it.
+ * <p>
+ * Conflicts the service detects itself, such as a phone that is already booked, are final and not retried.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConcurrencyRetry {
+
+    private final RetryConfig retryConfig;
+    private final ReservationMetrics reservationMetrics;
+
+    /**
+     * Runs the request, retrying it with a randomised exponential backoff while it fails on concurrent changes.
+     *
+     * @param operation The operation, for the metrics.
+     * @param request   The request.
+     * @return The result of the first attempt that did not fail on a concurrent change.
+     * @throws ConcurrencyFailureException If the last attempt failed on a concurrent change.
+     */
+    public <T> T run(Operation operation, Supplier<T> request) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return request.get();
+            } catch (ConcurrencyFailureException e) {
+                boolean retry = attempt < retryConfig.getMaxAttempts();
+                reservationMetrics.countConcurrencyConflict(operation, retry);
+                if (!retry) {
+                    throw e;
+                }
+                log.debug("{} failed on a concurrent change in attempt {}, retrying: {}", operation, attempt,
+                    e.getMessage());
+                backOff(attempt, e);
+            }
+        }
+    }
+
+    /**
+     * Like {@link #run(Operation, Supplier)} for a request without a result.
+     */
+    public void run(Operation operation, Runnable request) {
+        run(operation, () -> {
+            request.run();
+            return null;
+        });
+    }
+
+    private void backOff(int attempt, ConcurrencyFailureException failure) {
+        // Capping the shift keeps the doubling from overflowing, the cap on the backoff applies long before
+        long limit = Math.min(retryConfig.getInitialBackoff().toNanos() << Math.min(attempt - 1, 16),
+            retryConfig.getMaxBackoff().toNanos());
+        try {
+            TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(limit + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw failure;
+        }
+    }
+}
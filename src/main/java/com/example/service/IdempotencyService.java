@@ -0,0 +1,164 @@
+package com.example.service;
+
+import com.example.cache.ExpiringCache;
+import com.example.config.IdempotencyConfig;
+import com.example.metrics.ReservationMetrics.Operation;
+import com.example.model.dao.IdempotencyRecordDao;
+import com.example.model.entity.IdempotencyRecordEntity;
+import com.example.model.entity.PhoneEventType;
+import com.example.model.exception.BadRequestException;
+import com.example.model.exception.DomainException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.transaction.Transactional;
+import java.util.Date;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs bookings and returns sent with an {@code Idempotency-Key} header at most once per user and key, so that a
+ * client retrying after a timeout gets the outcome of its first attempt instead of a conflict caused by it.
+ * <p>
+ * The outcome is written in the transaction that changes the phone, so it is recorded if and only if the change
+ * committed, and survives restarts. Recent outcomes are also kept in a bounded cache, a duplicate found there is
+ * answered without touching the database. Requests that fail change nothing and are not recorded, their duplicates
+ * run again.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    public static final int MAX_KEY_LENGTH = 64;
+
+    private final IdempotencyRecordDao idempotencyRecordDao;
+    private final IdempotencyConfig idempotencyConfig;
+    private final ConcurrencyRetry concurrencyRetry;
+    private final TransactionTemplate transactionTemplate;
+    private final ExpiringCache<Key, Outcome> outcomes;
+    private final Counter cachedReplays;
+    private final Counter storedReplays;
+
+    private record Key(String username, String idempotencyKey) {
+
+    }
+
+    private record Outcome(PhoneEventType eventType, String imei) {
+
+    }
+
+    public IdempotencyService(IdempotencyRecordDao idempotencyRecordDao, IdempotencyConfig idempotencyConfig,
+        ConcurrencyRetry concurrencyRetry, TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.idempotencyRecordDao = idempotencyRecordDao;
+        this.idempotencyConfig = idempotencyConfig;
+        this.concurrencyRetry = concurrencyRetry;
+        this.transactionTemplate = transactionTemplate;
+        this.outcomes = new ExpiringCache<>(idempotencyConfig.getMaxSize(), idempotencyConfig.getTtl().toNanos());
+        this.cachedReplays = Counter.builder("reservation.idempotent.replays")
+            .description("Duplicate requests answered with the outcome of the first one")
+            .tag("source", "cache")
+            .register(meterRegistry);
+        this.storedReplays = Counter.builder("reservation.idempotent.replays")
+            .description("Duplicate requests answered with the outcome of the first one")
+            .tag("source", "database")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Runs a booking or return unless the user already sent one with the same key, retrying it on concurrent
+     * changes like {@link ConcurrencyRetry}.
+     *
+     * @param username       The user sending the request.
+     * @param idempotencyKey The key chosen by the client.
+     * @param operation      {@link Operation#BOOK} or {@link Operation#RETURN}.
+     * @param imei           The IMEI of the mobile phone.
+     * @param request        The call to the transactional service, it joins the transaction the outcome is
+     *                       written in.
+     * @return true if the request ran, false if it is a duplicate and nothing was done.
+     * @throws BadRequestException If the key is blank or too long, or the user already used it for another request.
+     */
+    public boolean runOnce(String username, String idempotencyKey, Operation operation, String imei,
+        Runnable request) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        Key key = new Key(username, idempotencyKey);
+        Outcome outcome = new Outcome(eventTypeOf(operation), imei);
+        if (isDuplicate(key, outcome)) {
+            return false;
+        }
+        try {
+            concurrencyRetry.run(operation, () -> transactionTemplate.executeWithoutResult(status -> {
+                request.run();
+                IdempotencyRecordEntity entity = new IdempotencyRecordEntity();
+                entity.setUsername(username);
+                entity.setIdempotencyKey(idempotencyKey);
+                entity.setEventType(outcome.eventType());
+                entity.setImei(imei);
+                entity.setCreatedDate(new Date());
+                idempotencyRecordDao.save(entity);
+            }));
+        } catch (DomainException | DataIntegrityViolationException e) {
+            // A duplicate sent while the first request was still running fails on the change the first one made, or
+            // on the unique key of its outcome
+            if (isDuplicate(key, outcome)) {
+                return false;
+            }
+            throw e;
+        }
+        outcomes.put(key, outcome);
+        return true;
+    }
+
+    /**
+     * Deletes the outcomes that are no longer replayed.
+     */
+    @Scheduled(fixedDelayString = "${mobile-phone-reservation.idempotency.purge-interval:3600000}")
+    @Transactional
+    public void purge() {
+        int purged = idempotencyRecordDao.deleteCreatedBefore(expiredBefore());
+        if (purged > 0) {
+            log.debug("Purged {} idempotency records", purged);
+        }
+    }
+
+    /**
+     * @return true if the key was used for this request before.
+     * @throws BadRequestException If the key was used for another request.
+     */
+    private boolean isDuplicate(Key key, Outcome outcome) {
+        Outcome previous = outcomes.get(key);
+        Counter replays = cachedReplays;
+        if (previous == null) {
+            previous = idempotencyRecordDao.findByUsernameAndIdempotencyKey(key.username(), key.idempotencyKey())
+                .filter(entity -> entity.getCreatedDate().after(expiredBefore()))
+                .map(entity -> new Outcome(entity.getEventType(), entity.getImei()))
+                .orElse(null);
+            if (previous == null) {
+                return false;
+            }
+            replays = storedReplays;
+            outcomes.put(key, previous);
+        }
+        if (!previous.equals(outcome)) {
+            throw new BadRequestException("Idempotency-Key " + key.idempotencyKey() + " was used for another request");
+        }
+        replays.increment();
+        log.debug("Replaying {} of IMEI: {} for user: {}", previous.eventType(), previous.imei(), key.username());
+        return true;
+    }
+
+    private Date expiredBefore() {
+        return new Date(System.currentTimeMillis() - idempotencyConfig.getTtl().toMillis());
+    }
+
+    private static PhoneEventType eventTypeOf(Operation operation) {
+        return switch (operation) {
+            case BOOK -> PhoneEventType.BOOKED;
+            case RETURN -> PhoneEventType.RETURNED;
+            default -> throw new IllegalArgumentException(operation + " does not support idempotency keys");
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.service;
+
+import com.example.config.InventoryConfig;
+import com.example.config.LabConfig;
+import com.example.model.dao.MobilePhoneDao;
+import com.example.model.dto.InventoryPage;
+import com.example.model.dto.MobilePhoneView;
+import com.example.model.exception.BadRequestException;
+import com.example.model.exception.LabNotFoundException;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InventoryService {
+
+    private final MobilePhoneDao mobilePhoneDao;
+    private final InventoryConfig inventoryConfig;
+    private final LabConfig labConfig;
+
+    /**
+     * Lists phones page by page. Pages are keyed on the phone id rather than an offset, so every page costs the
+     * same however deep into the fleet it is.
+     *
+     * @param lab       Only phones of this lab, any if null.
+     * @param available Only phones with this availability, any if null.
+     * @param model     Only phones of this model, any if null.
+     * @param bookedBy  Only phones booked by this user, any if null.
+     * @param after     The cursor returned with the previous page, null for the first page.
+     * @param size      The page size, the configured default if null.
+     * @return The page of phones and the cursor of the next page.
+     * @throws BadRequestException  If the page size is out of range.
+     * @throws LabNotFoundException If the lab is unknown.
+     */
+    public InventoryPage findPhones(String lab, Boolean available, String model, String bookedBy, Long after,
+        Integer size) {
+        if (lab != null && !labConfig.isKnown(lab)) {
+            throw new LabNotFoundException(lab + " is not a lab");
+        }
+        int pageSize = size == null ? inventoryConfig.getDefaultPageSize() : size;
+        if (pageSize < 1 || pageSize > inventoryConfig.getMaxPageSize()) {
+            throw new BadRequestException("size must be between 1 and " + inventoryConfig.getMaxPageSize());
+        }
+        log.debug("Listing {} phones after id: {}", pageSize, after);
+
+        // Fetch one extra row to find out whether there is a next page
+        List<MobilePhoneView> phones =
+            mobilePhoneDao.findInventory(lab, available, model, bookedBy, after, pageSize + 1);
+        if (phones.size() <= pageSize) {
+            return new InventoryPage(phones, null);
+        }
+        List<MobilePhoneView> page = phones.subList(0, pageSize);
+        return new InventoryPage(List.copyOf(page), page.get(pageSize - 1).id());
+    }
+}
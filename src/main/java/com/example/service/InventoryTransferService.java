@@ -0,0 +1,312 @@
+package com.example.service;
+
+import com.example.config.InventoryConfig;
+import com.example.config.LabConfig;
+import com.example.model.dao.MobilePhoneDao;
+import com.example.model.dto.InventoryFormat;
+import com.example.model.dto.InventoryImportResult;
+import com.example.model.dto.MobilePhoneView;
+import com.example.model.dto.PhoneImport;
+import com.example.model.exception.BadRequestException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Imports and exports the inventory as newline-delimited JSON or CSV, streaming in both directions so that the size of
+ * the fleet does not affect memory use.
+ * <p>
+ * An import is written in chunks, each chunk a single JDBC batch committed in its own transaction. New phones are
+ * inserted as available in their lab, phones that already exist only get their model updated, so importing the same
+ * file twice changes nothing and bookings and labs survive a re-import. A malformed line stops the import; the chunks
+ * before it stay committed. Rows and time of both directions are recorded as {@code inventory.transfer.rows} and
+ * {@code inventory.transfer}, tagged by direction.
+ */
+@Slf4j
+@Service
+public class InventoryTransferService {
+
+    private static final int MAX_IMEI_LENGTH = 255;
+    private static final String IMEI_COLUMN = "imei";
+    private static final String MODEL_COLUMN = "model";
+    private static final String LAB_COLUMN = "lab";
+    private static final String CSV_HEADER = "id,imei,model,lab,available,bookedBy,bookedDate";
+
+    private final MobilePhoneDao mobilePhoneDao;
+    private final InventoryConfig inventoryConfig;
+    private final LabConfig labConfig;
+    private final TransactionTemplate transactionTemplate;
+    private final PhoneModelResolver phoneModelResolver;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader importReader;
+    private final Counter importedRows;
+    private final Counter exportedRows;
+    private final Timer importTimer;
+    private final Timer exportTimer;
+
+    public InventoryTransferService(MobilePhoneDao mobilePhoneDao, InventoryConfig inventoryConfig,
+        LabConfig labConfig, TransactionTemplate transactionTemplate, PhoneModelResolver phoneModelResolver,
+        ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.mobilePhoneDao = mobilePhoneDao;
+        this.inventoryConfig = inventoryConfig;
+        this.labConfig = labConfig;
+        this.transactionTemplate = transactionTemplate;
+        this.phoneModelResolver = phoneModelResolver;
+        this.objectMapper = objectMapper;
+        // Lines of an export carry more fields than an import needs, so an export can be imported as it is
+        this.importReader = objectMapper.readerFor(PhoneImport.class)
+            .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.importedRows = rowCounter(meterRegistry, "import");
+        this.exportedRows = rowCounter(meterRegistry, "export");
+        this.importTimer = transferTimer(meterRegistry, "import");
+        this.exportTimer = transferTimer(meterRegistry, "export");
+    }
+
+    /**
+     * Imports phones, reading the input line by line and writing them a chunk at a time.
+     *
+     * @param inputStream The phones, one per line. CSV needs {@code imei} and {@code model} columns and may have a
+     *                    {@code lab} column, named in a header line or in that order without one.
+     * @param format      The format of the input.
+     * @return How many phones were imported, and how fast.
+     * @throws BadRequestException If a line is malformed, has no IMEI or an unknown lab, after the chunks before it
+     *                             were committed.
+     * @throws IOException         If reading fails, typically because the client went away.
+     */
+    public InventoryImportResult importPhones(InputStream inputStream, InventoryFormat format) throws IOException {
+        long start = System.nanoTime();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        List<PhoneImport> chunk = new ArrayList<>(inventoryConfig.getImportChunkSize());
+        int[] columns = {0, 1, 2};
+        boolean firstLine = true;
+        long lineNumber = 0;
+        long imported = 0;
+        long changed = 0;
+        long chunks = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            PhoneImport phone;
+            try {
+                if (format == InventoryFormat.NDJSON) {
+                    phone = importReader.readValue(line);
+                } else if (firstLine && readHeader(line, columns)) {
+                    firstLine = false;
+                    continue;
+                } else {
+                    phone = parseCsv(line, columns);
+                }
+                firstLine = false;
+                checkPhone(phone);
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                String reason = e instanceof JsonProcessingException json ? json.getOriginalMessage() : e.getMessage();
+                throw new BadRequestException("Line " + lineNumber + " is malformed: " + reason + ", " + imported
+                    + " phones were imported before it");
+            }
+            chunk.add(phone);
+            if (chunk.size() == inventoryConfig.getImportChunkSize()) {
+                changed += writeChunk(chunk);
+                imported += chunk.size();
+                chunks++;
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            changed += writeChunk(chunk);
+            imported += chunk.size();
+            chunks++;
+        }
+        long nanos = System.nanoTime() - start;
+        importTimer.record(nanos, TimeUnit.NANOSECONDS);
+        long rowsPerSecond = rowsPerSecond(imported, nanos);
+        log.info("Imported {} phones, {} changed, in {} chunks and {} ms ({} rows/s)", imported, changed, chunks,
+            TimeUnit.NANOSECONDS.toMillis(nanos), rowsPerSecond);
+        return new InventoryImportResult(imported, changed, chunks, TimeUnit.NANOSECONDS.toMillis(nanos),
+            rowsPerSecond);
+    }
+
+    /**
+     * Writes every phone, ordered by id, as it is read from a database cursor.
+     *
+     * @param outputStream Where to write the phones.
+     * @param format       The format to write.
+     * @return How many phones were written.
+     * @throws IOException If writing fails, typically because the client went away.
+     */
+    public long exportPhones(OutputStream outputStream, InventoryFormat format) throws IOException {
+        long start = System.nanoTime();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        AtomicLong exported = new AtomicLong();
+        if (format == InventoryFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+        try {
+            mobilePhoneDao.forEachPhone(phone -> {
+                try {
+                    writer.write(format == InventoryFormat.CSV ? csv(phone) : objectMapper.writeValueAsString(phone));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                exported.incrementAndGet();
+                exportedRows.increment();
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        long nanos = System.nanoTime() - start;
+        exportTimer.record(nanos, TimeUnit.NANOSECONDS);
+        log.info("Exported {} phones in {} ms ({} rows/s)", exported.get(), TimeUnit.NANOSECONDS.toMillis(nanos),
+            rowsPerSecond(exported.get(), nanos));
+        return exported.get();
+    }
+
+    private long writeChunk(List<PhoneImport> chunk) {
+        int[] counts = transactionTemplate.execute(status -> mobilePhoneDao.upsertAll(chunk));
+        phoneModelResolver.forget(chunk.stream().map(PhoneImport::imei).toList());
+        importedRows.increment(chunk.size());
+        long changed = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                changed += count;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Finds the imei, model and lab columns if the line is a header.
+     *
+     * @return true if the line was a header.
+     */
+    private static boolean readHeader(String line, int[] columns) {
+        List<String> names = splitCsv(line).stream().map(name -> name.trim().toLowerCase(Locale.ROOT)).toList();
+        if (!names.contains(IMEI_COLUMN)) {
+            return false;
+        }
+        columns[0] = names.indexOf(IMEI_COLUMN);
+        columns[1] = names.indexOf(MODEL_COLUMN);
+        columns[2] = names.indexOf(LAB_COLUMN);
+        return true;
+    }
+
+    private static PhoneImport parseCsv(String line, int[] columns) {
+        List<String> fields = splitCsv(line);
+        return new PhoneImport(field(fields, columns[0]), field(fields, columns[1]), field(fields, columns[2]));
+    }
+
+    private static String field(List<String> fields, int column) {
+        if (column < 0 || column >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(column).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Splits a CSV line into fields. Fields may be quoted, a quote inside a quoted field is written twice.
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quote");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private void checkPhone(PhoneImport phone) {
+        if (phone == null || phone.imei() == null || phone.imei().isBlank()) {
+            throw new IllegalArgumentException("imei is required");
+        }
+        if (phone.imei().length() > MAX_IMEI_LENGTH) {
+            throw new IllegalArgumentException("imei is longer than " + MAX_IMEI_LENGTH + " characters");
+        }
+        if (phone.lab() != null && !labConfig.isKnown(phone.lab())) {
+            throw new IllegalArgumentException(phone.lab() + " is not a lab");
+        }
+    }
+
+    private static String csv(MobilePhoneView phone) {
+        String bookedDate = phone.bookedDate() == null ? "" : phone.bookedDate().toInstant().toString();
+        return phone.id() + "," + csvField(phone.imei()) + "," + csvField(phone.model()) + "," + csvField(phone.lab())
+            + "," + phone.available() + "," + csvField(phone.bookedBy()) + "," + bookedDate;
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static long rowsPerSecond(long rows, long nanos) {
+        return nanos == 0 ? rows : rows * TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    private static Counter rowCounter(MeterRegistry meterRegistry, String direction) {
+        return Counter.builder("inventory.transfer.rows")
+            .description("Phones imported or exported in bulk")
+            .tag("direction", direction)
+            .register(meterRegistry);
+    }
+
+    private static Timer transferTimer(MeterRegistry meterRegistry, String direction) {
+        return Timer.builder("inventory.transfer")
+            .description("Duration of bulk imports and exports of the inventory")
+            .tag("direction", direction)
+            .register(meterRegistry);
+    }
+}
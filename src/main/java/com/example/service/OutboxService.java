@@ -0,0 +1,78 @@
+package com.example.service;
+
+import com.example.config.ApplicationConfig;
+import com.example.model.dao.OutboxEventDao;
+import com.example.model.dto.PhoneRouting;
+import com.example.model.entity.MobilePhoneEntity;
+import com.example.model.entity.OutboxEventEntity;
+import com.example.model.entity.PhoneEventType;
+import com.example.rabbitmq.DeclerationUtils;
+import jakarta.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private final OutboxEventDao outboxEventDao;
+    private final ApplicationConfig applicationConfig;
+    private final PhoneModelResolver phoneModelResolver;
+
+    /**
+     * Stores an event in the outbox as part of the caller's transaction, it is published to the broker by the
+     * {@link com.example.rabbitmq.OutboxRelay} once that transaction has committed.
+     *
+     * @param type The kind of change.
+     * @param imei The IMEI of the mobile phone that changed.
+     * @param user The user who booked the phone, null for returns.
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void enqueue(PhoneEventType type, String imei, String user) {
+        enqueueAll(type, List.of(imei), user);
+    }
+
+    /**
+     * Stores one event per phone in the outbox as part of the caller's transaction. Each event goes to the exchange of
+     * the lab the phone belongs to, with the routing key of its model, which is why a bulk request is not summarized
+     * in a single event.
+     *
+     * @param type  The kind of change.
+     * @param imeis The IMEIs of the mobile phones that changed.
+     * @param user  The user who booked the phones, null for returns.
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void enqueueAll(PhoneEventType type, Collection<String> imeis, String user) {
+        if (imeis.isEmpty()) {
+            return;
+        }
+        String exchangeName = type == PhoneEventType.BOOKED
+            ? applicationConfig.getBookPhoneTopicExchange() : applicationConfig.getReturnPhoneTopicExchange();
+        Map<String, PhoneRouting> routings = phoneModelResolver.routingOf(imeis);
+        Date now = new Date();
+        List<OutboxEventEntity> events = new ArrayList<>(imeis.size());
+        for (String imei : imeis) {
+            PhoneRouting routing = routings.get(imei);
+            String model = routing == null ? null : routing.model();
+            String lab = routing == null ? MobilePhoneEntity.DEFAULT_LAB : routing.lab();
+            OutboxEventEntity outboxEventEntity = new OutboxEventEntity();
+            outboxEventEntity.setExchangeName(DeclerationUtils.labExchangeName(exchangeName, lab));
+            outboxEventEntity.setRoutingKey(type.routingKey(model));
+            outboxEventEntity.setEventType(type);
+            outboxEventEntity.setImei(imei);
+            outboxEventEntity.setModel(model);
+            outboxEventEntity.setUsername(user);
+            outboxEventEntity.setCreatedDate(now);
+            events.add(outboxEventEntity);
+        }
+        outboxEventDao.saveAll(events);
+        log.debug("Queued {} {} events in the outbox", events.size(), type.getName());
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.service;
+
+import java.util.Date;
+
+/**
+ * Published when a phone is booked or returned, delivered to listeners once the transaction that changed the phone
+ * has committed.
+ *
+ * @param imei           The IMEI of the mobile phone.
+ * @param available      Whether the phone is now available.
+ * @param bookedBy       Who the phone is now booked by, null if it is available.
+ * @param leaseExpiresAt When the booking lapses, null if it has no lease or the phone is available.
+ */
+public record PhoneAvailabilityChangedEvent(String imei, boolean available, String bookedBy, Date leaseExpiresAt) {
+
+    public static PhoneAvailabilityChangedEvent booked(String imei, String bookedBy) {
+        return booked(imei, bookedBy, null);
+    }
+
+    public static PhoneAvailabilityChangedEvent booked(String imei, String bookedBy, Date leaseExpiresAt) {
+        return new PhoneAvailabilityChangedEvent(imei, false, bookedBy, leaseExpiresAt);
+    }
+
+    public static PhoneAvailabilityChangedEvent returned(String imei) {
+        return new PhoneAvailabilityChangedEvent(imei, true, null, null);
+    }
+}
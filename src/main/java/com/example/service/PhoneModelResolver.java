@@ -0,0 +1,62 @@
+package com.example.service;
+
+import com.example.cache.ExpiringCache;
+import com.example.config.OutboxConfig;
+import com.example.model.dao.MobilePhoneDao;
+import com.example.model.dto.PhoneRouting;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.stereotype.Component;
+
+/**
+ * Looks up the model and lab of phones for outgoing events. Bookings and returns are conditional updates that never
+ * load the entity, so both are cached here rather than read again for every event.
+ */
+@Component
+public class PhoneModelResolver {
+
+    private final MobilePhoneDao mobilePhoneDao;
+    private final ExpiringCache<String, PhoneRouting> routings;
+
+    public PhoneModelResolver(MobilePhoneDao mobilePhoneDao, OutboxConfig outboxConfig) {
+        this.mobilePhoneDao = mobilePhoneDao;
+        this.routings =
+            new ExpiringCache<>(outboxConfig.getModelCacheSize(), outboxConfig.getModelCacheTtl().toNanos());
+    }
+
+    /**
+     * @param imeis The IMEIs of the phones.
+     * @return The model and lab of each phone that exists, by IMEI.
+     */
+    public Map<String, PhoneRouting> routingOf(Collection<String> imeis) {
+        Map<String, PhoneRouting> result = new HashMap<>(imeis.size() * 2);
+        List<String> missing = new ArrayList<>();
+        for (String imei : imeis) {
+            PhoneRouting routing = routings.get(imei);
+            if (routing == null) {
+                missing.add(imei);
+            } else {
+                result.put(imei, routing);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (PhoneRouting routing : mobilePhoneDao.findRoutingByImeiIn(missing)) {
+                routings.put(routing.imei(), routing);
+                result.put(routing.imei(), routing);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drops the cached model of phones whose model may have changed.
+     *
+     * @param imeis The IMEIs of the phones.
+     */
+    public void forget(Collection<String> imeis) {
+        imeis.forEach(routings::remove);
+    }
+}
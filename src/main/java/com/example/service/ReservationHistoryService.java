@@ -0,0 +1,61 @@
+package com.example.service;
+
+import com.example.model.dao.ReservationHistoryDao;
+import com.example.model.exception.BadRequestException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Date;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReservationHistoryService {
+
+    private final ReservationHistoryDao reservationHistoryDao;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @param from Start of the window.
+     * @param to   End of the window.
+     * @throws BadRequestException If the window is empty.
+     */
+    public void checkWindow(Date from, Date to) {
+        if (!from.before(to)) {
+            throw new BadRequestException("from must be before to");
+        }
+    }
+
+    /**
+     * Writes the bookings that overlap a time window as newline-delimited JSON, one booking per line, oldest first.
+     * Rows are written as they are read from the database, so the size of the window does not affect memory use.
+     *
+     * @param from         Start of the window, inclusive.
+     * @param to           End of the window, exclusive.
+     * @param imei         Only bookings of this phone, any if null.
+     * @param outputStream Where to write the bookings.
+     * @throws IOException If writing fails, typically because the client went away.
+     */
+    public void export(Date from, Date to, String imei, OutputStream outputStream) throws IOException {
+        log.debug("Exporting reservation history from {} to {}", from, to);
+        BufferedOutputStream buffer = new BufferedOutputStream(outputStream);
+        try {
+            reservationHistoryDao.forEachOverlapping(from, to, imei, booking -> {
+                try {
+                    buffer.write(objectMapper.writeValueAsBytes(booking));
+                    buffer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        buffer.flush();
+    }
+}
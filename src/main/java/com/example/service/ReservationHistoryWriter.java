@@ -0,0 +1,129 @@
+package com.example.service;
+
+import com.example.config.HistoryConfig;
+import com.example.model.dao.ReservationHistoryDao;
+import com.example.model.dto.ReservationHistoryView;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Records committed bookings and returns in the reservation history without slowing the requests down. Changes are
+ * queued in memory after the commit and written by a scheduled task in batches, one transaction per batch.
+ * <p>
+ * If the queue is full, changes are dropped and counted rather than blocking the request. Changes still queued when
+ * the process dies are lost. A booking whose return was lost is closed when the phone is next booked.
+ */
+@Slf4j
+@Component
+public class ReservationHistoryWriter {
+
+    private final ReservationHistoryDao reservationHistoryDao;
+    private final HistoryConfig historyConfig;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<Change> queue;
+    private final Counter writtenCounter;
+    private final Counter droppedCounter;
+
+    /**
+     * A booking when {@code bookedBy} is set, otherwise a return.
+     */
+    record Change(String imei, String bookedBy, Date date) {
+
+    }
+
+    public ReservationHistoryWriter(ReservationHistoryDao reservationHistoryDao, HistoryConfig historyConfig,
+        TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.reservationHistoryDao = reservationHistoryDao;
+        this.historyConfig = historyConfig;
+        this.transactionTemplate = transactionTemplate;
+        this.queue = new ArrayBlockingQueue<>(historyConfig.getQueueCapacity());
+        this.writtenCounter = Counter.builder("history.written")
+            .description("Bookings and returns written to the reservation history")
+            .register(meterRegistry);
+        this.droppedCounter = Counter.builder("history.dropped")
+            .description("Bookings and returns not recorded because the history queue was full")
+            .register(meterRegistry);
+        Gauge.builder("history.queue.size", queue, BlockingQueue::size)
+            .description("Bookings and returns waiting to be written to the reservation history")
+            .register(meterRegistry);
+    }
+
+    @TransactionalEventListener
+    public void onAvailabilityChanged(PhoneAvailabilityChangedEvent event) {
+        if (!historyConfig.isEnabled()) {
+            return;
+        }
+        if (!queue.offer(new Change(event.imei(), event.bookedBy(), new Date()))) {
+            droppedCounter.increment();
+            log.warn("History queue is full, the change of IMEI: {} is not recorded", event.imei());
+        }
+    }
+
+    /**
+     * Writes everything currently queued, one batch per transaction.
+     */
+    @Scheduled(fixedDelayString = "${mobile-phone-reservation.history.flush-interval:1000}")
+    @PreDestroy
+    public void flush() {
+        List<Change> batch = new ArrayList<>(historyConfig.getBatchSize());
+        while (queue.drainTo(batch, historyConfig.getBatchSize()) > 0) {
+            try {
+                write(batch);
+                writtenCounter.increment(batch.size());
+            } catch (DataAccessException e) {
+                log.error("Writing {} changes to the reservation history failed", batch.size(), e);
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Turns a batch of changes, in commit order, into one statement closing the open booking of every phone the batch
+     * touches and one inserting the bookings the batch starts. Bookings that start and end within the batch are
+     * inserted already closed.
+     */
+    private void write(List<Change> batch) {
+        Map<String, Date> closed = new LinkedHashMap<>();
+        Map<String, Change> open = new HashMap<>();
+        List<ReservationHistoryView> bookings = new ArrayList<>();
+        for (Change change : batch) {
+            closed.putIfAbsent(change.imei(), change.date());
+            // A booking without a return in between, e.g. a hand-over to a waiting user, ends the previous one
+            Change previous = open.remove(change.imei());
+            if (previous != null) {
+                bookings.add(new ReservationHistoryView(previous.imei(), previous.bookedBy(), previous.date(),
+                    change.date()));
+            }
+            if (change.bookedBy() != null) {
+                open.put(change.imei(), change);
+            }
+        }
+        for (Change change : open.values()) {
+            bookings.add(new ReservationHistoryView(change.imei(), change.bookedBy(), change.date(), null));
+        }
+        transactionTemplate.execute(status -> {
+            reservationHistoryDao.closeAll(closed);
+            if (!bookings.isEmpty()) {
+                reservationHistoryDao.insertAll(bookings);
+            }
+            return null;
+        });
+        log.debug("Wrote {} changes to the reservation history", batch.size());
+    }
+}
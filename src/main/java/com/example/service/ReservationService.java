@@ -1,17 +1,45 @@
 package com.example.service;
 
-import com.example.config.ApplicationConfig;
+import com.example.config.BulkReservationConfig;
+import com.example.config.LeaseConfig;
+import com.example.metrics.ReservationMetrics;
+import com.example.metrics.ReservationMetrics.Operation;
+import com.example.metrics.ReservationMetrics.Outcome;
+import com.example.metrics.ReservationMetrics.Phase;
 import com.example.model.dao.MobilePhoneDao;
+import com.example.model.dto.BulkMode;
+import com.example.model.dto.ReservationOutcome;
+import com.example.model.dto.ReservationResult;
 import com.example.model.entity.MobilePhoneEntity;
+import com.example.model.entity.PhoneEventType;
+import com.example.model.exception.BadRequestException;
 import com.example.model.exception.MobilePhoneNotAvailableException;
 import com.example.model.exception.MobilePhoneNotBookedException;
 import com.example.model.exception.MobilePhoneNotFoundException;
-import com.example.rabbitmq.QueueMessageSender;
+import com.example.service.AvailabilityIndex.PhoneState;
+import com.example.service.AvailabilityIndex.Status;
+import com.example.service.SlotIndex.Slot;
+import io.micrometer.core.instrument.Timer;
 import jakarta.transaction.Transactional;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Slf4j
 @Service
@@ -19,8 +47,14 @@ import org.springframework.stereotype.Service;
 public class ReservationService {
 
     private final MobilePhoneDao mobilePhoneDao;
-    private final QueueMessageSender queueMessageSender;
-    private final ApplicationConfig applicationConfig;
+    private final OutboxService outboxService;
+    private final AvailabilityIndex availabilityIndex;
+    private final BulkReservationConfig bulkReservationConfig;
+    private final ReservationMetrics reservationMetrics;
+    private final WaitlistService waitlistService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LeaseConfig leaseConfig;
+    private final SlotIndex slotIndex;
 
 
     /**
@@ -33,46 +67,554 @@ public class ReservationService {
      */
     @Transactional
     public void bookPhone(String imei, String bookedBy) {
+        bookPhone(imei, bookedBy, null);
+    }
+
+    /**
+     * Books a mobile phone with the specified IMEI, optionally for a limited time. When the lease lapses the phone is
+     * returned like in {@link #returnPhone(String)}. If another user reserved a slot of the phone, the lease ends
+     * when the slot starts.
+     *
+     * @param imei     The IMEI of the mobile phone to be booked.
+     * @param bookedBy The username of the user booking the phone.
+     * @param lease    How long the phone is booked for, null to keep it until it is returned.
+     * @throws MobilePhoneNotFoundException     If the mobile phone with the given IMEI is not found.
+     * @throws MobilePhoneNotAvailableException If the mobile phone is not available for booking, or reserved by
+     *                                          another user right now.
+     * @throws BadRequestException              If the lease is not positive or longer than allowed.
+     */
+    @Transactional
+    public void bookPhone(String imei, String bookedBy, Duration lease) {
+        Timer.Sample sample = reservationMetrics.start();
+        try {
+            book(imei, bookedBy, leaseExpiry(lease));
+        } catch (RuntimeException e) {
+            reservationMetrics.recordFailure(Operation.BOOK, sample, e);
+            throw e;
+        }
+        reservationMetrics.recordOnCompletion(Operation.BOOK, Outcome.BOOKED, sample);
+    }
+
+    private void book(String imei, String bookedBy, Date requestedLease) {
         log.debug("Booking phone with IMEI: {} by user: {}", imei, bookedBy);
 
-        MobilePhoneEntity mobilePhoneEntity = mobilePhoneDao.findByImei(imei)
-            .orElseThrow(() -> new MobilePhoneNotFoundException(imei + " is not valid"));
+        long now = System.currentTimeMillis();
+        Slot nextSlot = slotIndex.nextOf(imei, bookedBy, now);
+        if (nextSlot != null && nextSlot.start() <= now) {
+            throw new MobilePhoneNotAvailableException(imei + " is reserved by " + nextSlot.username() + " until "
+                + new Date(nextSlot.end()));
+        }
+        Date leaseExpiresAt = nextSlot == null || requestedLease != null && requestedLease.getTime() <= nextSlot.start()
+            ? requestedLease : new Date(nextSlot.start());
+
+        String lab = availabilityIndex.labOf(imei);
+        PhoneState observed = availabilityIndex.get(lab, imei);
+        if (observed != null && (observed.getStatus() == Status.BOOKED || observed.getStatus() == Status.BOOKING)) {
+            log.debug("Phone with IMEI: {} is being used by {}", imei, observed.getHolder());
+            throw MobilePhoneNotAvailableException.IN_USE;
+        }
+        PhoneState claimed = null;
+        if (observed != null && observed.getStatus() == Status.AVAILABLE) {
+            // Claim the phone so that concurrent requests are turned away without reaching the database
+            PhoneState booking = PhoneState.booking(bookedBy);
+            if (availabilityIndex.compareAndSet(lab, imei, observed, booking)) {
+                claimed = booking;
+            }
+        }
 
-        if (mobilePhoneEntity.isAvailable()) {
-            mobilePhoneEntity.setAvailable(false);
-            mobilePhoneEntity.setBookedBy(bookedBy);
-            mobilePhoneEntity.setBookedDate(new Date());
-            mobilePhoneDao.save(mobilePhoneEntity); // Save changes to the database
-            queueMessageSender.send(applicationConfig.getBookPhoneExchange(), null, imei + " is booked");
-            log.debug("Phone with IMEI: {} is successfully booked by user: {}", imei, bookedBy);
-        } else {
-            log.debug("Phone with IMEI: {} is being used by someone else", imei);
-            throw new MobilePhoneNotAvailableException(imei + " is being used by " + mobilePhoneEntity.getBookedBy());
+        boolean booked;
+        try {
+            booked = reservationMetrics.time(Operation.BOOK, Phase.UPDATE,
+                () -> mobilePhoneDao.bookByImei(imei, bookedBy, new Date(now), leaseExpiresAt)) == 1;
+        } catch (RuntimeException e) {
+            release(lab, imei, claimed, observed);
+            throw e;
         }
+        if (booked && !Objects.equals(slotIndex.nextOf(imei, bookedBy, now), nextSlot)) {
+            // A slot was reserved while the update waited for the lock on the phone, the transaction is rolled back
+            release(lab, imei, claimed, observed);
+            throw new MobilePhoneNotAvailableException(imei + " was reserved while it was being booked");
+        }
+        if (!booked) {
+            // Nothing was updated, only now work out whether the phone is unknown or taken
+            MobilePhoneEntity mobilePhoneEntity =
+                reservationMetrics.time(Operation.BOOK, Phase.LOOKUP, () -> mobilePhoneDao.findByImei(imei))
+                    .orElse(null);
+            PhoneState expected = claimed != null ? claimed : observed;
+            if (mobilePhoneEntity == null) {
+                availabilityIndex.compareAndSet(lab, imei, expected, null);
+                throw MobilePhoneNotFoundException.UNKNOWN_IMEI;
+            }
+            availabilityIndex.compareAndSet(lab, imei, expected, stateOf(mobilePhoneEntity));
+            log.debug("Phone with IMEI: {} is being used by {}", imei, mobilePhoneEntity.getBookedBy());
+            throw MobilePhoneNotAvailableException.IN_USE;
+        }
+
+        PhoneState pending = claimed;
+        availabilityIndex.afterCompletion(committed -> {
+            if (committed) {
+                availabilityIndex.settle(lab, imei, pending != null ? pending : observed, PhoneState.booked(bookedBy));
+            } else {
+                release(lab, imei, pending, observed);
+            }
+        });
+        reservationMetrics.time(Operation.BOOK, Phase.PUBLISH,
+            () -> outboxService.enqueue(PhoneEventType.BOOKED, imei, bookedBy));
+        eventPublisher.publishEvent(PhoneAvailabilityChangedEvent.booked(imei, bookedBy, leaseExpiresAt));
+        log.debug("Phone with IMEI: {} is successfully booked by user: {}", imei, bookedBy);
     }
 
     /**
-     * Returns a mobile phone with the specified IMEI.
+     * Returns a mobile phone with the specified IMEI. If somebody is waiting for the phone, it is booked to the first
+     * of them in the same transaction.
      *
      * @param imei The IMEI of the mobile phone to be returned.
      * @throws MobilePhoneNotFoundException  If the mobile phone with the given IMEI is not found.
      * @throws MobilePhoneNotBookedException If the mobile phone is not currently booked.
      */
+    @Transactional
     public void returnPhone(String imei) {
+        Timer.Sample sample = reservationMetrics.start();
+        try {
+            giveBack(imei);
+        } catch (RuntimeException e) {
+            reservationMetrics.recordFailure(Operation.RETURN, sample, e);
+            throw e;
+        }
+        reservationMetrics.recordOnCompletion(Operation.RETURN, Outcome.RETURNED, sample);
+    }
+
+    private void giveBack(String imei) {
         log.debug("Returning phone with IMEI: {}", imei);
 
-        MobilePhoneEntity mobilePhoneEntity = mobilePhoneDao.findByImei(imei)
-            .orElseThrow(() -> new MobilePhoneNotFoundException(imei + " is not valid"));
+        String lab = availabilityIndex.labOf(imei);
+        PhoneState observed = availabilityIndex.get(lab, imei);
+        if (observed != null && observed.getStatus() == Status.AVAILABLE) {
+            throw MobilePhoneNotBookedException.NOT_BOOKED;
+        }
+        PhoneState claimed = claimReturn(lab, imei, observed);
+
+        boolean returned;
+        try {
+            returned = reservationMetrics.time(Operation.RETURN, Phase.UPDATE,
+                () -> mobilePhoneDao.returnByImei(imei)) == 1;
+        } catch (RuntimeException e) {
+            release(lab, imei, claimed, observed);
+            throw e;
+        }
+        if (!returned) {
+            // Nothing was updated, only now work out whether the phone is unknown or not booked
+            MobilePhoneEntity mobilePhoneEntity =
+                reservationMetrics.time(Operation.RETURN, Phase.LOOKUP, () -> mobilePhoneDao.findByImei(imei))
+                    .orElse(null);
+            PhoneState expected = claimed != null ? claimed : observed;
+            if (mobilePhoneEntity == null) {
+                availabilityIndex.compareAndSet(lab, imei, expected, null);
+                throw MobilePhoneNotFoundException.UNKNOWN_IMEI;
+            }
+            availabilityIndex.compareAndSet(lab, imei, expected, stateOf(mobilePhoneEntity));
+            throw MobilePhoneNotBookedException.NOT_BOOKED;
+        }
+
+        completeReturn(Operation.RETURN, lab, imei, claimed, observed);
+        log.debug("Phone with IMEI: {} is successfully returned", imei);
+    }
+
+    /**
+     * Returns a mobile phone whose lease has lapsed, with the same hand-over and events as
+     * {@link #returnPhone(String)}. Nothing happens if the phone has been returned, or booked again, since.
+     *
+     * @param imei The IMEI of the mobile phone whose lease lapsed.
+     * @return Whether the phone was returned.
+     */
+    @Transactional
+    public boolean expireLease(String imei) {
+        Timer.Sample sample = reservationMetrics.start();
+        boolean expired;
+        try {
+            expired = expire(imei);
+        } catch (RuntimeException e) {
+            reservationMetrics.recordFailure(Operation.EXPIRE, sample, e);
+            throw e;
+        }
+        reservationMetrics.recordOnCompletion(Operation.EXPIRE, expired ? Outcome.RETURNED : Outcome.CONFLICT, sample);
+        return expired;
+    }
+
+    private boolean expire(String imei) {
+        String lab = availabilityIndex.labOf(imei);
+        PhoneState observed = availabilityIndex.get(lab, imei);
+        PhoneState claimed = claimReturn(lab, imei, observed);
+        boolean returned;
+        try {
+            returned = reservationMetrics.time(Operation.EXPIRE, Phase.UPDATE,
+                () -> mobilePhoneDao.returnIfLeaseExpired(imei, new Date())) == 1;
+        } catch (RuntimeException e) {
+            release(lab, imei, claimed, observed);
+            throw e;
+        }
+        if (!returned) {
+            release(lab, imei, claimed, observed);
+            log.debug("Lease of phone with IMEI: {} no longer applies", imei);
+            return false;
+        }
+        completeReturn(Operation.EXPIRE, lab, imei, claimed, observed);
+        log.debug("Lease of phone with IMEI: {} lapsed, the phone is returned", imei);
+        return true;
+    }
+
+    /**
+     * Claims a booked phone in the index so that concurrent returns are turned away without reaching the database.
+     *
+     * @return The claim, null if the phone was not claimed.
+     */
+    private PhoneState claimReturn(String lab, String imei, PhoneState observed) {
+        if (observed != null && observed.getStatus() == Status.BOOKED) {
+            PhoneState returning = PhoneState.returning(observed.getHolder());
+            if (availabilityIndex.compareAndSet(lab, imei, observed, returning)) {
+                return returning;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Queues the return event of a phone that was just returned and hands it to the first waiting user, if any.
+     */
+    private void completeReturn(Operation operation, String lab, String imei, PhoneState claimed,
+        PhoneState observed) {
+        reservationMetrics.time(operation, Phase.PUBLISH,
+            () -> outboxService.enqueue(PhoneEventType.RETURNED, imei, null));
+        String handedTo = waitlistService.handOver(List.of(imei)).get(imei);
+        if (handedTo == null) {
+            eventPublisher.publishEvent(PhoneAvailabilityChangedEvent.returned(imei));
+        }
+        availabilityIndex.afterCompletion(committed -> {
+            if (committed) {
+                availabilityIndex.settle(lab, imei, claimed != null ? claimed : observed,
+                    handedTo != null ? PhoneState.booked(handedTo) : PhoneState.available());
+            } else {
+                release(lab, imei, claimed, observed);
+            }
+        });
+    }
+
+    /**
+     * Books several mobile phones for the same user in one transaction, using a single JDBC batch. An event is
+     * published for every booked phone.
+     *
+     * @param imeis    The IMEIs of the mobile phones to be booked.
+     * @param bookedBy The username of the user booking the phones.
+     * @param mode     Whether a single failure cancels the whole request.
+     * @return The outcome for each IMEI, in request order.
+     * @throws BadRequestException If the request has too many IMEIs or contains the same IMEI twice.
+     */
+    @Transactional
+    public List<ReservationResult> bookPhones(List<String> imeis, String bookedBy, BulkMode mode) {
+        return bookPhones(imeis, bookedBy, mode, null);
+    }
+
+    /**
+     * Books several mobile phones for the same user in one transaction, optionally for a limited time. Phones that
+     * another user reserved a slot of before the lease ends are not available.
+     *
+     * @param imeis    The IMEIs of the mobile phones to be booked.
+     * @param bookedBy The username of the user booking the phones.
+     * @param mode     Whether a single failure cancels the whole request.
+     * @param lease    How long the phones are booked for, null to keep them until they are returned.
+     * @return The outcome for each IMEI, in request order.
+     * @throws BadRequestException If the request has too many IMEIs, contains the same IMEI twice or has an invalid
+     *                             lease.
+     */
+    @Transactional
+    public List<ReservationResult> bookPhones(List<String> imeis, String bookedBy, BulkMode mode, Duration lease) {
+        Timer.Sample sample = reservationMetrics.start();
+        List<ReservationResult> results;
+        try {
+            results = bookAll(imeis, bookedBy, mode, leaseExpiry(lease));
+        } catch (RuntimeException e) {
+            reservationMetrics.recordFailure(Operation.BULK_BOOK, sample, e);
+            throw e;
+        }
+        recordBatch(Operation.BULK_BOOK, Outcome.BOOKED, results, sample);
+        return results;
+    }
+
+    private List<ReservationResult> bookAll(List<String> imeis, String bookedBy, BulkMode mode, Date leaseExpiresAt) {
+        validateBulkRequest(imeis);
+        log.debug("Booking {} phones by user: {}", imeis.size(), bookedBy);
+
+        long now = System.currentTimeMillis();
+        Batch batch = new Batch();
+        for (String imei : imeis) {
+            String lab = availabilityIndex.labOf(imei);
+            PhoneState observed = availabilityIndex.get(lab, imei);
+            if (observed != null && (observed.getStatus() == Status.BOOKED || observed.getStatus() == Status.BOOKING)) {
+                batch.results.put(imei, new ReservationResult(imei, ReservationOutcome.NOT_AVAILABLE,
+                    imei + " is being used by " + observed.getHolder()));
+                continue;
+            }
+            Slot nextSlot = slotIndex.nextOf(imei, bookedBy, now);
+            if (nextSlot != null) {
+                if (leaseExpiresAt == null || leaseExpiresAt.getTime() > nextSlot.start()) {
+                    batch.results.put(imei, new ReservationResult(imei, ReservationOutcome.NOT_AVAILABLE,
+                        imei + " is reserved by " + nextSlot.username() + " from " + new Date(nextSlot.start())));
+                    continue;
+                }
+                batch.slots.put(imei, nextSlot);
+            }
+            if (observed != null && observed.getStatus() == Status.AVAILABLE) {
+                PhoneState booking = PhoneState.booking(bookedBy);
+                if (availabilityIndex.compareAndSet(lab, imei, observed, booking)) {
+                    batch.claims.put(imei, booking);
+                }
+            }
+            batch.observed.put(imei, observed);
+            batch.candidates.add(imei);
+        }
+
+        List<String> booked = executeBatch(Operation.BULK_BOOK, batch,
+            () -> mobilePhoneDao.bookAllByImei(batch.candidates, bookedBy, new Date(now), leaseExpiresAt),
+            (imei, mobilePhoneEntity) -> mobilePhoneEntity == null
+                ? new ReservationResult(imei, ReservationOutcome.NOT_FOUND, imei + " is not valid")
+                : new ReservationResult(imei, ReservationOutcome.NOT_AVAILABLE,
+                    imei + " is being used by " + mobilePhoneEntity.getBookedBy()));
+        for (String imei : booked) {
+            if (!Objects.equals(slotIndex.nextOf(imei, bookedBy, now), batch.slots.get(imei))) {
+                // A slot was reserved while the batch waited for the lock on the phone, the transaction is rolled back
+                batch.claims.keySet().forEach(claimedImei -> release(batch, claimedImei));
+                throw new MobilePhoneNotAvailableException(imei + " was reserved while it was being booked");
+            }
+        }
+        List<ReservationResult> results = completeBatch(Operation.BULK_BOOK, imeis, booked, mode, batch,
+            ReservationOutcome.BOOKED, imei -> PhoneState.booked(bookedBy), PhoneEventType.BOOKED, bookedBy,
+            " is booked");
+        results.stream()
+            .filter(result -> result.outcome() == ReservationOutcome.BOOKED)
+            .forEach(result -> eventPublisher.publishEvent(PhoneAvailabilityChangedEvent.booked(result.imei(),
+                bookedBy, leaseExpiresAt)));
+        return results;
+    }
+
+    /**
+     * Returns several mobile phones in one transaction, using a single JDBC batch. An event is published for every
+     * returned phone, and returned phones are handed to waiting users like in {@link #returnPhone(String)}.
+     *
+     * @param imeis The IMEIs of the mobile phones to be returned.
+     * @param mode  Whether a single failure cancels the whole request.
+     * @return The outcome for each IMEI, in request order.
+     * @throws BadRequestException If the request has too many IMEIs or contains the same IMEI twice.
+     */
+    @Transactional
+    public List<ReservationResult> returnPhones(List<String> imeis, BulkMode mode) {
+        Timer.Sample sample = reservationMetrics.start();
+        List<ReservationResult> results;
+        try {
+            results = returnAll(imeis, mode);
+        } catch (RuntimeException e) {
+            reservationMetrics.recordFailure(Operation.BULK_RETURN, sample, e);
+            throw e;
+        }
+        recordBatch(Operation.BULK_RETURN, Outcome.RETURNED, results, sample);
+        return results;
+    }
+
+    private List<ReservationResult> returnAll(List<String> imeis, BulkMode mode) {
+        validateBulkRequest(imeis);
+        log.debug("Returning {} phones", imeis.size());
+
+        Batch batch = new Batch();
+        for (String imei : imeis) {
+            String lab = availabilityIndex.labOf(imei);
+            PhoneState observed = availabilityIndex.get(lab, imei);
+            if (observed != null && observed.getStatus() == Status.AVAILABLE) {
+                batch.results.put(imei, new ReservationResult(imei, ReservationOutcome.NOT_BOOKED,
+                    imei + " is not booked"));
+                continue;
+            }
+            if (observed != null && observed.getStatus() == Status.BOOKED) {
+                PhoneState returning = PhoneState.returning(observed.getHolder());
+                if (availabilityIndex.compareAndSet(lab, imei, observed, returning)) {
+                    batch.claims.put(imei, returning);
+                }
+            }
+            batch.observed.put(imei, observed);
+            batch.candidates.add(imei);
+        }
+
+        List<String> returned = executeBatch(Operation.BULK_RETURN, batch,
+            () -> mobilePhoneDao.returnAllByImei(batch.candidates),
+            (imei, mobilePhoneEntity) -> mobilePhoneEntity == null
+                ? new ReservationResult(imei, ReservationOutcome.NOT_FOUND, imei + " is not valid")
+                : new ReservationResult(imei, ReservationOutcome.NOT_BOOKED, imei + " is not booked"));
+        // Filled in before the commit, read by the index update after it
+        Map<String, String> handedOver = new HashMap<>();
+        List<ReservationResult> results = completeBatch(Operation.BULK_RETURN, imeis, returned, mode, batch,
+            ReservationOutcome.RETURNED,
+            imei -> handedOver.containsKey(imei) ? PhoneState.booked(handedOver.get(imei)) : PhoneState.available(),
+            PhoneEventType.RETURNED, null, " is returned");
+        List<String> changed = results.stream()
+            .filter(result -> result.outcome() == ReservationOutcome.RETURNED)
+            .map(ReservationResult::imei)
+            .toList();
+        if (!changed.isEmpty()) {
+            handedOver.putAll(waitlistService.handOver(changed));
+        }
+        changed.stream()
+            .filter(imei -> !handedOver.containsKey(imei))
+            .forEach(imei -> eventPublisher.publishEvent(PhoneAvailabilityChangedEvent.returned(imei)));
+        return results;
+    }
+
+    /**
+     * Index claims and per-IMEI results collected while processing a bulk request.
+     */
+    private static final class Batch {
+
+        private final List<String> candidates = new ArrayList<>();
+        private final Map<String, PhoneState> observed = new HashMap<>();
+        private final Map<String, PhoneState> claims = new HashMap<>();
+        private final Map<String, Slot> slots = new HashMap<>();
+        private final Map<String, ReservationResult> results = new HashMap<>();
+
+        /**
+         * @return The claim on the phone, or the state read if it was not claimed.
+         */
+        private PhoneState expectedOf(String imei) {
+            PhoneState claimed = claims.get(imei);
+            return claimed != null ? claimed : observed.get(imei);
+        }
+    }
+
+    /**
+     * @return When a lease starting now lapses, null if there is no lease.
+     * @throws BadRequestException If the lease is not positive or longer than allowed.
+     */
+    private Date leaseExpiry(Duration lease) {
+        if (lease == null) {
+            return null;
+        }
+        if (lease.isNegative() || lease.isZero() || lease.compareTo(leaseConfig.getMaxLease()) > 0) {
+            throw new BadRequestException("lease must be positive and at most " + leaseConfig.getMaxLease());
+        }
+        return new Date(System.currentTimeMillis() + lease.toMillis());
+    }
+
+    private void validateBulkRequest(List<String> imeis) {
+        if (imeis.size() > bulkReservationConfig.getMaxSize()) {
+            throw new BadRequestException(
+                "At most " + bulkReservationConfig.getMaxSize() + " IMEIs can be processed in one request");
+        }
+        Set<String> seen = new HashSet<>();
+        for (String imei : imeis) {
+            if (!seen.add(imei)) {
+                throw new BadRequestException(imei + " appears more than once");
+            }
+        }
+    }
+
+    /**
+     * Runs the batch statement for the candidates of a bulk request and resolves every IMEI that was not updated
+     * with a single query.
+     *
+     * @return The IMEIs that were updated.
+     */
+    private List<String> executeBatch(Operation operation, Batch batch, Supplier<int[]> statement,
+        BiFunction<String, MobilePhoneEntity, ReservationResult> failure) {
+        if (batch.candidates.isEmpty()) {
+            return List.of();
+        }
+        // Rows are locked in IMEI order, so batches running concurrently on other instances cannot deadlock
+        batch.candidates.sort(null);
+        int[] updateCounts;
+        try {
+            updateCounts = reservationMetrics.time(operation, Phase.UPDATE, statement);
+        } catch (RuntimeException e) {
+            batch.claims.keySet().forEach(imei -> release(batch, imei));
+            throw e;
+        }
+
+        List<String> updated = new ArrayList<>();
+        List<String> failed = new ArrayList<>();
+        for (int i = 0; i < batch.candidates.size(); i++) {
+            (updateCounts[i] == 1 ? updated : failed).add(batch.candidates.get(i));
+        }
+        if (!failed.isEmpty()) {
+            Map<String, MobilePhoneEntity> found =
+                reservationMetrics.time(operation, Phase.LOOKUP, () -> mobilePhoneDao.findAllByImeiIn(failed))
+                    .stream()
+                    .collect(Collectors.toMap(MobilePhoneEntity::getImei, Function.identity()));
+            for (String imei : failed) {
+                MobilePhoneEntity mobilePhoneEntity = found.get(imei);
+                PhoneState expected = batch.claims.containsKey(imei)
+                    ? batch.claims.get(imei) : batch.observed.get(imei);
+                availabilityIndex.compareAndSet(availabilityIndex.labOf(imei), imei, expected,
+                    mobilePhoneEntity == null ? null : stateOf(mobilePhoneEntity));
+                batch.results.put(imei, failure.apply(imei, mobilePhoneEntity));
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Rolls the transaction back if an all-or-nothing request had a failure, otherwise queues one event for every
+     * phone changed by the request.
+     */
+    private List<ReservationResult> completeBatch(Operation operation, List<String> imeis, List<String> updated,
+        BulkMode mode, Batch batch, ReservationOutcome outcome, Function<String, PhoneState> committedState,
+        PhoneEventType eventType, String bookedBy, String event) {
+        boolean rolledBack = mode == BulkMode.ALL_OR_NOTHING && !batch.results.isEmpty();
+        if (rolledBack && TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+        }
+        for (String imei : updated) {
+            batch.results.put(imei, rolledBack
+                ? new ReservationResult(imei, ReservationOutcome.ROLLED_BACK, imei + " was not changed")
+                : new ReservationResult(imei, outcome, imei + event));
+        }
+
+        availabilityIndex.afterCompletion(committed -> {
+            for (String imei : updated) {
+                if (committed && !rolledBack) {
+                    availabilityIndex.settle(availabilityIndex.labOf(imei), imei, batch.expectedOf(imei),
+                        committedState.apply(imei));
+                } else {
+                    release(batch, imei);
+                }
+            }
+        });
+        if (!rolledBack && !updated.isEmpty()) {
+            reservationMetrics.time(operation, Phase.PUBLISH,
+                () -> outboxService.enqueueAll(eventType, updated, bookedBy));
+        }
+        return imeis.stream().map(batch.results::get).toList();
+    }
+
+    /**
+     * Records a bulk request as successful only if every phone in it was changed.
+     */
+    private void recordBatch(Operation operation, Outcome success, List<ReservationResult> results,
+        Timer.Sample sample) {
+        reservationMetrics.countItems(operation, results);
+        boolean allChanged = results.stream().allMatch(result -> result.outcome().isSuccess());
+        reservationMetrics.recordOnCompletion(operation, allChanged ? success : Outcome.CONFLICT, sample);
+    }
 
-        if (!mobilePhoneEntity.isAvailable()) {
-            mobilePhoneEntity.setAvailable(true);
-            mobilePhoneEntity.setBookedBy(null);
-            mobilePhoneEntity.setBookedDate(null);
-            mobilePhoneDao.save(mobilePhoneEntity); // Save changes to the database
-            queueMessageSender.send(applicationConfig.getReturnPhoneExchange(), null, imei + " is returned");
-            log.debug("Phone with IMEI: {} is successfully returned", imei);
-        } else {
-            throw new MobilePhoneNotBookedException(imei + " is not booked");
+    /**
+     * Puts back the state a claim replaced, unless the phone has moved on since.
+     */
+    private void release(String lab, String imei, PhoneState claimed, PhoneState observed) {
+        if (claimed != null) {
+            availabilityIndex.compareAndSet(lab, imei, claimed, observed);
         }
     }
-}
\ No newline at end of file
+
+    private void release(Batch batch, String imei) {
+        release(availabilityIndex.labOf(imei), imei, batch.claims.get(imei), batch.observed.get(imei));
+    }
+
+    private static PhoneState stateOf(MobilePhoneEntity mobilePhoneEntity) {
+        return mobilePhoneEntity.isAvailable()
+            ? PhoneState.available() : PhoneState.booked(mobilePhoneEntity.getBookedBy());
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.service;
+
+import com.example.config.SlotConfig;
+import com.example.model.dao.SlotReservationDao;
+import com.example.model.entity.SlotReservationEntity;
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory index of the reserved slots of every phone. Slots of a phone never overlap, so keeping them sorted by
+ * start time is enough to answer whether a window is free with a single neighbour lookup, in O(log n) for a phone with
+ * n slots, without scanning its reservations.
+ * <p>
+ * The index is filled from the database at startup, slots are added in the transaction that reserves them and
+ * removed if it rolls back. Slots that have ended are dropped periodically.
+ * <p>
+ * While slots are disabled the index is not loaded and no slot limits a booking, so slots reserved before they were
+ * disabled no longer apply.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SlotIndex {
+
+    private final SlotReservationDao slotReservationDao;
+    private final SlotConfig slotConfig;
+    private final ConcurrentHashMap<String, PhoneSlots> slots = new ConcurrentHashMap<>();
+
+    /**
+     * The slots of one phone by start time, guarded by their own lock.
+     */
+    private static final class PhoneSlots {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final NavigableMap<Long, Slot> byStart = new TreeMap<>();
+    }
+
+    /**
+     * A reserved slot, from {@code start} inclusive to {@code end} exclusive, in epoch milliseconds.
+     */
+    public record Slot(Long id, String imei, String username, long start, long end) {
+
+        public boolean overlaps(long from, long to) {
+            return start < to && from < end;
+        }
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!slotConfig.isEnabled()) {
+            log.debug("Slots are disabled");
+            return;
+        }
+        List<SlotReservationEntity> reserved = slotReservationDao.findAllByEndTimeAfter(new Date());
+        reserved.forEach(entity -> add(slotOf(entity)));
+        log.info("Loaded {} reserved slots into the slot index", reserved.size());
+    }
+
+    /**
+     * Adds a slot, unless it overlaps a slot of the same phone.
+     *
+     * @param slot The slot to add.
+     * @return The slot it overlaps, null if it was added.
+     */
+    public Slot add(Slot slot) {
+        PhoneSlots phoneSlots = slots.computeIfAbsent(slot.imei(), imei -> new PhoneSlots());
+        phoneSlots.lock.lock();
+        try {
+            Slot overlapping = overlapping(phoneSlots.byStart, slot.start(), slot.end());
+            if (overlapping == null) {
+                phoneSlots.byStart.put(slot.start(), slot);
+            }
+            return overlapping;
+        } finally {
+            phoneSlots.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a slot, does nothing if it is not in the index.
+     */
+    public void remove(Slot slot) {
+        PhoneSlots phoneSlots = slots.get(slot.imei());
+        if (phoneSlots != null) {
+            phoneSlots.lock.lock();
+            try {
+                phoneSlots.byStart.remove(slot.start(), slot);
+            } finally {
+                phoneSlots.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return The slot of the phone that overlaps the window, null if the window is free.
+     */
+    public Slot overlapping(String imei, long from, long to) {
+        PhoneSlots phoneSlots = slots.get(imei);
+        if (phoneSlots == null) {
+            return null;
+        }
+        phoneSlots.lock.lock();
+        try {
+            return overlapping(phoneSlots.byStart, from, to);
+        } finally {
+            phoneSlots.lock.unlock();
+        }
+    }
+
+    /**
+     * Finds the slot that limits a booking of the phone made now: the earliest slot of another user that has not
+     * ended yet. The user's own slots never limit their bookings.
+     *
+     * @param imei     The IMEI of the mobile phone.
+     * @param username The user booking the phone.
+     * @param now      The time of the booking.
+     * @return The slot, null if nothing limits the booking or slots are disabled. A slot that has already started
+     * blocks the booking, otherwise the booking has to end when the slot starts.
+     */
+    public Slot nextOf(String imei, String username, long now) {
+        PhoneSlots phoneSlots = slots.get(imei);
+        if (phoneSlots == null || !slotConfig.isEnabled()) {
+            return null;
+        }
+        phoneSlots.lock.lock();
+        try {
+            Map.Entry<Long, Slot> current = phoneSlots.byStart.floorEntry(now);
+            long from = current != null && current.getValue().end() > now ? current.getKey() : now;
+            for (Slot slot : phoneSlots.byStart.tailMap(from, true).values()) {
+                if (!slot.username().equals(username)) {
+                    return slot;
+                }
+            }
+            return null;
+        } finally {
+            phoneSlots.lock.unlock();
+        }
+    }
+
+    /**
+     * @return The slots of the phone that end after the given time, by start time.
+     */
+    public List<Slot> slotsOf(String imei, long after) {
+        PhoneSlots phoneSlots = slots.get(imei);
+        if (phoneSlots == null) {
+            return List.of();
+        }
+        phoneSlots.lock.lock();
+        try {
+            Map.Entry<Long, Slot> current = phoneSlots.byStart.floorEntry(after);
+            long from = current != null && current.getValue().end() > after ? current.getKey() : after;
+            return new ArrayList<>(phoneSlots.byStart.tailMap(from, true).values());
+        } finally {
+            phoneSlots.lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the slots that have ended from memory, their rows stay in the database.
+     */
+    @Scheduled(fixedDelayString = "${mobile-phone-reservation.slot.purge-interval:60000}")
+    public void purge() {
+        long now = System.currentTimeMillis();
+        int purged = 0;
+        for (PhoneSlots phoneSlots : slots.values()) {
+            phoneSlots.lock.lock();
+            try {
+                // Slots do not overlap, so every slot that starts before the first one still running has ended
+                Map.Entry<Long, Slot> current = phoneSlots.byStart.floorEntry(now);
+                long keepFrom = current != null && current.getValue().end() > now ? current.getKey() : now;
+                NavigableMap<Long, Slot> ended = phoneSlots.byStart.headMap(keepFrom, false);
+                purged += ended.size();
+                ended.clear();
+            } finally {
+                phoneSlots.lock.unlock();
+            }
+        }
+        // Phones without slots are kept, dropping them could race with a concurrent add
+        if (purged > 0) {
+            log.debug("Purged {} ended slots from the slot index", purged);
+        }
+    }
+
+    public static Slot slotOf(SlotReservationEntity entity) {
+        return new Slot(entity.getId(), entity.getImei(), entity.getUsername(), entity.getStartTime().getTime(),
+            entity.getEndTime().getTime());
+    }
+
+    private static Slot overlapping(NavigableMap<Long, Slot> phoneSlots, long from, long to) {
+        // Slots do not overlap, so they end in the order they start and only the last one starting before the end of
+        // the window can reach into it
+        Map.Entry<Long, Slot> before = phoneSlots.lowerEntry(to);
+        if (before != null && before.getValue().overlaps(from, to)) {
+            return before.getValue();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.service;
+
+import com.example.config.SlotConfig;
+import com.example.model.dao.MobilePhoneDao;
+import com.example.model.dao.SlotReservationDao;
+import com.example.model.dto.PhoneBooking;
+import com.example.model.dto.PhoneModel;
+import com.example.model.dto.SlotView;
+import com.example.model.entity.MobilePhoneEntity;
+import com.example.model.entity.SlotReservationEntity;
+import com.example.model.exception.BadRequestException;
+import com.example.model.exception.FeatureDisabledException;
+import com.example.model.exception.MobilePhoneNotAvailableException;
+import com.example.model.exception.MobilePhoneNotFoundException;
+import com.example.model.exception.SlotConflictException;
+import com.example.model.exception.SlotNotFoundException;
+import com.example.service.SlotIndex.Slot;
+import jakarta.transaction.Transactional;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * Reservations of a phone for a future window of time. Slots are checked against each other with the
+ * {@link SlotIndex}, and against the current booking of the phone, whose row is locked while the slot is reserved.
+ * Bookings made while a slot is coming up are shortened by {@link ReservationService} to end when the slot starts.
+ * <p>
+ * Whether slots are enabled is checked on every request rather than when the application context is built, so the
+ * setting also applies to ahead-of-time compiled images.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SlotReservationService {
+
+    private final SlotReservationDao slotReservationDao;
+    private final MobilePhoneDao mobilePhoneDao;
+    private final SlotIndex slotIndex;
+    private final AvailabilityIndex availabilityIndex;
+    private final SlotConfig slotConfig;
+
+    /**
+     * Reserves a phone for a window of time.
+     *
+     * @param imei     The IMEI of the mobile phone.
+     * @param username The user reserving the phone.
+     * @param start    When the slot starts.
+     * @param end      When the slot ends, exclusive.
+     * @return The reserved slot.
+     * @throws FeatureDisabledException     If slots are disabled.
+     * @throws BadRequestException          If the window is empty, has ended, is too long or starts too far ahead.
+     * @throws MobilePhoneNotFoundException If the mobile phone with the given IMEI is not found.
+     * @throws SlotConflictException        If the window overlaps another slot, or a booking by another user that
+     *                                      lasts into it.
+     */
+    @Transactional
+    public SlotView reserve(String imei, String username, Instant start, Instant end) {
+        checkEnabled();
+        checkWindow(start, end);
+        // Bookings of the phone wait for the lock, and check the index again once they get it
+        MobilePhoneEntity mobilePhoneEntity = mobilePhoneDao.findForUpdateByImei(imei)
+            .orElseThrow(() -> new MobilePhoneNotFoundException(imei + " is not valid"));
+        if (!allows(bookingOf(mobilePhoneEntity), username, start.toEpochMilli())) {
+            throw new SlotConflictException(imei + " is booked by " + mobilePhoneEntity.getBookedBy() + " until "
+                + (mobilePhoneEntity.getLeaseExpiresAt() != null ? mobilePhoneEntity.getLeaseExpiresAt() : "returned"));
+        }
+
+        SlotReservationEntity entity = new SlotReservationEntity();
+        entity.setImei(imei);
+        entity.setUsername(username);
+        entity.setStartTime(Date.from(start));
+        entity.setEndTime(Date.from(end));
+        Slot slot = SlotIndex.slotOf(slotReservationDao.save(entity));
+        Slot overlapping = slotIndex.add(slot);
+        if (overlapping != null) {
+            throw new SlotConflictException(imei + " is reserved from " + new Date(overlapping.start()) + " to "
+                + new Date(overlapping.end()));
+        }
+        availabilityIndex.afterCompletion(committed -> {
+            if (!committed) {
+                slotIndex.remove(slot);
+            }
+        });
+        log.debug("Phone with IMEI: {} is reserved by user: {} from {} to {}", imei, username, start, end);
+        return viewOf(slot);
+    }
+
+    /**
+     * @param imei The IMEI of the mobile phone.
+     * @return The slots of the phone that have not ended yet, by start time.
+     * @throws FeatureDisabledException If slots are disabled.
+     */
+    public List<SlotView> findSlots(String imei) {
+        checkEnabled();
+        return slotIndex.slotsOf(imei, System.currentTimeMillis()).stream()
+            .map(SlotReservationService::viewOf)
+            .toList();
+    }
+
+    /**
+     * Cancels a slot.
+     *
+     * @param id       The id of the slot.
+     * @param username The user the slot must belong to.
+     * @return The cancelled slot.
+     * @throws FeatureDisabledException If slots are disabled.
+     * @throws SlotNotFoundException     If the user has no slot with this id.
+     */
+    @Transactional
+    public SlotView cancel(Long id, String username) {
+        checkEnabled();
+        SlotReservationEntity entity = slotReservationDao.findByIdAndUsername(id, username)
+            .orElseThrow(() -> new SlotNotFoundException("Slot " + id + " does not exist"));
+        slotReservationDao.delete(entity);
+        Slot slot = SlotIndex.slotOf(entity);
+        availabilityIndex.afterCompletion(committed -> {
+            if (committed) {
+                slotIndex.remove(slot);
+            }
+        });
+        return viewOf(slot);
+    }
+
+    /**
+     * Finds a phone of a model that the user could reserve for a window of time. Each phone is checked with a
+     * single index lookup.
+     *
+     * @param model    The model.
+     * @param username The user who wants to reserve the phone.
+     * @param start    When the window starts.
+     * @param end      When the window ends, exclusive.
+     * @return The first free phone of the model.
+     * @throws FeatureDisabledException        If slots are disabled.
+     * @throws BadRequestException              If the window is invalid, see {@link #reserve}.
+     * @throws MobilePhoneNotFoundException     If there are no phones of the model.
+     * @throws MobilePhoneNotAvailableException If no phone of the model is free for the window.
+     */
+    public PhoneModel findFreePhone(String model, String username, Instant start, Instant end) {
+        checkEnabled();
+        checkWindow(start, end);
+        List<PhoneBooking> bookings = mobilePhoneDao.findBookingsByModel(model);
+        if (bookings.isEmpty()) {
+            throw new MobilePhoneNotFoundException(model + " is not a known model");
+        }
+        long from = start.toEpochMilli();
+        long to = end.toEpochMilli();
+        return bookings.stream()
+            .filter(booking -> allows(booking, username, from))
+            .filter(booking -> slotIndex.overlapping(booking.imei(), from, to) == null)
+            .findFirst()
+            .map(booking -> new PhoneModel(booking.imei(), model))
+            .orElseThrow(() -> new MobilePhoneNotAvailableException(
+                "No phone of model " + model + " is free from " + start + " to " + end));
+    }
+
+    private void checkEnabled() {
+        if (!slotConfig.isEnabled()) {
+            throw new FeatureDisabledException("Slots are disabled");
+        }
+    }
+
+    private void checkWindow(Instant start, Instant end) {
+        Instant now = Instant.now();
+        if (!start.isBefore(end)) {
+            throw new BadRequestException("start must be before end");
+        }
+        if (!end.isAfter(now)) {
+            throw new BadRequestException("end must be in the future");
+        }
+        if (end.toEpochMilli() - start.toEpochMilli() > slotConfig.getMaxDuration().toMillis()) {
+            throw new BadRequestException("A slot can be at most " + slotConfig.getMaxDuration() + " long");
+        }
+        if (start.isAfter(now.plus(slotConfig.getMaxAdvance()))) {
+            throw new BadRequestException("A slot can start at most " + slotConfig.getMaxAdvance() + " ahead");
+        }
+    }
+
+    /**
+     * @return Whether the current booking of the phone leaves it free for the user from the given time.
+     */
+    private static boolean allows(PhoneBooking booking, String username, long from) {
+        return booking.available() || username.equals(booking.bookedBy())
+            || booking.leaseExpiresAt() != null && booking.leaseExpiresAt().getTime() <= from;
+    }
+
+    private static PhoneBooking bookingOf(MobilePhoneEntity mobilePhoneEntity) {
+        return new PhoneBooking(mobilePhoneEntity.getImei(), mobilePhoneEntity.isAvailable(),
+            mobilePhoneEntity.getBookedBy(), mobilePhoneEntity.getLeaseExpiresAt());
+    }
+
+    private static SlotView viewOf(Slot slot) {
+        return new SlotView(slot.id(), slot.imei(), slot.username(), new Date(slot.start()), new Date(slot.end()));
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.service;
+
+import com.example.model.dto.WaitlistEntryView;
+
+/**
+ * Published when a waitlist entry is assigned a phone or cancelled, delivered to listeners once the transaction
+ * that changed the entry has committed.
+ */
+public record WaitlistEntryChangedEvent(WaitlistEntryView entry) {
+
+}
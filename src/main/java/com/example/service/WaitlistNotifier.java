@@ -0,0 +1,70 @@
+package com.example.service;
+
+import com.example.model.dto.WaitlistEntryView;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Hands committed waitlist changes to the clients long-polling for them. Every poll subscribes its own listener and
+ * unsubscribes it once the poll ends, so polls that time out leave nothing behind.
+ */
+@Component
+public class WaitlistNotifier {
+
+    /**
+     * The listeners of each entry. A set is only changed inside the map's atomic operations and is no longer
+     * changed once it has been removed, so it can be iterated safely after removal.
+     */
+    private final ConcurrentHashMap<Long, Set<Consumer<WaitlistEntryView>>> listeners = new ConcurrentHashMap<>();
+
+    /**
+     * Calls the listener once the entry is assigned or cancelled, unless it is unsubscribed first.
+     *
+     * @param entryId  The id of a waiting entry.
+     * @param listener The listener, called at most once.
+     */
+    public void subscribe(Long entryId, Consumer<WaitlistEntryView> listener) {
+        listeners.compute(entryId, (id, current) -> {
+            Set<Consumer<WaitlistEntryView>> subscribed = current != null ? current : new HashSet<>();
+            subscribed.add(listener);
+            return subscribed;
+        });
+    }
+
+    /**
+     * @param entryId  The id of the entry.
+     * @param listener The listener that was subscribed, nothing happens if it is no longer subscribed.
+     */
+    public void unsubscribe(Long entryId, Consumer<WaitlistEntryView> listener) {
+        listeners.computeIfPresent(entryId, (id, current) -> {
+            current.remove(listener);
+            return current.isEmpty() ? null : current;
+        });
+    }
+
+    @TransactionalEventListener
+    public void onEntryChanged(WaitlistEntryChangedEvent event) {
+        notify(event.entry());
+    }
+
+    /**
+     * Passes the entry to its listeners, if there are any, and unsubscribes them.
+     */
+    public void notify(WaitlistEntryView entry) {
+        Set<Consumer<WaitlistEntryView>> subscribed = listeners.remove(entry.id());
+        if (subscribed != null) {
+            subscribed.forEach(listener -> listener.accept(entry));
+        }
+    }
+
+    /**
+     * @return The number of entries with at least one listener.
+     */
+    int getSubscribedEntries() {
+        return listeners.size();
+    }
+}
@@ -0,0 +1,301 @@
+package com.example.service;
+
+import com.example.model.dao.MobilePhoneDao;
+import com.example.model.dao.WaitlistEntryDao;
+import com.example.model.dto.WaitlistEntryView;
+import com.example.model.entity.MobilePhoneEntity;
+import com.example.model.entity.PhoneEventType;
+import com.example.model.entity.WaitlistEntryEntity;
+import com.example.model.entity.WaitlistStatus;
+import com.example.model.exception.MobilePhoneNotFoundException;
+import com.example.model.exception.WaitlistEntryNotFoundException;
+import com.example.model.exception.WaitlistEntryNotWaitingException;
+import com.example.service.AvailabilityIndex.PhoneState;
+import com.example.service.SlotIndex.Slot;
+import jakarta.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * FIFO waitlists for a specific phone or for any phone of a model. Returned phones are handed to the oldest matching
+ * waiter in the returning transaction. Phones freed without a handover, e.g. because the waiter joined while the
+ * return was committing, are picked up by a periodic sweep.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WaitlistService {
+
+    /**
+     * Waiting entries read per phone being handed over, so a claim lost to a concurrent cancel does not leave the
+     * phone unassigned.
+     */
+    private static final int CANDIDATES_PER_PHONE = 4;
+    private static final int SWEEP_BATCH_SIZE = 100;
+    private static final int MODEL_JOIN_CANDIDATES = 10;
+
+    private final WaitlistEntryDao waitlistEntryDao;
+    private final MobilePhoneDao mobilePhoneDao;
+    private final OutboxService outboxService;
+    private final AvailabilityIndex availabilityIndex;
+    private final WaitlistNotifier waitlistNotifier;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SlotIndex slotIndex;
+
+    /**
+     * @param observed The indexed state of the phone before it was booked to the user.
+     */
+    private record Assignment(WaitlistEntryView entry, String username, String lab, PhoneState observed) {
+
+    }
+
+    /**
+     * Queues the user for a specific phone. The phone is assigned straight away if it is available and nobody is
+     * ahead in the queue.
+     *
+     * @param imei     The IMEI of the mobile phone.
+     * @param username The user joining the waitlist.
+     * @return The entry, already assigned if the phone could be booked.
+     * @throws MobilePhoneNotFoundException If the mobile phone with the given IMEI is not found.
+     */
+    @Transactional
+    public WaitlistEntryView joinForPhone(String imei, String username) {
+        MobilePhoneEntity mobilePhoneEntity = mobilePhoneDao.findByImei(imei)
+            .orElseThrow(() -> new MobilePhoneNotFoundException(imei + " is not valid"));
+        WaitlistEntryEntity entry = createEntry(imei, null, username);
+        log.debug("User: {} joined the waitlist of IMEI: {}", username, imei);
+        List<Assignment> assigned = mobilePhoneEntity.isAvailable() ? assignAndIndex(List.of(imei)) : List.of();
+        return resultOf(entry, assigned);
+    }
+
+    /**
+     * Queues the user for any phone of a model. A phone is assigned straight away if one is available and nobody is
+     * ahead in the queue.
+     *
+     * @param model    The model.
+     * @param username The user joining the waitlist.
+     * @return The entry, already assigned if a phone could be booked.
+     * @throws MobilePhoneNotFoundException If there are no phones of the model.
+     */
+    @Transactional
+    public WaitlistEntryView joinForModel(String model, String username) {
+        if (!mobilePhoneDao.existsByModel(model)) {
+            throw new MobilePhoneNotFoundException(model + " is not a known model");
+        }
+        WaitlistEntryEntity entry = createEntry(null, model, username);
+        log.debug("User: {} joined the waitlist of model: {}", username, model);
+        List<String> available =
+            mobilePhoneDao.findAvailableImeisByModel(model, PageRequest.of(0, MODEL_JOIN_CANDIDATES));
+        List<Assignment> assigned = available.isEmpty() ? List.of() : assignAndIndex(available);
+        return resultOf(entry, assigned);
+    }
+
+    /**
+     * @param id       The id of the entry.
+     * @param username The user the entry must belong to.
+     * @return The entry.
+     * @throws WaitlistEntryNotFoundException If the user has no entry with this id.
+     */
+    public WaitlistEntryView findEntry(Long id, String username) {
+        return waitlistEntryDao.findByIdAndUsername(id, username)
+            .map(WaitlistService::viewOf)
+            .orElseThrow(() -> new WaitlistEntryNotFoundException("Waitlist entry " + id + " does not exist"));
+    }
+
+    /**
+     * Subscribes the listener to changes of an entry, then reads the entry. A change committed in between is seen by
+     * the read, one committed afterwards is passed to the listener, so none is missed. The listener is unsubscribed
+     * again unless the entry is still waiting.
+     *
+     * @param id       The id of the entry.
+     * @param username The user the entry must belong to.
+     * @param listener Called once the entry is assigned or cancelled, until unsubscribed with
+     *                 {@link #stopAwaiting(Long, Consumer)}.
+     * @return The entry as read after subscribing.
+     * @throws WaitlistEntryNotFoundException If the user has no entry with this id.
+     */
+    public WaitlistEntryView awaitChange(Long id, String username, Consumer<WaitlistEntryView> listener) {
+        waitlistNotifier.subscribe(id, listener);
+        boolean waiting = false;
+        try {
+            WaitlistEntryView entry = findEntry(id, username);
+            waiting = entry.status() == WaitlistStatus.WAITING;
+            return entry;
+        } finally {
+            if (!waiting) {
+                waitlistNotifier.unsubscribe(id, listener);
+            }
+        }
+    }
+
+    /**
+     * @param id       The id of the entry.
+     * @param listener A listener passed to {@link #awaitChange(Long, String, Consumer)}.
+     */
+    public void stopAwaiting(Long id, Consumer<WaitlistEntryView> listener) {
+        waitlistNotifier.unsubscribe(id, listener);
+    }
+
+    /**
+     * Takes the user off the waitlist.
+     *
+     * @param id       The id of the entry.
+     * @param username The user the entry must belong to.
+     * @return The cancelled entry.
+     * @throws WaitlistEntryNotFoundException   If the user has no entry with this id.
+     * @throws WaitlistEntryNotWaitingException If the entry has already been assigned or cancelled.
+     */
+    @Transactional
+    public WaitlistEntryView cancel(Long id, String username) {
+        WaitlistEntryView entry = findEntry(id, username);
+        if (waitlistEntryDao.cancel(id, username) == 0) {
+            throw new WaitlistEntryNotWaitingException("Waitlist entry " + id + " is no longer waiting");
+        }
+        WaitlistEntryView cancelled = new WaitlistEntryView(entry.id(), entry.imei(), entry.model(),
+            WaitlistStatus.CANCELLED, null, entry.createdDate(), null);
+        eventPublisher.publishEvent(new WaitlistEntryChangedEvent(cancelled));
+        return cancelled;
+    }
+
+    /**
+     * Books phones that have just been returned to the oldest users waiting for them, as part of the returning
+     * transaction, and publishes their bookings. The caller updates the availability index.
+     *
+     * @param imeis The IMEIs of phones that are available in the current transaction.
+     * @return The user each handed over phone is now booked by, keyed by IMEI.
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public Map<String, String> handOver(Collection<String> imeis) {
+        return assign(imeis).stream()
+            .collect(Collectors.toMap(assignment -> assignment.entry().assignedImei(), Assignment::username));
+    }
+
+    /**
+     * Serves waiters of phones that became available without a handover.
+     */
+    @Scheduled(fixedDelayString = "${mobile-phone-reservation.waitlist.sweep-interval:5000}")
+    @Transactional
+    public void assignWaiting() {
+        if (!waitlistEntryDao.existsByStatus(WaitlistStatus.WAITING)) {
+            return;
+        }
+        List<String> imeis = waitlistEntryDao.findAvailableImeisWithWaiters(PageRequest.of(0, SWEEP_BATCH_SIZE));
+        if (!imeis.isEmpty()) {
+            int assigned = assignAndIndex(imeis).size();
+            log.debug("Assigned {} available phones to waiting users", assigned);
+        }
+    }
+
+    private WaitlistEntryEntity createEntry(String imei, String model, String username) {
+        WaitlistEntryEntity entry = new WaitlistEntryEntity();
+        entry.setImei(imei);
+        entry.setModel(model);
+        entry.setUsername(username);
+        entry.setStatus(WaitlistStatus.WAITING);
+        entry.setCreatedDate(new Date());
+        return waitlistEntryDao.save(entry);
+    }
+
+    private List<Assignment> assignAndIndex(Collection<String> imeis) {
+        List<Assignment> assigned = assign(imeis);
+        if (!assigned.isEmpty()) {
+            availabilityIndex.afterCompletion(committed -> {
+                if (committed) {
+                    assigned.forEach(assignment -> availabilityIndex.settle(assignment.lab(),
+                        assignment.entry().assignedImei(), assignment.observed(),
+                        PhoneState.booked(assignment.username())));
+                }
+            });
+        }
+        return assigned;
+    }
+
+    /**
+     * Matches available phones with waiting entries in FIFO order, then claims each entry and books its phone with
+     * conditional updates, so concurrent cancels and bookings are never overwritten. A phone reserved by another
+     * user right now is not handed over, and a handover ends when the next slot of another user starts.
+     *
+     * @return The entries that were assigned a phone.
+     */
+    private List<Assignment> assign(Collection<String> imeis) {
+        List<WaitlistEntryEntity> waiting =
+            waitlistEntryDao.findWaitingFor(imeis, PageRequest.of(0, imeis.size() * CANDIDATES_PER_PHONE));
+        if (waiting.isEmpty()) {
+            return List.of();
+        }
+        Map<String, MobilePhoneEntity> phones = mobilePhoneDao.findAllByImeiIn(imeis).stream()
+            .collect(Collectors.toMap(MobilePhoneEntity::getImei, Function.identity()));
+        Set<String> free = new LinkedHashSet<>(imeis);
+        List<Assignment> assigned = new ArrayList<>();
+        Date now = new Date();
+        for (WaitlistEntryEntity entry : waiting) {
+            String imei = pick(entry, free, phones);
+            if (imei == null) {
+                continue;
+            }
+            Slot nextSlot = slotIndex.nextOf(imei, entry.getUsername(), now.getTime());
+            if (nextSlot != null && nextSlot.start() <= now.getTime()
+                || waitlistEntryDao.assign(entry.getId(), imei, now) == 0) {
+                continue;
+            }
+            free.remove(imei);
+            String lab = phones.containsKey(imei) ? phones.get(imei).getLab() : null;
+            PhoneState observed = availabilityIndex.get(lab, imei);
+            Date leaseExpiresAt = nextSlot != null ? new Date(nextSlot.start()) : null;
+            if (mobilePhoneDao.bookByImei(imei, entry.getUsername(), now, leaseExpiresAt) == 0) {
+                // The phone was booked directly in the meantime, the entry keeps its place in the queue
+                waitlistEntryDao.unassign(entry.getId());
+                continue;
+            }
+            outboxService.enqueue(PhoneEventType.BOOKED, imei, entry.getUsername());
+            eventPublisher.publishEvent(
+                PhoneAvailabilityChangedEvent.booked(imei, entry.getUsername(), leaseExpiresAt));
+            WaitlistEntryView view = new WaitlistEntryView(entry.getId(), entry.getImei(), entry.getModel(),
+                WaitlistStatus.ASSIGNED, imei, entry.getCreatedDate(), now);
+            eventPublisher.publishEvent(new WaitlistEntryChangedEvent(view));
+            assigned.add(new Assignment(view, entry.getUsername(), lab, observed));
+            log.debug("Phone with IMEI: {} is handed to waiting user: {}", imei, entry.getUsername());
+            if (free.isEmpty()) {
+                break;
+            }
+        }
+        return assigned;
+    }
+
+    private static String pick(WaitlistEntryEntity entry, Set<String> free, Map<String, MobilePhoneEntity> phones) {
+        if (entry.getImei() != null) {
+            return free.contains(entry.getImei()) ? entry.getImei() : null;
+        }
+        return free.stream()
+            .filter(imei -> phones.containsKey(imei) && entry.getModel().equals(phones.get(imei).getModel()))
+            .findFirst()
+            .orElse(null);
+    }
+
+    private static WaitlistEntryView resultOf(WaitlistEntryEntity entry, List<Assignment> assigned) {
+        return assigned.stream()
+            .map(Assignment::entry)
+            .filter(view -> view.id().equals(entry.getId()))
+            .findFirst()
+            .orElseGet(() -> viewOf(entry));
+    }
+
+    private static WaitlistEntryView viewOf(WaitlistEntryEntity entry) {
+        return new WaitlistEntryView(entry.getId(), entry.getImei(), entry.getModel(), entry.getStatus(),
+            entry.getAssignedImei(), entry.getCreatedDate(), entry.getAssignedDate());
+    }
+}
@@ -0,0 +1,327 @@
+package com.example.stream;
+
+import com.example.config.StreamConfig;
+import com.example.model.dao.MobilePhoneDao;
+import com.example.model.dto.PhoneAvailability;
+import com.example.model.exception.FeatureDisabledException;
+import com.example.model.exception.StreamCapacityExceededException;
+import com.example.service.PhoneAvailabilityChangedEvent;
+import com.example.stream.ChangeLog.Change;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Streams committed availability changes to server-sent event subscribers.
+ * <p>
+ * A subscription starts with a snapshot of every phone, followed by one {@code change} event per booking or return.
+ * Event ids combine a per-process epoch with the sequence number of the change, so a client that reconnects with
+ * {@code Last-Event-ID} is replayed what it missed from the {@link ChangeLog}, or sent a new snapshot if that is no
+ * longer possible. Changes carry the full state of the phone, so seeing one twice is harmless.
+ * <p>
+ * Subscribers do not hold a thread. A single dispatcher thread decides what each subscriber is sent, and bursts of
+ * changes are coalesced into one pass over the subscribers. The sends themselves run on a small pool of sender threads,
+ * one at a time per subscriber, so a client that stops reading only blocks its own sender. Changes that arrive while
+ * a subscriber's send is running are sent together once it has completed. A send that takes longer than the send
+ * timeout drops the subscriber, and its sender stays blocked until the server gives up writing to the connection;
+ * while every sender is blocked, the other subscribers are only sent to once one is free again. The senders are
+ * platform threads because {@link SseEmitter} sends while holding its monitor, which would pin a virtual thread.
+ * <p>
+ * Whether the stream is enabled is checked on every subscription and change rather than when the application context
+ * is built, so the setting also applies to ahead-of-time compiled images.
+ */
+@Slf4j
+@Component
+public class AvailabilityStream {
+
+    private final MobilePhoneDao mobilePhoneDao;
+    private final StreamConfig streamConfig;
+    private final ObjectMapper objectMapper;
+    private final ChangeLog changeLog;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean dispatchPending = new AtomicBoolean();
+    private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "availability-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ThreadPoolExecutor senders;
+    private final Counter sendTimeouts;
+
+    private enum SendState {
+        IDLE,
+        SENDING,
+        /**
+         * The send is still running but took too long, the subscriber has been dropped.
+         */
+        TIMED_OUT
+    }
+
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final AtomicReference<SendState> sendState = new AtomicReference<>(SendState.IDLE);
+        /**
+         * The sequence of the last change sent, only written while a send is running.
+         */
+        private volatile long cursor;
+        /**
+         * When the running send was started, in {@link System#nanoTime()}.
+         */
+        private volatile long sendStartedAt;
+
+        private Subscriber(SseEmitter emitter, long cursor) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+        }
+    }
+
+    /**
+     * One send to a subscriber, run on a sender thread.
+     */
+    @FunctionalInterface
+    private interface Send {
+
+        void run() throws IOException;
+    }
+
+    public AvailabilityStream(MobilePhoneDao mobilePhoneDao, StreamConfig streamConfig, ObjectMapper objectMapper,
+        MeterRegistry meterRegistry) {
+        this.mobilePhoneDao = mobilePhoneDao;
+        this.streamConfig = streamConfig;
+        this.objectMapper = objectMapper;
+        this.changeLog = new ChangeLog(streamConfig.getBufferSize());
+        AtomicInteger senderCount = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(0, streamConfig.getSendThreads(), 60, TimeUnit.SECONDS,
+            new SynchronousQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "availability-stream-send-" + senderCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        Gauge.builder("stream.subscribers", subscribers, Set::size)
+            .description("Open availability stream subscriptions")
+            .register(meterRegistry);
+        this.sendTimeouts = Counter.builder("stream.send.timeouts")
+            .description("Availability stream subscribers dropped because a send to them took too long")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void startHeartbeat() {
+        long interval = streamConfig.getHeartbeatInterval().toMillis();
+        dispatcher.scheduleWithFixedDelay(this::heartbeat, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        dispatcher.shutdownNow();
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    /**
+     * Opens a subscription.
+     *
+     * @param lastEventId The id of the last event the client received, null for a new client.
+     * @return The emitter to return from the controller.
+     * @throws FeatureDisabledException        If the stream is disabled.
+     * @throws StreamCapacityExceededException If the maximum number of subscribers is reached.
+     * @throws IOException                     If the snapshot cannot be sent.
+     */
+    public SseEmitter subscribe(String lastEventId) throws IOException {
+        if (!streamConfig.isEnabled()) {
+            throw new FeatureDisabledException("The availability stream is disabled");
+        }
+        if (subscribers.size() >= streamConfig.getMaxSubscribers()) {
+            throw new StreamCapacityExceededException("Too many availability stream subscribers");
+        }
+        SseEmitter emitter = newEmitter(streamConfig.getTimeout().toMillis());
+        long resumeFrom = sequenceOf(lastEventId);
+        long cursor;
+        if (resumeFrom >= 0 && changeLog.since(resumeFrom) != null) {
+            cursor = resumeFrom;
+        } else {
+            // Changes committed while the snapshot is read are sent again afterwards
+            cursor = changeLog.lastSequence();
+            List<PhoneAvailability> phones = mobilePhoneDao.findAllAvailability();
+            emitter.send(SseEmitter.event()
+                .id(eventId(cursor))
+                .name("snapshot")
+                .data(objectMapper.writeValueAsString(phones)));
+        }
+        Subscriber subscriber = new Subscriber(emitter, cursor);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        requestDispatch();
+        return emitter;
+    }
+
+    @TransactionalEventListener
+    public void onAvailabilityChanged(PhoneAvailabilityChangedEvent event) {
+        if (!streamConfig.isEnabled()) {
+            return;
+        }
+        try {
+            changeLog.append(objectMapper.writeValueAsString(
+                new PhoneAvailability(event.imei(), event.available(), event.bookedBy())));
+        } catch (JsonProcessingException e) {
+            log.error("Serializing the availability change of IMEI: {} failed", event.imei(), e);
+            return;
+        }
+        if (!subscribers.isEmpty()) {
+            requestDispatch();
+        }
+    }
+
+    /**
+     * @param timeout How long the subscription stays open, in milliseconds.
+     */
+    SseEmitter newEmitter(long timeout) {
+        return new SseEmitter(timeout);
+    }
+
+    private void requestDispatch() {
+        if (dispatchPending.compareAndSet(false, true)) {
+            dispatcher.execute(this::dispatch);
+        }
+    }
+
+    private void dispatch() {
+        dispatchPending.set(false);
+        long now = System.nanoTime();
+        // Most subscribers are at the same position, so the changes are only collected once per position
+        Map<Long, List<Change>> pending = new HashMap<>();
+        for (Subscriber subscriber : subscribers) {
+            if (isSending(subscriber, now)) {
+                continue;
+            }
+            List<Change> changes = pending.computeIfAbsent(subscriber.cursor, changeLog::since);
+            if (changes == null) {
+                // Fell too far behind, the client reconnects and starts over from a snapshot
+                drop(subscriber, null);
+                continue;
+            }
+            if (!changes.isEmpty()) {
+                send(subscriber, () -> {
+                    for (Change change : changes) {
+                        subscriber.emitter.send(SseEmitter.event()
+                            .id(eventId(change.sequence()))
+                            .name("change")
+                            .data(change.payload()));
+                        subscriber.cursor = change.sequence();
+                    }
+                });
+            }
+        }
+    }
+
+    private void heartbeat() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            if (!isSending(subscriber, now)) {
+                send(subscriber, () -> subscriber.emitter.send(SseEmitter.event().comment("heartbeat")));
+            }
+        }
+    }
+
+    /**
+     * Runs the send on a sender thread, unless every sender is busy, in which case the subscriber is tried again on
+     * the next dispatch or heartbeat. Only called on the dispatcher thread, for a subscriber that is not sending.
+     */
+    private void send(Subscriber subscriber, Send send) {
+        subscriber.sendStartedAt = System.nanoTime();
+        subscriber.sendState.set(SendState.SENDING);
+        try {
+            senders.execute(() -> {
+                try {
+                    send.run();
+                } catch (IOException | IllegalStateException e) {
+                    drop(subscriber, e);
+                    return;
+                } finally {
+                    if (!subscriber.sendState.compareAndSet(SendState.SENDING, SendState.IDLE)) {
+                        // Dropped for taking too long, the emitter could not be completed while the send held it
+                        subscriber.emitter.complete();
+                    }
+                }
+                if (subscriber.cursor < changeLog.lastSequence()) {
+                    requestDispatch();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            subscriber.sendState.set(SendState.IDLE);
+        }
+    }
+
+    /**
+     * @return Whether a send to the subscriber is running. One running for longer than the send timeout drops the
+     * subscriber.
+     */
+    private boolean isSending(Subscriber subscriber, long now) {
+        if (subscriber.sendState.get() == SendState.IDLE) {
+            return false;
+        }
+        if (now - subscriber.sendStartedAt > streamConfig.getSendTimeout().toNanos()
+            && subscriber.sendState.compareAndSet(SendState.SENDING, SendState.TIMED_OUT)) {
+            subscribers.remove(subscriber);
+            sendTimeouts.increment();
+            log.debug("Dropping availability stream subscriber, a send took longer than {}",
+                streamConfig.getSendTimeout());
+        }
+        return true;
+    }
+
+    private void drop(Subscriber subscriber, Exception cause) {
+        subscribers.remove(subscriber);
+        if (cause == null) {
+            subscriber.emitter.complete();
+        } else {
+            log.debug("Dropping availability stream subscriber: {}", cause.getMessage());
+            subscriber.emitter.completeWithError(cause);
+        }
+    }
+
+    private String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    /**
+     * @return The sequence number in an event id of this process, -1 if there is none.
+     */
+    private long sequenceOf(String eventId) {
+        if (eventId == null || !eventId.startsWith(epoch + "-")) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(epoch.length() + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.stream;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed-size ring of the most recent changes, numbered with consecutive sequence numbers starting at 1.
+ */
+class ChangeLog {
+
+    record Change(long sequence, String payload) {
+
+    }
+
+    private final String[] payloads;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long lastSequence;
+
+    ChangeLog(int capacity) {
+        this.payloads = new String[capacity];
+    }
+
+    /**
+     * @param payload The serialized change.
+     * @return The sequence number of the change.
+     */
+    long append(String payload) {
+        lock.lock();
+        try {
+            long sequence = ++lastSequence;
+            payloads[index(sequence)] = payload;
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long lastSequence() {
+        lock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param sequence The sequence number of the last change already seen.
+     * @return The changes after it in order, or null if some of them have already been overwritten.
+     */
+    List<Change> since(long sequence) {
+        lock.lock();
+        try {
+            if (sequence < 0 || sequence > lastSequence || lastSequence - sequence > payloads.length) {
+                return null;
+            }
+            List<Change> changes = new ArrayList<>((int) (lastSequence - sequence));
+            for (long next = sequence + 1; next <= lastSequence; next++) {
+                changes.add(new Change(next, payloads[index(next)]));
+            }
+            return changes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % payloads.length);
+    }
+}
@@ -0,0 +1,67 @@
+-- Schema of the prod profile, the default profile still lets Hibernate create it from the entities.
+-- Keep the two in step: every change of an entity or of its indexes needs a new migration.
+
+CREATE TABLE mobile_phone (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    imei             VARCHAR(255),
+    is_available     BOOLEAN NOT NULL,
+    booked_date      TIMESTAMP(6),
+    model            VARCHAR(255),
+    booked_by        VARCHAR(255),
+    lease_expires_at TIMESTAMP(6),
+    version          BIGINT DEFAULT 0 NOT NULL
+);
+CREATE UNIQUE INDEX ux_mobile_phone_imei ON mobile_phone (imei);
+CREATE INDEX ix_mobile_phone_available_model ON mobile_phone (is_available, model, id);
+CREATE INDEX ix_mobile_phone_model ON mobile_phone (model, id);
+CREATE INDEX ix_mobile_phone_booked_by ON mobile_phone (booked_by, id);
+CREATE INDEX ix_mobile_phone_lease ON mobile_phone (lease_expires_at);
+
+-- Ids are allocated 50 at a time, matching the allocation size of OutboxEventEntity
+CREATE SEQUENCE outbox_event_seq START WITH 1 INCREMENT BY 50;
+CREATE TABLE outbox_event (
+    id            BIGINT NOT NULL PRIMARY KEY,
+    exchange_name VARCHAR(255),
+    routing_key   VARCHAR(255),
+    event_type    VARCHAR(16),
+    imei          VARCHAR(255),
+    model         VARCHAR(255),
+    username      VARCHAR(255),
+    created_date  TIMESTAMP(6)
+);
+
+CREATE TABLE waitlist_entry (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    imei          VARCHAR(255),
+    model         VARCHAR(255),
+    username      VARCHAR(255),
+    status        VARCHAR(16),
+    created_date  TIMESTAMP(6),
+    assigned_imei VARCHAR(255),
+    assigned_date TIMESTAMP(6)
+);
+CREATE INDEX ix_waitlist_entry_imei ON waitlist_entry (status, imei, id);
+CREATE INDEX ix_waitlist_entry_model ON waitlist_entry (status, model, id);
+CREATE INDEX ix_waitlist_entry_username ON waitlist_entry (username, status);
+
+CREATE TABLE reservation_history (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    imei          VARCHAR(255),
+    username      VARCHAR(255),
+    booked_date   TIMESTAMP(6),
+    returned_date TIMESTAMP(6)
+);
+CREATE INDEX ix_reservation_history_booked ON reservation_history (booked_date);
+CREATE INDEX ix_reservation_history_returned ON reservation_history (returned_date);
+CREATE INDEX ix_reservation_history_imei ON reservation_history (imei, returned_date);
+
+CREATE TABLE slot_reservation (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    imei       VARCHAR(255),
+    username   VARCHAR(255),
+    start_time TIMESTAMP(6),
+    end_time   TIMESTAMP(6)
+);
+CREATE INDEX ix_slot_reservation_imei ON slot_reservation (imei, start_time);
+CREATE INDEX ix_slot_reservation_end ON slot_reservation (end_time);
+CREATE INDEX ix_slot_reservation_username ON slot_reservation (username, id);
@@ -0,0 +1,30 @@
+-- The phones of data.sql, inserted once when the database is created instead of on every start
+INSERT INTO mobile_phone (model, imei, is_available)
+VALUES ('Samsung Galaxy S9', '111111111111111', true);
+
+INSERT INTO mobile_phone (model, imei, is_available)
+VALUES ('Samsung Galaxy S8', '222222222222222', false);
+
+INSERT INTO mobile_phone (model, imei, is_available)
+VALUES ('Samsung Galaxy S8', '333333333333333', true);
+
+INSERT INTO mobile_phone (model, imei, is_available)
+VALUES ('Motorola Nexus 6', '444444444444444', true);
+
+INSERT INTO mobile_phone (model, imei, is_available)
+VALUES ('Oneplus 9', '555555555555555', true);
+
+INSERT INTO mobile_phone (model, imei, is_available)
+VALUES ('Apple iPhone 13', '666666666666666', true);
+
+INSERT INTO mobile_phone (model, imei, is_available)
+VALUES ('Apple iPhone 12', '777777777777777', true);
+
+INSERT INTO mobile_phone (model, imei, is_available)
+VALUES ('Apple iPhone 11', '888888888888888', true);
+
+INSERT INTO mobile_phone (model, imei, is_available)
+VALUES ('iPhone X', '999999999999999', true);
+
+INSERT INTO mobile_phone (model, imei, is_available)
+VALUES ('Nokia 3310', '000000000000000', true);
@@ -0,0 +1,10 @@
+CREATE TABLE idempotency_record (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username        VARCHAR(255),
+    idempotency_key VARCHAR(64),
+    event_type      VARCHAR(16),
+    imei            VARCHAR(255),
+    created_date    TIMESTAMP(6)
+);
+CREATE UNIQUE INDEX ux_idempotency_record_key ON idempotency_record (username, idempotency_key);
+CREATE INDEX ix_idempotency_record_created ON idempotency_record (created_date);
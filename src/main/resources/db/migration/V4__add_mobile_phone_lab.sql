@@ -0,0 +1,4 @@
+-- Phones added before labs were introduced belong to the default lab
+ALTER TABLE mobile_phone ADD COLUMN lab VARCHAR(64) DEFAULT 'default' NOT NULL;
+CREATE INDEX ix_mobile_phone_lab ON mobile_phone (lab, id);
+CREATE INDEX ix_mobile_phone_lab_available_model ON mobile_phone (lab, is_available, model, id);
@@ -0,0 +1,63 @@
+package com.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import com.example.service.ReservationService;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Starts the application with the prod profile twice against the same database file: the first start creates the
+ * schema with the Flyway migrations and seeds the phones, the second finds the booking made by the first and applies
+ * nothing again.
+ */
+public class SchemaMigrationIT {
+
+    private static final String IMEI = "111111111111111";
+
+    @TempDir
+    Path dataDirectory;
+
+    @Test
+    public void testDatabaseSurvivesRestart() {
+        try (ConfigurableApplicationContext context = start()) {
+            assertEquals(4, appliedMigrations(context));
+            context.getBean(ReservationService.class).bookPhone(IMEI, "user");
+        }
+
+        try (ConfigurableApplicationContext context = start()) {
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            assertEquals(4, appliedMigrations(context));
+            assertEquals(10, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM mobile_phone", Integer.class));
+            assertFalse(jdbcTemplate.queryForObject(
+                "SELECT is_available FROM mobile_phone WHERE imei = ?", Boolean.class, IMEI));
+            assertEquals("user", jdbcTemplate.queryForObject(
+                "SELECT booked_by FROM mobile_phone WHERE imei = ?", String.class, IMEI));
+
+            context.getBean(ReservationService.class).returnPhone(IMEI);
+        }
+    }
+
+    private ConfigurableApplicationContext start() {
+        // The test profile leaves out the broker beans
+        return new SpringApplicationBuilder(Main.class)
+            .profiles("prod", "test")
+            .run("--server.port=0",
+                "--spring.datasource.url=jdbc:h2:file:" + dataDirectory.resolve("mobile-phone-reservation"),
+                "--logging.file.name=" + dataDirectory.resolve("application.log"),
+                "--logging.level.root=warn",
+                "--logging.level.com.example=warn");
+    }
+
+    // The history also holds a row for creating itself, which has no version
+    private static int appliedMigrations(ConfigurableApplicationContext context) {
+        return context.getBean(JdbcTemplate.class).queryForObject(
+            "SELECT COUNT(*) FROM \"flyway_schema_history\" WHERE \"version\" IS NOT NULL AND \"success\" = TRUE",
+            Integer.class);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+public class AdaptiveConcurrencyLimitTest {
+
+    private static final long WINDOW = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    public void testRejectsOnceTheLimitIsReached() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, 2.0, WINDOW, clock::get);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        assertEquals(2, limit.getInFlight());
+
+        limit.release(FAST);
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    public void testGrowsWhileLatencyStaysLow() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 10, 2.0, WINDOW, clock::get);
+
+        for (int window = 0; window < 3; window++) {
+            runWindow(limit, limit.getLimit(), FAST);
+        }
+
+        assertEquals(7, limit.getLimit());
+    }
+
+    @Test
+    public void testDoesNotGrowWhenTheLimitIsNotUsed() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 10, 2.0, WINDOW, clock::get);
+
+        for (int window = 0; window < 3; window++) {
+            runWindow(limit, 1, FAST);
+        }
+
+        assertEquals(4, limit.getLimit());
+    }
+
+    @Test
+    public void testShrinksWhenLatencyGrows() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 4, 20, 2.0, WINDOW, clock::get);
+        runWindow(limit, 1, FAST);
+        assertEquals(10, limit.getLimit());
+
+        runWindow(limit, 1, SLOW);
+        assertEquals(9, limit.getLimit());
+
+        for (int window = 0; window < 10; window++) {
+            runWindow(limit, 1, SLOW);
+        }
+        assertEquals(4, limit.getLimit());
+    }
+
+    /**
+     * Lets in the given number of requests at once, completes them with the given latency and ends the window.
+     */
+    private void runWindow(AdaptiveConcurrencyLimit limit, int requests, long latency) {
+        for (int i = 0; i < requests; i++) {
+            assertTrue(limit.tryAcquire());
+        }
+        for (int i = 0; i < requests - 1; i++) {
+            limit.release(latency);
+        }
+        clock.addAndGet(WINDOW);
+        limit.release(latency);
+    }
+}
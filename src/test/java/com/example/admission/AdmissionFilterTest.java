@@ -0,0 +1,87 @@
+package com.example.admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.example.config.AdmissionConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+public class AdmissionFilterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AdaptiveConcurrencyLimit concurrencyLimit =
+        new AdaptiveConcurrencyLimit(1, 1, 1, 2.0, TimeUnit.MILLISECONDS.toNanos(100), clock::get);
+
+    private AdmissionFilter admissionFilter;
+
+    @BeforeEach
+    public void setup() {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("user", "password"));
+        admissionFilter = new AdmissionFilter(new TokenBucketRateLimiter(0.5, 2, 4, 100, clock::get),
+            concurrencyLimit, new AdmissionConfig(), meterRegistry);
+    }
+
+    @AfterEach
+    public void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void testRateLimitedRequestIsRejected() throws Exception {
+        assertEquals(200, serve("/api/mobile/111111111111111/book").getStatus());
+        assertEquals(200, serve("/api/mobile/111111111111111/return").getStatus());
+
+        MockHttpServletResponse response = serve("/api/mobile/111111111111111/book");
+
+        assertEquals(429, response.getStatus());
+        assertEquals("2", response.getHeader("Retry-After"));
+        assertEquals(1, rejected("rate-limit"));
+    }
+
+    @Test
+    public void testRequestOverTheConcurrencyLimitIsShed() throws Exception {
+        concurrencyLimit.tryAcquire();
+
+        MockHttpServletResponse response = serve("/api/mobile");
+
+        assertEquals(503, response.getStatus());
+        assertEquals("1", response.getHeader("Retry-After"));
+        assertEquals(1, rejected("overload"));
+    }
+
+    @Test
+    public void testPermitIsReleasedAfterTheRequest() throws Exception {
+        serve("/api/mobile");
+
+        assertEquals(0, concurrencyLimit.getInFlight());
+    }
+
+    @Test
+    public void testOnlyApiRequestsAreLimited() throws Exception {
+        concurrencyLimit.tryAcquire();
+
+        assertEquals(200, serve("/actuator/health").getStatus());
+        assertEquals(200, serve("/api/mobile/stream").getStatus());
+        assertEquals(0, rejected("overload"));
+    }
+
+    private MockHttpServletResponse serve(String path) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        admissionFilter.doFilter(new MockHttpServletRequest("POST", path), response, new MockFilterChain());
+        return response;
+    }
+
+    private double rejected(String reason) {
+        return meterRegistry.get("admission.rejected").tag("reason", reason).counter().count();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+public class TokenBucketRateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    public void testBurstThenRate() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 3, 4, 100, clock::get);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("user"));
+        }
+        long wait = limiter.tryAcquire("user");
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), wait, 1);
+
+        clock.addAndGet(wait);
+        assertEquals(0, limiter.tryAcquire("user"));
+        assertTrue(limiter.tryAcquire("user") > 0);
+    }
+
+    @Test
+    public void testUsersHaveTheirOwnBuckets() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 1, 4, 100, clock::get);
+
+        assertEquals(0, limiter.tryAcquire("user"));
+        assertTrue(limiter.tryAcquire("user") > 0);
+        assertEquals(0, limiter.tryAcquire("user2"));
+    }
+
+    @Test
+    public void testIdleBucketRefillsUpToTheBurst() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(100, 2, 4, 100, clock::get);
+        limiter.tryAcquire("user");
+        limiter.tryAcquire("user");
+
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(1));
+
+        assertEquals(0, limiter.tryAcquire("user"));
+        assertEquals(0, limiter.tryAcquire("user"));
+        assertTrue(limiter.tryAcquire("user") > 0);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedBucketsAreForgotten() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 1, 1, 2, clock::get);
+        limiter.tryAcquire("user");
+        limiter.tryAcquire("user2");
+        limiter.tryAcquire("user3");
+
+        // user was forgotten to make room for user3, its bucket starts full again
+        assertEquals(0, limiter.tryAcquire("user"));
+        assertTrue(limiter.tryAcquire("user3") > 0);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.async;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.config.AsyncConfig;
+import com.example.metrics.ReservationMetrics.Operation;
+import com.example.model.exception.MobilePhoneNotAvailableException;
+import com.example.model.exception.ReservationQueueFullException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.context.request.async.DeferredResult;
+
+public class ReservationExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private ReservationExecutor reservationExecutor;
+
+    @BeforeEach
+    public void setup() {
+        AsyncConfig asyncConfig = new AsyncConfig();
+        asyncConfig.setThreads(1);
+        asyncConfig.setQueueCapacity(1);
+        reservationExecutor = new ReservationExecutor(asyncConfig, meterRegistry);
+    }
+
+    @AfterEach
+    public void stop() throws InterruptedException {
+        release.countDown();
+        reservationExecutor.stop();
+    }
+
+    @Test
+    public void testResultIsSetOffTheCallingThread() throws Exception {
+        Thread caller = Thread.currentThread();
+
+        DeferredResult<Boolean> result = reservationExecutor.submit(Operation.BOOK,
+            () -> Thread.currentThread() != caller);
+
+        assertEquals(true, await(result));
+        assertEquals(1, meterRegistry.get("reservation.async.wait").tag("operation", "book").timer().count());
+        // Recorded just after the result is set
+        reservationExecutor.stop();
+        assertEquals(1, meterRegistry.get("reservation.async").tags("operation", "book", "outcome", "completed")
+            .timer().count());
+    }
+
+    @Test
+    public void testExceptionBecomesTheErrorResult() throws Exception {
+        MobilePhoneNotAvailableException exception = new MobilePhoneNotAvailableException("taken");
+
+        DeferredResult<Object> result = reservationExecutor.submit(Operation.RETURN, () -> {
+            throw exception;
+        });
+
+        assertSame(exception, await(result));
+    }
+
+    @Test
+    public void testFullQueueIsRejected() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        reservationExecutor.submit(Operation.BOOK, () -> {
+            running.countDown();
+            return awaitRelease();
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        reservationExecutor.submit(Operation.BOOK, this::awaitRelease);
+
+        assertEquals(1.0, meterRegistry.get("reservation.async.queue").gauge().value());
+        assertThrows(ReservationQueueFullException.class,
+            () -> reservationExecutor.submit(Operation.BOOK, this::awaitRelease));
+        assertEquals(1, meterRegistry.get("reservation.async.rejected").counter().count());
+    }
+
+    private boolean awaitRelease() {
+        try {
+            return release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static Object await(DeferredResult<?> result) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!result.hasResult() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        return result.getResult();
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+public class ExpiringCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    public void testEntryExpires() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10, 100, clock::get);
+        cache.put("a", "1");
+
+        clock.set(99);
+        assertEquals("1", cache.get("a"));
+        clock.set(100);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testFullCachePurgesExpiredEntriesFirst() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(2, 100, clock::get);
+        cache.put("a", "1");
+        clock.set(50);
+        cache.put("b", "2");
+        clock.set(120);
+
+        cache.put("c", "3");
+
+        assertNull(cache.get("a"));
+        assertEquals("2", cache.get("b"));
+        assertEquals("3", cache.get("c"));
+    }
+
+    @Test
+    public void testSizeIsBounded() {
+        ExpiringCache<Integer, Integer> cache = new ExpiringCache<>(3, 100, clock::get);
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, i);
+        }
+
+        assertEquals(3, cache.size());
+        assertEquals(9, cache.get(9));
+    }
+
+    @Test
+    public void testFullCacheDropsOldestEntry() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(2, 100, clock::get);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("a", "3");
+
+        cache.put("c", "4");
+
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("a"));
+        assertEquals("4", cache.get("c"));
+    }
+
+    @Test
+    public void testSizeIsBoundedUnderConcurrentWrites() throws InterruptedException {
+        ExpiringCache<Integer, Integer> cache = new ExpiringCache<>(100, Long.MAX_VALUE / 2);
+        Thread[] writers = new Thread[8];
+        for (int w = 0; w < writers.length; w++) {
+            int offset = w * 10_000;
+            writers[w] = Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    cache.put(offset + i, i);
+                }
+            });
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertEquals(100, cache.size());
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MultiInstanceGuardTest {
+
+    private final MultiInstanceConfig multiInstanceConfig = new MultiInstanceConfig();
+    private final AvailabilityIndexConfig availabilityIndexConfig = new AvailabilityIndexConfig();
+    private final SlotConfig slotConfig = new SlotConfig();
+    private final StreamConfig streamConfig = new StreamConfig();
+    private final WaitlistConfig waitlistConfig = new WaitlistConfig();
+    private final CredentialCacheConfig credentialCacheConfig = new CredentialCacheConfig();
+
+    private MultiInstanceGuard multiInstanceGuard;
+
+    @BeforeEach
+    public void setup() {
+        multiInstanceGuard = new MultiInstanceGuard(multiInstanceConfig, availabilityIndexConfig, slotConfig,
+            streamConfig, waitlistConfig, credentialCacheConfig);
+    }
+
+    @Test
+    public void testSingleInstanceKeepsEveryFeature() {
+        assertDoesNotThrow(multiInstanceGuard::check);
+    }
+
+    @Test
+    public void testMultiInstanceRefusesFeaturesKeptInMemory() {
+        multiInstanceConfig.setEnabled(true);
+        slotConfig.setEnabled(false);
+        streamConfig.setEnabled(false);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, multiInstanceGuard::check);
+
+        assertEquals("Several instances cannot share the database while features that keep their state in memory "
+            + "are enabled, set to false: mobile-phone-reservation.availability-index.enabled, "
+            + "mobile-phone-reservation.waitlist.long-poll-enabled, "
+            + "mobile-phone-reservation.security.credential-cache.enabled", e.getMessage());
+    }
+
+    @Test
+    public void testMultiInstanceStartsWithFeaturesKeptInMemoryDisabled() {
+        multiInstanceConfig.setEnabled(true);
+        availabilityIndexConfig.setEnabled(false);
+        slotConfig.setEnabled(false);
+        streamConfig.setEnabled(false);
+        waitlistConfig.setLongPollEnabled(false);
+        credentialCacheConfig.setEnabled(false);
+
+        assertDoesNotThrow(multiInstanceGuard::check);
+    }
+}
@@ -1,11 +1,14 @@
 package com.example.controller;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.example.Main;
 import com.example.config.ApplicationConfig;
 import com.example.config.RabbitMQConfig;
+import com.example.model.dto.PhoneEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -14,9 +17,11 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.Binding.DestinationType;
-import org.springframework.amqp.core.DirectExchange;
 import org.springframework.amqp.core.Exchange;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
 import org.springframework.amqp.rabbit.core.RabbitAdmin;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -50,6 +55,9 @@ public class MobilePhoneControllerIT {
 
     private final static String RABBIT_RETURN_QUEUE = "return-phone-queue";
     private final static String RABBIT_BOOK_QUEUE = "book-phone-queue";
+    // messages are published by the outbox relay after the booking commits
+    private final static long RECEIVE_TIMEOUT = 5000;
+    private final static long NO_MESSAGE_TIMEOUT = 500;
 
 
     @Autowired
@@ -74,6 +82,9 @@ public class MobilePhoneControllerIT {
     @Autowired
     RabbitAdmin rabbitAdmin;
 
+    @Autowired
+    ObjectMapper objectMapper;
+
     @BeforeClass
     public static void setup() {
         container = new RabbitMQContainer("rabbitmq:3-management");
@@ -89,19 +100,19 @@ public class MobilePhoneControllerIT {
     @Before
     public void init() {
         if (!queuesInitialised) {
-            Exchange retrunPhoneExchange = new DirectExchange(applicationConfig.getReturnPhoneExchange());
+            Exchange retrunPhoneExchange = new TopicExchange(applicationConfig.getReturnPhoneTopicExchange());
             Queue returnQueue = new Queue(RABBIT_RETURN_QUEUE);
             Binding returnQueueExchangBinding = new Binding(returnQueue.getName(), DestinationType.QUEUE,
-                retrunPhoneExchange.getName(), "", null);
+                retrunPhoneExchange.getName(), "phone.returned.#", null);
 
             rabbitAdmin.declareExchange(retrunPhoneExchange);
             rabbitAdmin.declareQueue(returnQueue);
             rabbitAdmin.declareBinding(returnQueueExchangBinding);
 
-            Exchange bookPhoneExchange = new DirectExchange(applicationConfig.getBookPhoneExchange());
+            Exchange bookPhoneExchange = new TopicExchange(applicationConfig.getBookPhoneTopicExchange());
             Queue bookQueue = new Queue(RABBIT_BOOK_QUEUE);
             Binding bookQueueExchangBinding = new Binding(bookQueue.getName(), DestinationType.QUEUE,
-                bookPhoneExchange.getName(), "", null);
+                bookPhoneExchange.getName(), "phone.booked.#", null);
 
             rabbitAdmin.declareExchange(bookPhoneExchange);
             rabbitAdmin.declareQueue(bookQueue);
@@ -133,8 +144,17 @@ public class MobilePhoneControllerIT {
         mockMvc.perform(post("/api/mobile/" + imei + "/book")
                 .contentType(MediaType.APPLICATION_JSON))
             .andExpect(status().isOk());
-        Assert.assertEquals(imei + " is booked",
-            rabbitTemplate.receiveAndConvert(RABBIT_BOOK_QUEUE));
+        Message message = rabbitTemplate.receive(RABBIT_BOOK_QUEUE, RECEIVE_TIMEOUT);
+        Assert.assertNotNull(message);
+        Assert.assertEquals("phone.booked.samsung-galaxy-s9", message.getMessageProperties().getReceivedRoutingKey());
+        Assert.assertEquals(MessageProperties.CONTENT_TYPE_JSON, message.getMessageProperties().getContentType());
+        PhoneEvent event = objectMapper.readValue(message.getBody(), PhoneEvent.class);
+        Assert.assertEquals(PhoneEvent.VERSION, event.version());
+        Assert.assertEquals("phone.booked", event.type());
+        Assert.assertEquals(imei, event.imei());
+        Assert.assertEquals("Samsung Galaxy S9", event.model());
+        Assert.assertEquals("user", event.user());
+        Assert.assertEquals(String.valueOf(event.sequence()), message.getMessageProperties().getMessageId());
     }
 
     @WithMockUser(username = "user", authorities = {"USER"})
@@ -143,7 +163,7 @@ public class MobilePhoneControllerIT {
         mockMvc.perform(post("/api/mobile/322222222222222/book")
                 .contentType(MediaType.APPLICATION_JSON))
             .andExpect(status().isConflict());
-        String message = (String) rabbitTemplate.receiveAndConvert(RABBIT_BOOK_QUEUE);
+        Message message = rabbitTemplate.receive(RABBIT_BOOK_QUEUE, NO_MESSAGE_TIMEOUT);
         Assert.assertNull(message);
 
     }
@@ -154,7 +174,7 @@ public class MobilePhoneControllerIT {
         mockMvc.perform(post("/api/mobile/aaaa/book")
                 .contentType(MediaType.APPLICATION_JSON))
             .andExpect(status().isNotFound());
-        String message = (String) rabbitTemplate.receiveAndConvert(RABBIT_BOOK_QUEUE);
+        Message message = rabbitTemplate.receive(RABBIT_BOOK_QUEUE, NO_MESSAGE_TIMEOUT);
         Assert.assertNull(message);
     }
 
@@ -163,10 +183,23 @@ public class MobilePhoneControllerIT {
         mockMvc.perform(post("/api/mobile/aaaa/book")
                 .contentType(MediaType.APPLICATION_JSON))
             .andExpect(status().isUnauthorized());
-        String message = (String) rabbitTemplate.receiveAndConvert(RABBIT_BOOK_QUEUE);
+        Message message = rabbitTemplate.receive(RABBIT_BOOK_QUEUE, NO_MESSAGE_TIMEOUT);
         Assert.assertNull(message);
     }
 
+    @Test
+    public void testPrometheusNotAuthorized() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus"))
+            .andExpect(status().isUnauthorized());
+    }
+
+    @WithMockUser(username = "user", authorities = {"USER"})
+    @Test
+    public void testPrometheusAuthorized() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus"))
+            .andExpect(status().isOk());
+    }
+
 
     @WithMockUser(username = "user", authorities = {"USER"})
     @Test
@@ -175,8 +208,14 @@ public class MobilePhoneControllerIT {
         mockMvc.perform(post("/api/mobile/" + imei + "/return")
                 .contentType(MediaType.APPLICATION_JSON))
             .andExpect(status().isOk());
-        String message = (String) rabbitTemplate.receiveAndConvert(RABBIT_RETURN_QUEUE);
-        Assert.assertEquals(imei + " is returned", message);
+        Message message = rabbitTemplate.receive(RABBIT_RETURN_QUEUE, RECEIVE_TIMEOUT);
+        Assert.assertNotNull(message);
+        Assert.assertEquals("phone.returned.samsung-galaxy-s8",
+            message.getMessageProperties().getReceivedRoutingKey());
+        PhoneEvent event = objectMapper.readValue(message.getBody(), PhoneEvent.class);
+        Assert.assertEquals("phone.returned", event.type());
+        Assert.assertEquals(imei, event.imei());
+        Assert.assertNull(event.user());
     }
 
     @WithMockUser(username = "user", authorities = {"USER"})
@@ -185,7 +224,7 @@ public class MobilePhoneControllerIT {
         mockMvc.perform(post("/api/mobile/422222222222222/return")
                 .contentType(MediaType.APPLICATION_JSON))
             .andExpect(status().isConflict());
-        String message = (String) rabbitTemplate.receiveAndConvert(RABBIT_RETURN_QUEUE);
+        Message message = rabbitTemplate.receive(RABBIT_RETURN_QUEUE, NO_MESSAGE_TIMEOUT);
         Assert.assertNull(message);
 
     }
@@ -197,7 +236,7 @@ public class MobilePhoneControllerIT {
         mockMvc.perform(post("/api/mobile/aaaa/return")
                 .contentType(MediaType.APPLICATION_JSON))
             .andExpect(status().isNotFound());
-        String message = (String) rabbitTemplate.receiveAndConvert(RABBIT_RETURN_QUEUE);
+        Message message = rabbitTemplate.receive(RABBIT_RETURN_QUEUE, NO_MESSAGE_TIMEOUT);
         Assert.assertNull(message);
 
     }
@@ -3,14 +3,28 @@ package com.example.controller;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
-
+import static org.mockito.Mockito.when;
+
+import com.example.config.RetryConfig;
+import com.example.metrics.ReservationMetrics;
+import com.example.metrics.ReservationMetrics.Operation;
+import com.example.model.dto.BulkMode;
+import com.example.model.dto.BulkReservationRequest;
+import com.example.model.dto.ReservationOutcome;
+import com.example.model.dto.ReservationResult;
 import com.example.model.exception.MobilePhoneNotAvailableException;
 import com.example.model.exception.MobilePhoneNotBookedException;
 import com.example.model.exception.MobilePhoneNotFoundException;
+import com.example.service.ConcurrencyRetry;
+import com.example.service.IdempotencyService;
+import com.example.service.InventoryService;
 import com.example.service.ReservationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
 import org.junit.Before;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -19,8 +33,12 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.dao.CannotAcquireLockException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -29,9 +47,18 @@ public class MobilePhoneControllerTest {
 
     @Mock
     private ReservationService reservationService;
+    @Mock
+    private InventoryService inventoryService;
+    @Mock
+    private IdempotencyService idempotencyService;
+    @Spy
+    private ConcurrencyRetry concurrencyRetry =
+        new ConcurrencyRetry(new RetryConfig(), new ReservationMetrics(new SimpleMeterRegistry()));
     @InjectMocks
     private MobilePhoneController mobilePhoneController;
 
+    private final RestExceptionHandler restExceptionHandler = new RestExceptionHandler();
+
     @Mock
     private Authentication authentication;
 
@@ -49,11 +76,11 @@ public class MobilePhoneControllerTest {
     @Test
     public void testBookPhoneSuccess() {
 
-        doNothing().when(reservationService).bookPhone(any(), any());
+        doNothing().when(reservationService).bookPhone(any(), any(), any());
 
-        ResponseEntity<String> response = mobilePhoneController.bookPhone("123456789012345");
+        ResponseEntity<String> response = mobilePhoneController.bookPhone("123456789012345", null, null);
 
-        verify(reservationService, times(1)).bookPhone(any(), any());
+        verify(reservationService, times(1)).bookPhone(any(), any(), any());
         verify(authentication, times(1)).getName();
         verifyNoMoreInteractions(reservationService);
 
@@ -68,11 +95,14 @@ public class MobilePhoneControllerTest {
     public void testBookPhoneNotFound() {
 
 
-        doThrow(new MobilePhoneNotFoundException("Imei not found")).when(reservationService).bookPhone(any(), any());
+        doThrow(new MobilePhoneNotFoundException("Imei not found")).when(reservationService)
+            .bookPhone(any(), any(), any());
 
-        ResponseEntity<String> response = mobilePhoneController.bookPhone("123456789012345");
+        MobilePhoneNotFoundException exception = Assertions.assertThrows(MobilePhoneNotFoundException.class,
+            () -> mobilePhoneController.bookPhone("123456789012345", null, null));
+        ResponseEntity<String> response = restExceptionHandler.handleNotFound(exception);
 
-        verify(reservationService, times(1)).bookPhone(any(), any());
+        verify(reservationService, times(1)).bookPhone(any(), any(), any());
         verifyNoMoreInteractions(reservationService);
 
         // Assert the response
@@ -86,27 +116,48 @@ public class MobilePhoneControllerTest {
     public void testBookPhoneNotAvailable() {
 
         doThrow(new MobilePhoneNotAvailableException("Imei not available")).when(reservationService)
-            .bookPhone(any(), any());
+            .bookPhone(any(), any(), any());
 
-        ResponseEntity<String> response = mobilePhoneController.bookPhone("123456789012345");
+        MobilePhoneNotAvailableException exception = Assertions.assertThrows(MobilePhoneNotAvailableException.class,
+            () -> mobilePhoneController.bookPhone("123456789012345", null, null));
+        ResponseEntity<String> response = restExceptionHandler.handleConflict(exception);
 
-        verify(reservationService, times(1)).bookPhone(any(), any());
+        verify(reservationService, times(1)).bookPhone(any(), any(), any());
         verifyNoMoreInteractions(reservationService);
 
         // Assert the response
         Assertions.assertNotNull(response);
         Assertions.assertEquals("Imei not available", response.getBody());
+        // Conflicts are expected, so they are cheap to create
+        Assertions.assertEquals(0, exception.getStackTrace().length);
         Assertions.assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
     }
 
     @Test
-    public void testBookPhoneException() {
+    public void testSharedConflictIsAnsweredWithFixedResponse() {
+        doThrow(MobilePhoneNotAvailableException.IN_USE).when(reservationService).bookPhone(any(), any(), any());
 
-        doThrow(new RuntimeException("Imei not found")).when(reservationService).bookPhone(any(), any());
+        MobilePhoneNotAvailableException exception = Assertions.assertThrows(MobilePhoneNotAvailableException.class,
+            () -> mobilePhoneController.bookPhone("123456789012345", null, null));
+        ResponseEntity<String> response = restExceptionHandler.handleConflict(exception);
 
-        ResponseEntity<String> response = mobilePhoneController.bookPhone("123456789012345");
+        Assertions.assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        Assertions.assertEquals("The phone is being used by someone else", response.getBody());
+        // Built once, every later conflict gets the same response
+        Assertions.assertSame(response, restExceptionHandler.handleConflict(MobilePhoneNotAvailableException.IN_USE));
+    }
 
-        verify(reservationService, times(1)).bookPhone(any(), any());
+    @Test
+    public void testBookPhoneException() throws Exception {
+
+        doThrow(new RuntimeException("Imei not found")).when(reservationService).bookPhone(any(), any(), any());
+
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class,
+            () -> mobilePhoneController.bookPhone("123456789012345", null, null));
+        ResponseEntity<String> response = restExceptionHandler.handleUnexpected(exception,
+            new MockHttpServletRequest("POST", "/api/mobile/123456789012345/book"));
+
+        verify(reservationService, times(1)).bookPhone(any(), any(), any());
         verifyNoMoreInteractions(reservationService);
 
         // Assert the response
@@ -119,7 +170,7 @@ public class MobilePhoneControllerTest {
     public void testReturnPhoneSuccess() {
         doNothing().when(reservationService).returnPhone(any());
 
-        ResponseEntity<String> response = mobilePhoneController.returnPhone("123456789012345");
+        ResponseEntity<String> response = mobilePhoneController.returnPhone("123456789012345", null);
 
         verify(reservationService, times(1)).returnPhone(any());
         verifyNoMoreInteractions(reservationService);
@@ -134,7 +185,9 @@ public class MobilePhoneControllerTest {
     public void testReturnPhoneNotFound() {
         doThrow(new MobilePhoneNotFoundException("Imei not found")).when(reservationService).returnPhone(any());
 
-        ResponseEntity<String> response = mobilePhoneController.returnPhone("123456789012345");
+        MobilePhoneNotFoundException exception = Assertions.assertThrows(MobilePhoneNotFoundException.class,
+            () -> mobilePhoneController.returnPhone("123456789012345", null));
+        ResponseEntity<String> response = restExceptionHandler.handleNotFound(exception);
 
         verify(reservationService, times(1)).returnPhone(any());
         verifyNoMoreInteractions(reservationService);
@@ -149,7 +202,9 @@ public class MobilePhoneControllerTest {
     public void testReturnPhoneNotBooked() {
         doThrow(new MobilePhoneNotBookedException("Imei not booked")).when(reservationService).returnPhone(any());
 
-        ResponseEntity<String> response = mobilePhoneController.returnPhone("123456789012345");
+        MobilePhoneNotBookedException exception = Assertions.assertThrows(MobilePhoneNotBookedException.class,
+            () -> mobilePhoneController.returnPhone("123456789012345", null));
+        ResponseEntity<String> response = restExceptionHandler.handleConflict(exception);
 
         verify(reservationService, times(1)).returnPhone(any());
         verifyNoMoreInteractions(reservationService);
@@ -161,10 +216,13 @@ public class MobilePhoneControllerTest {
     }
 
     @Test
-    public void testReturnPhoneException() {
+    public void testReturnPhoneException() throws Exception {
         doThrow(new RuntimeException("Internal error")).when(reservationService).returnPhone(any());
 
-        ResponseEntity<String> response = mobilePhoneController.returnPhone("123456789012345");
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class,
+            () -> mobilePhoneController.returnPhone("123456789012345", null));
+        ResponseEntity<String> response = restExceptionHandler.handleUnexpected(exception,
+            new MockHttpServletRequest("POST", "/api/mobile/123456789012345/return"));
 
         verify(reservationService, times(1)).returnPhone(any());
         verifyNoMoreInteractions(reservationService);
@@ -174,4 +232,82 @@ public class MobilePhoneControllerTest {
         Assertions.assertEquals("An error occurred", response.getBody());
         Assertions.assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testBookPhoneRetriedAfterConcurrentChange() {
+        doThrow(new CannotAcquireLockException("Timeout trying to lock table"))
+            .doNothing()
+            .when(reservationService).bookPhone(any(), any(), any());
+
+        ResponseEntity<String> response = mobilePhoneController.bookPhone("123456789012345", null, null);
+
+        verify(reservationService, times(2)).bookPhone(any(), any(), any());
+        Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
+    }
+
+    @Test
+    public void testReturnPhoneGivesUpAfterConcurrentChanges() {
+        doThrow(new CannotAcquireLockException("Timeout trying to lock table"))
+            .when(reservationService).returnPhone(any());
+
+        CannotAcquireLockException exception = Assertions.assertThrows(CannotAcquireLockException.class,
+            () -> mobilePhoneController.returnPhone("123456789012345", null));
+        ResponseEntity<String> response = restExceptionHandler.handleConcurrencyFailure(exception,
+            new MockHttpServletRequest("POST", "/api/mobile/123456789012345/return"));
+
+        verify(reservationService, times(3)).returnPhone(any());
+        Assertions.assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+    }
+
+    @Test
+    public void testBookPhoneWithIdempotencyKeyReplayed() {
+        when(idempotencyService.runOnce(any(), eq("key-1"), eq(Operation.BOOK), eq("123456789012345"), any()))
+            .thenReturn(false);
+
+        ResponseEntity<String> response = mobilePhoneController.bookPhone("123456789012345", null, "key-1");
+
+        verifyNoMoreInteractions(reservationService);
+        Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
+        Assertions.assertEquals("Phone booked successfully", response.getBody());
+        Assertions.assertEquals("true", response.getHeaders().getFirst("Idempotent-Replayed"));
+    }
+
+    @Test
+    public void testAccessDeniedKeepsItsStatus() {
+        AccessDeniedException exception = new AccessDeniedException("Access Denied");
+
+        Assertions.assertThrows(AccessDeniedException.class, () -> restExceptionHandler.handleUnexpected(exception,
+            new MockHttpServletRequest("POST", "/api/mobile/123456789012345/book")));
+    }
+
+    @Test
+    public void testBookPhonesAllOrNothingConflict() {
+        List<ReservationResult> results = List.of(
+            new ReservationResult("111111111111111", ReservationOutcome.ROLLED_BACK, "111111111111111 was not changed"),
+            new ReservationResult("222222222222222", ReservationOutcome.NOT_AVAILABLE,
+                "222222222222222 is being used by user2"));
+        when(reservationService.bookPhones(any(), any(), eq(BulkMode.ALL_OR_NOTHING), any())).thenReturn(results);
+
+        ResponseEntity<?> response = mobilePhoneController.bookPhones(
+            new BulkReservationRequest(List.of("111111111111111", "222222222222222"), null, null));
+
+        verify(reservationService, times(1)).bookPhones(any(), any(), eq(BulkMode.ALL_OR_NOTHING), any());
+        Assertions.assertEquals(results, response.getBody());
+        Assertions.assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+    }
+
+    @Test
+    public void testReturnPhonesBestEffort() {
+        List<ReservationResult> results = List.of(
+            new ReservationResult("111111111111111", ReservationOutcome.RETURNED, "111111111111111 is returned"),
+            new ReservationResult("222222222222222", ReservationOutcome.NOT_BOOKED, "222222222222222 is not booked"));
+        when(reservationService.returnPhones(any(), eq(BulkMode.BEST_EFFORT))).thenReturn(results);
+
+        ResponseEntity<?> response = mobilePhoneController.returnPhones(
+            new BulkReservationRequest(List.of("111111111111111", "222222222222222"), BulkMode.BEST_EFFORT,
+                null));
+
+        Assertions.assertEquals(results, response.getBody());
+        Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
+    }
+}
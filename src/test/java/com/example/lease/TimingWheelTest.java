@@ -0,0 +1,121 @@
+package com.example.lease;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class TimingWheelTest {
+
+    @Test
+    public void testTimeoutIsDueAtItsTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(4, 3, 0);
+        wheel.schedule("a", 3);
+        List<String> expired = new ArrayList<>();
+
+        wheel.advanceTo(2, expired::add);
+        assertTrue(expired.isEmpty());
+
+        wheel.advanceTo(3, expired::add);
+        assertEquals(List.of("a"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testTimeoutsCascadeFromCoarserLevels() {
+        TimingWheel<Long> wheel = new TimingWheel<>(4, 3, 5);
+        Map<Long, Long> dueAt = new HashMap<>();
+        for (long deadline = 5; deadline < 5 + 64; deadline++) {
+            wheel.schedule(deadline, deadline);
+        }
+
+        for (long tick = 5; tick < 5 + 64; tick++) {
+            long now = tick;
+            wheel.advanceTo(now, deadline -> dueAt.put(deadline, now));
+        }
+
+        assertEquals(64, dueAt.size());
+        dueAt.forEach((deadline, tick) -> assertEquals(deadline, tick));
+    }
+
+    @Test
+    public void testRandomDeadlinesExpireOnTime() {
+        TimingWheel<Long> wheel = new TimingWheel<>(8, 3, 1000);
+        Random random = new Random(42);
+        List<Long> deadlines = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            long deadline = 1000 + random.nextInt(600);
+            deadlines.add(deadline);
+            wheel.schedule(deadline, deadline);
+        }
+        List<Long> early = new ArrayList<>();
+        int[] count = new int[1];
+
+        for (long tick = 1000; tick <= 1600; tick += 1 + random.nextInt(3)) {
+            long now = tick;
+            wheel.advanceTo(now, deadline -> {
+                count[0]++;
+                // Skipped ticks are processed in order, so nothing is handed back before it is due
+                if (deadline > now) {
+                    early.add(deadline);
+                }
+            });
+        }
+        wheel.advanceTo(1600, deadline -> count[0]++);
+
+        assertEquals(deadlines.size(), count[0]);
+        assertTrue(early.isEmpty());
+    }
+
+    @Test
+    public void testDeadlineBeyondSpanIsNotDueEarly() {
+        TimingWheel<String> wheel = new TimingWheel<>(2, 2, 0);
+        wheel.schedule("far", 10);
+        List<String> expired = new ArrayList<>();
+
+        wheel.advanceTo(9, expired::add);
+        assertTrue(expired.isEmpty());
+
+        wheel.advanceTo(10, expired::add);
+        assertEquals(List.of("far"), expired);
+    }
+
+    @Test
+    public void testOverdueTimeoutIsDueOnNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(4, 2, 10);
+        wheel.schedule("overdue", 3);
+        List<String> expired = new ArrayList<>();
+
+        wheel.advanceTo(10, expired::add);
+
+        assertEquals(List.of("overdue"), expired);
+    }
+
+    @Test
+    public void testCancelledTimeoutIsNotDue() {
+        TimingWheel<String> wheel = new TimingWheel<>(4, 2, 0);
+        TimingWheel.Timeout<String> cancelled = wheel.schedule("cancelled", 9);
+        wheel.schedule("kept", 9);
+
+        wheel.cancel(cancelled);
+        wheel.cancel(cancelled);
+        List<String> expired = new ArrayList<>();
+        wheel.advanceTo(9, expired::add);
+
+        assertFalse(cancelled.isPending());
+        assertEquals(List.of("kept"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testWheelSizeMustBePowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel<String>(6, 2, 0));
+    }
+}
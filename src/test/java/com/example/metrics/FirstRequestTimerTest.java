@@ -0,0 +1,37 @@
+package com.example.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class FirstRequestTimerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FirstRequestTimer firstRequestTimer = new FirstRequestTimer(meterRegistry);
+
+    @Test
+    public void testOnlyTheFirstRequestIsTimed() throws Exception {
+        TimeGauge gauge = meterRegistry.get("application.first-request.time").timeGauge();
+        assertTrue(Double.isNaN(gauge.value(TimeUnit.MILLISECONDS)));
+
+        serve();
+        double firstRequest = gauge.value(TimeUnit.MILLISECONDS);
+        assertTrue(firstRequest > 0);
+
+        Thread.sleep(5);
+        serve();
+        assertEquals(firstRequest, gauge.value(TimeUnit.MILLISECONDS));
+    }
+
+    private void serve() throws Exception {
+        firstRequestTimer.doFilter(new MockHttpServletRequest("GET", "/actuator/health"),
+            new MockHttpServletResponse(), new MockFilterChain());
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.rabbitmq;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.config.OutboxJournalConfig.FsyncPolicy;
+import com.example.model.entity.OutboxEventEntity;
+import com.example.model.entity.PhoneEventType;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class OutboxJournalTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    private Path directory;
+
+    private OutboxJournal journal;
+
+    @AfterEach
+    public void close() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void peekReturnsEventsInOrderUntilCommitted() throws IOException {
+        journal = open();
+        journal.append(events(1, 3));
+
+        assertEquals(List.of(1L, 2L), ids(journal.peek(2)));
+        assertEquals(List.of(1L, 2L), ids(journal.peek(2)));
+
+        journal.commit();
+
+        assertEquals(1, journal.getPendingEvents());
+        assertEquals(3000, journal.getOldestCreatedMillis());
+        assertEquals(List.of(3L), ids(journal.peek(2)));
+    }
+
+    @Test
+    public void eventsAreDecodedAsAppended() throws IOException {
+        journal = open();
+        OutboxEventEntity appended = event(7);
+        appended.setUsername(null);
+        journal.append(List.of(appended));
+
+        OutboxEventEntity event = journal.peek(1).get(0);
+
+        assertEquals(7L, event.getId());
+        assertEquals(new Date(7000), event.getCreatedDate());
+        assertEquals("phone-exchange", event.getExchangeName());
+        assertEquals("phone.booked.galaxy", event.getRoutingKey());
+        assertEquals(PhoneEventType.BOOKED, event.getEventType());
+        assertEquals("imei-7", event.getImei());
+        assertEquals("Galaxy", event.getModel());
+        assertNull(event.getUsername());
+    }
+
+    @Test
+    public void reopenedJournalContinuesAfterTheCheckpoint() throws IOException {
+        journal = open();
+        journal.append(events(1, 5));
+        journal.peek(2);
+        journal.commit();
+        journal.close();
+
+        journal = open();
+
+        assertEquals(3, journal.getPendingEvents());
+        assertEquals(3000, journal.getOldestCreatedMillis());
+        journal.append(events(6, 6));
+        assertEquals(List.of(3L, 4L, 5L, 6L), ids(journal.peek(10)));
+    }
+
+    @Test
+    public void consumedSegmentsAreDeleted() throws IOException {
+        journal = open();
+        journal.append(events(1, 200));
+        assertTrue(segments() > 2);
+
+        while (!journal.isEmpty()) {
+            journal.peek(30);
+            journal.commit();
+        }
+
+        assertEquals(1, segments());
+        assertEquals(0, journal.getPendingBytes());
+        assertEquals(0, journal.getOldestCreatedMillis());
+    }
+
+    @Test
+    public void eventsAreReplayedAcrossSegments() throws IOException {
+        journal = open();
+        journal.append(events(1, 200));
+        journal.close();
+
+        journal = open();
+
+        assertEquals(LongStream.rangeClosed(1, 200).boxed().toList(), ids(journal.peek(500)));
+    }
+
+    @Test
+    public void tornRecordIsDroppedOnRecovery() throws IOException {
+        journal = open();
+        journal.append(events(1, 1));
+        long intact = journal.getPendingBytes();
+        journal.append(events(2, 2));
+        journal.close();
+        try (FileChannel channel = FileChannel.open(segment(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), intact + 2 * Integer.BYTES + 1);
+        }
+
+        journal = open();
+
+        assertEquals(1, journal.getPendingEvents());
+        journal.append(events(3, 3));
+        assertEquals(List.of(1L, 3L), ids(journal.peek(10)));
+    }
+
+    private OutboxJournal open() throws IOException {
+        return OutboxJournal.open(directory, SEGMENT_SIZE, FsyncPolicy.ALWAYS, Duration.ofSeconds(1));
+    }
+
+    private long segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".journal")).count();
+        }
+    }
+
+    private Path segment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".journal")).findFirst().orElseThrow();
+        }
+    }
+
+    private static List<OutboxEventEntity> events(long first, long last) {
+        return LongStream.rangeClosed(first, last).mapToObj(OutboxJournalTest::event).toList();
+    }
+
+    private static OutboxEventEntity event(long id) {
+        OutboxEventEntity event = new OutboxEventEntity();
+        event.setId(id);
+        event.setCreatedDate(new Date(id * 1000));
+        event.setExchangeName("phone-exchange");
+        event.setRoutingKey("phone.booked.galaxy");
+        event.setEventType(PhoneEventType.BOOKED);
+        event.setImei("imei-" + id);
+        event.setModel("Galaxy");
+        event.setUsername("user");
+        return event;
+    }
+
+    private static List<Long> ids(List<OutboxEventEntity> events) {
+        return events.stream().map(OutboxEventEntity::getId).toList();
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.rabbitmq;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.example.config.OutboxConfig;
+import com.example.config.OutboxJournalConfig;
+import com.example.model.dao.OutboxEventDao;
+import com.example.model.entity.OutboxEventEntity;
+import com.example.model.entity.PhoneEventType;
+import com.example.model.exception.MessageSendingException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Runs {@link OutboxRelay} against an in-memory outbox, a journal in a temporary directory and a broker that can be
+ * taken down.
+ */
+public class OutboxRelayTest {
+
+    @TempDir
+    private Path directory;
+
+    private final TreeMap<Long, OutboxEventEntity> outbox = new TreeMap<>();
+    private final OutboxEventDao outboxEventDao = mock(OutboxEventDao.class);
+    private final Broker broker = new Broker();
+    private final OutboxConfig outboxConfig = new OutboxConfig();
+    private final OutboxJournalConfig outboxJournalConfig = new OutboxJournalConfig();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<OutboxRelay> relays = new ArrayList<>();
+
+    /**
+     * Records the ids of the events it confirmed, in the order they were sent, or fails every batch while down.
+     */
+    private static final class Broker extends QueueMessageSender {
+
+        private final List<Long> confirmed = new ArrayList<>();
+        private boolean down;
+        private int failAfterBatches = -1;
+
+        private Broker() {
+            super(null, null);
+        }
+
+        @Override
+        public void sendAll(List<OutboxEventEntity> events, long timeout) {
+            if (failAfterBatches == 0) {
+                down = true;
+            }
+            failAfterBatches--;
+            if (down) {
+                throw new MessageSendingException("Broker unavailable", null);
+            }
+            events.forEach(event -> confirmed.add(event.getId()));
+        }
+    }
+
+    @BeforeEach
+    public void setup() {
+        outboxConfig.setBatchSize(2);
+        outboxJournalConfig.setDirectory(directory.resolve("journal"));
+        outboxJournalConfig.setSegmentSize(DataSize.ofKilobytes(64));
+        outboxJournalConfig.setReplayBatchSize(2);
+        outboxJournalConfig.setSpillAfter(Duration.ofHours(1));
+        when(outboxEventDao.findAllByOrderByIdAsc(any(Pageable.class))).thenAnswer(invocation -> {
+            Pageable page = invocation.getArgument(0);
+            return outbox.values().stream().limit(page.getPageSize()).toList();
+        });
+        deleteFromOutbox();
+    }
+
+    @AfterEach
+    public void close() {
+        relays.forEach(OutboxRelay::closeJournal);
+    }
+
+    @Test
+    public void outageShorterThanSpillAfterLeavesEventsInTheOutbox() {
+        OutboxRelay relay = relay();
+        addToOutbox(1, 3);
+        broker.down = true;
+
+        relay.flush();
+
+        assertEquals(List.of(1L, 2L, 3L), List.copyOf(outbox.keySet()));
+        assertFalse(Files.exists(outboxJournalConfig.getDirectory()));
+
+        outboxJournalConfig.setSpillAfter(Duration.ZERO);
+        relay.flush();
+
+        assertTrue(outbox.isEmpty());
+        assertEquals(3, meterRegistry.get("outbox.journal.spilled").counter().count());
+        assertEquals(3, meterRegistry.get("outbox.journal.events").gauge().value());
+        assertEquals(List.of(), broker.confirmed);
+    }
+
+    @Test
+    public void journalIsReplayedBeforeTheOutbox() {
+        outboxJournalConfig.setSpillAfter(Duration.ZERO);
+        OutboxRelay relay = relay();
+        addToOutbox(1, 3);
+        broker.down = true;
+        relay.flush();
+        addToOutbox(4, 5);
+
+        broker.down = false;
+        relay.flush();
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), broker.confirmed);
+        assertTrue(outbox.isEmpty());
+        assertEquals(0, meterRegistry.get("outbox.journal.events").gauge().value());
+        assertEquals(3, meterRegistry.get("outbox.journal.replayed").counter().count());
+    }
+
+    @Test
+    public void crashBetweenAppendAndDeletePublishesTheEventsTwice() {
+        outboxJournalConfig.setSpillAfter(Duration.ZERO);
+        OutboxRelay relay = relay();
+        addToOutbox(1, 2);
+        broker.down = true;
+        doAnswer(invocation -> {
+            throw new DataAccessResourceFailureException("Connection lost");
+        }).when(outboxEventDao).deleteAllByIdInBatch(anyList());
+
+        assertThrows(DataAccessResourceFailureException.class, relay::flush);
+        relay.closeJournal();
+
+        // After a restart the events are both in the journal and, as the delete was rolled back, in the outbox
+        deleteFromOutbox();
+        broker.down = false;
+        relay().flush();
+
+        assertEquals(List.of(1L, 2L, 1L, 2L), broker.confirmed);
+        assertTrue(outbox.isEmpty());
+    }
+
+    @Test
+    public void brokerFailingDuringReplayResumesAfterTheLastConfirmedBatch() {
+        outboxJournalConfig.setSpillAfter(Duration.ZERO);
+        OutboxRelay relay = relay();
+        addToOutbox(1, 5);
+        broker.down = true;
+        relay.flush();
+
+        broker.down = false;
+        broker.failAfterBatches = 1;
+        addToOutbox(6, 6);
+        relay.flush();
+
+        assertEquals(List.of(1L, 2L), broker.confirmed);
+        assertTrue(outbox.isEmpty());
+        assertEquals(4, meterRegistry.get("outbox.journal.events").gauge().value());
+
+        broker.down = false;
+        relay.flush();
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L), broker.confirmed);
+        assertEquals(0, meterRegistry.get("outbox.journal.events").gauge().value());
+    }
+
+    private OutboxRelay relay() {
+        OutboxRelay relay = new OutboxRelay(outboxEventDao, broker, outboxConfig, outboxJournalConfig,
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), meterRegistry);
+        relays.add(relay);
+        return relay;
+    }
+
+    private void deleteFromOutbox() {
+        doAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            ids.forEach(outbox::remove);
+            return null;
+        }).when(outboxEventDao).deleteAllByIdInBatch(anyList());
+    }
+
+    private void addToOutbox(long from, long to) {
+        LongStream.rangeClosed(from, to).forEach(id -> outbox.put(id, event(id)));
+    }
+
+    private static OutboxEventEntity event(long id) {
+        OutboxEventEntity event = new OutboxEventEntity();
+        event.setId(id);
+        event.setCreatedDate(new Date(id * 1000));
+        event.setExchangeName("phone-exchange");
+        event.setRoutingKey("phone.booked.galaxy");
+        event.setEventType(PhoneEventType.BOOKED);
+        event.setImei("imei-" + id);
+        event.setModel("Galaxy");
+        event.setUsername("user");
+        return event;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.security;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.config.CredentialCacheConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+public class CachingAuthenticationProviderTest {
+
+    @Mock
+    private AuthenticationProvider delegate;
+
+    private VerifiedCredentialCache verifiedCredentialCache;
+
+    private CachingAuthenticationProvider cachingAuthenticationProvider;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        verifiedCredentialCache = new VerifiedCredentialCache(new CredentialCacheConfig(), new SimpleMeterRegistry());
+        cachingAuthenticationProvider = new CachingAuthenticationProvider(delegate, verifiedCredentialCache);
+    }
+
+    @Test
+    public void testRepeatAuthenticationIsCached() {
+        Authentication authenticated = UsernamePasswordAuthenticationToken.authenticated("user", null, List.of());
+        when(delegate.authenticate(any())).thenReturn(authenticated);
+
+        assertSame(authenticated, cachingAuthenticationProvider.authenticate(request("user", "password")));
+        assertSame(authenticated, cachingAuthenticationProvider.authenticate(request("user", "password")));
+
+        verify(delegate, times(1)).authenticate(any());
+    }
+
+    @Test
+    public void testDifferentPasswordIsVerified() {
+        Authentication authenticated = UsernamePasswordAuthenticationToken.authenticated("user", null, List.of());
+        when(delegate.authenticate(any())).thenReturn(authenticated);
+        cachingAuthenticationProvider.authenticate(request("user", "password"));
+        when(delegate.authenticate(any())).thenThrow(new BadCredentialsException("Bad credentials"));
+
+        assertThrows(BadCredentialsException.class,
+            () -> cachingAuthenticationProvider.authenticate(request("user", "wrong")));
+    }
+
+    @Test
+    public void testEvictedUserIsVerifiedAgain() {
+        Authentication authenticated = UsernamePasswordAuthenticationToken.authenticated("user", null, List.of());
+        when(delegate.authenticate(any())).thenReturn(authenticated);
+        cachingAuthenticationProvider.authenticate(request("user", "password"));
+
+        verifiedCredentialCache.evictUser("user");
+        cachingAuthenticationProvider.authenticate(request("user", "password"));
+
+        verify(delegate, times(2)).authenticate(any());
+    }
+
+    private static Authentication request(String username, String password) {
+        return UsernamePasswordAuthenticationToken.unauthenticated(username, password);
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import com.example.config.AvailabilityIndexConfig;
+import com.example.config.LabConfig;
+import com.example.model.dao.MobilePhoneDao;
+import com.example.model.dto.PhoneAvailability;
+import com.example.model.exception.LabNotFoundException;
+import com.example.service.AvailabilityIndex.PhoneState;
+import com.example.service.AvailabilityIndex.Status;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class AvailabilityIndexTest {
+
+    private static final String DEFAULT_IMEI = "111111111111111";
+    private static final String BERLIN_IMEI = "222222222222222";
+
+    @Mock
+    private MobilePhoneDao mobilePhoneDao;
+
+    private final LabConfig labConfig = new LabConfig();
+
+    private AvailabilityIndex availabilityIndex;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        labConfig.setNames(List.of("default", "berlin"));
+        when(mobilePhoneDao.findAvailabilityByLab("default"))
+            .thenReturn(List.of(new PhoneAvailability(DEFAULT_IMEI, true, null)));
+        when(mobilePhoneDao.findAvailabilityByLab("berlin"))
+            .thenReturn(List.of(new PhoneAvailability(BERLIN_IMEI, false, "user")));
+        availabilityIndex = new AvailabilityIndex(mobilePhoneDao, new AvailabilityIndexConfig(), labConfig);
+    }
+
+    @Test
+    public void testLoadEveryLab() {
+        availabilityIndex.load();
+
+        assertEquals(Status.AVAILABLE, availabilityIndex.get("default", DEFAULT_IMEI).getStatus());
+        assertEquals("user", availabilityIndex.get("berlin", BERLIN_IMEI).getHolder());
+    }
+
+    @Test
+    public void testEvictLeavesOtherLabsAlone() {
+        availabilityIndex.load();
+
+        assertEquals(1, availabilityIndex.evict("berlin"));
+
+        assertFalse(availabilityIndex.isLoaded("berlin"));
+        assertNull(availabilityIndex.get("berlin", BERLIN_IMEI));
+        assertEquals(Status.AVAILABLE, availabilityIndex.get("default", DEFAULT_IMEI).getStatus());
+    }
+
+    @Test
+    public void testPhonesOfEvictedLabAreNotIndexed() {
+        availabilityIndex.load();
+        PhoneState observed = availabilityIndex.get("berlin", BERLIN_IMEI);
+        availabilityIndex.evict("berlin");
+
+        assertFalse(availabilityIndex.compareAndSet("berlin", BERLIN_IMEI, observed, PhoneState.available()));
+        availabilityIndex.settle("berlin", BERLIN_IMEI, null, PhoneState.available());
+        assertNull(availabilityIndex.get("berlin", BERLIN_IMEI));
+    }
+
+    @Test
+    public void testReloadAfterEvict() {
+        availabilityIndex.load();
+        availabilityIndex.evict("berlin");
+
+        assertEquals(1, availabilityIndex.load("berlin"));
+
+        PhoneState booked = availabilityIndex.get("berlin", BERLIN_IMEI);
+        assertEquals(Status.BOOKED, booked.getStatus());
+        PhoneState returned = PhoneState.available();
+        availabilityIndex.settle("berlin", BERLIN_IMEI, booked, returned);
+        assertSame(returned, availabilityIndex.get("berlin", BERLIN_IMEI));
+    }
+
+    @Test
+    public void testStaleSettleDropsThePhone() {
+        availabilityIndex.load("berlin");
+        PhoneState booked = availabilityIndex.get("berlin", BERLIN_IMEI);
+        PhoneState returning = PhoneState.returning("user");
+        assertTrue(availabilityIndex.compareAndSet("berlin", BERLIN_IMEI, booked, returning));
+        availabilityIndex.settle("berlin", BERLIN_IMEI, returning, PhoneState.available());
+
+        // A transaction that read the phone before the return settles after it
+        availabilityIndex.settle("berlin", BERLIN_IMEI, booked, PhoneState.booked("other"));
+
+        assertNull(availabilityIndex.get("berlin", BERLIN_IMEI));
+    }
+
+    @Test
+    public void testLabOfLoadedPhones() {
+        availabilityIndex.load("berlin");
+
+        assertEquals("berlin", availabilityIndex.labOf(BERLIN_IMEI));
+        assertNull(availabilityIndex.labOf(DEFAULT_IMEI));
+
+        // The lab outlives a dropped state, so the phone can be indexed again
+        availabilityIndex.settle("berlin", BERLIN_IMEI, PhoneState.available(), PhoneState.booked("other"));
+        assertNull(availabilityIndex.get("berlin", BERLIN_IMEI));
+        assertEquals("berlin", availabilityIndex.labOf(BERLIN_IMEI));
+
+        availabilityIndex.evict("berlin");
+        assertNull(availabilityIndex.labOf(BERLIN_IMEI));
+    }
+
+    @Test
+    public void testUnindexedPhoneIsAddedToItsLab() {
+        availabilityIndex.load("berlin");
+        String imei = "333333333333333";
+        PhoneState available = PhoneState.available();
+
+        assertTrue(availabilityIndex.compareAndSet("berlin", imei, null, available));
+
+        assertSame(available, availabilityIndex.get("berlin", imei));
+        assertNull(availabilityIndex.get("default", imei));
+        assertFalse(availabilityIndex.compareAndSet("berlin", imei, null, PhoneState.booked("user")));
+    }
+
+    @Test
+    public void testPhoneWithoutLabIsNotIndexed() {
+        availabilityIndex.load();
+
+        assertFalse(availabilityIndex.compareAndSet(null, DEFAULT_IMEI, null, PhoneState.available()));
+        assertNull(availabilityIndex.get(null, DEFAULT_IMEI));
+    }
+
+    @Test
+    public void testLoadUnknownLab() {
+        assertThrows(LabNotFoundException.class, () -> availabilityIndex.load("paris"));
+        assertThrows(LabNotFoundException.class, () -> availabilityIndex.evict("paris"));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.example.config.RetryConfig;
+import com.example.metrics.ReservationMetrics;
+import com.example.metrics.ReservationMetrics.Operation;
+import com.example.model.exception.MobilePhoneNotAvailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+public class ConcurrencyRetryTest {
+
+    private final RetryConfig retryConfig = new RetryConfig();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ConcurrencyRetry concurrencyRetry;
+
+    @BeforeEach
+    public void setup() {
+        retryConfig.setMaxAttempts(3);
+        retryConfig.setInitialBackoff(Duration.ofMillis(1));
+        retryConfig.setMaxBackoff(Duration.ofMillis(2));
+        concurrencyRetry = new ConcurrencyRetry(retryConfig, new ReservationMetrics(meterRegistry));
+    }
+
+    @Test
+    public void testRetriesUntilTheRequestSucceeds() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = concurrencyRetry.run(Operation.BOOK, () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException("MobilePhoneEntity", 1L);
+            }
+            return "booked";
+        });
+
+        assertEquals("booked", result);
+        assertEquals(3, attempts.get());
+        assertEquals(2, conflicts(Operation.BOOK, "retried"));
+        assertEquals(0, conflicts(Operation.BOOK, "gave-up"));
+    }
+
+    @Test
+    public void testGivesUpAfterTheLastAttempt() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(CannotAcquireLockException.class, () -> concurrencyRetry.run(Operation.RETURN, () -> {
+            attempts.incrementAndGet();
+            throw new CannotAcquireLockException("Timeout trying to lock table");
+        }));
+
+        assertEquals(3, attempts.get());
+        assertEquals(2, conflicts(Operation.RETURN, "retried"));
+        assertEquals(1, conflicts(Operation.RETURN, "gave-up"));
+    }
+
+    @Test
+    public void testDomainConflictsAreNotRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(MobilePhoneNotAvailableException.class, () -> concurrencyRetry.run(Operation.BOOK, () -> {
+            attempts.incrementAndGet();
+            throw new MobilePhoneNotAvailableException("111111111111111 is being used by someone");
+        }));
+
+        assertEquals(1, attempts.get());
+        assertEquals(0, conflicts(Operation.BOOK, "retried"));
+    }
+
+    private double conflicts(Operation operation, String resolution) {
+        return meterRegistry.get("reservation.concurrency.conflicts")
+            .tag("operation", operation.name().toLowerCase())
+            .tag("resolution", resolution)
+            .counter()
+            .count();
+    }
+}
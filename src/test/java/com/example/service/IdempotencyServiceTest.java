@@ -0,0 +1,158 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.config.IdempotencyConfig;
+import com.example.config.RetryConfig;
+import com.example.metrics.ReservationMetrics;
+import com.example.metrics.ReservationMetrics.Operation;
+import com.example.model.dao.IdempotencyRecordDao;
+import com.example.model.entity.IdempotencyRecordEntity;
+import com.example.model.entity.PhoneEventType;
+import com.example.model.exception.BadRequestException;
+import com.example.model.exception.MobilePhoneNotBookedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+public class IdempotencyServiceTest {
+
+    private static final String IMEI = "111111111111111";
+
+    @Mock
+    private IdempotencyRecordDao idempotencyRecordDao;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger runs = new AtomicInteger();
+
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(idempotencyRecordDao.findByUsernameAndIdempotencyKey(any(), any())).thenReturn(Optional.empty());
+        idempotencyService = newService();
+    }
+
+    @Test
+    public void testDuplicateIsReplayedFromTheCache() {
+        assertTrue(idempotencyService.runOnce("user", "key-1", Operation.BOOK, IMEI, runs::incrementAndGet));
+        assertFalse(idempotencyService.runOnce("user", "key-1", Operation.BOOK, IMEI, runs::incrementAndGet));
+
+        assertEquals(1, runs.get());
+        ArgumentCaptor<IdempotencyRecordEntity> saved = ArgumentCaptor.forClass(IdempotencyRecordEntity.class);
+        verify(idempotencyRecordDao).save(saved.capture());
+        assertEquals(PhoneEventType.BOOKED, saved.getValue().getEventType());
+        assertEquals("key-1", saved.getValue().getIdempotencyKey());
+        // Looked up once before the first request, the duplicate never reaches the database
+        verify(idempotencyRecordDao, times(1)).findByUsernameAndIdempotencyKey("user", "key-1");
+        assertEquals(1, replays("cache"));
+    }
+
+    @Test
+    public void testDuplicateIsReplayedAfterRestart() {
+        when(idempotencyRecordDao.findByUsernameAndIdempotencyKey("user", "key-1"))
+            .thenReturn(Optional.of(record(PhoneEventType.RETURNED, new Date())));
+
+        assertFalse(idempotencyService.runOnce("user", "key-1", Operation.RETURN, IMEI, runs::incrementAndGet));
+
+        assertEquals(0, runs.get());
+        verify(transactionTemplate, never()).executeWithoutResult(any());
+        assertEquals(1, replays("database"));
+    }
+
+    @Test
+    public void testExpiredRecordIsNotReplayed() {
+        when(idempotencyRecordDao.findByUsernameAndIdempotencyKey("user", "key-1"))
+            .thenReturn(Optional.of(record(PhoneEventType.RETURNED, new Date(System.currentTimeMillis()
+                - new IdempotencyConfig().getTtl().toMillis() - 1000))));
+
+        assertTrue(idempotencyService.runOnce("user", "key-1", Operation.RETURN, IMEI, runs::incrementAndGet));
+
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void testKeyUsedForAnotherRequest() {
+        idempotencyService.runOnce("user", "key-1", Operation.BOOK, IMEI, runs::incrementAndGet);
+
+        assertThrows(BadRequestException.class,
+            () -> idempotencyService.runOnce("user", "key-1", Operation.RETURN, IMEI, runs::incrementAndGet));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void testKeysAreScopedToTheUser() {
+        idempotencyService.runOnce("user", "key-1", Operation.BOOK, IMEI, runs::incrementAndGet);
+
+        assertTrue(idempotencyService.runOnce("user2", "key-1", Operation.BOOK, IMEI, runs::incrementAndGet));
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    public void testFailedRequestIsNotRecorded() {
+        Runnable failing = () -> {
+            runs.incrementAndGet();
+            throw new MobilePhoneNotBookedException(IMEI + " is not booked");
+        };
+
+        assertThrows(MobilePhoneNotBookedException.class,
+            () -> idempotencyService.runOnce("user", "key-1", Operation.RETURN, IMEI, failing));
+        assertThrows(MobilePhoneNotBookedException.class,
+            () -> idempotencyService.runOnce("user", "key-1", Operation.RETURN, IMEI, failing));
+
+        assertEquals(2, runs.get());
+        verify(idempotencyRecordDao, never()).save(any());
+    }
+
+    @Test
+    public void testKeyTooLong() {
+        assertThrows(BadRequestException.class, () -> idempotencyService.runOnce("user",
+            "k".repeat(IdempotencyService.MAX_KEY_LENGTH + 1), Operation.BOOK, IMEI, runs::incrementAndGet));
+    }
+
+    private IdempotencyService newService() {
+        ReservationMetrics reservationMetrics = new ReservationMetrics(meterRegistry);
+        return new IdempotencyService(idempotencyRecordDao, new IdempotencyConfig(),
+            new ConcurrencyRetry(new RetryConfig(), reservationMetrics), transactionTemplate, meterRegistry);
+    }
+
+    private static IdempotencyRecordEntity record(PhoneEventType eventType, Date createdDate) {
+        IdempotencyRecordEntity entity = new IdempotencyRecordEntity();
+        entity.setUsername("user");
+        entity.setIdempotencyKey("key-1");
+        entity.setEventType(eventType);
+        entity.setImei(IMEI);
+        entity.setCreatedDate(createdDate);
+        return entity;
+    }
+
+    private double replays(String source) {
+        return meterRegistry.get("reservation.idempotent.replays").tag("source", source).counter().count();
+    }
+}
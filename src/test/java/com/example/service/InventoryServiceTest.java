@@ -0,0 +1,83 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.example.config.InventoryConfig;
+import com.example.config.LabConfig;
+import com.example.model.dao.MobilePhoneDao;
+import com.example.model.dto.InventoryPage;
+import com.example.model.dto.MobilePhoneView;
+import com.example.model.exception.BadRequestException;
+import com.example.model.exception.LabNotFoundException;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+
+public class InventoryServiceTest {
+
+    @Mock
+    private MobilePhoneDao mobilePhoneDao;
+
+    @Spy
+    private InventoryConfig inventoryConfig = new InventoryConfig();
+
+    @Spy
+    private LabConfig labConfig = new LabConfig();
+
+    @InjectMocks
+    private InventoryService inventoryService;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    public void testFindPhonesHasNextPage() {
+        when(mobilePhoneDao.findInventory(null, true, null, null, 10L, 3)).thenReturn(List.of(
+            phone(11L), phone(12L), phone(13L)));
+
+        InventoryPage page = inventoryService.findPhones(null, true, null, null, 10L, 2);
+
+        assertEquals(List.of(11L, 12L), page.items().stream().map(MobilePhoneView::id).toList());
+        assertEquals(12L, page.nextCursor());
+    }
+
+    @Test
+    public void testFindPhonesLastPage() {
+        when(mobilePhoneDao.findInventory("default", null, "Nokia 3310", null, null, 51))
+            .thenReturn(List.of(phone(1L)));
+
+        InventoryPage page = inventoryService.findPhones("default", null, "Nokia 3310", null, null, null);
+
+        assertEquals(1, page.items().size());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    public void testFindPhonesPageSizeTooLarge() {
+        assertThrows(BadRequestException.class, () -> inventoryService.findPhones(null, null, null, null, null, 501));
+
+        verifyNoInteractions(mobilePhoneDao);
+    }
+
+    @Test
+    public void testFindPhonesOfUnknownLab() {
+        assertThrows(LabNotFoundException.class,
+            () -> inventoryService.findPhones("paris", null, null, null, null, null));
+
+        verifyNoInteractions(mobilePhoneDao);
+    }
+
+    private static MobilePhoneView phone(Long id) {
+        return new MobilePhoneView(id, String.valueOf(id), "Nokia 3310", "default", true, null, null);
+    }
+}
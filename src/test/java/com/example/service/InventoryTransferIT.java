@@ -0,0 +1,91 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import com.example.Main;
+import com.example.model.dto.InventoryFormat;
+import com.example.model.dto.InventoryImportResult;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Imports a fleet into a fresh database, imports it again with a changed model while one phone is booked, and
+ * exports the result, so the upsert statement runs against H2 rather than a mock.
+ */
+public class InventoryTransferIT {
+
+    private static final int PHONES = 2500;
+    private static final String IMEI_PREFIX = "888888";
+
+    private static ConfigurableApplicationContext context;
+
+    @BeforeAll
+    public static void startApplication() {
+        context = new SpringApplicationBuilder(Main.class)
+            .profiles("test")
+            .run("--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:transfer;DB_CLOSE_DELAY=-1",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=warn",
+                "--logging.level.com.example=warn");
+    }
+
+    @AfterAll
+    public static void stopApplication() {
+        context.close();
+    }
+
+    @Test
+    public void testImportIsAnUpsertAndExportStreamsEveryPhone() throws Exception {
+        InventoryTransferService inventoryTransferService = context.getBean(InventoryTransferService.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        int phonesBefore = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM mobile_phone", Integer.class);
+
+        InventoryImportResult first = inventoryTransferService.importPhones(csv("Lab Phone"), InventoryFormat.CSV);
+        assertEquals(PHONES, first.imported());
+        assertEquals(PHONES, first.changed());
+        assertEquals(3, first.chunks());
+
+        String bookedImei = imei(7);
+        context.getBean(ReservationService.class).bookPhone(bookedImei, "user");
+        InventoryImportResult second = inventoryTransferService.importPhones(csv("Lab Phone 2"), InventoryFormat.CSV);
+        assertEquals(PHONES, second.imported());
+        assertEquals(PHONES, second.changed());
+        InventoryImportResult third = inventoryTransferService.importPhones(csv("Lab Phone 2"), InventoryFormat.CSV);
+        assertEquals(0, third.changed());
+
+        assertEquals(phonesBefore + PHONES,
+            jdbcTemplate.queryForObject("SELECT COUNT(*) FROM mobile_phone", Integer.class));
+        assertFalse(jdbcTemplate.queryForObject(
+            "SELECT is_available FROM mobile_phone WHERE imei = ?", Boolean.class, bookedImei));
+        assertEquals("Lab Phone 2", jdbcTemplate.queryForObject(
+            "SELECT model FROM mobile_phone WHERE imei = ?", String.class, bookedImei));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(phonesBefore + PHONES, inventoryTransferService.exportPhones(output, InventoryFormat.NDJSON));
+        assertEquals(phonesBefore + PHONES, output.toString(StandardCharsets.UTF_8).lines().count());
+
+        context.getBean(ReservationService.class).returnPhone(bookedImei);
+    }
+
+    private static ByteArrayInputStream csv(String model) {
+        String body = IntStream.range(0, PHONES)
+            .mapToObj(i -> imei(i) + "," + model)
+            .collect(Collectors.joining("\n", "imei,model\n", "\n"));
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String imei(int i) {
+        return IMEI_PREFIX + String.format("%09d", i);
+    }
+}
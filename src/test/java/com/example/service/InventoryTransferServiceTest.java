@@ -0,0 +1,164 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.config.InventoryConfig;
+import com.example.config.LabConfig;
+import com.example.model.dao.MobilePhoneDao;
+import com.example.model.dto.InventoryFormat;
+import com.example.model.dto.InventoryImportResult;
+import com.example.model.dto.MobilePhoneView;
+import com.example.model.dto.PhoneImport;
+import com.example.model.exception.BadRequestException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+public class InventoryTransferServiceTest {
+
+    @Mock
+    private MobilePhoneDao mobilePhoneDao;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private PhoneModelResolver phoneModelResolver;
+
+    private final InventoryConfig inventoryConfig = new InventoryConfig();
+    private final LabConfig labConfig = new LabConfig();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<List<PhoneImport>> chunks = new ArrayList<>();
+
+    private InventoryTransferService inventoryTransferService;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        inventoryConfig.setImportChunkSize(2);
+        when(transactionTemplate.execute(any())).thenAnswer(
+            invocation -> invocation.<TransactionCallback<int[]>>getArgument(0).doInTransaction(null));
+        when(mobilePhoneDao.upsertAll(any())).thenAnswer(invocation -> {
+            List<PhoneImport> chunk = invocation.getArgument(0);
+            chunks.add(List.copyOf(chunk));
+            return new int[chunk.size()];
+        });
+        labConfig.setNames(List.of("default", "berlin"));
+        inventoryTransferService = new InventoryTransferService(mobilePhoneDao, inventoryConfig, labConfig,
+            transactionTemplate, phoneModelResolver, new ObjectMapper(), meterRegistry);
+    }
+
+    @Test
+    public void testImportNdjsonInChunks() throws Exception {
+        InventoryImportResult result = importPhones(InventoryFormat.NDJSON, """
+            {"imei":"100000000000001","model":"Pixel 8"}
+            {"imei":"100000000000002","model":"Pixel 8","available":false}
+
+            {"imei":"100000000000003","model":"Pixel 7"}
+            """);
+
+        assertEquals(3, result.imported());
+        assertEquals(2, result.chunks());
+        assertEquals(List.of(
+            List.of(new PhoneImport("100000000000001", "Pixel 8", null),
+                new PhoneImport("100000000000002", "Pixel 8", null)),
+            List.of(new PhoneImport("100000000000003", "Pixel 7", null))), chunks);
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(phoneModelResolver).forget(List.of("100000000000003"));
+        assertEquals(3, meterRegistry.get("inventory.transfer.rows").tag("direction", "import").counter().count());
+    }
+
+    @Test
+    public void testImportCsvWithHeader() throws Exception {
+        importPhones(InventoryFormat.CSV, "id,model,imei\n"
+            + "1,\"Galaxy S8, 64GB\",100000000000001\n"
+            + "2,\"The \"\"Brick\"\"\",100000000000002\n");
+
+        assertEquals(List.of(List.of(new PhoneImport("100000000000001", "Galaxy S8, 64GB", null),
+            new PhoneImport("100000000000002", "The \"Brick\"", null))), chunks);
+    }
+
+    @Test
+    public void testImportCsvWithoutHeader() throws Exception {
+        importPhones(InventoryFormat.CSV, "100000000000001,Nokia 3310\n");
+
+        assertEquals(List.of(List.of(new PhoneImport("100000000000001", "Nokia 3310", null))), chunks);
+    }
+
+    @Test
+    public void testImportCsvWithLab() throws Exception {
+        importPhones(InventoryFormat.CSV, "imei,model,lab\n100000000000001,Nokia 3310,berlin\n");
+
+        assertEquals(List.of(List.of(new PhoneImport("100000000000001", "Nokia 3310", "berlin"))), chunks);
+    }
+
+    @Test
+    public void testUnknownLabStopsTheImport() {
+        BadRequestException exception = assertThrows(BadRequestException.class, () ->
+            importPhones(InventoryFormat.NDJSON, """
+                {"imei":"100000000000001","model":"Pixel 8","lab":"paris"}
+                """));
+
+        assertTrue(exception.getMessage().startsWith("Line 1 is malformed: paris is not a lab"));
+        assertTrue(chunks.isEmpty());
+    }
+
+    @Test
+    public void testMalformedLineStopsTheImport() {
+        BadRequestException exception = assertThrows(BadRequestException.class, () ->
+            importPhones(InventoryFormat.NDJSON, """
+                {"imei":"100000000000001","model":"Pixel 8"}
+                {"imei":"100000000000002","model":"Pixel 8"}
+                {"model":"Pixel 7"}
+                """));
+
+        assertTrue(exception.getMessage().startsWith("Line 3 is malformed: imei is required"));
+        assertEquals(1, chunks.size());
+    }
+
+    @Test
+    public void testExportCsv() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<MobilePhoneView> consumer = invocation.getArgument(0);
+            consumer.accept(new MobilePhoneView(1L, "100000000000001", "Galaxy S8, 64GB", "default", true,
+                null, null));
+            consumer.accept(new MobilePhoneView(2L, "100000000000002", "Nokia 3310", "berlin", false, "user",
+                Date.from(Instant.parse("2024-05-02T09:00:00Z"))));
+            return null;
+        }).when(mobilePhoneDao).forEachPhone(any());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        assertEquals(2, inventoryTransferService.exportPhones(output, InventoryFormat.CSV));
+
+        assertEquals("""
+            id,imei,model,lab,available,bookedBy,bookedDate
+            1,100000000000001,"Galaxy S8, 64GB",default,true,,
+            2,100000000000002,Nokia 3310,berlin,false,user,2024-05-02T09:00:00Z
+            """, output.toString(StandardCharsets.UTF_8));
+    }
+
+    private InventoryImportResult importPhones(InventoryFormat format, String body) throws Exception {
+        return inventoryTransferService.importPhones(
+            new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), format);
+    }
+}
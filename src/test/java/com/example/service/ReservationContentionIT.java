@@ -0,0 +1,187 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.Main;
+import com.example.metrics.ReservationMetrics.Operation;
+import com.example.model.exception.DomainException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Runs several instances of the application against one shared database, as behind a load balancer, and has every
+ * instance book and return the same few phones as fast as it can. Each successful booking claims the phone in a map
+ * shared by all instances while it is held, so a phone booked by two users at once is caught straight away. The
+ * throughput with 1 to {@value #MAX_INSTANCES} instances is logged. The instances share one JVM and one H2 database,
+ * so it shows how contention on the rows grows rather than what separate hosts would achieve.
+ * <p>
+ * The instances run in multi-instance mode, but the test calls {@link ReservationService} directly: it covers the
+ * conditional updates and the retries, not the HTTP layer, slots, leases or waitlists.
+ */
+@Slf4j
+public class ReservationContentionIT {
+
+    private static final int MAX_INSTANCES = 4;
+    private static final int THREADS_PER_INSTANCE = 4;
+    private static final int PHONES = 8;
+    private static final long RUN_MILLIS = 3000;
+    private static final long HOLD_NANOS = 200_000;
+    private static final String IMEI_PREFIX = "777777";
+
+    private static final List<ConfigurableApplicationContext> instances = new ArrayList<>();
+    private static List<String> imeis;
+
+    @BeforeAll
+    public static void startInstances() {
+        for (int i = 0; i < MAX_INSTANCES; i++) {
+            // Only the first instance creates the schema, the others join the database it created
+            instances.add(new SpringApplicationBuilder(Main.class)
+                .profiles("test")
+                .run("--server.port=0",
+                    "--spring.datasource.url=jdbc:h2:mem:contention;DB_CLOSE_DELAY=-1",
+                    "--spring.jpa.hibernate.ddl-auto=" + (i == 0 ? "create" : "none"),
+                    "--spring.sql.init.mode=" + (i == 0 ? "always" : "never"),
+                    "--spring.jpa.show-sql=false",
+                    "--logging.level.root=warn",
+                    "--logging.level.com.example=warn",
+                    "--logging.level.com.example.service.ReservationContentionIT=info",
+                    "--mobile-phone-reservation.multi-instance.enabled=true",
+                    "--mobile-phone-reservation.availability-index.enabled=false",
+                    "--mobile-phone-reservation.slot.enabled=false",
+                    "--mobile-phone-reservation.stream.enabled=false",
+                    "--mobile-phone-reservation.waitlist.long-poll-enabled=false",
+                    "--mobile-phone-reservation.security.credential-cache.enabled=false",
+                    "--mobile-phone-reservation.retry.max-attempts=5"));
+        }
+        imeis = IntStream.range(0, PHONES)
+            .mapToObj(i -> IMEI_PREFIX + String.format("%09d", i))
+            .toList();
+        instances.get(0).getBean(JdbcTemplate.class).batchUpdate(
+            "INSERT INTO mobile_phone (model, imei, is_available) VALUES ('Contention Phone', ?, TRUE)",
+            imeis.stream().map(imei -> new Object[]{imei}).toList());
+    }
+
+    @AfterAll
+    public static void stopInstances() {
+        instances.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    public void testNoPhoneIsBookedTwiceAcrossInstances() throws InterruptedException {
+        for (int count = 1; count <= MAX_INSTANCES; count *= 2) {
+            Run run = run(count);
+            log.info("instances={} bookings/s={} busy={} gave-up={}", count,
+                run.bookings.get() * 1000 / RUN_MILLIS, run.busy.get(), run.gaveUp.get());
+
+            assertEquals(0, run.doubleBookings.get(), "phones booked by two users at once");
+            assertTrue(run.bookings.get() > 0, "no phone was booked with " + count + " instances");
+        }
+
+        JdbcTemplate jdbcTemplate = instances.get(0).getBean(JdbcTemplate.class);
+        assertEquals(0, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM mobile_phone WHERE imei LIKE ? AND is_available = FALSE", Integer.class,
+            IMEI_PREFIX + "%"), "phones left booked");
+    }
+
+    private Run run(int instanceCount) throws InterruptedException {
+        Map<String, AtomicReference<String>> holders = new ConcurrentHashMap<>();
+        imeis.forEach(imei -> holders.put(imei, new AtomicReference<>()));
+        JdbcTemplate jdbcTemplate = instances.get(0).getBean(JdbcTemplate.class);
+        int eventsBefore = bookedEvents(jdbcTemplate);
+
+        Run run = new Run();
+        ExecutorService executor = Executors.newFixedThreadPool(instanceCount * THREADS_PER_INSTANCE);
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.currentTimeMillis() + RUN_MILLIS;
+        for (int i = 0; i < instanceCount; i++) {
+            ReservationService reservationService = instances.get(i).getBean(ReservationService.class);
+            ConcurrencyRetry concurrencyRetry = instances.get(i).getBean(ConcurrencyRetry.class);
+            for (int t = 0; t < THREADS_PER_INSTANCE; t++) {
+                String user = "user-" + i + "-" + t;
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    while (System.currentTimeMillis() < deadline) {
+                        String imei = imeis.get(ThreadLocalRandom.current().nextInt(PHONES));
+                        try {
+                            concurrencyRetry.run(Operation.BOOK, () -> reservationService.bookPhone(imei, user));
+                        } catch (DomainException e) {
+                            run.busy.incrementAndGet();
+                            continue;
+                        } catch (ConcurrencyFailureException e) {
+                            run.gaveUp.incrementAndGet();
+                            continue;
+                        }
+                        run.bookings.incrementAndGet();
+                        // The claim is cleared before the phone is given back, so a booking that still finds it
+                        // claimed was made while the phone was booked by someone else
+                        AtomicReference<String> holder = holders.get(imei);
+                        if (!holder.compareAndSet(null, user)) {
+                            run.doubleBookings.incrementAndGet();
+                        }
+                        LockSupport.parkNanos(HOLD_NANOS);
+                        holder.compareAndSet(user, null);
+                        returnUntilDone(concurrencyRetry, reservationService, imei, run);
+                    }
+                });
+            }
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(RUN_MILLIS + 60_000, TimeUnit.MILLISECONDS));
+
+        // Every booking that was counted committed exactly one event, none was lost or applied twice
+        assertEquals(run.bookings.get(), bookedEvents(jdbcTemplate) - eventsBefore);
+        return run;
+    }
+
+    private static void returnUntilDone(ConcurrencyRetry concurrencyRetry, ReservationService reservationService,
+        String imei, Run run) {
+        while (true) {
+            try {
+                concurrencyRetry.run(Operation.RETURN, () -> reservationService.returnPhone(imei));
+                return;
+            } catch (ConcurrencyFailureException e) {
+                run.gaveUp.incrementAndGet();
+            }
+        }
+    }
+
+    private static int bookedEvents(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM outbox_event WHERE event_type = 'BOOKED' AND imei LIKE ?", Integer.class,
+            IMEI_PREFIX + "%");
+    }
+
+    private static final class Run {
+
+        private final AtomicLong bookings = new AtomicLong();
+        private final AtomicLong busy = new AtomicLong();
+        private final AtomicLong gaveUp = new AtomicLong();
+        private final AtomicInteger doubleBookings = new AtomicInteger();
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.example.config.HistoryConfig;
+import com.example.model.dao.ReservationHistoryDao;
+import com.example.model.dto.ReservationHistoryView;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+public class ReservationHistoryWriterTest {
+
+    private static final String IMEI = "111111111111111";
+    private static final String OTHER_IMEI = "222222222222222";
+
+    @Mock
+    private ReservationHistoryDao reservationHistoryDao;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private final HistoryConfig historyConfig = new HistoryConfig();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ReservationHistoryWriter reservationHistoryWriter;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionTemplate.execute(any()))
+            .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        historyConfig.setQueueCapacity(2);
+        reservationHistoryWriter = new ReservationHistoryWriter(reservationHistoryDao, historyConfig,
+            transactionTemplate, meterRegistry);
+    }
+
+    @Test
+    public void testBookingIsInsertedOpen() {
+        reservationHistoryWriter.onAvailabilityChanged(PhoneAvailabilityChangedEvent.booked(IMEI, "user"));
+
+        reservationHistoryWriter.flush();
+
+        List<ReservationHistoryView> bookings = insertedBookings();
+        assertEquals(1, bookings.size());
+        assertEquals("user", bookings.get(0).bookedBy());
+        assertNull(bookings.get(0).returnedDate());
+        verify(reservationHistoryDao).closeAll(Map.of(IMEI, bookings.get(0).bookedDate()));
+    }
+
+    @Test
+    public void testBookingAndReturnInOneBatchAreInsertedClosed() {
+        reservationHistoryWriter.onAvailabilityChanged(PhoneAvailabilityChangedEvent.booked(IMEI, "user"));
+        reservationHistoryWriter.onAvailabilityChanged(PhoneAvailabilityChangedEvent.returned(IMEI));
+
+        reservationHistoryWriter.flush();
+
+        List<ReservationHistoryView> bookings = insertedBookings();
+        assertEquals(1, bookings.size());
+        assertEquals(IMEI, bookings.get(0).imei());
+        assertNotNull(bookings.get(0).returnedDate());
+    }
+
+    @Test
+    public void testReturnOnlyClosesOpenBooking() {
+        reservationHistoryWriter.onAvailabilityChanged(PhoneAvailabilityChangedEvent.returned(IMEI));
+
+        reservationHistoryWriter.flush();
+
+        verify(reservationHistoryDao).closeAll(any());
+        verify(reservationHistoryDao, never()).insertAll(any());
+    }
+
+    @Test
+    public void testHandOverEndsPreviousBooking() {
+        reservationHistoryWriter.onAvailabilityChanged(PhoneAvailabilityChangedEvent.booked(IMEI, "first"));
+        reservationHistoryWriter.onAvailabilityChanged(PhoneAvailabilityChangedEvent.booked(IMEI, "second"));
+
+        reservationHistoryWriter.flush();
+
+        List<ReservationHistoryView> bookings = insertedBookings().stream()
+            .sorted(Comparator.comparing(ReservationHistoryView::bookedBy))
+            .toList();
+        assertEquals(2, bookings.size());
+        assertEquals(bookings.get(1).bookedDate(), bookings.get(0).returnedDate());
+        assertNull(bookings.get(1).returnedDate());
+    }
+
+    @Test
+    public void testFullQueueDropsChanges() {
+        reservationHistoryWriter.onAvailabilityChanged(PhoneAvailabilityChangedEvent.booked(IMEI, "user"));
+        reservationHistoryWriter.onAvailabilityChanged(PhoneAvailabilityChangedEvent.booked(OTHER_IMEI, "user"));
+        reservationHistoryWriter.onAvailabilityChanged(PhoneAvailabilityChangedEvent.returned(IMEI));
+
+        assertEquals(1.0, meterRegistry.counter("history.dropped").count());
+        reservationHistoryWriter.flush();
+        assertEquals(2.0, meterRegistry.counter("history.written").count());
+    }
+
+    @Test
+    public void testDisabledHistoryIgnoresChanges() {
+        historyConfig.setEnabled(false);
+        reservationHistoryWriter.onAvailabilityChanged(PhoneAvailabilityChangedEvent.booked(IMEI, "user"));
+
+        reservationHistoryWriter.flush();
+
+        verifyNoInteractions(reservationHistoryDao);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ReservationHistoryView> insertedBookings() {
+        ArgumentCaptor<List<ReservationHistoryView>> captor = ArgumentCaptor.forClass(List.class);
+        verify(reservationHistoryDao).insertAll(captor.capture());
+        return captor.getValue();
+    }
+}
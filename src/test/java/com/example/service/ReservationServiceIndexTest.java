@@ -0,0 +1,109 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.isNull;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+import com.example.config.AvailabilityIndexConfig;
+import com.example.config.BulkReservationConfig;
+import com.example.config.LabConfig;
+import com.example.config.LeaseConfig;
+import com.example.metrics.ReservationMetrics;
+import com.example.model.dao.MobilePhoneDao;
+import com.example.model.dto.PhoneAvailability;
+import com.example.service.AvailabilityIndex.Status;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * Runs {@link ReservationService} against a real {@link AvailabilityIndex}, completing the transactions of
+ * interleaved requests in a chosen order.
+ */
+public class ReservationServiceIndexTest {
+
+    private static final String IMEI = "111111111111111";
+
+    @Mock
+    private MobilePhoneDao mobilePhoneDao;
+
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private WaitlistService waitlistService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private SlotIndex slotIndex;
+
+    private AvailabilityIndex availabilityIndex;
+
+    private ReservationService reservationService;
+
+    /**
+     * The completion callbacks of the transactions that have not completed yet, in the order they were registered.
+     */
+    private final List<Consumer<Boolean>> pending = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        when(mobilePhoneDao.findAvailabilityByLab("default"))
+            .thenReturn(List.of(new PhoneAvailability(IMEI, true, null)));
+        availabilityIndex = spy(new AvailabilityIndex(mobilePhoneDao, new AvailabilityIndexConfig(), new LabConfig()));
+        availabilityIndex.load("default");
+        reservationService = new ReservationService(mobilePhoneDao, outboxService, availabilityIndex,
+            new BulkReservationConfig(), new ReservationMetrics(new SimpleMeterRegistry()), waitlistService,
+            eventPublisher, new LeaseConfig(), slotIndex);
+        doAnswer(invocation -> pending.add(invocation.getArgument(0))).when(availabilityIndex).afterCompletion(any());
+    }
+
+    @Test
+    public void testBookingCommittedBeforeReturnDoesNotOverwriteIt() {
+        when(mobilePhoneDao.bookByImei(eq(IMEI), eq("alice"), any(Date.class), isNull())).thenReturn(1);
+        when(mobilePhoneDao.returnByImei(IMEI)).thenReturn(1);
+        reservationService.bookPhone(IMEI, "alice");
+        // The booking has committed in the database, but its callback has not run yet
+        reservationService.returnPhone(IMEI);
+        Consumer<Boolean> booking = pending.get(0);
+        Consumer<Boolean> giveBack = pending.get(1);
+
+        giveBack.accept(true);
+        assertEquals(Status.AVAILABLE, availabilityIndex.get("default", IMEI).getStatus());
+        booking.accept(true);
+
+        // The phone is checked against the database again, where it is available
+        assertNull(availabilityIndex.get("default", IMEI));
+        when(mobilePhoneDao.bookByImei(eq(IMEI), eq("bob"), any(Date.class), isNull())).thenReturn(1);
+        reservationService.bookPhone(IMEI, "bob");
+        pending.get(2).accept(true);
+        assertEquals("bob", availabilityIndex.get("default", IMEI).getHolder());
+    }
+
+    @Test
+    public void testCallbacksInCommitOrderKeepThePhoneIndexed() {
+        when(mobilePhoneDao.bookByImei(eq(IMEI), eq("alice"), any(Date.class), isNull())).thenReturn(1);
+        when(mobilePhoneDao.returnByImei(IMEI)).thenReturn(1);
+        reservationService.bookPhone(IMEI, "alice");
+        pending.get(0).accept(true);
+        reservationService.returnPhone(IMEI);
+        pending.get(1).accept(true);
+
+        assertEquals(Status.AVAILABLE, availabilityIndex.get("default", IMEI).getStatus());
+    }
+}
@@ -1,27 +1,49 @@
 package com.example.service;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyLong;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.isNull;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
-import com.example.config.ApplicationConfig;
+import com.example.config.BulkReservationConfig;
+import com.example.config.LeaseConfig;
 import com.example.config.RabbitInitialise;
+import com.example.metrics.ReservationMetrics;
 import com.example.model.dao.MobilePhoneDao;
+import com.example.model.dto.BulkMode;
+import com.example.model.dto.ReservationOutcome;
+import com.example.model.dto.ReservationResult;
 import com.example.model.entity.MobilePhoneEntity;
+import com.example.model.entity.PhoneEventType;
+import com.example.model.exception.BadRequestException;
 import com.example.model.exception.MobilePhoneNotAvailableException;
 import com.example.model.exception.MobilePhoneNotBookedException;
+import com.example.model.exception.MobilePhoneNotFoundException;
 import com.example.rabbitmq.DeclerationUtils;
 import com.example.rabbitmq.QueueMessageSender;
+import com.example.service.AvailabilityIndex.PhoneState;
+import com.example.service.SlotIndex.Slot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
@@ -29,6 +51,7 @@ import org.mockito.Spy;
 import org.springframework.amqp.core.AmqpTemplate;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.amqp.RabbitAutoConfiguration;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -44,7 +67,7 @@ public class ReservationServiceTest {
     private MobilePhoneDao mobilePhoneDao;
 
     @Mock
-    private QueueMessageSender queueMessageSender;
+    private OutboxService outboxService;
 
 
     @InjectMocks
@@ -52,31 +75,44 @@ public class ReservationServiceTest {
 
 
     @Mock
-    private ApplicationConfig applicationConfig;
+    private AvailabilityIndex availabilityIndex;
+
+    @Spy
+    private BulkReservationConfig bulkReservationConfig = new BulkReservationConfig();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private ReservationMetrics reservationMetrics = new ReservationMetrics(meterRegistry);
+
+    @Mock
+    private WaitlistService waitlistService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private LeaseConfig leaseConfig = new LeaseConfig();
+
+    @Mock
+    private SlotIndex slotIndex;
 
     @BeforeEach
     public void setup() {
         MockitoAnnotations.openMocks(this);
-        // Mock the behavior of applicationConfig
-        when(applicationConfig.getBookPhoneExchange()).thenReturn("BookPhoneExchange");
-        when(applicationConfig.getReturnPhoneExchange()).thenReturn("ReturnPhoneExchange");
-
+        when(availabilityIndex.labOf(any())).thenReturn("default");
     }
     @Test
     public void testBookPhoneSuccess() {
         String imei = "111111111111111";
         String bookedBy = "user123";
-        MobilePhoneEntity mobilePhoneEntity = new MobilePhoneEntity();
-        mobilePhoneEntity.setAvailable(true);
-        mobilePhoneEntity.setImei(imei);
-        doReturn(Optional.of(mobilePhoneEntity)).when(mobilePhoneDao).findByImei(imei);
+        when(mobilePhoneDao.bookByImei(eq(imei), eq(bookedBy), any(Date.class), isNull())).thenReturn(1);
 
         reservationService.bookPhone(imei, bookedBy);
 
-        verify(mobilePhoneDao, times(1)).findByImei(imei);
-        verify(mobilePhoneDao, times(1)).save(mobilePhoneEntity);
-        verify(queueMessageSender, times(1)).send(eq("BookPhoneExchange"), isNull(),
-            eq(imei + " is booked"));
+        verify(mobilePhoneDao, times(1)).bookByImei(eq(imei), eq(bookedBy), any(Date.class), isNull());
+        verifyNoMoreInteractions(mobilePhoneDao);
+        verify(outboxService, times(1)).enqueue(PhoneEventType.BOOKED, imei, bookedBy);
     }
 
     @Test
@@ -85,33 +121,56 @@ public class ReservationServiceTest {
         String bookedBy = "user123";
         MobilePhoneEntity mobilePhoneEntity = new MobilePhoneEntity();
         mobilePhoneEntity.setAvailable(false);
+        mobilePhoneEntity.setBookedBy("user456");
+        when(mobilePhoneDao.bookByImei(eq(imei), eq(bookedBy), any(Date.class), isNull())).thenReturn(0);
         when(mobilePhoneDao.findByImei(imei)).thenReturn(Optional.of(mobilePhoneEntity));
 
         // Assert that MobilePhoneNotAvailableException is thrown
-        assertThrows(MobilePhoneNotAvailableException.class,
+        MobilePhoneNotAvailableException exception = assertThrows(MobilePhoneNotAvailableException.class,
             () -> reservationService.bookPhone(imei, bookedBy));
+        assertSame(MobilePhoneNotAvailableException.IN_USE, exception);
 
+        verify(mobilePhoneDao, times(1)).bookByImei(eq(imei), eq(bookedBy), any(Date.class), isNull());
         verify(mobilePhoneDao, times(1)).findByImei(imei);
         verifyNoMoreInteractions(mobilePhoneDao);
-        verifyNoInteractions(queueMessageSender);
+        verifyNoInteractions(outboxService);
+    }
+
+    @Test
+    public void testBookPhoneRejectedByAvailabilityIndex() {
+        String imei = "123456789012345";
+        when(availabilityIndex.get("default", imei)).thenReturn(PhoneState.booked("user456"));
+
+        MobilePhoneNotAvailableException exception = assertThrows(MobilePhoneNotAvailableException.class,
+            () -> reservationService.bookPhone(imei, "user123"));
+        assertSame(MobilePhoneNotAvailableException.IN_USE, exception);
+
+        verifyNoInteractions(mobilePhoneDao);
+        verifyNoInteractions(outboxService);
+    }
+
+    @Test
+    public void testBookPhoneNotFound() {
+        String imei = "123456789012345";
+        when(mobilePhoneDao.bookByImei(eq(imei), eq("user123"), any(Date.class), isNull())).thenReturn(0);
+        when(mobilePhoneDao.findByImei(imei)).thenReturn(Optional.empty());
+
+        assertThrows(MobilePhoneNotFoundException.class, () -> reservationService.bookPhone(imei, "user123"));
+
+        verifyNoInteractions(outboxService);
     }
 
 
     @Test
     public void testReturnPhoneSuccess() {
         String imei = "123456789012345";
-        MobilePhoneEntity mobilePhoneEntity = new MobilePhoneEntity();
-        mobilePhoneEntity.setAvailable(false);
-        mobilePhoneEntity.setBookedBy("user123");
-        mobilePhoneEntity.setBookedDate(new Date());
-        when(mobilePhoneDao.findByImei(imei)).thenReturn(Optional.of(mobilePhoneEntity));
+        when(mobilePhoneDao.returnByImei(imei)).thenReturn(1);
 
         reservationService.returnPhone(imei);
 
-        verify(mobilePhoneDao, times(1)).findByImei(imei);
-        verify(mobilePhoneDao, times(1)).save(mobilePhoneEntity);
-        verify(queueMessageSender, times(1)).send(eq("ReturnPhoneExchange"), isNull(),
-            eq(imei + " is returned"));
+        verify(mobilePhoneDao, times(1)).returnByImei(imei);
+        verifyNoMoreInteractions(mobilePhoneDao);
+        verify(outboxService, times(1)).enqueue(eq(PhoneEventType.RETURNED), eq(imei), isNull());
     }
 
     @Test
@@ -119,14 +178,244 @@ public class ReservationServiceTest {
         String imei = "111111111111111";
         MobilePhoneEntity mobilePhoneEntity = new MobilePhoneEntity();
         mobilePhoneEntity.setAvailable(true);
+        when(mobilePhoneDao.returnByImei(imei)).thenReturn(0);
         when(mobilePhoneDao.findByImei(imei)).thenReturn(Optional.of(mobilePhoneEntity));
 
         // Assert that MobilePhoneNotBookedException is thrown
         assertThrows(MobilePhoneNotBookedException.class, () -> reservationService.returnPhone(imei));
 
+        verify(mobilePhoneDao, times(1)).returnByImei(imei);
         verify(mobilePhoneDao, times(1)).findByImei(imei);
         verifyNoMoreInteractions(mobilePhoneDao);
-        verifyNoInteractions(queueMessageSender);
+        verifyNoInteractions(outboxService);
+    }
+
+    @Test
+    public void testReturnPhoneRejectedByAvailabilityIndex() {
+        String imei = "111111111111111";
+        when(availabilityIndex.get("default", imei)).thenReturn(PhoneState.available());
+
+        assertThrows(MobilePhoneNotBookedException.class, () -> reservationService.returnPhone(imei));
+
+        verifyNoInteractions(mobilePhoneDao);
+        verifyNoInteractions(outboxService);
+    }
+
+    @Test
+    public void testReturnPhoneNotFound() {
+        String imei = "111111111111111";
+        when(mobilePhoneDao.returnByImei(imei)).thenReturn(0);
+        when(mobilePhoneDao.findByImei(imei)).thenReturn(Optional.empty());
+
+        assertThrows(MobilePhoneNotFoundException.class, () -> reservationService.returnPhone(imei));
+
+        verifyNoInteractions(outboxService);
+    }
+
+    @Test
+    public void testBookPhonesBestEffort() {
+        MobilePhoneEntity bookedPhone = new MobilePhoneEntity();
+        bookedPhone.setImei("222222222222222");
+        bookedPhone.setAvailable(false);
+        bookedPhone.setBookedBy("user456");
+        when(mobilePhoneDao.bookAllByImei(eq(List.of("111111111111111", "222222222222222", "333333333333333")),
+            eq("user123"), any(Date.class), isNull())).thenReturn(new int[]{1, 0, 0});
+        when(mobilePhoneDao.findAllByImeiIn(List.of("222222222222222", "333333333333333")))
+            .thenReturn(List.of(bookedPhone));
+
+        List<ReservationResult> results = reservationService.bookPhones(
+            List.of("111111111111111", "222222222222222", "333333333333333"), "user123", BulkMode.BEST_EFFORT);
+
+        assertEquals(List.of(ReservationOutcome.BOOKED, ReservationOutcome.NOT_AVAILABLE,
+            ReservationOutcome.NOT_FOUND), results.stream().map(ReservationResult::outcome).toList());
+        verify(outboxService, times(1)).enqueueAll(PhoneEventType.BOOKED, List.of("111111111111111"), "user123");
+    }
+
+    @Test
+    public void testBookPhonesAllOrNothing() {
+        when(mobilePhoneDao.bookAllByImei(eq(List.of("111111111111111", "333333333333333")), eq("user123"),
+            any(Date.class), isNull())).thenReturn(new int[]{1, 0});
+        when(mobilePhoneDao.findAllByImeiIn(List.of("333333333333333"))).thenReturn(List.of());
+
+        List<ReservationResult> results = reservationService.bookPhones(
+            List.of("111111111111111", "333333333333333"), "user123", BulkMode.ALL_OR_NOTHING);
+
+        assertEquals(List.of(ReservationOutcome.ROLLED_BACK, ReservationOutcome.NOT_FOUND),
+            results.stream().map(ReservationResult::outcome).toList());
+        verifyNoInteractions(outboxService);
+    }
+
+    @Test
+    public void testReturnPhonesSuccess() {
+        when(mobilePhoneDao.returnAllByImei(List.of("111111111111111", "222222222222222")))
+            .thenReturn(new int[]{1, 1});
+
+        List<ReservationResult> results = reservationService.returnPhones(
+            List.of("111111111111111", "222222222222222"), BulkMode.ALL_OR_NOTHING);
+
+        assertEquals(List.of(ReservationOutcome.RETURNED, ReservationOutcome.RETURNED),
+            results.stream().map(ReservationResult::outcome).toList());
+        verify(mobilePhoneDao, never()).findAllByImeiIn(any());
+        verify(outboxService, times(1)).enqueueAll(eq(PhoneEventType.RETURNED),
+            eq(List.of("111111111111111", "222222222222222")), isNull());
     }
 
+    @Test
+    public void testBookPhonesDuplicateImei() {
+        assertThrows(BadRequestException.class, () -> reservationService.bookPhones(
+            List.of("111111111111111", "111111111111111"), "user123", BulkMode.BEST_EFFORT));
+
+        verifyNoInteractions(mobilePhoneDao);
+    }
+
+    @Test
+    public void testBookPhoneRecordsOutcomeAndPhases() {
+        when(mobilePhoneDao.bookByImei(eq("111111111111111"), eq("user123"), any(Date.class), isNull()))
+            .thenReturn(1);
+
+        reservationService.bookPhone("111111111111111", "user123");
+
+        assertEquals(1, requests("book", "booked"));
+        assertEquals(1, meterRegistry.get("reservation.phase").tags("operation", "book", "phase", "update")
+            .timer().count());
+        assertEquals(1, meterRegistry.get("reservation.phase").tags("operation", "book", "phase", "publish")
+            .timer().count());
+        assertEquals(0, meterRegistry.get("reservation.phase").tags("operation", "book", "phase", "lookup")
+            .timer().count());
+    }
+
+    @Test
+    public void testBookPhoneConflictIsRecorded() {
+        when(availabilityIndex.get("default", "111111111111111")).thenReturn(PhoneState.booked("user456"));
+
+        assertThrows(MobilePhoneNotAvailableException.class,
+            () -> reservationService.bookPhone("111111111111111", "user123"));
+
+        assertEquals(1, requests("book", "conflict"));
+        assertEquals(0, requests("book", "booked"));
+    }
+
+    @Test
+    public void testReturnPhoneHandsOverToWaiter() {
+        when(mobilePhoneDao.returnByImei("111111111111111")).thenReturn(1);
+        when(waitlistService.handOver(List.of("111111111111111"))).thenReturn(Map.of("111111111111111", "waiter"));
+
+        reservationService.returnPhone("111111111111111");
+
+        verify(outboxService, times(1)).enqueue(eq(PhoneEventType.RETURNED), eq("111111111111111"), isNull());
+        verify(waitlistService, times(1)).handOver(List.of("111111111111111"));
+        // The waitlist publishes the booking of the waiter
+        verify(eventPublisher, never()).publishEvent(PhoneAvailabilityChangedEvent.returned("111111111111111"));
+    }
+
+    @Test
+    public void testBookPhoneWithLease() {
+        when(mobilePhoneDao.bookByImei(eq("111111111111111"), eq("user123"), any(Date.class), any(Date.class)))
+            .thenReturn(1);
+
+        reservationService.bookPhone("111111111111111", "user123", Duration.ofHours(2));
+
+        ArgumentCaptor<Date> leaseExpiresAt = ArgumentCaptor.forClass(Date.class);
+        verify(mobilePhoneDao, times(1)).bookByImei(eq("111111111111111"), eq("user123"), any(Date.class),
+            leaseExpiresAt.capture());
+        long remaining = leaseExpiresAt.getValue().getTime() - System.currentTimeMillis();
+        assertTrue(remaining > Duration.ofMinutes(119).toMillis() && remaining <= Duration.ofHours(2).toMillis());
+        verify(eventPublisher, times(1)).publishEvent(
+            PhoneAvailabilityChangedEvent.booked("111111111111111", "user123", leaseExpiresAt.getValue()));
+    }
+
+    @Test
+    public void testBookPhoneWithTooLongLease() {
+        assertThrows(BadRequestException.class,
+            () -> reservationService.bookPhone("111111111111111", "user123", Duration.ofDays(31)));
+
+        verifyNoInteractions(mobilePhoneDao);
+        assertEquals(1, requests("book", "bad-request"));
+    }
+
+    @Test
+    public void testExpireLeaseReturnsPhone() {
+        when(mobilePhoneDao.returnIfLeaseExpired(eq("111111111111111"), any(Date.class))).thenReturn(1);
+
+        assertTrue(reservationService.expireLease("111111111111111"));
+
+        verify(outboxService, times(1)).enqueue(eq(PhoneEventType.RETURNED), eq("111111111111111"), isNull());
+        verify(waitlistService, times(1)).handOver(List.of("111111111111111"));
+        verify(eventPublisher, times(1)).publishEvent(PhoneAvailabilityChangedEvent.returned("111111111111111"));
+        assertEquals(1, requests("expire", "returned"));
+    }
+
+    @Test
+    public void testExpireLeaseThatNoLongerApplies() {
+        when(mobilePhoneDao.returnIfLeaseExpired(eq("111111111111111"), any(Date.class))).thenReturn(0);
+
+        assertFalse(reservationService.expireLease("111111111111111"));
+
+        verify(mobilePhoneDao, never()).findByImei(any());
+        verifyNoInteractions(outboxService, waitlistService, eventPublisher);
+        assertEquals(1, requests("expire", "conflict"));
+    }
+
+    @Test
+    public void testBookPhoneDuringSlotOfAnotherUser() {
+        long now = System.currentTimeMillis();
+        when(slotIndex.nextOf(eq("111111111111111"), eq("user123"), anyLong()))
+            .thenReturn(new Slot(1L, "111111111111111", "user456", now - 60000, now + 60000));
+
+        MobilePhoneNotAvailableException exception = assertThrows(MobilePhoneNotAvailableException.class,
+            () -> reservationService.bookPhone("111111111111111", "user123"));
+
+        assertTrue(exception.getMessage().startsWith("111111111111111 is reserved by user456"));
+        verifyNoInteractions(mobilePhoneDao, outboxService);
+    }
+
+    @Test
+    public void testBookPhoneLeaseEndsWhenSlotStarts() {
+        long slotStart = System.currentTimeMillis() + Duration.ofHours(1).toMillis();
+        when(slotIndex.nextOf(eq("111111111111111"), eq("user123"), anyLong()))
+            .thenReturn(new Slot(1L, "111111111111111", "user456", slotStart, slotStart + 60000));
+        when(mobilePhoneDao.bookByImei(eq("111111111111111"), eq("user123"), any(Date.class), any(Date.class)))
+            .thenReturn(1);
+
+        reservationService.bookPhone("111111111111111", "user123", Duration.ofHours(2));
+
+        verify(mobilePhoneDao, times(1)).bookByImei(eq("111111111111111"), eq("user123"), any(Date.class),
+            eq(new Date(slotStart)));
+        verify(eventPublisher, times(1)).publishEvent(
+            PhoneAvailabilityChangedEvent.booked("111111111111111", "user123", new Date(slotStart)));
+    }
+
+    @Test
+    public void testBookPhoneReservedWhileBooking() {
+        long slotStart = System.currentTimeMillis() + Duration.ofHours(1).toMillis();
+        when(slotIndex.nextOf(eq("111111111111111"), eq("user123"), anyLong()))
+            .thenReturn(null, new Slot(1L, "111111111111111", "user456", slotStart, slotStart + 60000));
+        when(mobilePhoneDao.bookByImei(eq("111111111111111"), eq("user123"), any(Date.class), isNull()))
+            .thenReturn(1);
+
+        assertThrows(MobilePhoneNotAvailableException.class,
+            () -> reservationService.bookPhone("111111111111111", "user123"));
+
+        verifyNoInteractions(outboxService, eventPublisher);
+    }
+
+    @Test
+    public void testBookPhonesSkipsPhoneReservedBeforeLeaseEnds() {
+        long slotStart = System.currentTimeMillis() + Duration.ofHours(1).toMillis();
+        when(slotIndex.nextOf(eq("222222222222222"), eq("user123"), anyLong()))
+            .thenReturn(new Slot(1L, "222222222222222", "user456", slotStart, slotStart + 60000));
+        when(mobilePhoneDao.bookAllByImei(eq(List.of("111111111111111")), eq("user123"), any(Date.class), isNull()))
+            .thenReturn(new int[]{1});
+
+        List<ReservationResult> results = reservationService.bookPhones(
+            List.of("111111111111111", "222222222222222"), "user123", BulkMode.BEST_EFFORT);
+
+        assertEquals(List.of(ReservationOutcome.BOOKED, ReservationOutcome.NOT_AVAILABLE),
+            results.stream().map(ReservationResult::outcome).toList());
+    }
+
+    private long requests(String operation, String outcome) {
+        return meterRegistry.get("reservation.requests").tags("operation", operation, "outcome", outcome)
+            .timer().count();
+    }
 }
@@ -0,0 +1,115 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.example.config.SlotConfig;
+import com.example.model.dao.SlotReservationDao;
+import com.example.service.SlotIndex.Slot;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class SlotIndexTest {
+
+    private static final String IMEI = "111111111111111";
+
+    @Mock
+    private SlotReservationDao slotReservationDao;
+
+    private final SlotConfig slotConfig = new SlotConfig();
+
+    private SlotIndex slotIndex;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        slotIndex = new SlotIndex(slotReservationDao, slotConfig);
+    }
+
+    @Test
+    public void testOverlappingSlotIsRejected() {
+        Slot morning = slot(1L, "first", 100, 200);
+        assertNull(slotIndex.add(morning));
+
+        assertEquals(morning, slotIndex.add(slot(2L, "second", 150, 250)));
+        assertEquals(morning, slotIndex.add(slot(3L, "second", 50, 150)));
+        assertEquals(morning, slotIndex.add(slot(4L, "second", 120, 180)));
+        assertEquals(morning, slotIndex.add(slot(5L, "second", 0, 300)));
+        assertEquals(List.of(morning), slotIndex.slotsOf(IMEI, 0));
+    }
+
+    @Test
+    public void testAdjacentSlotsDoNotOverlap() {
+        assertNull(slotIndex.add(slot(1L, "first", 100, 200)));
+        assertNull(slotIndex.add(slot(2L, "second", 200, 300)));
+        assertNull(slotIndex.add(slot(3L, "third", 0, 100)));
+
+        assertNull(slotIndex.overlapping(IMEI, 300, 400));
+        assertEquals(3, slotIndex.slotsOf(IMEI, 0).size());
+    }
+
+    @Test
+    public void testOverlappingFindsSlotAmongMany() {
+        for (long i = 0; i < 1000; i++) {
+            slotIndex.add(slot(i, "user", i * 10, i * 10 + 5));
+        }
+
+        assertNull(slotIndex.overlapping(IMEI, 5005, 5010));
+        assertEquals(500L, slotIndex.overlapping(IMEI, 5004, 5006).id());
+        assertNull(slotIndex.overlapping("222222222222222", 0, 10000));
+    }
+
+    @Test
+    public void testNextOfSkipsOwnSlots() {
+        Slot own = slot(1L, "user", 100, 200);
+        Slot other = slot(2L, "other", 300, 400);
+        slotIndex.add(own);
+        slotIndex.add(other);
+
+        assertEquals(other, slotIndex.nextOf(IMEI, "user", 150));
+        assertEquals(own, slotIndex.nextOf(IMEI, "other", 150));
+        assertEquals(other, slotIndex.nextOf(IMEI, "user", 350));
+        assertNull(slotIndex.nextOf(IMEI, "user", 400));
+    }
+
+    @Test
+    public void testDisabledSlotsDoNotLimitBookings() {
+        slotIndex.add(slot(1L, "other", 100, 200));
+
+        slotConfig.setEnabled(false);
+
+        assertNull(slotIndex.nextOf(IMEI, "user", 150));
+    }
+
+    @Test
+    public void testRemovedSlotFreesWindow() {
+        Slot slot = slot(1L, "user", 100, 200);
+        slotIndex.add(slot);
+
+        slotIndex.remove(slot);
+
+        assertNull(slotIndex.overlapping(IMEI, 100, 200));
+        assertNull(slotIndex.add(slot(2L, "other", 150, 250)));
+    }
+
+    @Test
+    public void testPurgeKeepsRunningAndFutureSlots() {
+        long now = System.currentTimeMillis();
+        slotIndex.add(slot(1L, "user", now - 20000, now - 10000));
+        Slot running = slot(2L, "user", now - 10000, now + 10000);
+        Slot future = slot(3L, "user", now + 10000, now + 20000);
+        slotIndex.add(running);
+        slotIndex.add(future);
+
+        slotIndex.purge();
+
+        assertEquals(List.of(running, future), slotIndex.slotsOf(IMEI, 0));
+    }
+
+    private static Slot slot(Long id, String username, long start, long end) {
+        return new Slot(id, IMEI, username, start, end);
+    }
+}
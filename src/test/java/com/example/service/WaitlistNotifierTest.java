@@ -0,0 +1,57 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.example.model.dto.WaitlistEntryView;
+import com.example.model.entity.WaitlistStatus;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
+
+public class WaitlistNotifierTest {
+
+    private final WaitlistNotifier waitlistNotifier = new WaitlistNotifier();
+
+    @Test
+    public void testNotifyCallsEveryListenerOnce() {
+        List<WaitlistEntryView> first = new ArrayList<>();
+        List<WaitlistEntryView> second = new ArrayList<>();
+        waitlistNotifier.subscribe(1L, first::add);
+        waitlistNotifier.subscribe(1L, second::add);
+        WaitlistEntryView assigned = view(1L);
+
+        waitlistNotifier.notify(assigned);
+        waitlistNotifier.notify(assigned);
+
+        assertEquals(List.of(assigned), first);
+        assertEquals(List.of(assigned), second);
+        assertEquals(0, waitlistNotifier.getSubscribedEntries());
+    }
+
+    @Test
+    public void testUnsubscribedPollsLeaveNothingBehind() {
+        List<WaitlistEntryView> notified = new ArrayList<>();
+        Consumer<WaitlistEntryView> kept = notified::add;
+        waitlistNotifier.subscribe(1L, kept);
+        for (int poll = 0; poll < 100; poll++) {
+            Consumer<WaitlistEntryView> timedOut = entry -> { };
+            waitlistNotifier.subscribe(1L, timedOut);
+            waitlistNotifier.subscribe(2L, timedOut);
+            waitlistNotifier.unsubscribe(1L, timedOut);
+            waitlistNotifier.unsubscribe(2L, timedOut);
+        }
+
+        assertEquals(1, waitlistNotifier.getSubscribedEntries());
+        waitlistNotifier.unsubscribe(1L, kept);
+        assertEquals(0, waitlistNotifier.getSubscribedEntries());
+        waitlistNotifier.notify(view(1L));
+        assertEquals(List.of(), notified);
+    }
+
+    private static WaitlistEntryView view(Long id) {
+        return new WaitlistEntryView(id, "111111111111111", null, WaitlistStatus.ASSIGNED, "111111111111111",
+            new Date(), new Date());
+    }
+}
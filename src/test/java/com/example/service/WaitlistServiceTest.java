@@ -0,0 +1,229 @@
+package com.example.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyLong;
+import static org.mockito.Mockito.anyLong;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.model.dao.MobilePhoneDao;
+import com.example.model.dao.WaitlistEntryDao;
+import com.example.model.dto.WaitlistEntryView;
+import com.example.model.entity.MobilePhoneEntity;
+import com.example.model.entity.PhoneEventType;
+import com.example.model.entity.WaitlistEntryEntity;
+import com.example.model.entity.WaitlistStatus;
+import com.example.model.exception.MobilePhoneNotFoundException;
+import com.example.model.exception.WaitlistEntryNotFoundException;
+import com.example.model.exception.WaitlistEntryNotWaitingException;
+import com.example.service.SlotIndex.Slot;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+
+public class WaitlistServiceTest {
+
+    private static final String IMEI = "111111111111111";
+    private static final String MODEL = "Samsung Galaxy S9";
+
+    @Mock
+    private WaitlistEntryDao waitlistEntryDao;
+
+    @Mock
+    private MobilePhoneDao mobilePhoneDao;
+
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private AvailabilityIndex availabilityIndex;
+
+    @Mock
+    private WaitlistNotifier waitlistNotifier;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private SlotIndex slotIndex;
+
+    @InjectMocks
+    private WaitlistService waitlistService;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        when(mobilePhoneDao.findAllByImeiIn(List.of(IMEI))).thenReturn(List.of(phone(true)));
+    }
+
+    @Test
+    public void testHandOverToOldestWaiter() {
+        when(waitlistEntryDao.findWaitingFor(eq(List.of(IMEI)), any())).thenReturn(List.of(
+            entry(1L, IMEI, null, "first"), entry(2L, null, MODEL, "second")));
+        when(waitlistEntryDao.assign(eq(1L), eq(IMEI), any(Date.class))).thenReturn(1);
+        when(mobilePhoneDao.bookByImei(eq(IMEI), eq("first"), any(Date.class), isNull())).thenReturn(1);
+
+        Map<String, String> handedOver = waitlistService.handOver(List.of(IMEI));
+
+        assertEquals(Map.of(IMEI, "first"), handedOver);
+        verify(waitlistEntryDao, never()).assign(eq(2L), any(), any());
+        verify(outboxService, times(1)).enqueue(PhoneEventType.BOOKED, IMEI, "first");
+        verify(eventPublisher, times(1)).publishEvent(any(WaitlistEntryChangedEvent.class));
+    }
+
+    @Test
+    public void testHandOverToModelWaiter() {
+        when(waitlistEntryDao.findWaitingFor(eq(List.of(IMEI)), any())).thenReturn(List.of(
+            entry(1L, "999999999999999", null, "other-phone"), entry(2L, null, MODEL, "any-phone")));
+        when(waitlistEntryDao.assign(eq(2L), eq(IMEI), any(Date.class))).thenReturn(1);
+        when(mobilePhoneDao.bookByImei(eq(IMEI), eq("any-phone"), any(Date.class), isNull())).thenReturn(1);
+
+        assertEquals(Map.of(IMEI, "any-phone"), waitlistService.handOver(List.of(IMEI)));
+        verify(waitlistEntryDao, never()).assign(eq(1L), any(), any());
+    }
+
+    @Test
+    public void testHandOverKeepsPlaceWhenPhoneWasTaken() {
+        when(waitlistEntryDao.findWaitingFor(eq(List.of(IMEI)), any())).thenReturn(List.of(
+            entry(1L, IMEI, null, "first")));
+        when(waitlistEntryDao.assign(eq(1L), eq(IMEI), any(Date.class))).thenReturn(1);
+        when(mobilePhoneDao.bookByImei(eq(IMEI), eq("first"), any(Date.class), isNull())).thenReturn(0);
+
+        assertEquals(Map.of(), waitlistService.handOver(List.of(IMEI)));
+        verify(waitlistEntryDao, times(1)).unassign(1L);
+        verify(outboxService, never()).enqueue(any(), any(), any());
+    }
+
+    @Test
+    public void testHandOverEndsWhenSlotStarts() {
+        long slotStart = System.currentTimeMillis() + 3600000;
+        when(waitlistEntryDao.findWaitingFor(eq(List.of(IMEI)), any())).thenReturn(List.of(
+            entry(1L, IMEI, null, "first")));
+        when(slotIndex.nextOf(eq(IMEI), eq("first"), anyLong()))
+            .thenReturn(new Slot(1L, IMEI, "other", slotStart, slotStart + 60000));
+        when(waitlistEntryDao.assign(eq(1L), eq(IMEI), any(Date.class))).thenReturn(1);
+        when(mobilePhoneDao.bookByImei(eq(IMEI), eq("first"), any(Date.class), eq(new Date(slotStart))))
+            .thenReturn(1);
+
+        assertEquals(Map.of(IMEI, "first"), waitlistService.handOver(List.of(IMEI)));
+        verify(eventPublisher, times(1))
+            .publishEvent(PhoneAvailabilityChangedEvent.booked(IMEI, "first", new Date(slotStart)));
+    }
+
+    @Test
+    public void testNoHandOverDuringSlotOfAnotherUser() {
+        long now = System.currentTimeMillis();
+        when(waitlistEntryDao.findWaitingFor(eq(List.of(IMEI)), any())).thenReturn(List.of(
+            entry(1L, IMEI, null, "first")));
+        when(slotIndex.nextOf(eq(IMEI), eq("first"), anyLong()))
+            .thenReturn(new Slot(1L, IMEI, "other", now - 60000, now + 60000));
+
+        assertEquals(Map.of(), waitlistService.handOver(List.of(IMEI)));
+        verify(waitlistEntryDao, never()).assign(any(), any(), any());
+    }
+
+    @Test
+    public void testHandOverWithoutWaiters() {
+        when(waitlistEntryDao.findWaitingFor(eq(List.of(IMEI)), any())).thenReturn(List.of());
+
+        assertEquals(Map.of(), waitlistService.handOver(List.of(IMEI)));
+        verify(mobilePhoneDao, never()).findAllByImeiIn(any());
+    }
+
+    @Test
+    public void testJoinForBookedPhoneWaits() {
+        when(mobilePhoneDao.findByImei(IMEI)).thenReturn(Optional.of(phone(false)));
+        when(waitlistEntryDao.save(any())).thenAnswer(invocation -> {
+            WaitlistEntryEntity entry = invocation.getArgument(0);
+            entry.setId(5L);
+            return entry;
+        });
+
+        WaitlistEntryView entry = waitlistService.joinForPhone(IMEI, "user123");
+
+        assertEquals(WaitlistStatus.WAITING, entry.status());
+        assertEquals(5L, entry.id());
+        verify(waitlistEntryDao, never()).assign(anyLong(), any(), any());
+    }
+
+    @Test
+    public void testJoinForUnknownPhone() {
+        when(mobilePhoneDao.findByImei(IMEI)).thenReturn(Optional.empty());
+
+        assertThrows(MobilePhoneNotFoundException.class, () -> waitlistService.joinForPhone(IMEI, "user123"));
+        verify(waitlistEntryDao, never()).save(any());
+    }
+
+    @Test
+    public void testCancelAssignedEntry() {
+        when(waitlistEntryDao.findByIdAndUsername(1L, "user123"))
+            .thenReturn(Optional.of(entry(1L, IMEI, null, "user123")));
+        when(waitlistEntryDao.cancel(1L, "user123")).thenReturn(0);
+
+        assertThrows(WaitlistEntryNotWaitingException.class, () -> waitlistService.cancel(1L, "user123"));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    public void testAwaitChangeSubscribesBeforeReading() {
+        Consumer<WaitlistEntryView> listener = changed -> { };
+        when(waitlistEntryDao.findByIdAndUsername(1L, "user123"))
+            .thenReturn(Optional.of(entry(1L, IMEI, null, "user123")));
+
+        assertEquals(WaitlistStatus.WAITING, waitlistService.awaitChange(1L, "user123", listener).status());
+
+        InOrder inOrder = inOrder(waitlistNotifier, waitlistEntryDao);
+        inOrder.verify(waitlistNotifier).subscribe(1L, listener);
+        inOrder.verify(waitlistEntryDao).findByIdAndUsername(1L, "user123");
+        verify(waitlistNotifier, never()).unsubscribe(any(), any());
+    }
+
+    @Test
+    public void testAwaitChangeOfChangedEntryUnsubscribes() {
+        Consumer<WaitlistEntryView> listener = changed -> { };
+        WaitlistEntryEntity cancelled = entry(1L, IMEI, null, "user123");
+        cancelled.setStatus(WaitlistStatus.CANCELLED);
+        when(waitlistEntryDao.findByIdAndUsername(1L, "user123")).thenReturn(Optional.of(cancelled));
+
+        assertEquals(WaitlistStatus.CANCELLED, waitlistService.awaitChange(1L, "user123", listener).status());
+        assertThrows(WaitlistEntryNotFoundException.class, () -> waitlistService.awaitChange(2L, "user123", listener));
+
+        verify(waitlistNotifier, times(1)).unsubscribe(1L, listener);
+        verify(waitlistNotifier, times(1)).unsubscribe(2L, listener);
+    }
+
+    private static MobilePhoneEntity phone(boolean available) {
+        MobilePhoneEntity mobilePhoneEntity = new MobilePhoneEntity();
+        mobilePhoneEntity.setImei(IMEI);
+        mobilePhoneEntity.setModel(MODEL);
+        mobilePhoneEntity.setAvailable(available);
+        return mobilePhoneEntity;
+    }
+
+    private static WaitlistEntryEntity entry(Long id, String imei, String model, String username) {
+        WaitlistEntryEntity entry = new WaitlistEntryEntity();
+        entry.setId(id);
+        entry.setImei(imei);
+        entry.setModel(model);
+        entry.setUsername(username);
+        entry.setStatus(WaitlistStatus.WAITING);
+        entry.setCreatedDate(new Date());
+        return entry;
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.config.StreamConfig;
+import com.example.model.dao.MobilePhoneDao;
+import com.example.model.dto.PhoneAvailability;
+import com.example.model.exception.FeatureDisabledException;
+import com.example.service.PhoneAvailabilityChangedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public class AvailabilityStreamTest {
+
+    private static final String IMEI = "111111111111111";
+    private static final long WAIT_SECONDS = 5;
+
+    @Mock
+    private MobilePhoneDao mobilePhoneDao;
+
+    private final StreamConfig streamConfig = new StreamConfig();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private AvailabilityStream availabilityStream;
+
+    /**
+     * Records the events sent to it instead of writing them to a response. Sends can be held up to play a client
+     * that does not read.
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private final CountDownLatch sendHeld = new CountDownLatch(1);
+        private final AtomicInteger running = new AtomicInteger();
+        private volatile int mostRunning;
+        private volatile CountDownLatch heldUntil;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            mostRunning = Math.max(mostRunning, running.incrementAndGet());
+            try {
+                CountDownLatch held = heldUntil;
+                if (held != null) {
+                    sendHeld.countDown();
+                    held.await();
+                }
+                StringBuilder event = new StringBuilder();
+                builder.build().forEach(data -> event.append(data.getData()));
+                events.add(event.toString());
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+
+        @Override
+        public void completeWithError(Throwable ex) {
+            completed.countDown();
+        }
+
+        private String next() throws InterruptedException {
+            String event = events.poll(WAIT_SECONDS, TimeUnit.SECONDS);
+            assertNotNull(event, "No event was sent");
+            return event;
+        }
+
+        private boolean isCompleted() throws InterruptedException {
+            return completed.await(WAIT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        when(mobilePhoneDao.findAllAvailability()).thenReturn(List.of(new PhoneAvailability(IMEI, true, null)));
+    }
+
+    @AfterEach
+    public void close() {
+        if (availabilityStream != null) {
+            availabilityStream.close();
+        }
+    }
+
+    @Test
+    public void testSnapshotThenChanges() throws Exception {
+        RecordingEmitter emitter = subscribe(null);
+
+        String snapshot = emitter.next();
+        assertTrue(snapshot.contains("event:snapshot"));
+        assertTrue(snapshot.contains(IMEI));
+
+        changed(IMEI, "user");
+
+        String change = emitter.next();
+        assertTrue(change.contains("event:change"));
+        assertTrue(change.contains("\"bookedBy\":\"user\""));
+    }
+
+    @Test
+    public void testResumeReplaysChangesAfterLastEventId() throws Exception {
+        RecordingEmitter first = subscribe(null);
+        first.next();
+        changed(IMEI, "first");
+        String lastEventId = idOf(first.next());
+        changed(IMEI, "second");
+        changed(IMEI, "third");
+        first.next();
+        first.next();
+
+        RecordingEmitter resumed = subscribe(lastEventId);
+
+        assertTrue(resumed.next().contains("\"bookedBy\":\"second\""));
+        assertTrue(resumed.next().contains("\"bookedBy\":\"third\""));
+        verify(mobilePhoneDao, times(1)).findAllAvailability();
+    }
+
+    @Test
+    public void testLastEventIdOfAnotherProcessStartsWithSnapshot() throws Exception {
+        RecordingEmitter emitter = subscribe("lq2x8k3a-42");
+
+        assertTrue(emitter.next().contains("event:snapshot"));
+    }
+
+    @Test
+    public void testLaggingSubscriberIsDropped() throws Exception {
+        streamConfig.setBufferSize(2);
+        RecordingEmitter emitter = subscribe(null);
+        emitter.next();
+        CountDownLatch held = new CountDownLatch(1);
+        emitter.heldUntil = held;
+
+        changed(IMEI, "user");
+        assertTrue(emitter.sendHeld.await(WAIT_SECONDS, TimeUnit.SECONDS));
+        for (int i = 0; i < 4; i++) {
+            changed(IMEI, "user" + i);
+        }
+        held.countDown();
+
+        // The first change is still sent, the rest is no longer buffered
+        assertTrue(emitter.next().contains("\"bookedBy\":\"user\""));
+        assertTrue(emitter.isCompleted());
+        waitUntil(() -> meterRegistry.get("stream.subscribers").gauge().value() == 0);
+    }
+
+    @Test
+    public void testSlowSubscriberIsDroppedAfterSendTimeout() throws Exception {
+        streamConfig.setSendTimeout(Duration.ofMillis(100));
+        RecordingEmitter slow = subscribe(null);
+        RecordingEmitter fast = subscribe(null);
+        slow.next();
+        fast.next();
+        CountDownLatch held = new CountDownLatch(1);
+        slow.heldUntil = held;
+
+        changed(IMEI, "first");
+        assertTrue(fast.next().contains("\"bookedBy\":\"first\""));
+        Thread.sleep(200);
+        changed(IMEI, "second");
+
+        // The slow client does not hold up the others
+        assertTrue(fast.next().contains("\"bookedBy\":\"second\""));
+        waitUntil(() -> meterRegistry.get("stream.subscribers").gauge().value() == 1);
+        assertEquals(1, meterRegistry.get("stream.send.timeouts").counter().count());
+
+        held.countDown();
+        assertTrue(slow.isCompleted());
+        changed(IMEI, "third");
+        assertTrue(fast.next().contains("\"bookedBy\":\"third\""));
+        assertEquals(1, fast.completed.getCount());
+    }
+
+    @Test
+    public void testChangesDuringSendAreSentAfterIt() throws Exception {
+        RecordingEmitter emitter = subscribe(null);
+        emitter.next();
+        CountDownLatch held = new CountDownLatch(1);
+        emitter.heldUntil = held;
+
+        changed(IMEI, "user0");
+        assertTrue(emitter.sendHeld.await(WAIT_SECONDS, TimeUnit.SECONDS));
+        for (int i = 1; i < 4; i++) {
+            changed(IMEI, "user" + i);
+        }
+        held.countDown();
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(emitter.next().contains("\"bookedBy\":\"user" + i + "\""));
+        }
+        assertEquals(1, emitter.mostRunning);
+    }
+
+    @Test
+    public void testDisabledStreamIsNotFound() {
+        streamConfig.setEnabled(false);
+        availabilityStream = stream();
+
+        assertThrows(FeatureDisabledException.class, () -> availabilityStream.subscribe(null));
+    }
+
+    private RecordingEmitter subscribe(String lastEventId) throws IOException {
+        if (availabilityStream == null) {
+            availabilityStream = stream();
+        }
+        return (RecordingEmitter) availabilityStream.subscribe(lastEventId);
+    }
+
+    private AvailabilityStream stream() {
+        return new AvailabilityStream(mobilePhoneDao, streamConfig, new ObjectMapper(), meterRegistry) {
+            @Override
+            SseEmitter newEmitter(long timeout) {
+                return new RecordingEmitter();
+            }
+        };
+    }
+
+    private void changed(String imei, String bookedBy) {
+        availabilityStream.onAvailabilityChanged(PhoneAvailabilityChangedEvent.booked(imei, bookedBy));
+    }
+
+    private static String idOf(String event) {
+        return event.lines().filter(line -> line.startsWith("id:")).findFirst().orElseThrow().substring(3);
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(WAIT_SECONDS);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.example.stream.ChangeLog.Change;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class ChangeLogTest {
+
+    @Test
+    public void testSinceReturnsLaterChanges() {
+        ChangeLog changeLog = new ChangeLog(4);
+        changeLog.append("a");
+        changeLog.append("b");
+        changeLog.append("c");
+
+        assertEquals(List.of(new Change(2, "b"), new Change(3, "c")), changeLog.since(1));
+        assertEquals(List.of(), changeLog.since(3));
+    }
+
+    @Test
+    public void testSinceAfterWrapAround() {
+        ChangeLog changeLog = new ChangeLog(3);
+        for (String payload : List.of("a", "b", "c", "d", "e")) {
+            changeLog.append(payload);
+        }
+
+        assertEquals(List.of(new Change(3, "c"), new Change(4, "d"), new Change(5, "e")), changeLog.since(2));
+        assertNull(changeLog.since(1));
+    }
+
+    @Test
+    public void testSinceUnknownSequence() {
+        ChangeLog changeLog = new ChangeLog(3);
+        changeLog.append("a");
+
+        assertNull(changeLog.since(2));
+        assertNull(changeLog.since(-1));
+    }
+}
@@ -1,2 +1,7 @@
 -- Insert mobile phone models
 DELETE FROM mobile_phone WHERE 1=1;
+DELETE FROM outbox_event WHERE 1=1;
+DELETE FROM waitlist_entry WHERE 1=1;
+DELETE FROM reservation_history WHERE 1=1;
+DELETE FROM slot_reservation WHERE 1=1;
+DELETE FROM idempotency_record WHERE 1=1;
\ No newline at end of file